@@ -17,9 +17,9 @@
 
 package org.xipki.audit;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.xipki.util.Args;
@@ -63,7 +63,7 @@ public class AuditEvent {
   /**
    * The data array belonging to the event.
    */
-  private final List<AuditEventData> eventDatas = new LinkedList<>();
+  private final List<AuditEventData> eventDatas = new ArrayList<>(8);
 
   public AuditEvent(Date timestamp) {
     this.timestamp = (timestamp == null) ? new Date() : timestamp;
@@ -30,21 +30,22 @@ public class AuditEventData {
 
   private final String name;
 
-  private String value;
+  /**
+   * The value, either a {@link String} or the original object whose string representation
+   * is computed on demand. This avoids formatting the values on the request thread if the
+   * audit service does not need the text (e.g. binary encoding) or formats it asynchronously.
+   */
+  private Object value;
 
   public AuditEventData(String name, Object value) {
     Args.notBlank(name, "name");
     Args.notNull(value, "value");
     this.name = name;
-    if (value instanceof String) {
-      this.value = (String) value;
-    } else {
-      this.value = value.toString();
-    }
+    this.value = value;
   } // constructor
 
   public void addValue(Object additionalValue) {
-    this.value += ", " + additionalValue;
+    this.value = getValue() + ", " + additionalValue;
   }
 
   public String getName() {
@@ -52,11 +53,29 @@ public class AuditEventData {
   }
 
   public String getValue() {
+    Object v = value;
+    if (v instanceof String) {
+      return (String) v;
+    }
+
+    String str = v.toString();
+    this.value = str;
+    return str;
+  } // method getValue
+
+  /**
+   * Returns the value as passed to the constructor, or its string representation if it has
+   * already been computed.
+   *
+   * @return the raw value.
+   * @since 5.3.11
+   */
+  public Object getRawValue() {
     return value;
   }
 
   @Override
   public String toString() {
-    return new StringBuilder(name).append(": ").append(value).toString();
+    return new StringBuilder(name).append(": ").append(getValue()).toString();
   }
 }
@@ -17,9 +17,13 @@
 
 package org.xipki.audit;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 
+import org.slf4j.LoggerFactory;
 import org.xipki.audit.services.EmbedAuditService;
+import org.xipki.audit.services.FileAuditService;
 
 /**
  * Helper class to configure and initialize the Audit.
@@ -34,6 +38,8 @@ public class Audits {
     /**
      * valid values are:
      *   embed: use the embedded slf4j logging
+     *   file: asynchronous, batched writing to a rolling append-only file,
+     *         see {@link FileAuditService}
      *   java:&lt;name of class that implements org.xipki.audit.AuditService&gt;
      */
     private String type;
@@ -84,6 +90,8 @@ public class Audits {
       AuditService service;
       if ("embed".equalsIgnoreCase(auditType)) {
         service = new EmbedAuditService();
+      } else if ("file".equalsIgnoreCase(auditType)) {
+        service = new FileAuditService();
       } else  if (auditType.startsWith("java:")) {
         String className = auditType.substring("java:".length());
         try {
@@ -97,7 +105,7 @@ public class Audits {
         }
       } else {
         throw new AuditServiceRuntimeException("invalid Audit.Type '" + auditType
-            + "'. Valid values are 'embed' or java:<name of class that implements "
+            + "'. Valid values are 'embed', 'file' or java:<name of class that implements "
             + AuditService.class.getName() + ">");
       }
 
@@ -110,4 +118,22 @@ public class Audits {
     }
   } // method init
 
+  /**
+   * Closes the audit service, if it is {@link Closeable}. The pending events of the
+   * asynchronous audit services are written before this method returns. The events logged
+   * after the shutdown, e.g. by requests still in progress, go to the embedded slf4j logging.
+   */
+  public static void shutdown() {
+    AuditService service = auditService;
+    auditService = new EmbedAuditService();
+    if (service instanceof Closeable) {
+      try {
+        ((Closeable) service).close();
+      } catch (IOException ex) {
+        LoggerFactory.getLogger(Audits.class).warn("could not close AuditService: {}",
+            ex.getMessage());
+      }
+    }
+  } // method shutdown
+
 }
@@ -65,6 +65,11 @@ public class PciAuditEvent {
    */
   private String eventType = UNDEFINED;
 
+  /**
+   * 10.3.3 "Date and time"
+   */
+  private final Date timestamp;
+
   /**
    * 10.3.3 "Date and time" (date)
    */
@@ -96,7 +101,7 @@ public class PciAuditEvent {
   private AuditLevel level;
 
   public PciAuditEvent(Date date) {
-    Args.notNull(date, "date");
+    this.timestamp = Args.notNull(date, "date");
     LocalDateTime localDate = LocalDateTime.ofInstant(date.toInstant(), ZONE_UTC);
     this.date = DATE_FORMATTER.format(localDate);
     this.time = TIME_FORMATTER.format(localDate);
@@ -127,6 +132,10 @@ public class PciAuditEvent {
     this.eventType = eventType;
   }
 
+  public Date getTimestamp() {
+    return timestamp;
+  }
+
   public String getDate() {
     return date;
   }
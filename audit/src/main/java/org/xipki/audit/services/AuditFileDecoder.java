@@ -0,0 +1,328 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.xipki.audit.AuditEventData;
+import org.xipki.audit.AuditLevel;
+import org.xipki.audit.AuditStatus;
+import org.xipki.util.Hex;
+import org.xipki.util.IoUtil;
+import org.xipki.util.StringUtil;
+
+/**
+ * Converts the binary audit files written by {@link FileAuditService} to text, and verifies
+ * the hash chain. The text has the same format as the text audit file.
+ *
+ * <p>Usage: <code>AuditFileDecoder --in &lt;binary file&gt; [--out &lt;text file&gt;]
+ * [--prev-hash &lt;hex chain hash of the previous file&gt;]</code>
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class AuditFileDecoder {
+
+  /**
+   * Result of the decoding.
+   */
+  public static class DecodeResult {
+
+    private final long records;
+
+    private final long firstBrokenRecord;
+
+    private final byte[] lastChainHash;
+
+    DecodeResult(long records, long firstBrokenRecord, byte[] lastChainHash) {
+      this.records = records;
+      this.firstBrokenRecord = firstBrokenRecord;
+      this.lastChainHash = lastChainHash;
+    }
+
+    public long getRecords() {
+      return records;
+    }
+
+    /**
+     * Returns the index (starting with 0) of the first record whose chain hash is not
+     * correct.
+     * @return the index of the first broken record, -1 if the chain is intact.
+     */
+    public long getFirstBrokenRecord() {
+      return firstBrokenRecord;
+    }
+
+    public byte[] getLastChainHash() {
+      return lastChainHash;
+    }
+
+  } // class DecodeResult
+
+  private AuditFileDecoder() {
+  }
+
+  public static void main(String[] args) {
+    if (args == null || args.length < 2 || "--help".equals(args[0])) {
+      printUsage(null);
+      return;
+    }
+
+    String inFile = null;
+    String outFile = null;
+    byte[] prevHash = null;
+
+    final int argSize = args.length;
+    for (int i = 0; i < argSize; i++) {
+      String name = args[i];
+      if (i == argSize - 1) {
+        break;
+      }
+
+      switch (name) {
+        case "--in":
+          inFile = args[++i];
+          break;
+        case "--out":
+          outFile = args[++i];
+          break;
+        case "--prev-hash":
+          prevHash = Hex.decode(args[++i]);
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (inFile == null) {
+      printUsage("in is not specified");
+      return;
+    }
+
+    try (InputStream in = Files.newInputStream(Paths.get(IoUtil.expandFilepath(inFile)));
+        Writer out = new BufferedWriter(new OutputStreamWriter(outFile == null ? System.out
+            : Files.newOutputStream(Paths.get(IoUtil.expandFilepath(outFile))),
+            StandardCharsets.UTF_8))) {
+      DecodeResult result = decode(in, out, prevHash);
+      out.flush();
+
+      if (result.getFirstBrokenRecord() == -1) {
+        System.err.println("decoded " + result.getRecords() + " records, hash chain is valid"
+            + (prevHash == null ? " (first record not verified)" : ""));
+      } else {
+        System.err.println("decoded " + result.getRecords() + " records, hash chain is broken"
+            + " at record " + result.getFirstBrokenRecord());
+      }
+    } catch (IOException ex) {
+      System.err.println("Error while decoding audit file: " + ex.getMessage());
+    }
+  } // method main
+
+  private static void printUsage(String message) {
+    StringBuilder sb = new StringBuilder();
+    if (StringUtil.isNotBlank(message)) {
+      sb.append(message).append("\n");
+    }
+
+    sb.append("Syntax: java ").append(AuditFileDecoder.class.getName())
+      .append(" --in <binary audit file> [--out <text file>] [--prev-hash <hex>]");
+    System.out.println(sb.toString());
+  } // method printUsage
+
+  /**
+   * Decodes the binary audit file and writes the text to {@code out}.
+   *
+   * @param in
+   *          Input stream of the binary audit file.
+   * @param out
+   *          Writer to which the text is written.
+   * @param prevHash
+   *          Chain hash of the last record of the previous file. If {@code null}, the chain
+   *          hash of the first record is not verified.
+   * @return the decoding result.
+   * @throws IOException
+   *           If the file is not a binary audit file or could not be read.
+   */
+  public static DecodeResult decode(InputStream in, Writer out, byte[] prevHash)
+      throws IOException {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IOException("SHA-256 is not supported", ex);
+    }
+
+    DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+    byte[] magic = new byte[BinaryAuditEncoder.MAGIC.length];
+    din.readFully(magic);
+    if (!Arrays.equals(magic, BinaryAuditEncoder.MAGIC)) {
+      throw new IOException("not a binary audit file");
+    }
+
+    List<String> names = new ArrayList<>();
+    long records = 0;
+    long firstBroken = -1;
+    byte[] chainHash = prevHash;
+
+    while (true) {
+      int payloadLen;
+      try {
+        payloadLen = (int) readVarLong(din);
+      } catch (EOFException ex) {
+        break;
+      }
+
+      byte[] payload = new byte[payloadLen];
+      din.readFully(payload);
+      byte[] hash = new byte[32];
+      din.readFully(hash);
+
+      if (chainHash != null) {
+        md.update(chainHash);
+        md.update(payload);
+        if (firstBroken == -1 && !Arrays.equals(md.digest(), hash)) {
+          firstBroken = records;
+        }
+      }
+      chainHash = hash;
+
+      String text = decodePayload(new DataInputStream(
+          new ByteArrayInputStream(payload)), names);
+      out.write(text);
+      out.write(FileAuditService.SEPARATOR);
+      out.write(Hex.encode(hash));
+      out.write('\n');
+      records++;
+    }
+
+    return new DecodeResult(records, firstBroken, chainHash);
+  } // method decode
+
+  private static String decodePayload(DataInputStream in, List<String> names)
+      throws IOException {
+    int type = in.readUnsignedByte();
+    long timestamp = readVarLong(in);
+    AuditLevel level = AuditLevel.forValue(in.readUnsignedByte());
+
+    String message;
+    if (type == BinaryAuditEncoder.TYPE_EVENT) {
+      int statusOrdinal = in.readUnsignedByte();
+      AuditStatus status = (statusOrdinal == BinaryAuditEncoder.NO_STATUS) ? null
+          : AuditStatus.values()[statusOrdinal];
+      long duration = unzigzag(readVarLong(in));
+      String applicationName = readName(in, names);
+      String name = readName(in, names);
+
+      int size = (int) readVarLong(in);
+      List<AuditEventData> datas = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String dataName = readName(in, names);
+        int valueType = in.readUnsignedByte();
+        Object value;
+        switch (valueType) {
+          case BinaryAuditEncoder.VALUE_LONG:
+            value = unzigzag(readVarLong(in));
+            break;
+          case BinaryAuditEncoder.VALUE_TRUE:
+            value = Boolean.TRUE;
+            break;
+          case BinaryAuditEncoder.VALUE_FALSE:
+            value = Boolean.FALSE;
+            break;
+          default:
+            value = readString(in);
+            break;
+        }
+        datas.add(new AuditEventData(dataName, value));
+      }
+
+      message = EmbedAuditService.createMessage(level, applicationName, name, status,
+          duration, datas);
+    } else if (type == BinaryAuditEncoder.TYPE_PCI_EVENT
+        || type == BinaryAuditEncoder.TYPE_MESSAGE) {
+      message = StringUtil.concat(level.getAlignedText(), FileAuditService.SEPARATOR,
+          readString(in));
+    } else {
+      throw new IOException("unknown record type " + type);
+    }
+
+    return StringUtil.concat(
+        FileAuditService.TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(timestamp)),
+        FileAuditService.SEPARATOR, message);
+  } // method decodePayload
+
+  private static String readName(DataInputStream in, List<String> names)
+      throws IOException {
+    int index = (int) readVarLong(in);
+    if (index != 0) {
+      if (index > names.size()) {
+        throw new IOException("unknown name index " + index);
+      }
+      return names.get(index - 1);
+    }
+
+    String name = readString(in);
+    if (names.size() < BinaryAuditEncoder.MAX_NAMES) {
+      names.add(name);
+    }
+    return name;
+  } // method readName
+
+  private static String readString(DataInputStream in)
+      throws IOException {
+    byte[] bytes = new byte[(int) readVarLong(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  } // method readString
+
+  private static long readVarLong(DataInputStream in)
+      throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed varint");
+  } // method readVarLong
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
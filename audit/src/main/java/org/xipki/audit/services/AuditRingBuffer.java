@@ -0,0 +1,117 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-allocated, lock-free ring buffer for multiple producers and a single consumer.
+ * Producers never block: if the buffer is full, {@link #offer(Object)} returns
+ * {@code false}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+final class AuditRingBuffer<T> {
+
+  private final AtomicReferenceArray<T> slots;
+
+  private final int capacity;
+
+  private final int mask;
+
+  /**
+   * Next sequence to be claimed by a producer.
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Next sequence to be consumed, written only by the consumer.
+   */
+  private volatile long head;
+
+  AuditRingBuffer(int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+    }
+
+    // round up to the next power of 2
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+
+    this.capacity = size;
+    this.mask = size - 1;
+    this.slots = new AtomicReferenceArray<>(size);
+  } // constructor
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Adds the element to the buffer.
+   *
+   * @param element
+   *          the element to be added. Must not be {@code null}.
+   * @return whether the element has been added, {@code false} if the buffer is full.
+   */
+  boolean offer(T element) {
+    while (true) {
+      long seq = tail.get();
+      if (seq - head >= capacity) {
+        return false;
+      }
+
+      if (tail.compareAndSet(seq, seq + 1)) {
+        slots.lazySet((int) seq & mask, element);
+        return true;
+      }
+    }
+  } // method offer
+
+  /**
+   * Removes the next element. Must be called only by the consumer thread.
+   *
+   * @return the next element, or {@code null} if no published element is available.
+   */
+  T poll() {
+    long seq = head;
+    int idx = (int) seq & mask;
+    T element = slots.get(idx);
+    if (element == null) {
+      return null;
+    }
+
+    slots.lazySet(idx, null);
+    head = seq + 1;
+    return element;
+  } // method poll
+
+  boolean isEmpty() {
+    return tail.get() == head;
+  }
+
+  int size() {
+    return (int) (tail.get() - head);
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xipki.audit.AuditEvent;
+import org.xipki.audit.AuditEventData;
+import org.xipki.audit.AuditLevel;
+import org.xipki.audit.AuditStatus;
+import org.xipki.audit.PciAuditEvent;
+
+/**
+ * Compact binary encoding of the audit events, used by {@link FileAuditService} if the
+ * format binary is configured. Decoded by {@link AuditFileDecoder}.
+ *
+ * <p>A binary audit file starts with {@link #MAGIC}, followed by the records. Each record
+ * consists of the length of the payload (varint), the payload and the 32-byte chain hash.
+ * The payload starts with the record type, the timestamp in milliseconds (varint) and the
+ * audit level.
+ *
+ * <p>The application names, event names and the names of the event data are interned: the
+ * first occurrence of a name in a file is encoded as 0 followed by the UTF-8 encoded name,
+ * the following occurrences as the index of the name (starting with 1). Integer values are
+ * encoded as zigzag varints instead of text.
+ *
+ * <p>This class is not thread-safe, and is used only by the writer thread.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+final class BinaryAuditEncoder {
+
+  static final byte[] MAGIC = {'X', 'I', 'A', 'U', 'D', 'I', 'T', 1};
+
+  static final int TYPE_EVENT = 1;
+
+  static final int TYPE_PCI_EVENT = 2;
+
+  static final int TYPE_MESSAGE = 3;
+
+  static final int VALUE_STRING = 0;
+
+  static final int VALUE_LONG = 1;
+
+  static final int VALUE_TRUE = 2;
+
+  static final int VALUE_FALSE = 3;
+
+  static final int NO_STATUS = 0xFF;
+
+  /**
+   * Maximal number of interned names per file.
+   */
+  static final int MAX_NAMES = 4096;
+
+  private final Map<String, Integer> names = new HashMap<>();
+
+  private byte[] buf = new byte[512];
+
+  private int len;
+
+  /**
+   * Resets the table of interned names, must be called at the beginning of each file.
+   */
+  void resetNames() {
+    names.clear();
+  }
+
+  byte[] buffer() {
+    return buf;
+  }
+
+  int length() {
+    return len;
+  }
+
+  void encode(long timestamp, Object event) {
+    if (event instanceof AuditEvent) {
+      encodeEvent(timestamp, (AuditEvent) event);
+    } else {
+      PciAuditEvent pciEvent = (PciAuditEvent) event;
+      startRecord(TYPE_PCI_EVENT, timestamp, pciEvent.getLevel());
+      writeString(pciEvent.toCharArrayWriter("").toString());
+    }
+  } // method encode
+
+  void encodeMessage(long timestamp, AuditLevel level, String message) {
+    startRecord(TYPE_MESSAGE, timestamp, level);
+    writeString(message);
+  } // method encodeMessage
+
+  private void encodeEvent(long timestamp, AuditEvent event) {
+    startRecord(TYPE_EVENT, timestamp, event.getLevel());
+    AuditStatus status = event.getStatus();
+    writeByte(status == null ? NO_STATUS : status.ordinal());
+    writeVarLong(zigzag(event.getDuration()));
+    writeName(event.getApplicationName());
+    writeName(event.getName());
+
+    List<AuditEventData> datas = event.getEventDatas();
+    int size = datas.size();
+    writeVarLong(size);
+    for (int i = 0; i < size; i++) {
+      AuditEventData data = datas.get(i);
+      writeName(data.getName());
+
+      Object value = data.getRawValue();
+      if (value instanceof Long || value instanceof Integer
+          || value instanceof Short || value instanceof Byte) {
+        writeByte(VALUE_LONG);
+        writeVarLong(zigzag(((Number) value).longValue()));
+      } else if (value instanceof Boolean) {
+        writeByte(((Boolean) value) ? VALUE_TRUE : VALUE_FALSE);
+      } else {
+        writeByte(VALUE_STRING);
+        writeString(data.getValue());
+      }
+    }
+  } // method encodeEvent
+
+  private void startRecord(int type, long timestamp, AuditLevel level) {
+    len = 0;
+    writeByte(type);
+    writeVarLong(timestamp);
+    writeByte(level.getValue());
+  } // method startRecord
+
+  private void writeName(String name) {
+    if (name == null) {
+      name = "undefined";
+    }
+
+    Integer index = names.get(name);
+    if (index != null) {
+      writeVarLong(index);
+      return;
+    }
+
+    writeVarLong(0);
+    writeString(name);
+    if (names.size() < MAX_NAMES) {
+      names.put(name, names.size() + 1);
+    }
+  } // method writeName
+
+  private void writeString(String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buf, len, bytes.length);
+    len += bytes.length;
+  } // method writeString
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    buf[len++] = (byte) value;
+  }
+
+  private void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buf[len++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf[len++] = (byte) value;
+  } // method writeVarLong
+
+  private void ensureCapacity(int extra) {
+    if (len + extra > buf.length) {
+      byte[] newBuf = new byte[Math.max(buf.length * 2, len + extra)];
+      System.arraycopy(buf, 0, newBuf, 0, len);
+      buf = newBuf;
+    }
+  } // method ensureCapacity
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+}
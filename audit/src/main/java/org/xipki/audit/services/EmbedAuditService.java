@@ -88,29 +88,30 @@ public class EmbedAuditService implements AuditService {
 
   protected static String createMessage(AuditEvent event) {
     Args.notNull(event, "event");
-    String applicationName = event.getApplicationName();
+    return createMessage(event.getLevel(), event.getApplicationName(), event.getName(),
+        event.getStatus(), event.getDuration(), event.getEventDatas());
+  } // method createMessage
+
+  static String createMessage(AuditLevel level, String applicationName, String name,
+      AuditStatus status, long duration, List<AuditEventData> eventDataArray) {
     if (applicationName == null) {
       applicationName = "undefined";
     }
 
-    String name = event.getName();
     if (name == null) {
       name = "undefined";
     }
 
     StringBuilder sb = new StringBuilder(150);
 
-    sb.append(event.getLevel().getAlignedText()).append(" | ");
+    sb.append(level.getAlignedText()).append(" | ");
     sb.append(applicationName).append(" - ").append(name);
 
-    AuditStatus status = event.getStatus();
     if (status == null) {
       status = AuditStatus.UNDEFINED;
     }
     sb.append(":\tstatus: ").append(status.name());
-    List<AuditEventData> eventDataArray = event.getEventDatas();
 
-    long duration = event.getDuration();
     if (duration >= 0) {
       sb.append("\tduration: ").append(duration);
     }
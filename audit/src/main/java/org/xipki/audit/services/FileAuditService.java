@@ -0,0 +1,633 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.audit.AuditEvent;
+import org.xipki.audit.AuditLevel;
+import org.xipki.audit.AuditService;
+import org.xipki.audit.AuditServiceRuntimeException;
+import org.xipki.audit.PciAuditEvent;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.Hex;
+import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
+import org.xipki.util.StringUtil;
+
+/**
+ * Asynchronous audit service writing the events to a rolling append-only file.
+ *
+ * <p>The events are put into a pre-allocated lock-free ring buffer, a dedicated writer thread
+ * formats and writes them in batches. Request threads never block on the audit I/O: if the
+ * buffer is full, the event is dropped and counted, the number of dropped events is written
+ * to the audit file as soon as the writer catches up.
+ *
+ * <p>Each line ends with the hex encoded SHA-256 of the hash of the previous line and the
+ * content of the current line, so that modifications, insertions and deletions of lines can be
+ * detected. The chain continues over the rolled files.
+ *
+ * <p>Configuration (comma-separated name=value pairs):
+ * <ul>
+ *   <li>file: path of the audit file, required.</li>
+ *   <li>maxSize: size of the audit file in MB before it is rolled, defaults to 100.
+ *     The rolled files are renamed to &lt;file&gt;.&lt;yyyyMMddHHmmss&gt; and never deleted.</li>
+ *   <li>queueSize: capacity of the ring buffer, defaults to 65536.</li>
+ *   <li>sync: none (flush to the operating system only), batch (fsync after each batch) or
+ *     the interval in milliseconds between two fsyncs, defaults to 1000.</li>
+ *   <li>level: minimal level of the audited events, defaults to INFO.</li>
+ *   <li>format: text or binary, defaults to text. The binary format (see
+ *     {@link BinaryAuditEncoder}) is more compact and cheaper to write, it can be converted
+ *     to text with {@link AuditFileDecoder}. On start, an existing binary file is rolled.</li>
+ * </ul>
+ *
+ * <p>If a batch could not be written, its events are lost and counted. The partially written
+ * bytes are truncated and the chain continues after the last complete record. In the binary
+ * format, the file is additionally rolled, since the names interned while encoding the lost
+ * batch are not in the file.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class FileAuditService implements AuditService, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileAuditService.class);
+
+  static final DateTimeFormatter TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+  private static final DateTimeFormatter ROLL_SUFFIX_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+  static final String SEPARATOR = " | ";
+
+  private static final int MAX_BATCH_SIZE = 1024;
+
+  private static final long SYNC_NONE = -1;
+
+  private static final long SYNC_BATCH = 0;
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicLong written = new AtomicLong();
+
+  private final AtomicLong writeErrors = new AtomicLong();
+
+  private AuditRingBuffer<Object> buffer;
+
+  private File file;
+
+  private long maxSize;
+
+  /**
+   * -1: no fsync, 0: fsync after each batch, otherwise interval in milliseconds.
+   */
+  private long syncInterval;
+
+  private AuditLevel minLevel;
+
+  private boolean binary;
+
+  private Thread writer;
+
+  private Thread shutdownHook;
+
+  private volatile boolean writerParked;
+
+  private volatile boolean stopped;
+
+  // the following fields are accessed only by the writer thread
+  private FileOutputStream out;
+
+  private long fileSize;
+
+  private long lastSync;
+
+  private boolean unsynced;
+
+  private long reportedDropped;
+
+  private byte[] chainHash;
+
+  private long goodFileSize;
+
+  private byte[] goodChainHash;
+
+  private boolean namesLost;
+
+  private MessageDigest md;
+
+  private final ByteArrayOutputStream batch = new ByteArrayOutputStream(MAX_BATCH_SIZE * 200);
+
+  private final byte[] varintBuf = new byte[5];
+
+  private BinaryAuditEncoder encoder;
+
+  public FileAuditService() {
+  }
+
+  @Override
+  public void init(String conf) {
+    ConfPairs pairs = new ConfPairs(conf == null ? "" : conf);
+    String str = pairs.value("file");
+    if (StringUtil.isBlank(str)) {
+      throw new AuditServiceRuntimeException("file is not specified");
+    }
+    this.file = new File(IoUtil.expandFilepath(str));
+
+    str = pairs.value("maxSize");
+    this.maxSize = (str == null ? 100 : Long.parseLong(str)) * 1024 * 1024;
+
+    str = pairs.value("queueSize");
+    this.buffer = new AuditRingBuffer<>(str == null ? 65536 : Integer.parseInt(str));
+
+    str = pairs.value("sync");
+    if (str == null) {
+      this.syncInterval = 1000;
+    } else if ("none".equalsIgnoreCase(str)) {
+      this.syncInterval = SYNC_NONE;
+    } else if ("batch".equalsIgnoreCase(str)) {
+      this.syncInterval = SYNC_BATCH;
+    } else {
+      this.syncInterval = Long.parseLong(str);
+    }
+
+    str = pairs.value("level");
+    this.minLevel = (str == null) ? AuditLevel.INFO : AuditLevel.forName(str.toUpperCase());
+
+    str = pairs.value("format");
+    if (str == null || "text".equalsIgnoreCase(str)) {
+      this.binary = false;
+    } else if ("binary".equalsIgnoreCase(str)) {
+      this.binary = true;
+      this.encoder = new BinaryAuditEncoder();
+    } else {
+      throw new AuditServiceRuntimeException("invalid format " + str);
+    }
+
+    try {
+      this.md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new AuditServiceRuntimeException("SHA-256 is not supported", ex);
+    }
+
+    File parent = file.getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+
+    this.chainHash = readLastChainHash(file, binary);
+    try {
+      if (binary && file.exists() && file.length() > 0) {
+        // the interned names of the existing file are not known
+        renameToRolled();
+      }
+      openFile();
+    } catch (IOException ex) {
+      throw new AuditServiceRuntimeException("could not open audit file " + file, ex);
+    }
+
+    this.writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        runWriter();
+      }
+    }, "audit-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+
+    this.shutdownHook = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        stopWriter();
+      }
+    }, "audit-shutdown");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+    LOG.info("audit file {}, queue size {}, sync {}", file, buffer.capacity(),
+        syncInterval == SYNC_NONE ? "none" : syncInterval == SYNC_BATCH ? "batch"
+            : syncInterval + " ms");
+  } // method init
+
+  @Override
+  public void logEvent(AuditEvent event) {
+    if (event.getLevel().getValue() <= minLevel.getValue()) {
+      enqueue(event);
+    }
+  }
+
+  @Override
+  public void logEvent(PciAuditEvent event) {
+    if (event.getLevel().getValue() <= minLevel.getValue()) {
+      enqueue(event);
+    }
+  }
+
+  private void enqueue(Object event) {
+    if (stopped || !buffer.offer(event)) {
+      dropped.incrementAndGet();
+      return;
+    }
+
+    if (writerParked) {
+      LockSupport.unpark(writer);
+    }
+  } // method enqueue
+
+  /**
+   * Returns the number of dropped events, because the ring buffer was full.
+   * @return the number of dropped events.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  public long getWriteErrorCount() {
+    return writeErrors.get();
+  }
+
+  @Override
+  public void close() {
+    stopWriter();
+    if (shutdownHook != null) {
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException ex) {
+        // JVM is shutting down
+      }
+      shutdownHook = null;
+    }
+  } // method close
+
+  private void stopWriter() {
+    if (stopped) {
+      return;
+    }
+
+    stopped = true;
+    if (writer != null) {
+      LockSupport.unpark(writer);
+      try {
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  } // method stopWriter
+
+  private void runWriter() {
+    while (true) {
+      int count = writeBatch();
+      if (count > 0) {
+        continue;
+      }
+
+      if (stopped && buffer.isEmpty()) {
+        break;
+      }
+
+      syncIfDue();
+
+      writerParked = true;
+      if (buffer.isEmpty() && !stopped) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+      }
+      writerParked = false;
+    }
+
+    try {
+      sync();
+    } catch (IOException ex) {
+      LogUtil.error(LOG, ex, "could not sync the audit file");
+    }
+    IoUtil.closeQuietly(out);
+    out = null;
+  } // method runWriter
+
+  private int writeBatch() {
+    if (out == null) {
+      try {
+        openFile();
+      } catch (IOException | RuntimeException ex) {
+        LogUtil.error(LOG, ex, "could not open the audit file " + file);
+        return discardBatch();
+      }
+    }
+
+    int count = 0;
+    batch.reset();
+    try {
+      for (; count < MAX_BATCH_SIZE; count++) {
+        Object event = buffer.poll();
+        if (event == null) {
+          break;
+        }
+
+        if (binary) {
+          encoder.encode(timestampOf(event), event);
+          appendBinaryRecord();
+        } else {
+          appendLine(timestampOf(event), formatEvent(event));
+        }
+      }
+
+      long droppedNow = dropped.get();
+      if (droppedNow != reportedDropped) {
+        appendMessage(AuditLevel.WARN,
+            "audit - dropped " + (droppedNow - reportedDropped) + " events");
+        reportedDropped = droppedNow;
+      }
+
+      if (batch.size() == 0) {
+        return count;
+      }
+
+      write(out, batch);
+      fileSize += batch.size();
+      goodFileSize = fileSize;
+      goodChainHash = chainHash;
+      written.addAndGet(count);
+      unsynced = true;
+
+      if (syncInterval == SYNC_BATCH) {
+        sync();
+      } else {
+        syncIfDue();
+      }
+
+      if (fileSize >= maxSize) {
+        rollFile();
+      }
+    } catch (IOException | RuntimeException ex) {
+      writeErrors.addAndGet(count);
+      LogUtil.error(LOG, ex, "could not write " + count + " audit events");
+      recoverFromWriteError();
+    }
+
+    return count;
+  } // method writeBatch
+
+  /**
+   * Writes the formatted batch to the audit file.
+   */
+  void write(OutputStream out, ByteArrayOutputStream bytes)
+      throws IOException {
+    bytes.writeTo(out);
+  }
+
+  private int discardBatch() {
+    int count = 0;
+    while (count < MAX_BATCH_SIZE && buffer.poll() != null) {
+      count++;
+    }
+    writeErrors.addAndGet(count);
+    return count;
+  } // method discardBatch
+
+  /**
+   * Drops the partially written bytes of a failed batch and continues the chain after the
+   * last complete record.
+   */
+  private void recoverFromWriteError() {
+    IoUtil.closeQuietly(out);
+    out = null;
+    chainHash = goodChainHash;
+    if (binary) {
+      // the names interned while encoding the failed batch are not in the file
+      namesLost = true;
+    }
+
+    if (file.exists() && file.length() > goodFileSize) {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(goodFileSize);
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "could not truncate the audit file " + file
+            + " to " + goodFileSize + " bytes");
+      }
+    }
+  } // method recoverFromWriteError
+
+  private static long timestampOf(Object event) {
+    return (event instanceof AuditEvent) ? ((AuditEvent) event).getTimestamp().getTime()
+        : ((PciAuditEvent) event).getTimestamp().getTime();
+  }
+
+  private static String formatEvent(Object event) {
+    if (event instanceof AuditEvent) {
+      return EmbedAuditService.createMessage((AuditEvent) event);
+    } else {
+      PciAuditEvent pciEvent = (PciAuditEvent) event;
+      return StringUtil.concat(pciEvent.getLevel().getAlignedText(), SEPARATOR,
+          pciEvent.toCharArrayWriter("").toString());
+    }
+  } // method formatEvent
+
+  private void appendMessage(AuditLevel level, String message) {
+    if (binary) {
+      encoder.encodeMessage(System.currentTimeMillis(), level, message);
+      appendBinaryRecord();
+    } else {
+      appendLine(System.currentTimeMillis(),
+          StringUtil.concat(level.getAlignedText(), SEPARATOR, message));
+    }
+  } // method appendMessage
+
+  private void appendLine(long timestamp, String message) {
+    String content = StringUtil.concat(
+        TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(timestamp)), SEPARATOR, message);
+    md.update(chainHash);
+    md.update(content.getBytes(StandardCharsets.UTF_8));
+    chainHash = md.digest();
+    String line = StringUtil.concat(content, SEPARATOR, Hex.encode(chainHash), "\n");
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    batch.write(bytes, 0, bytes.length);
+  } // method appendLine
+
+  private void appendBinaryRecord() {
+    byte[] payload = encoder.buffer();
+    int payloadLen = encoder.length();
+
+    md.update(chainHash);
+    md.update(payload, 0, payloadLen);
+    chainHash = md.digest();
+
+    int n = 0;
+    int value = payloadLen;
+    while ((value & ~0x7F) != 0) {
+      varintBuf[n++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    varintBuf[n++] = (byte) value;
+
+    batch.write(varintBuf, 0, n);
+    batch.write(payload, 0, payloadLen);
+    batch.write(chainHash, 0, chainHash.length);
+  } // method appendBinaryRecord
+
+  private void openFile()
+      throws IOException {
+    if (namesLost && file.exists() && file.length() > 0) {
+      renameToRolled();
+    }
+
+    out = new FileOutputStream(file, true);
+    fileSize = file.length();
+    if (binary && fileSize == 0) {
+      encoder.resetNames();
+      try {
+        out.write(BinaryAuditEncoder.MAGIC);
+      } catch (IOException ex) {
+        IoUtil.closeQuietly(out);
+        out = null;
+        // the file contains at most a part of the magic
+        file.delete();
+        throw ex;
+      }
+      fileSize += BinaryAuditEncoder.MAGIC.length;
+      namesLost = false;
+    }
+
+    goodFileSize = fileSize;
+    goodChainHash = chainHash;
+  } // method openFile
+
+  private void rollFile()
+      throws IOException {
+    sync();
+    out.close();
+    out = null;
+
+    File rolled = renameToRolled();
+    openFile();
+
+    batch.reset();
+    appendMessage(AuditLevel.INFO, "audit - continued from " + rolled.getName());
+    batch.writeTo(out);
+    fileSize += batch.size();
+    goodFileSize = fileSize;
+    goodChainHash = chainHash;
+    unsynced = true;
+  } // method rollFile
+
+  private File renameToRolled()
+      throws IOException {
+    String path = file.getPath() + "." + ROLL_SUFFIX_FORMATTER.format(Instant.now());
+    File rolled = new File(path);
+    // more than one roll within a second, e.g. after write errors
+    for (int i = 1; rolled.exists(); i++) {
+      rolled = new File(path + "-" + i);
+    }
+
+    if (!file.renameTo(rolled)) {
+      throw new IOException("could not rename " + file + " to " + rolled);
+    }
+    return rolled;
+  } // method renameToRolled
+
+  private void syncIfDue() {
+    if (syncInterval > 0 && unsynced && out != null
+        && System.currentTimeMillis() - lastSync >= syncInterval) {
+      try {
+        sync();
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "could not sync the audit file");
+      }
+    }
+  } // method syncIfDue
+
+  private void sync()
+      throws IOException {
+    if (out != null && unsynced) {
+      if (syncInterval != SYNC_NONE) {
+        out.getChannel().force(false);
+      }
+      unsynced = false;
+      lastSync = System.currentTimeMillis();
+    }
+  } // method sync
+
+  /**
+   * Reads the chain hash of the last record of an existing audit file.
+   */
+  private static byte[] readLastChainHash(File file, boolean binary) {
+    byte[] zeroHash = new byte[32];
+    if (!file.exists() || file.length() == 0) {
+      return zeroHash;
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long len = raf.length();
+      if (binary) {
+        byte[] magic = new byte[BinaryAuditEncoder.MAGIC.length];
+        if (len >= magic.length + zeroHash.length) {
+          raf.readFully(magic);
+          if (Arrays.equals(magic, BinaryAuditEncoder.MAGIC)) {
+            byte[] hash = new byte[zeroHash.length];
+            raf.seek(len - hash.length);
+            raf.readFully(hash);
+            return hash;
+          }
+        }
+      } else {
+        int readLen = (int) Math.min(len, 64 * 1024);
+        byte[] bytes = new byte[readLen];
+        raf.seek(len - readLen);
+        raf.readFully(bytes);
+
+        String tail = new String(bytes, StandardCharsets.UTF_8).trim();
+        int idx = tail.lastIndexOf('\n');
+        String lastLine = (idx == -1) ? tail : tail.substring(idx + 1);
+        idx = lastLine.lastIndexOf(SEPARATOR);
+        if (idx != -1) {
+          String hex = lastLine.substring(idx + SEPARATOR.length()).trim();
+          if (hex.length() == 64) {
+            return Hex.decode(hex);
+          }
+        }
+      }
+      LOG.warn("could not find the chain hash in audit file {}, start a new chain", file);
+    } catch (IOException | RuntimeException ex) {
+      LogUtil.warn(LOG, ex, "could not read the chain hash from audit file " + file);
+    }
+    return zeroHash;
+  } // method readLastChainHash
+
+}
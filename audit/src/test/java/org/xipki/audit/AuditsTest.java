@@ -0,0 +1,48 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.audit.services.EmbedAuditService;
+
+/**
+ * Audits test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class AuditsTest {
+
+  @Test
+  public void testLogAfterShutdown() {
+    Audits.init("file", "file=target/audits-test/audit.log");
+    Audits.shutdown();
+
+    AuditService service = Audits.getAuditService();
+    Assert.assertTrue("service after shutdown", service instanceof EmbedAuditService);
+
+    AuditEvent event = new AuditEvent(null);
+    event.setApplicationName("app");
+    event.setName("event");
+    event.setStatus(AuditStatus.SUCCESSFUL);
+    service.logEvent(event);
+  } // method testLogAfterShutdown
+
+}
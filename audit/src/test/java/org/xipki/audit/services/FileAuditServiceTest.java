@@ -0,0 +1,291 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.audit.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.audit.AuditEvent;
+import org.xipki.audit.AuditStatus;
+import org.xipki.util.Hex;
+
+/**
+ * FileAuditService test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class FileAuditServiceTest {
+
+  private static class FailingFileAuditService extends FileAuditService {
+
+    private volatile boolean failNextWrite;
+
+    @Override
+    void write(OutputStream out, ByteArrayOutputStream bytes)
+        throws IOException {
+      if (failNextWrite) {
+        failNextWrite = false;
+        // only a part of the batch reaches the file, e.g. disk full
+        byte[] data = bytes.toByteArray();
+        out.write(data, 0, data.length / 2);
+        throw new IOException("simulated write error");
+      }
+      super.write(out, bytes);
+    }
+
+  } // class FailingFileAuditService
+
+  private File dir;
+
+  @Before
+  public void createDir()
+      throws IOException {
+    dir = Files.createTempDirectory("audit-test").toFile();
+  }
+
+  @After
+  public void deleteDir() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void testBinaryRoundTrip()
+      throws Exception {
+    FileAuditService service = new FileAuditService();
+    service.init("file=" + new File(dir, "audit.bin").getPath() + ",format=binary,sync=none");
+    try {
+      for (int i = 0; i < 10; i++) {
+        service.logEvent(newEvent("app" + (i % 3), "event" + (i % 2), "data" + i));
+      }
+      waitForWritten(service, 10);
+    } finally {
+      service.close();
+    }
+
+    List<String> texts = new ArrayList<>();
+    Assert.assertEquals("records", 10, decodeAll(texts));
+    Assert.assertTrue("decoded text", texts.get(0).contains("data9"));
+  } // method testBinaryRoundTrip
+
+  @Test
+  public void testBinaryTimestamp()
+      throws Exception {
+    FileAuditService service = new FileAuditService();
+    service.init("file=" + new File(dir, "audit.bin").getPath() + ",format=binary,sync=none");
+    try {
+      service.logEvent(newEvent(new Date(1600000000123L), "app", "event", "data"));
+      waitForWritten(service, 1);
+    } finally {
+      service.close();
+    }
+
+    List<String> texts = new ArrayList<>();
+    Assert.assertEquals("records", 1, decodeAll(texts));
+    Assert.assertTrue("timestamp of the event: " + texts.get(0),
+        texts.get(0).startsWith("2020-09-13T12:26:40.123Z" + FileAuditService.SEPARATOR));
+  } // method testBinaryTimestamp
+
+  @Test
+  public void testBinaryWriteError()
+      throws Exception {
+    FailingFileAuditService service = new FailingFileAuditService();
+    service.init("file=" + new File(dir, "audit.bin").getPath() + ",format=binary,sync=none");
+    try {
+      for (int i = 0; i < 3; i++) {
+        service.logEvent(newEvent("app", "event", "data" + i));
+      }
+      waitForWritten(service, 3);
+
+      // the names lost-app, lost-event and lost-data are interned in the failed batch
+      service.failNextWrite = true;
+      service.logEvent(newEvent("lost-app", "lost-event", "lost-data"));
+      waitForWriteErrors(service, 1);
+
+      service.logEvent(newEvent("lost-app", "lost-event", "lost-data"));
+      service.logEvent(newEvent("app", "event", "data3"));
+      service.logEvent(newEvent("new-app", "lost-event", "data4"));
+      waitForWritten(service, 6);
+    } finally {
+      service.close();
+    }
+
+    Assert.assertEquals("write errors", 1, service.getWriteErrorCount());
+
+    // the file has been rolled after the write error
+    List<String> texts = new ArrayList<>();
+    Assert.assertEquals("records", 6, decodeAll(texts));
+    Assert.assertEquals("files", 2, texts.size());
+    Assert.assertFalse("rolled file", texts.get(0).contains("lost-app"));
+    Assert.assertTrue("current file", texts.get(1).contains("lost-data"));
+    Assert.assertTrue("current file", texts.get(1).contains("new-app"));
+  } // method testBinaryWriteError
+
+  @Test
+  public void testTextWriteError()
+      throws Exception {
+    File file = new File(dir, "audit.log");
+    FailingFileAuditService service = new FailingFileAuditService();
+    service.init("file=" + file.getPath() + ",format=text,sync=none");
+    try {
+      service.logEvent(newEvent("app", "event", "data0"));
+      waitForWritten(service, 1);
+
+      service.failNextWrite = true;
+      service.logEvent(newEvent("app", "event", "lost-data"));
+      waitForWriteErrors(service, 1);
+
+      service.logEvent(newEvent("app", "event", "data1"));
+      waitForWritten(service, 2);
+    } finally {
+      service.close();
+    }
+
+    String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    Assert.assertFalse("lost event", text.contains("lost-data"));
+
+    String[] lines = text.split("\n");
+    Assert.assertEquals("lines", 2, lines.length);
+
+    MessageDigest md = MessageDigest.getInstance("SHA-256");
+    byte[] chainHash = new byte[32];
+    for (String line : lines) {
+      int idx = line.lastIndexOf(FileAuditService.SEPARATOR);
+      md.update(chainHash);
+      md.update(line.substring(0, idx).getBytes(StandardCharsets.UTF_8));
+      chainHash = md.digest();
+      Assert.assertEquals("chain hash", Hex.encode(chainHash),
+          line.substring(idx + FileAuditService.SEPARATOR.length()));
+    }
+  } // method testTextWriteError
+
+  @Test
+  public void testTextTimestamp()
+      throws Exception {
+    File file = new File(dir, "audit.log");
+    FileAuditService service = new FileAuditService();
+    service.init("file=" + file.getPath() + ",format=text,sync=none");
+    try {
+      // the event has been created before it is written
+      service.logEvent(newEvent(new Date(1600000000123L), "app", "event", "data"));
+      waitForWritten(service, 1);
+    } finally {
+      service.close();
+    }
+
+    String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    Assert.assertTrue("timestamp of the event: " + text,
+        text.startsWith("2020-09-13T12:26:40.123Z" + FileAuditService.SEPARATOR));
+  } // method testTextTimestamp
+
+  /**
+   * Decodes the rolled files and then the current file, verifies that the chain is intact.
+   */
+  private int decodeAll(List<String> texts)
+      throws IOException {
+    List<String> rolledNames = new ArrayList<>();
+    for (String name : dir.list()) {
+      if (name.startsWith("audit.bin.")) {
+        rolledNames.add(name);
+      }
+    }
+    Collections.sort(rolledNames);
+
+    List<File> files = new ArrayList<>();
+    for (String name : rolledNames) {
+      files.add(new File(dir, name));
+    }
+    files.add(new File(dir, "audit.bin"));
+
+    byte[] prevHash = new byte[32];
+    int records = 0;
+    for (File file : files) {
+      StringWriter writer = new StringWriter();
+      AuditFileDecoder.DecodeResult result;
+      try (InputStream in = new FileInputStream(file)) {
+        result = AuditFileDecoder.decode(in, writer, prevHash);
+      }
+
+      Assert.assertEquals("first broken record in " + file.getName(),
+          -1, result.getFirstBrokenRecord());
+      records += result.getRecords();
+      if (result.getRecords() > 0) {
+        prevHash = result.getLastChainHash();
+      }
+      texts.add(writer.toString());
+    }
+
+    Assert.assertTrue("chain hash", records == 0 || !Arrays.equals(new byte[32], prevHash));
+    return records;
+  } // method decodeAll
+
+  private static AuditEvent newEvent(String applicationName, String name, String dataName) {
+    return newEvent(null, applicationName, name, dataName);
+  }
+
+  private static AuditEvent newEvent(Date timestamp, String applicationName, String name,
+      String dataName) {
+    AuditEvent event = new AuditEvent(timestamp);
+    event.setApplicationName(applicationName);
+    event.setName(name);
+    event.addEventData(dataName, "value");
+    event.setStatus(AuditStatus.SUCCESSFUL);
+    return event;
+  }
+
+  private static void waitForWritten(FileAuditService service, long count)
+      throws InterruptedException {
+    for (int i = 0; i < 500 && service.getWrittenCount() < count; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals("written events", count, service.getWrittenCount());
+  }
+
+  private static void waitForWriteErrors(FileAuditService service, long count)
+      throws InterruptedException {
+    for (int i = 0; i < 500 && service.getWriteErrorCount() < count; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals("write errors", count, service.getWriteErrorCount());
+  }
+
+}
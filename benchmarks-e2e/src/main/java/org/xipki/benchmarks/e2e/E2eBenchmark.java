@@ -0,0 +1,251 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks.e2e;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequestBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.security.CrlReason;
+import org.xipki.util.Args;
+import org.xipki.util.BenchmarkExecutor;
+
+/**
+ * One stage of the end-to-end benchmark. Each operation is one HTTP request against the
+ * embedded {@link E2eServer}, the throughput and latency are reported by
+ * {@link BenchmarkExecutor}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public abstract class E2eBenchmark extends BenchmarkExecutor {
+
+  /**
+   * Certificates enrolled in the stage {@link Enroll}, consumed by the later stages.
+   */
+  public static class IssuedCerts {
+
+    private static final int MAX_SIZE = 100000;
+
+    private final List<BigInteger> serialNumbers = new ArrayList<>();
+
+    private final ConcurrentLinkedQueue<BigInteger> toRevoke = new ConcurrentLinkedQueue<>();
+
+    private final Set<BigInteger> revoked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private void addIssued(BigInteger serialNumber) {
+      synchronized (serialNumbers) {
+        if (serialNumbers.size() >= MAX_SIZE) {
+          return;
+        }
+        serialNumbers.add(serialNumber);
+      }
+
+      // revoke every second certificate
+      if (serialNumber.testBit(0)) {
+        toRevoke.add(serialNumber);
+      }
+    } // method addIssued
+
+    private BigInteger get(long index) {
+      synchronized (serialNumbers) {
+        int size = serialNumbers.size();
+        return size == 0 ? null : serialNumbers.get((int) (index % size));
+      }
+    }
+
+    public int size() {
+      synchronized (serialNumbers) {
+        return serialNumbers.size();
+      }
+    }
+
+    public int getRevokedSize() {
+      return revoked.size();
+    }
+
+  } // class IssuedCerts
+
+  /**
+   * Enrolls certificates with the same PKCS#10 request via the REST API.
+   */
+  public static class Enroll extends E2eBenchmark {
+
+    private final byte[] csr;
+
+    public Enroll(E2eClient client, IssuedCerts certs) throws Exception {
+      super("enroll", client, certs);
+      setUnit("certs");
+
+      KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+      kpGen.initialize(2048);
+      KeyPair keypair = kpGen.generateKeyPair();
+
+      PKCS10CertificationRequestBuilder builder = new PKCS10CertificationRequestBuilder(
+          new X500Name("C=DE,O=myorg,CN=e2e.example.org"),
+          SubjectPublicKeyInfo.getInstance(keypair.getPublic().getEncoded()));
+      this.csr = builder.build(
+          new JcaContentSignerBuilder("SHA256withRSA").build(keypair.getPrivate())).getEncoded();
+    } // constructor
+
+    @Override
+    protected boolean testNext() throws Exception {
+      certs.addIssued(client.enroll(csr).getSerialNumber());
+      return true;
+    }
+
+  } // class Enroll
+
+  /**
+   * Revokes every second enrolled certificate via the REST API.
+   */
+  public static class Revoke extends E2eBenchmark {
+
+    public Revoke(E2eClient client, IssuedCerts certs) {
+      super("revoke", client, certs);
+      setUnit("certs");
+    }
+
+    @Override
+    protected boolean testNext() throws Exception {
+      BigInteger serialNumber = certs.toRevoke.poll();
+      if (serialNumber == null) {
+        return false;
+      }
+
+      client.revoke(serialNumber, CrlReason.KEY_COMPROMISE);
+      certs.revoked.add(serialNumber);
+      return true;
+    }
+
+  } // class Revoke
+
+  /**
+   * Generates CRLs via the REST API. The CA generates only one CRL at a time, so this
+   * stage should be executed with one thread.
+   */
+  public static class GenerateCrl extends E2eBenchmark {
+
+    public GenerateCrl(E2eClient client, IssuedCerts certs) {
+      super("generate CRL", client, certs);
+      setUnit("CRLs");
+      setThreads(1);
+    }
+
+    @Override
+    protected boolean testNext() throws Exception {
+      client.generateCrl();
+      return true;
+    }
+
+  } // class GenerateCrl
+
+  /**
+   * Requests the status of the enrolled certificates from the OCSP responder, and verifies
+   * that the revocations are visible.
+   */
+  public static class Ocsp extends E2eBenchmark {
+
+    private final AtomicLong index = new AtomicLong(0);
+
+    public Ocsp(E2eClient client, IssuedCerts certs) {
+      super("OCSP", client, certs);
+      setUnit("requests");
+    }
+
+    @Override
+    protected boolean testNext() throws Exception {
+      BigInteger serialNumber = certs.get(index.getAndIncrement());
+      if (serialNumber == null) {
+        return false;
+      }
+
+      CertificateStatus status = client.ocsp(serialNumber);
+      boolean revoked = certs.revoked.contains(serialNumber);
+      if (revoked != (status instanceof RevokedStatus)) {
+        throw new IllegalStateException("OCSP responder returned wrong status for certificate "
+            + serialNumber.toString(16) + ", expected " + (revoked ? "revoked" : "good"));
+      }
+      return true;
+    }
+
+  } // class Ocsp
+
+  class Testor implements Runnable {
+
+    @Override
+    public void run() {
+      while (!stop() && getErrorAccout() < 1) {
+        long startNanos = nextOperation();
+        try {
+          if (!testNext()) {
+            break;
+          }
+          account(1, 0, startNanos);
+        } catch (Exception ex) {
+          LOG.warn("exception", ex);
+          account(1, 1, startNanos);
+        }
+      }
+    } // method run
+
+  } // class Testor
+
+  private static final Logger LOG = LoggerFactory.getLogger(E2eBenchmark.class);
+
+  protected final E2eClient client;
+
+  protected final IssuedCerts certs;
+
+  protected E2eBenchmark(String stage, E2eClient client, IssuedCerts certs) {
+    super("end-to-end benchmark: " + stage);
+    this.client = Args.notNull(client, "client");
+    this.certs = Args.notNull(certs, "certs");
+  }
+
+  /**
+   * Executes one operation.
+   *
+   * @return whether the operation has been executed, {@code false} if there is no more input.
+   * @throws Exception
+   *           if the operation failed.
+   */
+  protected abstract boolean testNext() throws Exception;
+
+  @Override
+  protected Runnable getTestor() throws Exception {
+    return new Testor();
+  }
+
+}
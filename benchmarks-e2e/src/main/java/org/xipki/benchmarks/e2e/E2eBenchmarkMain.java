@@ -0,0 +1,167 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks.e2e;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.xipki.benchmarks.e2e.E2eBenchmark.IssuedCerts;
+
+/**
+ * Entry point of the end-to-end benchmark jar. It starts the embedded {@link E2eServer},
+ * executes the stages enroll, revoke, crl and ocsp one after another and exits with status 1
+ * if any operation failed.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class E2eBenchmarkMain {
+
+  private static final List<String> STAGES = Arrays.asList("enroll", "revoke", "crl", "ocsp");
+
+  public static void main(String[] args)
+      throws Exception {
+    String basedir = null;
+    List<String> stages = STAGES;
+    int threads = 10;
+    String duration = "30s";
+    String warmup = "0s";
+    int rate = 0;
+    String resultFile = null;
+
+    final int argSize = args.length;
+    for (int i = 0; i < argSize; i++) {
+      String name = args[i];
+      if ("--help".equals(name)) {
+        printUsage(null);
+        return;
+      }
+
+      if (i == argSize - 1) {
+        printUsage("no value is specified for " + name);
+        System.exit(1);
+      }
+
+      String value = args[++i];
+      switch (name) {
+        case "--basedir":
+          basedir = value;
+          break;
+        case "--stages":
+          stages = Arrays.asList(value.split(","));
+          break;
+        case "--threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "--duration":
+          duration = value;
+          break;
+        case "--warmup":
+          warmup = value;
+          break;
+        case "--rate":
+          rate = Integer.parseInt(value);
+          break;
+        case "--result-file":
+          resultFile = value;
+          break;
+        default:
+          printUsage("unknown option " + name);
+          System.exit(1);
+      }
+    }
+
+    if (!STAGES.containsAll(stages)) {
+      printUsage("invalid stages " + stages);
+      System.exit(1);
+    }
+
+    File dir = (basedir == null) ? Files.createTempDirectory("xipki-e2e").toFile()
+        : new File(basedir);
+
+    boolean failed = false;
+    try (E2eServer server = new E2eServer(dir)) {
+      server.start();
+      E2eClient client = new E2eClient(server);
+      IssuedCerts certs = new IssuedCerts();
+
+      List<E2eBenchmark> benchmarks = new ArrayList<>(stages.size());
+      for (String stage : stages) {
+        E2eBenchmark benchmark;
+        if ("enroll".equals(stage)) {
+          benchmark = new E2eBenchmark.Enroll(client, certs);
+        } else if ("revoke".equals(stage)) {
+          benchmark = new E2eBenchmark.Revoke(client, certs);
+        } else if ("crl".equals(stage)) {
+          benchmark = new E2eBenchmark.GenerateCrl(client, certs);
+        } else {
+          benchmark = new E2eBenchmark.Ocsp(client, certs);
+        }
+
+        if (!(benchmark instanceof E2eBenchmark.GenerateCrl)) {
+          benchmark.setThreads(threads);
+          benchmark.setRate(rate);
+        }
+        benchmark.setDuration(duration);
+        benchmark.setWarmup(warmup);
+        benchmark.setResultFile(resultFile);
+        benchmarks.add(benchmark);
+      }
+
+      for (E2eBenchmark benchmark : benchmarks) {
+        benchmark.execute();
+        if (benchmark.getErrorAccout() > 0) {
+          failed = true;
+          break;
+        }
+      }
+
+      System.out.println("enrolled certificates: " + certs.size()
+          + ", revoked certificates: " + certs.getRevokedSize());
+    }
+
+    if (failed) {
+      System.err.println("end-to-end benchmark failed, see the log for details");
+      System.exit(1);
+    }
+  } // method main
+
+  private static void printUsage(String prefix) {
+    StringBuilder sb = new StringBuilder();
+    if (prefix != null) {
+      sb.append(prefix).append("\n");
+    }
+
+    sb.append("SYNTAX: java -jar xipki-benchmarks-e2e.jar [options]\n")
+      .append("  --basedir      empty directory for the configuration and keys,\n")
+      .append("                 default to a new temporary directory\n")
+      .append("  --stages       comma-separated stages, default to ")
+      .append(String.join(",", STAGES)).append("\n")
+      .append("  --threads      number of threads, default to 10 (crl: always 1)\n")
+      .append("  --duration     duration of each stage, default to 30s\n")
+      .append("  --warmup       warm-up of each stage, default to 0s\n")
+      .append("  --rate         operations per second (open-loop), default to 0 (closed-loop)\n")
+      .append("  --result-file  file (*.csv or *.json) to append the results of each stage");
+    System.out.println(sb.toString());
+  } // method printUsage
+
+}
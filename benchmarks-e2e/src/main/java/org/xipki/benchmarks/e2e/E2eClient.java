@@ -0,0 +1,171 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks.e2e;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.cert.CertificateException;
+
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
+import org.xipki.ca.api.RestAPIConstants;
+import org.xipki.security.CrlReason;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
+import org.xipki.util.Args;
+import org.xipki.util.Base64;
+import org.xipki.util.IoUtil;
+import org.xipki.util.StringUtil;
+
+/**
+ * HTTP client of the end-to-end benchmarks. The CA is accessed via the REST API with
+ * HTTP basic authentication, the OCSP responder via HTTP POST.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class E2eClient {
+
+  private static final String CT_OCSP_REQUEST = "application/ocsp-request";
+
+  private final String caUrl;
+
+  private final String ocspUrl;
+
+  private final String authorization;
+
+  private final String caSha1;
+
+  private final CertificateID certIdTemplate;
+
+  public E2eClient(E2eServer server) {
+    Args.notNull(server, "server");
+    this.caUrl = server.getBaseUrl() + "/ca/rest/" + E2eServer.CA_NAME + "/";
+    this.ocspUrl = server.getBaseUrl() + "/ocsp/";
+    this.authorization = "Basic " + Base64.encodeToString(
+        StringUtil.toUtf8Bytes(E2eServer.USER + ":" + E2eServer.PASSWORD));
+
+    X509Cert caCert = server.getCaCert();
+    this.caSha1 = HashAlgo.SHA1.hexHash(caCert.getEncoded());
+    try {
+      this.certIdTemplate = new CertificateID(
+          new BcDigestCalculatorProvider().get(CertificateID.HASH_SHA1),
+          caCert.toBcCert(), BigInteger.ONE);
+    } catch (OCSPException | OperatorCreationException ex) {
+      throw new IllegalStateException("could not create CertificateID", ex);
+    }
+  } // constructor
+
+  public X509Cert enroll(byte[] csr) throws IOException {
+    byte[] response = send(caUrl + RestAPIConstants.CMD_enroll_cert + "?"
+        + RestAPIConstants.PARAM_profile + "=" + E2eServer.PROFILE,
+        RestAPIConstants.CT_pkcs10, csr);
+    try {
+      return X509Util.parseCert(response);
+    } catch (CertificateException ex) {
+      throw new IOException("could not parse the enrolled certificate", ex);
+    }
+  } // method enroll
+
+  public void revoke(BigInteger serialNumber, CrlReason reason) throws IOException {
+    send(caUrl + RestAPIConstants.CMD_revoke_cert
+        + "?" + RestAPIConstants.PARAM_ca_sha1 + "=" + caSha1
+        + "&" + RestAPIConstants.PARAM_serial_number + "=0x" + serialNumber.toString(16)
+        + "&" + RestAPIConstants.PARAM_reason + "=" + reason.getCode(), null, null);
+  } // method revoke
+
+  public byte[] generateCrl() throws IOException {
+    return send(caUrl + RestAPIConstants.CMD_new_crl, null, null);
+  }
+
+  /**
+   * Sends an OCSP request for the given certificate.
+   *
+   * @param serialNumber
+   *          serial number of the certificate.
+   * @return the status of the certificate, {@code null} for good.
+   * @throws IOException
+   *           if no successful OCSP response is received.
+   */
+  public CertificateStatus ocsp(BigInteger serialNumber) throws IOException {
+    OCSPReqBuilder builder = new OCSPReqBuilder();
+    builder.addRequest(CertificateID.deriveCertificateID(certIdTemplate, serialNumber));
+
+    byte[] request;
+    try {
+      request = builder.build().getEncoded();
+    } catch (OCSPException ex) {
+      throw new IOException("could not build OCSP request", ex);
+    }
+
+    OCSPResp resp = new OCSPResp(send(ocspUrl, CT_OCSP_REQUEST, request));
+    if (resp.getStatus() != OCSPResp.SUCCESSFUL) {
+      throw new IOException("OCSP response status " + resp.getStatus());
+    }
+
+    try {
+      SingleResp[] singleResps = ((BasicOCSPResp) resp.getResponseObject()).getResponses();
+      if (singleResps == null || singleResps.length != 1) {
+        throw new IOException("OCSP response does not contain exactly one SingleResponse");
+      }
+      return singleResps[0].getCertStatus();
+    } catch (OCSPException ex) {
+      throw new IOException("could not parse OCSP response", ex);
+    }
+  } // method ocsp
+
+  private byte[] send(String url, String contentType, byte[] request) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setRequestMethod(request == null ? "GET" : "POST");
+    conn.setRequestProperty("Authorization", authorization);
+    if (request != null) {
+      conn.setDoOutput(true);
+      conn.setRequestProperty("Content-Type", contentType);
+      conn.setFixedLengthStreamingMode(request.length);
+      try (OutputStream os = conn.getOutputStream()) {
+        os.write(request);
+      }
+    }
+
+    int status = conn.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      // read the body, so that the connection can be reused
+      InputStream es = conn.getErrorStream();
+      if (es != null) {
+        IoUtil.read(es);
+      }
+      throw new IOException("bad HTTP status " + status + " for " + url);
+    }
+
+    return IoUtil.read(conn.getInputStream());
+  } // method send
+
+}
@@ -0,0 +1,335 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks.e2e;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.servlet.DispatcherType;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.pkcs.PKCS10CertificationRequestBuilder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.audit.Audits;
+import org.xipki.ca.api.profile.CertprofileFactoryRegister;
+import org.xipki.ca.api.publisher.CertPublisherFactoryRegister;
+import org.xipki.ca.certprofile.xijson.CertprofileFactoryImpl;
+import org.xipki.ca.server.CaServerConf;
+import org.xipki.ca.server.mgmt.CaManagerImpl;
+import org.xipki.ca.servlet.CaServletFilter;
+import org.xipki.ctlog.dummyserver.CtLogServletRSA;
+import org.xipki.dbtool.InitDbMain;
+import org.xipki.dbtool.LiquibaseMain;
+import org.xipki.ocsp.servlet.OcspServletFilter;
+import org.xipki.security.ConcurrentBagEntrySigner;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.Securities;
+import org.xipki.security.SignerConf;
+import org.xipki.security.X509Cert;
+import org.xipki.security.pkcs11.P11Module;
+import org.xipki.security.pkcs11.P11Slot;
+import org.xipki.security.pkcs11.P11Slot.P11NewKeyControl;
+import org.xipki.security.util.KeyUtil;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+import org.xipki.util.StringUtil;
+import org.xipki.util.XipkiBaseDir;
+
+/**
+ * Embedded CA and OCSP server for the end-to-end benchmarks.
+ *
+ * <p>The CA ({@link CaServletFilter}), the OCSP responder ({@link OcspServletFilter}) and the
+ * dummy CT log ({@link CtLogServletRSA}) run in one Jetty server on a random local port. The
+ * CA database is an in-memory H2 database, which is read directly by the OCSP responder. The
+ * CA key is generated in the PKCS#11 emulator, and a self-signed CA is set up via
+ * {@link CaManagerImpl#loadConf(InputStream)} before the servlets are started.
+ *
+ * <p>Since the base directory (XIPKI_BASE) can be initialized only once, at most one server
+ * can be started within a JVM.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class E2eServer implements Closeable {
+
+  public static final String CA_NAME = "tls-ca";
+
+  public static final String PROFILE = "tls";
+
+  public static final String USER = "e2e-user";
+
+  public static final String PASSWORD = "e2e-password";
+
+  private static final Logger LOG = LoggerFactory.getLogger(E2eServer.class);
+
+  private static final String KEY_LABEL = "ca1";
+
+  private static final String RESOURCE_DIR = "/e2e/";
+
+  private final File baseDir;
+
+  private Server server;
+
+  private ContextHandlerCollection contexts;
+
+  private String baseUrl;
+
+  private X509Cert caCert;
+
+  public E2eServer(File baseDir) {
+    this.baseDir = Args.notNull(baseDir, "baseDir").getAbsoluteFile();
+  }
+
+  public void start() throws Exception {
+    String[] children = baseDir.list();
+    if (children != null && children.length > 0) {
+      throw new IllegalArgumentException("base directory " + baseDir + " is not empty");
+    }
+
+    System.setProperty("XIPKI_BASE", baseDir.getPath());
+    XipkiBaseDir.init();
+    if (!baseDir.getPath().equals(XipkiBaseDir.basedir())) {
+      throw new IllegalStateException("XIPKI_BASE has been initialized with "
+          + XipkiBaseDir.basedir());
+    }
+
+    writeConfFiles();
+    initDatabase();
+
+    // the URLs of the CT log and OCSP responder are part of the CA configuration,
+    // so the server is started without CA and OCSP responder to get the port.
+    server = new Server(0);
+    contexts = new ContextHandlerCollection();
+    server.setHandler(contexts);
+
+    ServletContextHandler ctlog = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+    ctlog.setContextPath("/ctlog");
+    ctlog.addServlet(new ServletHolder(new CtLogServletRSA()), "/ctlogrsa/ct/v1/add-pre-chain");
+    contexts.addHandler(ctlog);
+
+    server.start();
+    int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    baseUrl = "http://localhost:" + port;
+    LOG.info("started server {}", baseUrl);
+
+    setupCa();
+
+    ServletContextHandler ca = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+    ca.setContextPath("/ca");
+    ca.addFilter(CaServletFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
+    startContext(ca);
+
+    ServletContextHandler ocsp = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+    ocsp.setContextPath("/ocsp");
+    ocsp.addFilter(OcspServletFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST));
+    startContext(ocsp);
+  } // method start
+
+  @Override
+  public void close() {
+    if (server == null) {
+      return;
+    }
+
+    try {
+      server.stop();
+    } catch (Exception ex) {
+      LOG.warn("could not stop the server: {}", ex.getMessage());
+    }
+    server = null;
+    // if the CaServletFilter has been initialized only partly
+    Audits.shutdown();
+  } // method close
+
+  public String getBaseUrl() {
+    return baseUrl;
+  }
+
+  public X509Cert getCaCert() {
+    return caCert;
+  }
+
+  private void startContext(ServletContextHandler context) throws Exception {
+    contexts.addHandler(context);
+    context.start();
+    if (!context.isAvailable()) {
+      throw new IllegalStateException("could not start " + context.getContextPath());
+    }
+  } // method startContext
+
+  private void writeConfFiles() throws IOException {
+    Map<String, String> replacements = new HashMap<>();
+    replacements.put("REPLACEME-EMULATOR_DIR",
+        new File(baseDir, "security/pkcs11-emulator").getPath());
+    replacements.put("REPLACEME-KEY_LABEL", KEY_LABEL);
+
+    copyResource("pkcs11.json", "security/pkcs11.json", replacements);
+    copyResource("ca.json", "etc/ca/ca.json", null);
+    copyResource("ocsp.json", "etc/ocsp/ocsp.json", null);
+    copyResource("ocsp-responder.json", "etc/ocsp/ocsp-responder.json", replacements);
+    copyResource("dummy-ctlog-rsa-pubkey.pem", "ctlog/dummy-ctlog-rsa-pubkey.pem", null);
+
+    // the CA writes, the OCSP responder only reads.
+    replacements.put("REPLACEME-READONLY", "false");
+    copyResource("ca-db.properties", "etc/ca/database/ca-db.properties", replacements);
+    replacements.put("REPLACEME-READONLY", "true");
+    copyResource("ca-db.properties", "etc/ocsp/database/ca-db.properties", replacements);
+
+    IoUtil.save(new File(baseDir, "sql/ca-init.xml"), readResource("/sql/ca-init.xml"));
+  } // method writeConfFiles
+
+  private void initDatabase() throws Exception {
+    Properties props = new Properties();
+    try (InputStream is = new ByteArrayInputStream(
+        IoUtil.read(new File(baseDir, "etc/ca/database/ca-db.properties")))) {
+      props.load(is);
+    }
+
+    LiquibaseMain.DatabaseConf dbConf = LiquibaseMain.DatabaseConf.getInstance(props, null);
+    InitDbMain.initDb(dbConf, new File(baseDir, "sql/ca-init.xml").getPath());
+  } // method initDatabase
+
+  private void setupCa() throws Exception {
+    CaServerConf conf = CaServerConf.readConfFromFile(IoUtil.expandFilepath("etc/ca/ca.json"));
+    // audit service of the setup only, the CaServletFilter initializes its own one.
+    Audits.init(conf.getAudit().getType(), conf.getAudit().getConf());
+
+    Securities securities = new Securities();
+    CaManagerImpl caManager = null;
+    try {
+      securities.init(conf.getSecurity());
+      byte[] csr = generateCaKey(securities);
+
+      caManager = new CaManagerImpl();
+      caManager.setSecurityFactory(securities.getSecurityFactory());
+      CertprofileFactoryRegister certprofileFactoryRegister = new CertprofileFactoryRegister();
+      certprofileFactoryRegister.registFactory(new CertprofileFactoryImpl());
+      caManager.setCertprofileFactoryRegister(certprofileFactoryRegister);
+      caManager.setCertPublisherFactoryRegister(new CertPublisherFactoryRegister());
+      caManager.setCaServerConf(conf);
+      caManager.startCaSystem();
+
+      Map<String, String> replacements = new HashMap<>();
+      replacements.put("REPLACEME-URL", baseUrl);
+      replacements.put("REPLACEME-CA_NAME", CA_NAME);
+      replacements.put("REPLACEME-USER", USER);
+      replacements.put("REPLACEME-PASSWORD", PASSWORD);
+      replacements.put("REPLACEME-KEY_LABEL", KEY_LABEL);
+
+      Map<String, byte[]> zipEntries = new HashMap<>();
+      zipEntries.put("caconf.json", replace(readResource(RESOURCE_DIR + "caconf.json"),
+          replacements));
+      zipEntries.put("certprofile-rootca.json",
+          readResource(RESOURCE_DIR + "certprofile-rootca.json"));
+      zipEntries.put("certprofile-tls.json", readResource(RESOURCE_DIR + "certprofile-tls.json"));
+      zipEntries.put("ca.csr", csr);
+
+      caCert = caManager.loadConf(new ByteArrayInputStream(zip(zipEntries))).get(CA_NAME);
+      if (caCert == null) {
+        throw new IllegalStateException("could not generate the CA certificate");
+      }
+    } finally {
+      if (caManager != null) {
+        caManager.close();
+      }
+      securities.close();
+      Audits.shutdown();
+    }
+
+    // the CA is also the OCSP signer
+    IoUtil.save(new File(baseDir, "etc/ocsp/ca-cert.der"), caCert.getEncoded());
+    LOG.info("generated CA certificate {}", caCert.getSubjectRfc4519Text());
+  } // method setupCa
+
+  private static byte[] generateCaKey(Securities securities) throws Exception {
+    P11Module module = securities.getP11CryptServiceFactory()
+        .getP11CryptService("default").getModule();
+    P11Slot slot = module.getSlot(module.getSlotIdForIndex(0));
+    slot.generateRSAKeypair(2048, null, new P11NewKeyControl(null, KEY_LABEL));
+
+    try (ConcurrentContentSigner signer = securities.getSecurityFactory().createSigner("pkcs11",
+        new SignerConf("algo=SHA256withRSA,slot=0,key-label=" + KEY_LABEL), (X509Cert[]) null)) {
+      PKCS10CertificationRequestBuilder builder = new PKCS10CertificationRequestBuilder(
+          new X500Name("C=DE,O=myorg,CN=e2e-ca"),
+          KeyUtil.createSubjectPublicKeyInfo(signer.getPublicKey()));
+
+      ConcurrentBagEntrySigner signer0 = signer.borrowSigner();
+      try {
+        return builder.build(signer0.value()).getEncoded();
+      } finally {
+        signer.requiteSigner(signer0);
+      }
+    }
+  } // method generateCaKey
+
+  private void copyResource(String name, String target, Map<String, String> replacements)
+      throws IOException {
+    byte[] content = readResource(RESOURCE_DIR + name);
+    if (replacements != null) {
+      content = replace(content, replacements);
+    }
+    IoUtil.save(new File(baseDir, target), content);
+  } // method copyResource
+
+  private static byte[] readResource(String name) throws IOException {
+    InputStream is = E2eServer.class.getResourceAsStream(name);
+    if (is == null) {
+      throw new IOException("found no resource " + name);
+    }
+    return IoUtil.read(is);
+  } // method readResource
+
+  private static byte[] replace(byte[] content, Map<String, String> replacements) {
+    String str = StringUtil.toUtf8String(content);
+    for (Entry<String, String> entry : replacements.entrySet()) {
+      str = str.replace(entry.getKey(), entry.getValue());
+    }
+    return StringUtil.toUtf8Bytes(str);
+  } // method replace
+
+  private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    try (ZipOutputStream zipStream = new ZipOutputStream(bout)) {
+      for (Entry<String, byte[]> entry : entries.entrySet()) {
+        zipStream.putNextEntry(new ZipEntry(entry.getKey()));
+        zipStream.write(entry.getValue());
+        zipStream.closeEntry();
+      }
+    }
+    return bout.toByteArray();
+  } // method zip
+
+}
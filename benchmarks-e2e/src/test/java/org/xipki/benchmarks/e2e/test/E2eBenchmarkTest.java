@@ -0,0 +1,81 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks.e2e.test;
+
+import java.nio.file.Files;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.benchmarks.e2e.E2eBenchmark;
+import org.xipki.benchmarks.e2e.E2eBenchmark.IssuedCerts;
+import org.xipki.benchmarks.e2e.E2eClient;
+import org.xipki.benchmarks.e2e.E2eServer;
+
+/**
+ * Executes all stages of the end-to-end benchmark for a short time. Skipped by default,
+ * run it with {@code -De2e.skipTests=false}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class E2eBenchmarkTest {
+
+  private static E2eServer server;
+
+  @BeforeClass
+  public static void startServer()
+      throws Exception {
+    server = new E2eServer(Files.createTempDirectory("xipki-e2e").toFile());
+    server.start();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  public void executeAllStages()
+      throws Exception {
+    E2eClient client = new E2eClient(server);
+    IssuedCerts certs = new IssuedCerts();
+
+    execute(new E2eBenchmark.Enroll(client, certs));
+    Assert.assertTrue("no certificate enrolled", certs.size() > 0);
+
+    execute(new E2eBenchmark.Revoke(client, certs));
+    Assert.assertTrue("no certificate revoked", certs.getRevokedSize() > 0);
+
+    execute(new E2eBenchmark.GenerateCrl(client, certs));
+    execute(new E2eBenchmark.Ocsp(client, certs));
+  }
+
+  private static void execute(E2eBenchmark benchmark) {
+    benchmark.setThreads(Math.min(benchmark.getThreads(), 4));
+    benchmark.setDuration("3s");
+    benchmark.execute();
+    Assert.assertEquals("failed operations", 0, benchmark.getErrorAccout());
+    Assert.assertTrue("no operation executed", benchmark.getLatencies().getCount() > 0);
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.xipki.util.IoUtil;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * Entry point of the benchmark jar.
+ * <ul>
+ *   <li>{@code java -jar xipki-benchmarks.jar [JMH options]}: runs the benchmarks, the results
+ *     are written in JSON format to {@code jmh-result.json} if no {@code -rff} is specified.</li>
+ *   <li>{@code java -jar xipki-benchmarks.jar compare <baseline.json> <current.json>}: compares
+ *     two JSON reports.</li>
+ * </ul>
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class BenchmarkMain {
+
+  private static final String DFLT_RESULT_FILE = "jmh-result.json";
+
+  public static void main(String[] args)
+      throws Exception {
+    if (args.length > 0 && "compare".equals(args[0])) {
+      if (args.length != 3) {
+        System.err.println("usage: compare <baseline.json> <current.json>");
+        System.exit(1);
+      }
+      compare(new File(args[1]), new File(args[2]));
+      return;
+    }
+
+    List<String> list = new ArrayList<>(Arrays.asList(args));
+    if (!list.contains("-rf")) {
+      list.add("-rf");
+      list.add("json");
+    }
+
+    if (!list.contains("-rff")) {
+      list.add("-rff");
+      list.add(DFLT_RESULT_FILE);
+    }
+
+    org.openjdk.jmh.Main.main(list.toArray(new String[0]));
+  } // method main
+
+  private static void compare(File baselineFile, File currentFile)
+      throws IOException {
+    Map<String, JSONObject> baseline = readResults(baselineFile);
+    Map<String, JSONObject> current = readResults(currentFile);
+
+    System.out.println(String.format("%-70s %14s %14s %8s",
+        "Benchmark", "Baseline", "Current", "Change"));
+    for (Entry<String, JSONObject> entry : current.entrySet()) {
+      String name = entry.getKey();
+      JSONObject cur = entry.getValue().getJSONObject("primaryMetric");
+      JSONObject base = baseline.containsKey(name)
+          ? baseline.get(name).getJSONObject("primaryMetric") : null;
+
+      double curScore = cur.getDoubleValue("score");
+      String unit = cur.getString("scoreUnit");
+      if (base == null) {
+        System.out.println(String.format("%-70s %14s %14.3f %8s   %s",
+            name, "-", curScore, "new", unit));
+        continue;
+      }
+
+      double baseScore = base.getDoubleValue("score");
+      // the higher the better for throughput, the lower the better for the others
+      boolean higherIsBetter = unit.endsWith("/s") || unit.endsWith("/ms")
+          || unit.endsWith("/us") || unit.endsWith("/ns") || unit.endsWith("/min");
+      double change = (baseScore == 0) ? 0 : (curScore - baseScore) * 100 / baseScore;
+      if (!higherIsBetter) {
+        change = -change;
+      }
+
+      System.out.println(String.format("%-70s %14.3f %14.3f %+7.1f%%   %s",
+          name, baseScore, curScore, change, unit));
+    }
+
+    for (String name : baseline.keySet()) {
+      if (!current.containsKey(name)) {
+        System.out.println(String.format("%-70s %14s %14s %8s", name, "", "-", "removed"));
+      }
+    }
+  } // method compare
+
+  private static Map<String, JSONObject> readResults(File file)
+      throws IOException {
+    JSONArray array = JSON.parseArray(
+        new String(IoUtil.read(file), StandardCharsets.UTF_8));
+    Map<String, JSONObject> results = new LinkedHashMap<>();
+    for (int i = 0; i < array.size(); i++) {
+      JSONObject result = array.getJSONObject(i);
+      StringBuilder sb = new StringBuilder(result.getString("benchmark"));
+      String prefix = BenchmarkMain.class.getPackage().getName() + ".";
+      if (sb.indexOf(prefix) == 0) {
+        sb.delete(0, prefix.length());
+      }
+
+      JSONObject params = result.getJSONObject("params");
+      if (params != null) {
+        // sort the parameters to get a stable key
+        for (Entry<String, Object> p : new TreeMap<>(params).entrySet()) {
+          sb.append(":").append(p.getKey()).append("=").append(p.getValue());
+        }
+      }
+      results.put(sb.toString(), result);
+    }
+    return results;
+  } // method readResults
+
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.PublicCaInfo;
+import org.xipki.ca.api.mgmt.entry.CertprofileEntry;
+import org.xipki.ca.api.profile.ExtensionValues;
+import org.xipki.ca.certprofile.xijson.XijsonCertprofile;
+import org.xipki.ca.server.IdentifiedCertprofile;
+
+/**
+ * Benchmark of building the extensions of a TLS server certificate with the
+ * {@link XijsonCertprofile}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CertprofileBenchmark {
+
+  private IdentifiedCertprofile certprofile;
+
+  private PublicCaInfo caInfo;
+
+  private SubjectPublicKeyInfo publicKeyInfo;
+
+  private X500Name subject;
+
+  private Date notBefore;
+
+  private Date notAfter;
+
+  @Setup
+  public void setup() throws Exception {
+    String conf = new String(Fixtures.read(Fixtures.CERTPROFILE_TLS), StandardCharsets.UTF_8);
+    certprofile = new IdentifiedCertprofile(
+        new CertprofileEntry(new NameId(1, "tls"), "xijson", conf), new XijsonCertprofile());
+    caInfo = new PublicCaInfo(Fixtures.readCaCert(), null, null);
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+    kpGen.initialize(2048);
+    publicKeyInfo = SubjectPublicKeyInfo.getInstance(
+        kpGen.generateKeyPair().getPublic().getEncoded());
+
+    subject = new X500Name("C=DE,O=myorg,CN=www.example.com");
+    notBefore = new Date();
+    notAfter = new Date(notBefore.getTime() + 365L * 86400000L);
+  } // method setup
+
+  @Benchmark
+  public ExtensionValues getExtensions() throws Exception {
+    return certprofile.getExtensions(subject, subject, null, publicKeyInfo, caInfo, null,
+        notBefore, notAfter);
+  }
+
+}
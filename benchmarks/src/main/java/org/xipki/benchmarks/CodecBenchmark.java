@@ -0,0 +1,83 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xipki.util.Base64;
+import org.xipki.util.Hex;
+
+/**
+ * Benchmarks of {@link Base64} and {@link Hex}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CodecBenchmark {
+
+  @Param({"32", "1024", "16384"})
+  private int size;
+
+  private byte[] data;
+
+  private String base64;
+
+  private String hex;
+
+  @Setup
+  public void setup() {
+    data = new byte[size];
+    new Random(size).nextBytes(data);
+    base64 = Base64.encodeToString(data);
+    hex = Hex.encode(data);
+  } // method setup
+
+  @Benchmark
+  public String base64Encode() {
+    return Base64.encodeToString(data);
+  }
+
+  @Benchmark
+  public byte[] base64Decode() {
+    return Base64.decodeFast(base64);
+  }
+
+  @Benchmark
+  public String hexEncode() {
+    return Hex.encode(data);
+  }
+
+  @Benchmark
+  public byte[] hexDecode() {
+    return Hex.decode(hex);
+  }
+
+}
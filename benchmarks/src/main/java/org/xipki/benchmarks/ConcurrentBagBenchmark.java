@@ -0,0 +1,85 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.xipki.util.concurrent.ConcurrentBag;
+import org.xipki.util.concurrent.ConcurrentBagEntry;
+
+/**
+ * Benchmark of borrow / requite of {@link ConcurrentBag} under contention, this is the
+ * pattern used by the signer and the PKCS#11 session pools.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentBagBenchmark {
+
+  /**
+   * Number of entries in the bag. The benchmark uses 8 threads, so the pool with 2 entries
+   * is heavily contended.
+   */
+  @Param({"2", "8", "32"})
+  private int poolSize;
+
+  private ConcurrentBag<ConcurrentBagEntry<Integer>> bag;
+
+  @Setup
+  public void setup() {
+    bag = new ConcurrentBag<>();
+    for (int i = 0; i < poolSize; i++) {
+      bag.add(new ConcurrentBagEntry<>(i));
+    }
+  } // method setup
+
+  @TearDown
+  public void tearDown() {
+    bag.close();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Integer borrowRequite() throws InterruptedException {
+    ConcurrentBagEntry<Integer> entry = bag.borrow(10, TimeUnit.SECONDS);
+    if (entry == null) {
+      throw new IllegalStateException("no idle entry after 10 seconds");
+    }
+
+    try {
+      return entry.value();
+    } finally {
+      bag.requite(entry);
+    }
+  } // method borrowRequite
+
+}
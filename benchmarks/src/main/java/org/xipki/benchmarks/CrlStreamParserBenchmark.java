@@ -0,0 +1,106 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xipki.security.asn1.CrlStreamParser;
+import org.xipki.security.asn1.CrlStreamParser.RevokedCert;
+import org.xipki.security.asn1.CrlStreamParser.RevokedCertsIterator;
+import org.xipki.util.IoUtil;
+
+/**
+ * Benchmark of {@link CrlStreamParser}. The CRL is generated once per trial in a
+ * temporary file.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CrlStreamParserBenchmark {
+
+  @Param({"1000", "100000"})
+  private int revokedCount;
+
+  private File crlFile;
+
+  @Setup
+  public void setup() throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+    kpGen.initialize(2048);
+    KeyPair kp = kpGen.generateKeyPair();
+
+    Date now = new Date();
+    X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=benchmark-ca"), now);
+    builder.setNextUpdate(new Date(now.getTime() + 86400000L));
+
+    BigInteger serial = BigInteger.valueOf(0x1234567890L);
+    for (int i = 0; i < revokedCount; i++) {
+      builder.addCRLEntry(serial.add(BigInteger.valueOf(i)), now, CRLReason.keyCompromise);
+    }
+
+    byte[] encoded = builder.build(
+        new JcaContentSignerBuilder("SHA256withRSA").build(kp.getPrivate())).getEncoded();
+
+    crlFile = File.createTempFile("benchmark-", ".crl");
+    crlFile.deleteOnExit();
+    IoUtil.save(crlFile, encoded);
+  } // method setup
+
+  @TearDown
+  public void tearDown() {
+    crlFile.delete();
+  }
+
+  @Benchmark
+  public int parseRevokedCerts(Blackhole bh) throws Exception {
+    CrlStreamParser parser = new CrlStreamParser(crlFile);
+    int count = 0;
+    try (RevokedCertsIterator it = parser.revokedCertificates()) {
+      while (it.hasNext()) {
+        RevokedCert rc = it.next();
+        bh.consume(rc.getSerialNumber());
+        count++;
+      }
+    }
+    return count;
+  } // method parseRevokedCerts
+
+}
@@ -0,0 +1,69 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
+import org.xipki.util.IoUtil;
+
+/**
+ * Access to the fixtures stored in the benchmark jar, so that the benchmarks can
+ * be executed without any network or database.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class Fixtures {
+
+  public static final String CA_CERT = "ca1-cert.crt";
+
+  public static final String CRL = "ca1-crl.crl";
+
+  public static final String OCSP_REQUEST = "ocsp-request.der";
+
+  public static final String CERTPROFILE_TLS = "certprofile-tls-rsa.json";
+
+  private Fixtures() {
+  }
+
+  public static byte[] read(String name) {
+    InputStream is = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+    if (is == null) {
+      throw new IllegalStateException("found no fixture " + name);
+    }
+
+    try {
+      return IoUtil.read(is);
+    } catch (IOException ex) {
+      throw new IllegalStateException("error reading fixture " + name, ex);
+    }
+  } // method read
+
+  public static X509Cert readCaCert() {
+    try {
+      return X509Util.parseCert(read(CA_CERT));
+    } catch (Exception ex) {
+      throw new IllegalStateException("error parsing fixture " + CA_CERT, ex);
+    }
+  } // method readCaCert
+
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.xipki.util.LruCache;
+
+/**
+ * Benchmark of {@link LruCache} with a mix of hits and misses, accessed by several threads.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LruCacheBenchmark {
+
+  private static final int CACHE_SIZE = 1000;
+
+  // about 50% of the keys are in the cache
+  private static final int KEY_RANGE = 2 * CACHE_SIZE;
+
+  private LruCache<Integer, String> cache;
+
+  @Setup
+  public void setup() {
+    cache = new LruCache<>(CACHE_SIZE);
+    for (int i = 0; i < CACHE_SIZE; i++) {
+      cache.put(i, Integer.toString(i));
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String getOrPut() {
+    Integer key = ThreadLocalRandom.current().nextInt(KEY_RANGE);
+    String value = cache.get(key);
+    if (value == null) {
+      value = key.toString();
+      cache.put(key, value);
+    }
+    return value;
+  } // method getOrPut
+
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xipki.ocsp.server.OCSPRespBuilder;
+import org.xipki.ocsp.server.type.CertID;
+import org.xipki.ocsp.server.type.OcspRequest;
+import org.xipki.ocsp.server.type.ResponderID;
+import org.xipki.ocsp.server.type.ResponseData;
+import org.xipki.ocsp.server.type.SingleResponse;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.DfltConcurrentContentSigner;
+import org.xipki.security.XiContentSigner;
+
+/**
+ * Benchmarks of the OCSP request parsing and of the OCSP response encoding.
+ *
+ * <p>The signature is replaced by a constant value, so only the ASN.1 handling is measured.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OcspBenchmark {
+
+  private static class ConstantSigner implements XiContentSigner {
+
+    private final AlgorithmIdentifier algId =
+        new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption, DERNull.INSTANCE);
+
+    private final byte[] encodedAlgId;
+
+    private final byte[] signature = new byte[256];
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+    ConstantSigner() throws Exception {
+      this.encodedAlgId = algId.getEncoded();
+    }
+
+    @Override
+    public AlgorithmIdentifier getAlgorithmIdentifier() {
+      return algId;
+    }
+
+    @Override
+    public byte[] getEncodedAlgorithmIdentifier() {
+      return encodedAlgId;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      out.reset();
+      return out;
+    }
+
+    @Override
+    public byte[] getSignature() {
+      return signature;
+    }
+
+  } // class ConstantSigner
+
+  private static final byte[] GOOD = new byte[]{(byte) 0x80, 0x00};
+
+  private byte[] encodedRequest;
+
+  private CertID certId;
+
+  private ResponderID responderId;
+
+  private ConcurrentContentSigner signer;
+
+  private Date thisUpdate;
+
+  private Date nextUpdate;
+
+  @Setup
+  public void setup() throws Exception {
+    encodedRequest = Fixtures.read(Fixtures.OCSP_REQUEST);
+    certId = OcspRequest.getInstance(encodedRequest).getRequestList().get(0);
+    responderId = new ResponderID(new byte[20]);
+
+    List<XiContentSigner> signers = new ArrayList<>(1);
+    signers.add(new ConstantSigner());
+    signer = new DfltConcurrentContentSigner(false, signers);
+
+    thisUpdate = new Date();
+    nextUpdate = new Date(thisUpdate.getTime() + 86400000L);
+  } // method setup
+
+  @Benchmark
+  public OcspRequest parseRequest() throws Exception {
+    return OcspRequest.getInstance(encodedRequest);
+  }
+
+  @Benchmark
+  public byte[] encodeResponseData() {
+    SingleResponse resp = new SingleResponse(certId, GOOD, thisUpdate, nextUpdate, null);
+    ResponseData data = new ResponseData(0, responderId, thisUpdate,
+        Collections.singletonList(resp), null);
+    byte[] encoded = new byte[data.getEncodedLength()];
+    data.write(encoded, 0);
+    return encoded;
+  } // method encodeResponseData
+
+  @Benchmark
+  public byte[] buildResponse() throws Exception {
+    OCSPRespBuilder builder = new OCSPRespBuilder(responderId);
+    builder.addResponse(certId, GOOD, thisUpdate, nextUpdate, null);
+    return builder.buildOCSPResponse(signer, null, thisUpdate);
+  } // method buildResponse
+
+}
@@ -0,0 +1,65 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.util.DateUtil;
+
+/**
+ * Benchmark of {@link UniqueIdGenerator}, used to generate the database IDs of
+ * certificates.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UniqueIdGeneratorBenchmark {
+
+  private UniqueIdGenerator generator;
+
+  @Setup
+  public void setup() {
+    // same epoch as in CaManagerImpl
+    generator = new UniqueIdGenerator(DateUtil.parseUtcTimeyyyyMMdd("20100101").getTime(), 1);
+  }
+
+  @Benchmark
+  public long nextId() {
+    return generator.nextId();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long nextIdContended() {
+    return generator.nextId();
+  }
+
+}
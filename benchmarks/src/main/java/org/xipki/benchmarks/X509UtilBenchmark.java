@@ -0,0 +1,65 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xipki.security.util.X509Util;
+
+/**
+ * Benchmark of {@link X509Util#fpCanonicalizedName(X500Name)}, which is computed for the
+ * subject and issuer of each certificate stored in the database.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class X509UtilBenchmark {
+
+  private X500Name caSubject;
+
+  private X500Name subject;
+
+  @Setup
+  public void setup() {
+    caSubject = Fixtures.readCaCert().getSubject();
+    subject = new X500Name("C=DE,O=myorg,OU=Unit 1,SERIALNUMBER=1234,CN=www.example.com");
+  }
+
+  @Benchmark
+  public long fpCanonicalizedCaSubject() {
+    return X509Util.fpCanonicalizedName(caSubject);
+  }
+
+  @Benchmark
+  public long fpCanonicalizedSubject() {
+    return X509Util.fpCanonicalizedName(subject);
+  }
+
+}
@@ -602,6 +602,63 @@ public interface CaManager {
       Date invalidityTime)
           throws CaMgmtException;
 
+  /**
+   * Revokes all unrevoked certificates issued by the CA {@code caName} which match the given
+   * filter. The certificates are revoked and published in batches, and a CRL is generated
+   * once at the end if the CA generates CRLs. Certificates on hold are revoked too, unless
+   * the reason is certificateHold, and keep their revocation time.
+   *
+   * @param caName
+   *          CA name. Must not be {@code null}.
+   * @param certprofile
+   *          Certificate profile. Could be {@code null}.
+   * @param subjectPattern
+   *          Subject pattern. Could be {@code null}.
+   * @param notBeforeFrom
+   *          Earliest notBefore (inclusive). Could be {@code null}.
+   * @param notBeforeTo
+   *          Latest notBefore (inclusive). Could be {@code null}.
+   * @param reason
+   *          Revocation reason. Must not be {@code null}.
+   * @param invalidityTime
+   *          Invalidity time. Could be {@code null}.
+   * @return number of revoked certificates.
+   * @throws CaMgmtException
+   *          if error occurs, or none of certprofile, subjectPattern, notBeforeFrom and
+   *          notBeforeTo is specified.
+   */
+  int revokeCertificates(String caName, String certprofile, X500Name subjectPattern,
+      Date notBeforeFrom, Date notBeforeTo, CrlReason reason, Date invalidityTime)
+          throws CaMgmtException;
+
+  /**
+   * Revokes the certificates with the given serial numbers issued by the CA {@code caName}.
+   * The certificates are revoked and published in batches, and a CRL is generated once at
+   * the end if the CA generates CRLs and {@code suppressCrl} is {@code false}. A caller
+   * revoking the certificates with several calls suppresses the CRL, and generates it with
+   * {@link #generateCrlOnDemand(String)} after the last call. Unknown and already revoked
+   * certificates are ignored,
+   * apart from certificates on hold, which are handled as in
+   * {@link #revokeCertificates(String, String, X500Name, Date, Date, CrlReason, Date)}.
+   *
+   * @param caName
+   *          CA name. Must not be {@code null}.
+   * @param serialNumbers
+   *          Serial numbers. Must not be {@code null}.
+   * @param reason
+   *          Revocation reason. Must not be {@code null}.
+   * @param invalidityTime
+   *          Invalidity time. Could be {@code null}.
+   * @param suppressCrl
+   *          Whether no CRL is generated after the revocation.
+   * @return number of revoked certificates.
+   * @throws CaMgmtException
+   *          if error occurs.
+   */
+  int revokeCertificates(String caName, List<BigInteger> serialNumbers, CrlReason reason,
+      Date invalidityTime, boolean suppressCrl)
+          throws CaMgmtException;
+
   /**
    * Unrevokes a certificate with the serial number {@code serialNumber}, and
    * issued by the CA {@code caName}.
@@ -48,12 +48,28 @@ public class CtlogControl {
    */
   public static final String KEY_SSLCONTEXT_NAME = "sslcontext.name";
 
+  /**
+   * Minimal number of SCTs required in a certificate. Default is the number of servers.
+   */
+  public static final String KEY_MIN_SCTS = "min.scts";
+
+  /**
+   * Timeout in milliseconds to get the SCT from a CT Log server. Default is 10000.
+   */
+  public static final String KEY_TIMEOUT = "timeout";
+
+  public static final int DFLT_TIMEOUT = 10000;
+
   private boolean enabled;
 
   private String sslContextName;
 
   private List<String> servers;
 
+  private int minScts;
+
+  private int timeout = DFLT_TIMEOUT;
+
   private String conf;
 
   public CtlogControl(String conf)
@@ -71,6 +87,16 @@ public class CtlogControl {
       throw new InvalidConfException(KEY_SERVERS + " is not specified");
     }
 
+    minScts = getInt(pairs, KEY_MIN_SCTS, servers.size());
+    if (minScts < 1 || minScts > servers.size()) {
+      throw new InvalidConfException(KEY_MIN_SCTS + " is not in [1, " + servers.size() + "]");
+    }
+
+    timeout = getInt(pairs, KEY_TIMEOUT, DFLT_TIMEOUT);
+    if (timeout < 1) {
+      throw new InvalidConfException(KEY_TIMEOUT + " is not positive");
+    }
+
     this.conf = pairs.getEncoded();
   } // constructor
 
@@ -84,6 +110,7 @@ public class CtlogControl {
 
     pairs.putPair(KEY_SERVERS, StringUtil.collectionAsString(servers, ";"));
     this.servers = servers;
+    this.minScts = servers.size();
 
     this.sslContextName = sslContextName;
     if (sslContextName != null) {
@@ -117,6 +144,14 @@ public class CtlogControl {
     this.servers = servers;
   }
 
+  public int getMinScts() {
+    return minScts;
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
   public void setEnabled(boolean enabled) {
     this.enabled = enabled;
   }
@@ -135,7 +170,9 @@ public class CtlogControl {
     return StringUtil.concatObjects(
         "  enabled: ", enabled,
         "\n  SSL context name: ", sslContextName,
-        "\n  Servers: ", servers);
+        "\n  Servers: ", servers,
+        "\n  Min. SCTs: ", minScts,
+        "\n  Timeout: ", timeout, " ms");
   }
 
   @Override
@@ -156,4 +193,18 @@ public class CtlogControl {
     return ret;
   } // method getBoolean
 
+  private static int getInt(ConfPairs pairs, String key, int defaultValue)
+      throws InvalidConfException {
+    String str = pairs.value(key);
+    if (StringUtil.isBlank(str)) {
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(str.trim());
+    } catch (NumberFormatException ex) {
+      throw new InvalidConfException("invalid " + key + ": " + str);
+    }
+  } // method getInt
+
 }
@@ -116,6 +116,7 @@ public abstract class MgmtMessage {
     restartCaSystem,
     revokeCa,
     revokeCertficate,
+    revokeCertificates,
     unlockCa,
     unrevokeCa,
     unrevokeCertificate;
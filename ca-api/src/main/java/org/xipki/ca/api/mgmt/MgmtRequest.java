@@ -706,6 +706,90 @@ public abstract class MgmtRequest extends MgmtMessage {
 
   } // class RevokeCertificate
 
+  public static class RevokeCertificates extends CaNameRequest {
+
+    private List<BigInteger> serialNumbers;
+
+    private String certprofile;
+
+    private byte[] encodedSubjectDnPattern;
+
+    private Date notBeforeFrom;
+
+    private Date notBeforeTo;
+
+    private CrlReason reason;
+
+    private Date invalidityTime;
+
+    private boolean suppressCrl;
+
+    public List<BigInteger> getSerialNumbers() {
+      return serialNumbers;
+    }
+
+    public void setSerialNumbers(List<BigInteger> serialNumbers) {
+      this.serialNumbers = serialNumbers;
+    }
+
+    public String getCertprofile() {
+      return certprofile;
+    }
+
+    public void setCertprofile(String certprofile) {
+      this.certprofile = certprofile;
+    }
+
+    public byte[] getEncodedSubjectDnPattern() {
+      return encodedSubjectDnPattern;
+    }
+
+    public void setEncodedSubjectDnPattern(byte[] encodedSubjectDnPattern) {
+      this.encodedSubjectDnPattern = encodedSubjectDnPattern;
+    }
+
+    public Date getNotBeforeFrom() {
+      return notBeforeFrom;
+    }
+
+    public void setNotBeforeFrom(Date notBeforeFrom) {
+      this.notBeforeFrom = notBeforeFrom;
+    }
+
+    public Date getNotBeforeTo() {
+      return notBeforeTo;
+    }
+
+    public void setNotBeforeTo(Date notBeforeTo) {
+      this.notBeforeTo = notBeforeTo;
+    }
+
+    public CrlReason getReason() {
+      return reason;
+    }
+
+    public void setReason(CrlReason reason) {
+      this.reason = reason;
+    }
+
+    public Date getInvalidityTime() {
+      return invalidityTime;
+    }
+
+    public void setInvalidityTime(Date invalidityTime) {
+      this.invalidityTime = invalidityTime;
+    }
+
+    public boolean isSuppressCrl() {
+      return suppressCrl;
+    }
+
+    public void setSuppressCrl(boolean suppressCrl) {
+      this.suppressCrl = suppressCrl;
+    }
+
+  } // class RevokeCertificates
+
   public static class UnrevokeCertificate extends CaNameRequest {
 
     private BigInteger serialNumber;
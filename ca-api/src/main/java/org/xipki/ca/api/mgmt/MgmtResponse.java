@@ -445,6 +445,27 @@ public abstract class MgmtResponse extends MgmtMessage {
 
   } // class GetUser
 
+  public static class IntResponse extends MgmtResponse {
+
+    private int result;
+
+    public IntResponse() {
+    }
+
+    public IntResponse(int result) {
+      this.result = result;
+    }
+
+    public int getResult() {
+      return result;
+    }
+
+    public void setResult(int result) {
+      this.result = result;
+    }
+
+  } // class IntResponse
+
   public static class ListCertificates extends MgmtResponse {
 
     private List<CertListInfo> result;
@@ -17,7 +17,10 @@
 
 package org.xipki.ca.api.profile;
 
+import java.io.IOException;
+
 import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.xipki.util.Args;
 
 /**
@@ -33,6 +36,8 @@ public class ExtensionValue {
 
   private final ASN1Encodable value;
 
+  private volatile byte[] encodedValue;
+
   public ExtensionValue(boolean critical, ASN1Encodable value) {
     this.critical = critical;
     this.value = Args.notNull(value, "value");
@@ -46,4 +51,24 @@ public class ExtensionValue {
     return value;
   }
 
+  /**
+   * Returns the DER encoding of the value. The encoding is computed only once, so that
+   * the request-independent extension values of a profile will not be encoded for each
+   * certificate. The returned array must not be modified.
+   *
+   * @return the DER encoded value.
+   * @throws IOException
+   *           if the value cannot be encoded.
+   * @since 5.3.11
+   */
+  public byte[] getEncodedValue()
+      throws IOException {
+    byte[] encoded = encodedValue;
+    if (encoded == null) {
+      encoded = value.toASN1Primitive().getEncoded(ASN1Encoding.DER);
+      encodedValue = encoded;
+    }
+    return encoded;
+  }
+
 }
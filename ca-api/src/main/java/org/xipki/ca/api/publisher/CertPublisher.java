@@ -18,11 +18,14 @@
 package org.xipki.ca.api.publisher;
 
 import java.io.Closeable;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import org.bouncycastle.cert.X509CRLHolder;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.password.PasswordResolver;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.X509Cert;
@@ -98,6 +101,32 @@ public abstract class CertPublisher implements Closeable {
   public abstract boolean certificateRevoked(X509Cert caCert, CertWithDbId cert,
       String certprofile, CertRevocationInfo revInfo);
 
+  /**
+   * Publishes the revocation of several certificates, e.g. revoked by the bulk revocation.
+   * This method publishes the certificates one by one via
+   * {@link #certificateRevoked(X509Cert, CertWithDbId, String, CertRevocationInfo)},
+   * publishers which can publish a batch more efficiently should overwrite it.
+   *
+   * @param caCert
+   *          CA certificate. Must not be {@code null}.
+   * @param revokedCerts
+   *          Revoked certificates with the revocation information. Must not be {@code null}.
+   * @return the certificates whose revocation is not published, empty list if all revocations
+   *         are published.
+   */
+  public List<CertWithRevocationInfo> certificatesRevoked(X509Cert caCert,
+      List<CertWithRevocationInfo> revokedCerts) {
+    List<CertWithRevocationInfo> failedCerts = new LinkedList<>();
+    for (CertWithRevocationInfo revokedCert : revokedCerts) {
+      boolean successful = certificateRevoked(caCert, revokedCert.getCert(),
+          revokedCert.getCertprofile(), revokedCert.getRevInfo());
+      if (!successful) {
+        failedCerts.add(revokedCert);
+      }
+    }
+    return failedCerts;
+  } // method certificatesRevoked
+
   /**
    * Publishes the unrevocation of a certificate.
    *
@@ -585,6 +585,46 @@ public class CaMgmtClient implements CaManager {
     voidTransmit(MgmtAction.revokeCertficate, req);
   } // method revokeCertificate
 
+  @Override
+  public int revokeCertificates(String caName, String certprofile, X500Name subjectPattern,
+      Date notBeforeFrom, Date notBeforeTo, CrlReason reason, Date invalidityTime)
+          throws CaMgmtException {
+    MgmtRequest.RevokeCertificates req = new MgmtRequest.RevokeCertificates();
+    req.setCaName(caName);
+    req.setCertprofile(certprofile);
+    if (subjectPattern != null) {
+      try {
+        req.setEncodedSubjectDnPattern(subjectPattern.getEncoded());
+      } catch (IOException ex) {
+        throw new CaMgmtException("could not parse subjectPattern", ex);
+      }
+    }
+    req.setNotBeforeFrom(notBeforeFrom);
+    req.setNotBeforeTo(notBeforeTo);
+    req.setReason(reason);
+    req.setInvalidityTime(invalidityTime);
+
+    byte[] respBytes = transmit(MgmtAction.revokeCertificates, req);
+    MgmtResponse.IntResponse resp = parse(respBytes, MgmtResponse.IntResponse.class);
+    return resp.getResult();
+  } // method revokeCertificates
+
+  @Override
+  public int revokeCertificates(String caName, List<BigInteger> serialNumbers, CrlReason reason,
+      Date invalidityTime, boolean suppressCrl)
+          throws CaMgmtException {
+    MgmtRequest.RevokeCertificates req = new MgmtRequest.RevokeCertificates();
+    req.setCaName(caName);
+    req.setSerialNumbers(serialNumbers);
+    req.setReason(reason);
+    req.setInvalidityTime(invalidityTime);
+    req.setSuppressCrl(suppressCrl);
+
+    byte[] respBytes = transmit(MgmtAction.revokeCertificates, req);
+    MgmtResponse.IntResponse resp = parse(respBytes, MgmtResponse.IntResponse.class);
+    return resp.getResult();
+  } // method revokeCertificates
+
   @Override
   public void unrevokeCertificate(String caName, BigInteger serialNumber)
       throws CaMgmtException {
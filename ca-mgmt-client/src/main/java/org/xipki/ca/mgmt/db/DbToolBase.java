@@ -124,6 +124,32 @@ public class DbToolBase implements Closeable {
     return true;
   } // method deleteFromTableWithLargerId
 
+  public boolean deleteFromTableWithIdInRange(String table, String idColumn, long fromIdExclusive,
+      long toIdInclusive, Logger log) {
+    String sql = StringUtil.concatObjects("DELETE FROM ", table, " WHERE ", idColumn, ">",
+        fromIdExclusive, " AND ", idColumn, "<=", toIdInclusive);
+
+    Statement stmt;
+    try {
+      stmt = createStatement();
+    } catch (DataAccessException ex) {
+      log.error("could not create statement", ex);
+      return false;
+    }
+    try {
+      stmt.execute(sql);
+    } catch (Throwable th) {
+      String msg = String.format("could not delete columns from table %s with %s in (%s, %s]",
+          table, idColumn, fromIdExclusive, toIdInclusive);
+      LogUtil.error(log, th, msg);
+      return false;
+    } finally {
+      releaseResources(stmt, null);
+    }
+
+    return true;
+  } // method deleteFromTableWithIdInRange
+
   @Override
   public void close() {
     datasource.returnConnection(connection);
@@ -38,6 +38,7 @@ import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.ProcessLog;
@@ -76,6 +77,10 @@ class DigestDiff {
 
   private final int numTargetThreads;
 
+  private boolean mergeJoin;
+
+  private boolean rangeHash;
+
   public DigestDiff(DataSourceWrapper refDatasource, DataSourceWrapper targetDatasource,
       String reportDirName, boolean revokedOnly, AtomicBoolean stopMe, int numPerSelect,
       int numThreads)
@@ -127,6 +132,34 @@ class DigestDiff {
     this.includeCaCerts = includeCaCerts;
   }
 
+  public boolean isMergeJoin() {
+    return mergeJoin;
+  }
+
+  /**
+   * Sets whether both databases are read ordered by the serial number and merged, instead of
+   * looking up each certificate of the reference database in the target database.
+   * @param mergeJoin
+   *          whether to use the merge join.
+   */
+  public void setMergeJoin(boolean mergeJoin) {
+    this.mergeJoin = mergeJoin;
+  }
+
+  public boolean isRangeHash() {
+    return rangeHash;
+  }
+
+  /**
+   * Sets whether hashes of serial number ranges are compared first in the merge join, so that
+   * only the ranges with different hashes are compared row by row.
+   * @param rangeHash
+   *          whether to compare the range hashes first.
+   */
+  public void setRangeHash(boolean rangeHash) {
+    this.rangeHash = rangeHash;
+  }
+
   public void diff()
       throws Exception {
     Map<Integer, byte[]> caIdCertMap = getCas(targetDatasource, targetDbType);
@@ -166,6 +199,13 @@ class DigestDiff {
       refDatasource.releaseResources(refStmt, null);
     }
 
+    if (mergeJoin) {
+      for (Integer refCaId : refCaIds) {
+        diffSingleCaMerge(refCaId, caIdCertMap);
+      }
+      return;
+    }
+
     final int numBlocksToRead = numTargetThreads * 3 / 2;
     for (Integer refCaId : refCaIds) {
       RefDigestReader refReader = RefDigestReader.getInstance(refDatasource, refDbType,
@@ -179,36 +219,15 @@ class DigestDiff {
     X509Cert caCert = refReader.getCaCert();
     byte[] caCertBytes = caCert.getEncoded();
 
-    if (includeCaCerts != null && !includeCaCerts.isEmpty()) {
-      boolean include = false;
-      for (byte[] m : includeCaCerts) {
-        if (Arrays.equals(m, caCertBytes)) {
-          include = true;
-          break;
-        }
-      }
-      if (!include) {
-        System.out.println("skipped CA " + refReader.getCaSubjectName());
-      }
-    }
-
-    String commonName = caCert.getCommonName();
-    File caReportDir = new File(reportDirName, "ca-" + commonName);
-
-    int idx = 2;
-    while (caReportDir.exists()) {
-      caReportDir = new File(reportDirName, "ca-" + commonName + "-" + (idx++));
+    if (!isIncluded(caCertBytes)) {
+      System.out.println("skipped CA " + refReader.getCaSubjectName());
+      refReader.close();
+      return;
     }
 
-    DigestDiffReporter reporter = new DigestDiffReporter(caReportDir.getPath(), caCertBytes);
-
-    Integer caId = null;
-    for (Integer i : caIdCertBytesMap.keySet()) {
-      if (Arrays.equals(caCertBytes, caIdCertBytesMap.get(i))) {
-        caId = i;
-      }
-    }
+    DigestDiffReporter reporter = newReporter(caCert);
 
+    Integer caId = getTargetCaId(caCertBytes, caIdCertBytesMap);
     if (caId == null) {
       reporter.addNoCaMatch();
       refReader.close();
@@ -245,6 +264,127 @@ class DigestDiff {
     }
   } // method diffSingleCa
 
+  private void diffSingleCaMerge(int refCaId, Map<Integer, byte[]> caIdCertBytesMap)
+      throws DataAccessException, CertificateException, IOException, InterruptedException {
+    String tblCa;
+    String colCaId;
+    switch (refDbType) {
+      case XIPKI_OCSP_v4:
+        tblCa = "ISSUER";
+        colCaId = "IID";
+        break;
+      case XIPKI_CA_v4:
+      case XIPKI_CA_v5:
+      case XIPKI_CA_v6:
+        tblCa = "CA";
+        colCaId = "CA_ID";
+        break;
+      default:
+        throw new IllegalStateException("unknown refDbType " + refDbType);
+    }
+
+    String b64CaCert = refDatasource.getFirstValue(null, tblCa, "CERT", "ID=" + refCaId,
+        String.class);
+    if (b64CaCert == null) {
+      throw new IllegalArgumentException("no CA with id '" + refCaId + "' is available");
+    }
+
+    X509Cert caCert = X509Util.parseCert(StringUtil.toUtf8Bytes(b64CaCert));
+    byte[] caCertBytes = caCert.getEncoded();
+    String caSubjectName = caCert.getSubjectRfc4519Text();
+
+    if (!isIncluded(caCertBytes)) {
+      System.out.println("skipped CA " + caSubjectName);
+      return;
+    }
+
+    DigestDiffReporter reporter = newReporter(caCert);
+
+    Integer caId = getTargetCaId(caCertBytes, caIdCertBytesMap);
+    if (caId == null) {
+      reporter.addNoCaMatch();
+      reporter.close();
+      return;
+    }
+
+    // each thread holds one connection of both databases
+    int numThreads = Math.max(1,
+        Math.min(numTargetThreads, refDatasource.getMaximumPoolSize() - 1));
+
+    try {
+      reporter.start();
+      ProcessLog processLog = new ProcessLog(countCerts(refDatasource, StringUtil.concat(
+          colCaId, "=", Integer.toString(refCaId), (revokedOnly ? " AND REV=1" : ""))));
+      System.out.println("Processing certificates of CA \n\t'" + caSubjectName + "'");
+      processLog.printHeader();
+
+      MergeDigestDiff merge = new MergeDigestDiff(refDatasource, refDbType, refCaId,
+          targetDatasource, targetDbType, caId, certhashAlgo, revokedOnly, numPerSelect,
+          numThreads, rangeHash, reporter, stopMe);
+      merge.diff(processLog);
+      processLog.printTrailer();
+    } catch (InterruptedException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      reporter.addError("Exception thrown: " + ex.getClass().getName() + ": " + ex.getMessage());
+      LOG.error("exception in diffSingleCaMerge", ex);
+    } finally {
+      reporter.close();
+    }
+  } // method diffSingleCaMerge
+
+  private static long countCerts(DataSourceWrapper datasource, String criteria)
+      throws DataAccessException {
+    String sql = "SELECT COUNT(*) FROM CERT WHERE " + criteria;
+    Statement stmt = datasource.createStatement();
+    ResultSet rs = null;
+    try {
+      rs = stmt.executeQuery(sql);
+      return rs.next() ? rs.getLong(1) : 0;
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(stmt, rs);
+    }
+  } // method countCerts
+
+  private boolean isIncluded(byte[] caCertBytes) {
+    if (includeCaCerts == null || includeCaCerts.isEmpty()) {
+      return true;
+    }
+
+    for (byte[] m : includeCaCerts) {
+      if (Arrays.equals(m, caCertBytes)) {
+        return true;
+      }
+    }
+    return false;
+  } // method isIncluded
+
+  private DigestDiffReporter newReporter(X509Cert caCert)
+      throws IOException {
+    String commonName = caCert.getCommonName();
+    File caReportDir = new File(reportDirName, "ca-" + commonName);
+
+    int idx = 2;
+    while (caReportDir.exists()) {
+      caReportDir = new File(reportDirName, "ca-" + commonName + "-" + (idx++));
+    }
+
+    return new DigestDiffReporter(caReportDir.getPath(), caCert.getEncoded());
+  } // method newReporter
+
+  private static Integer getTargetCaId(byte[] caCertBytes,
+      Map<Integer, byte[]> caIdCertBytesMap) {
+    Integer caId = null;
+    for (Integer i : caIdCertBytesMap.keySet()) {
+      if (Arrays.equals(caCertBytes, caIdCertBytesMap.get(i))) {
+        caId = i;
+      }
+    }
+    return caId;
+  } // method getTargetCaId
+
   private static Map<Integer, byte[]> getCas(DataSourceWrapper datasource, DbType dbType)
       throws DataAccessException {
     // get a list of available CAs in the target database
@@ -108,6 +108,16 @@ class DigestDiffReporter implements Closeable {
     writeSerialNumberLine(goodWriter, serialNumber);
   }
 
+  /**
+   * Counts certificates which are known to be equal in both databases without listing their
+   * serial numbers.
+   * @param numCerts
+   *          Number of certificates.
+   */
+  public void addGood(int numCerts) {
+    numGood.addAndGet(numCerts);
+  }
+
   public void addUnexpected(BigInteger serialNumber)
       throws IOException {
     numUnexpected.incrementAndGet();
@@ -119,7 +129,7 @@ class DigestDiffReporter implements Closeable {
     Args.notNull(refCert, "refCert");
     Args.notNull(targetCert, "targetCert");
 
-    if (refCert.getSerialNumber().equals(targetCert.getSerialNumber())) {
+    if (!refCert.getSerialNumber().equals(targetCert.getSerialNumber())) {
       throw new IllegalArgumentException("refCert and targetCert are not of the same serialNumber");
     }
 
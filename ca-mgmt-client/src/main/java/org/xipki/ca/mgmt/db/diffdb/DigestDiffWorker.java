@@ -59,11 +59,34 @@ public class DigestDiffWorker extends DbPortWorker {
 
   private final int numThreads;
 
+  private final boolean mergeJoin;
+
+  private final boolean rangeHash;
+
   public DigestDiffWorker(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
       boolean revokedOnly, String refDbConfFile, String targetDbConfFile, String reportDirName,
       int numCertsPerSelect, int numThreads, Set<byte[]> includeCaCerts)
       throws PasswordResolverException, IOException {
-    super(datasourceFactory, passwordResolver, refDbConfFile);
+    this(datasourceFactory, passwordResolver, revokedOnly, refDbConfFile, targetDbConfFile,
+        reportDirName, numCertsPerSelect, numThreads, includeCaCerts, false, false);
+  }
+
+  /**
+   * Constructor.
+   * @param mergeJoin
+   *          Whether both databases are read ordered by the serial number and merged,
+   *          the reference database is then queried by numThreads threads as well.
+   * @param rangeHash
+   *          Whether hashes of serial number ranges are compared first in the merge join.
+   */
+  public DigestDiffWorker(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
+      boolean revokedOnly, String refDbConfFile, String targetDbConfFile, String reportDirName,
+      int numCertsPerSelect, int numThreads, Set<byte[]> includeCaCerts, boolean mergeJoin,
+      boolean rangeHash)
+      throws PasswordResolverException, IOException {
+    super(datasourceFactory, passwordResolver, refDbConfFile, mergeJoin ? numThreads + 1 : 1);
+    this.mergeJoin = mergeJoin;
+    this.rangeHash = rangeHash;
     this.reportDir = reportDirName;
     this.numThreads = Args.positive(numThreads, "numThreads");
     this.numCertsPerSelect = numCertsPerSelect;
@@ -103,6 +126,8 @@ public class DigestDiffWorker extends DbPortWorker {
       DigestDiff diff = new DigestDiff(datasource, targetDatasource, reportDir, revokedOnly,
           stopMe, numCertsPerSelect, numThreads);
       diff.setIncludeCaCerts(includeCaCerts);
+      diff.setMergeJoin(mergeJoin);
+      diff.setRangeHash(rangeHash);
       diff.diff();
     } finally {
       try {
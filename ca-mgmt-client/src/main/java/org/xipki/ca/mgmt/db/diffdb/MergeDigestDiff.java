@@ -0,0 +1,316 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.diffdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Args;
+import org.xipki.util.ProcessLog;
+import org.xipki.util.StringUtil;
+
+/**
+ * Compares the certificates of one CA in two databases by streaming both sides ordered by
+ * the serial number and merging them (merge join), instead of looking up every certificate
+ * of the reference database in the target database.
+ *
+ * <p>The serial numbers are split into {@link #NUM_BUCKETS} ranges by their first three hex
+ * characters, consecutive ranges are grouped into partitions which are compared in parallel.
+ * If range hashes are enabled, the certificates of each range are first reduced to a count
+ * and an order-independent sum of the hashes of the entries on both sides, and only the
+ * ranges whose sums differ are compared row by row.
+ *
+ * <p>If only the revoked certificates are compared, the range hashes are built from the
+ * revoked certificates on both sides. The row by row comparison reads all certificates of
+ * the target database, so that a certificate revoked only in the reference database is
+ * reported as different, and ignores the other not-revoked certificates of the target.
+ *
+ * @author Lijun Liao
+ */
+
+class MergeDigestDiff {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MergeDigestDiff.class);
+
+  static final int NUM_BUCKETS = 4096;
+
+  private final DataSourceWrapper refDatasource;
+
+  private final DbType refDbType;
+
+  private final int refCaId;
+
+  private final DataSourceWrapper targetDatasource;
+
+  private final DbType targetDbType;
+
+  private final int targetCaId;
+
+  private final HashAlgo certhashAlgo;
+
+  private final boolean revokedOnly;
+
+  private final int numPerSelect;
+
+  private final int numThreads;
+
+  private final boolean rangeHash;
+
+  private final DigestDiffReporter reporter;
+
+  private final AtomicBoolean stopMe;
+
+  private final AtomicInteger numComparedBuckets = new AtomicInteger(0);
+
+  private ProcessLog processLog;
+
+  MergeDigestDiff(DataSourceWrapper refDatasource, DbType refDbType, int refCaId,
+      DataSourceWrapper targetDatasource, DbType targetDbType, int targetCaId,
+      HashAlgo certhashAlgo, boolean revokedOnly, int numPerSelect, int numThreads,
+      boolean rangeHash, DigestDiffReporter reporter, AtomicBoolean stopMe) {
+    this.refDatasource = Args.notNull(refDatasource, "refDatasource");
+    this.refDbType = Args.notNull(refDbType, "refDbType");
+    this.refCaId = refCaId;
+    this.targetDatasource = Args.notNull(targetDatasource, "targetDatasource");
+    this.targetDbType = Args.notNull(targetDbType, "targetDbType");
+    this.targetCaId = targetCaId;
+    this.certhashAlgo = Args.notNull(certhashAlgo, "certhashAlgo");
+    this.revokedOnly = revokedOnly;
+    this.numPerSelect = Args.positive(numPerSelect, "numPerSelect");
+    this.numThreads = Args.positive(numThreads, "numThreads");
+    this.rangeHash = rangeHash;
+    this.reporter = Args.notNull(reporter, "reporter");
+    this.stopMe = Args.notNull(stopMe, "stopMe");
+  } // constructor
+
+  void diff(ProcessLog processLog)
+      throws InterruptedException, IOException {
+    this.processLog = Args.notNull(processLog, "processLog");
+
+    // more partitions than threads, so that skewed serial numbers are balanced.
+    final int numPartitions = Math.min(NUM_BUCKETS, 4 * numThreads);
+
+    List<Future<Void>> futures = new ArrayList<>(numPartitions);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      for (int i = 0; i < numPartitions; i++) {
+        final int fromBucket = (int) ((long) i * NUM_BUCKETS / numPartitions);
+        final int toBucket = (int) ((long) (i + 1) * NUM_BUCKETS / numPartitions);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call()
+              throws Exception {
+            diffPartition(fromBucket, toBucket);
+            return null;
+          }
+        }));
+      }
+
+      executor.shutdown();
+
+      for (int i = 0; i < numPartitions; i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause();
+          String range = "[" + fromSerial((int) ((long) i * NUM_BUCKETS / numPartitions))
+              + ", " + toSerial((int) ((long) (i + 1) * NUM_BUCKETS / numPartitions)) + ")";
+          LOG.error("could not compare serial numbers in " + range, cause);
+          reporter.addError("Exception thrown while comparing serial numbers in " + range
+              + ": " + cause.getClass().getName() + ": " + cause.getMessage());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (rangeHash) {
+      System.out.println("compared " + numComparedBuckets.get() + " of " + NUM_BUCKETS
+          + " serial number ranges row by row");
+    }
+  } // method diff
+
+  private void diffPartition(int fromBucket, int toBucket)
+      throws DataAccessException, IOException {
+    if (!rangeHash) {
+      compareRange(fromBucket, toBucket);
+      return;
+    }
+
+    final int num = toBucket - fromBucket;
+    int[] refCounts = new int[num];
+    long[] refSums = new long[num];
+    int[] targetCounts = new int[num];
+    long[] targetSums = new long[num];
+
+    hashRange(refDatasource, refDbType, refCaId, revokedOnly, fromBucket, toBucket,
+        refCounts, refSums);
+    hashRange(targetDatasource, targetDbType, targetCaId, revokedOnly, fromBucket, toBucket,
+        targetCounts, targetSums);
+
+    int idx = 0;
+    while (idx < num && !stopMe.get()) {
+      if (refCounts[idx] == targetCounts[idx] && refSums[idx] == targetSums[idx]) {
+        reporter.addGood(refCounts[idx]);
+        processLog.addNumProcessed(refCounts[idx]);
+        idx++;
+        continue;
+      }
+
+      // compare consecutive mismatching ranges together
+      int endIdx = idx + 1;
+      while (endIdx < num && (refCounts[endIdx] != targetCounts[endIdx]
+          || refSums[endIdx] != targetSums[endIdx])) {
+        endIdx++;
+      }
+
+      numComparedBuckets.addAndGet(endIdx - idx);
+      compareRange(fromBucket + idx, fromBucket + endIdx);
+      idx = endIdx;
+    }
+
+    processLog.printStatus();
+  } // method diffPartition
+
+  private void compareRange(int fromBucket, int toBucket)
+      throws DataAccessException, IOException {
+    String fromSerial = fromSerial(fromBucket);
+    String toSerial = toSerial(toBucket);
+
+    OrderedDigestReader refReader = new OrderedDigestReader(refDatasource, refDbType,
+        certhashAlgo, refCaId, revokedOnly, fromSerial, toSerial, numPerSelect);
+    OrderedDigestReader targetReader = null;
+    try {
+      targetReader = new OrderedDigestReader(targetDatasource, targetDbType,
+          certhashAlgo, targetCaId, false, fromSerial, toSerial, numPerSelect);
+
+      OrderedDigestReader.Entry ref = refReader.next();
+      OrderedDigestReader.Entry target = targetReader.next();
+
+      int numProcessed = 0;
+      while ((ref != null || target != null) && !stopMe.get()) {
+        int cmp = (ref == null) ? 1 : (target == null) ? -1
+            : ref.getSerialText().compareTo(target.getSerialText());
+
+        if (cmp < 0) {
+          reporter.addMissing(ref.getDigest().getSerialNumber());
+          ref = refReader.next();
+          numProcessed++;
+        } else if (cmp > 0) {
+          if (!revokedOnly || target.getDigest().isRevoked()) {
+            reporter.addUnexpected(target.getDigest().getSerialNumber());
+          }
+          target = targetReader.next();
+        } else {
+          if (ref.getDigest().contentEquals(target.getDigest())) {
+            reporter.addGood(ref.getDigest().getSerialNumber());
+          } else {
+            reporter.addDiff(ref.getDigest(), target.getDigest());
+          }
+          ref = refReader.next();
+          target = targetReader.next();
+          numProcessed++;
+        }
+
+        if (numProcessed == numPerSelect) {
+          processLog.addNumProcessed(numProcessed);
+          processLog.printStatus();
+          numProcessed = 0;
+        }
+      }
+
+      processLog.addNumProcessed(numProcessed);
+    } finally {
+      refReader.close();
+      if (targetReader != null) {
+        targetReader.close();
+      }
+    }
+  } // method compareRange
+
+  private void hashRange(DataSourceWrapper datasource, DbType dbType, int caId,
+      boolean revokedOnly, int fromBucket, int toBucket, int[] counts, long[] sums)
+          throws DataAccessException {
+    OrderedDigestReader reader = new OrderedDigestReader(datasource, dbType, certhashAlgo,
+        caId, revokedOnly, fromSerial(fromBucket), toSerial(toBucket), numPerSelect);
+    try {
+      OrderedDigestReader.Entry entry;
+      while ((entry = reader.next()) != null && !stopMe.get()) {
+        int idx = bucketOf(entry.getSerialText()) - fromBucket;
+        if (idx < 0 || idx >= counts.length) {
+          throw new DataAccessException("serial number " + entry.getSerialText()
+              + " is not in the expected range");
+        }
+
+        counts[idx]++;
+        sums[idx] += hash(entry.getDigest());
+      }
+    } finally {
+      reader.close();
+    }
+  } // method hashRange
+
+  /**
+   * Returns the range of the given serial number. The range i contains all serial numbers
+   * (in hex) not less than the three hex characters of i and less than those of i + 1.
+   * @param serialText
+   *          Serial number in hex as stored in the column SN.
+   * @return the index of the range.
+   */
+  static int bucketOf(String serialText) {
+    int len = serialText.length();
+    if (len >= 3) {
+      return Integer.parseInt(serialText.substring(0, 3), 16);
+    }
+
+    // a shorter serial number, e.g. "ab", is less than "ab0" and not less than "aaf"
+    int bucket = (Integer.parseInt(serialText, 16) << (4 * (3 - len))) - 1;
+    return Math.max(0, bucket);
+  } // method bucketOf
+
+  static String fromSerial(int bucket) {
+    return (bucket == 0) ? OrderedDigestReader.MIN_SERIAL : String.format("%03x", bucket);
+  }
+
+  static String toSerial(int bucket) {
+    return (bucket >= NUM_BUCKETS) ? null : String.format("%03x", bucket);
+  }
+
+  private static long hash(DigestEntry entry) {
+    byte[] digest = HashAlgo.SHA1.hash(StringUtil.toUtf8Bytes(entry.encoded()));
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (digest[i] & 0xFF);
+    }
+    return value;
+  } // method hash
+
+}
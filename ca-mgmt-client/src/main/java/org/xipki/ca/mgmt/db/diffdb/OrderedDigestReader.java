@@ -0,0 +1,263 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.diffdb;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Args;
+import org.xipki.util.Base64;
+import org.xipki.util.StringUtil;
+
+/**
+ * Reader of the certificates of one CA within a range of serial numbers, ordered by the
+ * serial number. The rows are read page by page via the index (CA_ID, SN) resp. (IID, SN),
+ * each page starts at the last serial number of the previous one (keyset pagination).
+ *
+ * @author Lijun Liao
+ */
+
+class OrderedDigestReader implements Closeable {
+
+  static class Entry {
+
+    private final String serialText;
+
+    private final DigestEntry digest;
+
+    Entry(String serialText, DigestEntry digest) {
+      this.serialText = serialText;
+      this.digest = digest;
+    }
+
+    /**
+     * Returns the serial number as stored in the column SN.
+     * @return the serial number in hex.
+     */
+    String getSerialText() {
+      return serialText;
+    }
+
+    DigestEntry getDigest() {
+      return digest;
+    }
+
+  } // class Entry
+
+  /**
+   * Lowest value of the column SN: the serial number is stored as hex in lower case
+   * without leading zeros, hence every value is not less than "0".
+   */
+  static final String MIN_SERIAL = "0";
+
+  private final DataSourceWrapper datasource;
+
+  private final DbType dbType;
+
+  private final HashAlgo certhashAlgo;
+
+  private final String sql;
+
+  private final String fromSerial;
+
+  private final String toSerial;
+
+  private final Deque<Entry> page = new ArrayDeque<>();
+
+  private Connection conn;
+
+  private PreparedStatement stmt;
+
+  private String lastSerial;
+
+  private boolean endReached;
+
+  /**
+   * Constructor.
+   * @param datasource
+   *          Datasource.
+   * @param dbType
+   *          Type of the database.
+   * @param certhashAlgo
+   *          Hash algorithm of the certificates.
+   * @param caId
+   *          ID of the CA.
+   * @param revokedOnly
+   *          Whether only revoked certificates are read.
+   * @param fromSerial
+   *          Lowest serial number (inclusive) in hex.
+   * @param toSerial
+   *          Highest serial number (exclusive) in hex, {@code null} for unbounded.
+   * @param numPerSelect
+   *          Number of rows per SELECT.
+   * @throws DataAccessException
+   *           if database error occurs.
+   */
+  OrderedDigestReader(DataSourceWrapper datasource, DbType dbType, HashAlgo certhashAlgo,
+      int caId, boolean revokedOnly, String fromSerial, String toSerial, int numPerSelect)
+          throws DataAccessException {
+    this.datasource = Args.notNull(datasource, "datasource");
+    this.dbType = Args.notNull(dbType, "dbType");
+    this.certhashAlgo = Args.notNull(certhashAlgo, "certhashAlgo");
+    this.fromSerial = Args.notBlank(fromSerial, "fromSerial");
+    this.toSerial = toSerial;
+    Args.positive(numPerSelect, "numPerSelect");
+
+    String coreSql;
+    switch (dbType) {
+      case XIPKI_OCSP_v4:
+        coreSql = "SN,REV,RR,RT,RIT,HASH FROM CERT WHERE IID=";
+        break;
+      case XIPKI_CA_v4:
+      case XIPKI_CA_v5:
+      case XIPKI_CA_v6:
+        coreSql = StringUtil.concat("SN,REV,RR,RT,RIT,",
+            (certhashAlgo == HashAlgo.SHA1 ? "SHA1" : "CERT"), " FROM CERT WHERE CA_ID=");
+        break;
+      default:
+        throw new IllegalStateException("unknown dbType " + dbType);
+    }
+
+    coreSql = StringUtil.concat(coreSql, Integer.toString(caId), " AND SN>=?",
+        (toSerial == null ? "" : " AND SN<?"), (revokedOnly ? " AND REV=1" : ""));
+
+    // the first row of the next page is the last row of the previous page
+    this.sql = datasource.buildSelectFirstSql(numPerSelect + 1, "SN ASC", coreSql);
+
+    this.conn = datasource.getConnection();
+    try {
+      this.stmt = datasource.prepareStatement(conn, sql);
+    } catch (DataAccessException ex) {
+      datasource.returnConnection(conn);
+      conn = null;
+      throw ex;
+    }
+  } // constructor
+
+  /**
+   * Returns the next entry.
+   * @return the next entry, or {@code null} if all entries have been read.
+   * @throws DataAccessException
+   *           if database error occurs or the database does not order the serial numbers
+   *           as expected.
+   */
+  Entry next()
+      throws DataAccessException {
+    if (page.isEmpty() && !endReached) {
+      readPage();
+    }
+    return page.pollFirst();
+  } // method next
+
+  private void readPage()
+      throws DataAccessException {
+    ResultSet rs = null;
+    try {
+      stmt.setString(1, lastSerial == null ? fromSerial : lastSerial);
+      if (toSerial != null) {
+        stmt.setString(2, toSerial);
+      }
+
+      rs = stmt.executeQuery();
+
+      int num = 0;
+      while (rs.next()) {
+        String serialText = rs.getString("SN");
+        if (lastSerial != null) {
+          int cmp = serialText.compareTo(lastSerial);
+          if (cmp == 0) {
+            continue;
+          } else if (cmp < 0) {
+            // the merge requires the same order in Java as in the database
+            throw new DataAccessException("serial numbers are not ordered as expected: "
+                + serialText + " follows " + lastSerial + ", check the collation of column SN");
+          }
+        }
+
+        page.addLast(new Entry(serialText, buildDigestEntry(rs, serialText)));
+        lastSerial = serialText;
+        num++;
+      }
+
+      if (num == 0) {
+        endReached = true;
+      }
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(null, rs, false);
+    }
+  } // method readPage
+
+  private DigestEntry buildDigestEntry(ResultSet rs, String serialText)
+      throws SQLException {
+    String hash;
+    switch (dbType) {
+      case XIPKI_OCSP_v4:
+        hash = rs.getString("HASH");
+        break;
+      default:
+        if (certhashAlgo == HashAlgo.SHA1) {
+          hash = rs.getString("SHA1");
+        } else {
+          hash = certhashAlgo.base64Hash(Base64.decodeFast(rs.getString("CERT")));
+        }
+        break;
+    }
+
+    boolean revoked = rs.getBoolean("REV");
+    Integer revReason = null;
+    Long revTime = null;
+    Long revInvTime = null;
+
+    if (revoked) {
+      revReason = rs.getInt("RR");
+      revTime = rs.getLong("RT");
+      revInvTime = rs.getLong("RIT");
+      if (revInvTime == 0) {
+        revInvTime = null;
+      }
+    }
+
+    return new DigestEntry(new BigInteger(serialText, 16), revoked, revReason, revTime,
+        revInvTime, hash);
+  } // method buildDigestEntry
+
+  @Override
+  public void close() {
+    if (stmt != null) {
+      datasource.releaseResources(stmt, null, false);
+      stmt = null;
+    }
+
+    if (conn != null) {
+      datasource.returnConnection(conn);
+      conn = null;
+    }
+  } // method close
+
+}
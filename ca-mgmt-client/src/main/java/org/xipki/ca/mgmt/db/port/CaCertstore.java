@@ -932,6 +932,58 @@ public class CaCertstore extends ValidatableConf {
 
   } // method Cert
 
+  public static class CertShard extends ValidatableConf {
+
+    private int no;
+
+    private long fromId;
+
+    private long toId;
+
+    private int count;
+
+    public int getNo() {
+      return no;
+    }
+
+    public void setNo(int no) {
+      this.no = no;
+    }
+
+    public long getFromId() {
+      return fromId;
+    }
+
+    public void setFromId(long fromId) {
+      this.fromId = fromId;
+    }
+
+    public long getToId() {
+      return toId;
+    }
+
+    public void setToId(long toId) {
+      this.toId = toId;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public void validate()
+        throws InvalidConfException {
+      if (fromId > toId) {
+        throw new InvalidConfException("fromId (" + fromId + ") > toId (" + toId + ")");
+      }
+    }
+
+  } // class CertShard
+
   public static class Certs extends ValidatableConf {
 
     private List<Cert> certs;
@@ -1405,6 +1457,12 @@ public class CaCertstore extends ValidatableConf {
 
   private List<DeltaCrlCacheEntry> deltaCrlCache;
 
+  /**
+   * ID ranges of the table CERT exported in parallel. If not empty, the certificates are
+   * contained in the binary bundles listed in the files certs-&lt;no&gt;.mf.
+   */
+  private List<CertShard> certShards;
+
   public int getVersion() {
     return version;
   }
@@ -1467,11 +1525,23 @@ public class CaCertstore extends ValidatableConf {
     this.deltaCrlCache = deltaCrlCache;
   }
 
+  public List<CertShard> getCertShards() {
+    if (certShards == null) {
+      certShards = new LinkedList<>();
+    }
+    return certShards;
+  }
+
+  public void setCertShards(List<CertShard> certShards) {
+    this.certShards = certShards;
+  }
+
   @Override
   public void validate()
       throws InvalidConfException {
     validate(publishQueue);
     validate(deltaCrlCache);
+    validate(certShards);
   }
 
 }
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -30,8 +31,14 @@ import java.security.cert.CRLException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -41,6 +48,7 @@ import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.ca.mgmt.db.DbToolBase;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
@@ -66,20 +74,26 @@ class CaCertstoreDbExporter extends DbPorter {
 
   private static final Logger LOG = LoggerFactory.getLogger(CaCertstoreDbExporter.class);
 
+  private static final String SQL_CORE_CERT = "ID,SN,CA_ID,PID,RID,RTYPE,TID,UID,EE,LUPDATE,"
+      + "REV,RR,RT,RIT,FP_RS,REQ_SUBJECT,CRL_SCOPE,CERT FROM CERT";
+
   private final int numCertsInBundle;
 
   private final int numCertsPerSelect;
 
   private final boolean resume;
 
+  private final int numWorkers;
+
   CaCertstoreDbExporter(DataSourceWrapper datasource, String baseDir, int numCertsInBundle,
-      int numCertsPerSelect, boolean resume, AtomicBoolean stopMe)
+      int numCertsPerSelect, boolean resume, int numWorkers, AtomicBoolean stopMe)
           throws DataAccessException {
     super(datasource, baseDir, stopMe);
 
     this.numCertsInBundle = Args.positive(numCertsInBundle, "numCertsInBundle");
     this.numCertsPerSelect = Args.positive(numCertsPerSelect, "numCertsPerSelect");
     this.resume = resume;
+    this.numWorkers = Args.positive(numWorkers, "numWorkers");
   } // constructor
 
   public void export()
@@ -134,7 +148,9 @@ class CaCertstoreDbExporter extends DbPorter {
       for (CaDbEntryType type : types) {
         if (exception == null
             && (type == typeProcessedInLastProcess || typeProcessedInLastProcess == null)) {
-          exception = exportEntries(type, certstore, processLogFile, idProcessedInLastProcess);
+          exception = (type == CaDbEntryType.CERT && isCertsExportedInShards())
+              ? exportCertsInShards(certstore, processLogFile)
+              : exportEntries(type, certstore, processLogFile, idProcessedInLastProcess);
           typeProcessedInLastProcess = null;
           idProcessedInLastProcess = null;
         }
@@ -197,8 +213,7 @@ class CaCertstoreDbExporter extends DbPorter {
     switch (type) {
       case CERT:
         numProcessedBefore = certstore.getCountCerts();
-        coreSql = "ID,SN,CA_ID,PID,RID,RTYPE,TID,UID,EE,LUPDATE,REV,RR,RT,RIT,FP_RS,"
-            + "REQ_SUBJECT,CRL_SCOPE,CERT FROM CERT WHERE ID>=?";
+        coreSql = SQL_CORE_CERT + " WHERE ID>=?";
         break;
       case CRL:
         numProcessedBefore = certstore.getCountCrls();
@@ -297,48 +312,9 @@ class CaCertstoreDbExporter extends DbPorter {
               currentEntriesZip.closeEntry();
             }
 
-            CaCertstore.Cert cert = new CaCertstore.Cert();
-            cert.setId(id);
-            cert.setCaId(rs.getInt("CA_ID"));
-            cert.setEe(rs.getBoolean("EE"));
+            CaCertstore.Cert cert = buildCert(rs, id);
             cert.setFile(certFileName);
 
-            long fpReqSubject = rs.getLong("FP_RS");
-            if (fpReqSubject != 0) {
-              cert.setFpRs(fpReqSubject);
-              cert.setRs(rs.getString("REQ_SUBJECT"));
-            }
-
-            cert.setPid(rs.getInt("PID"));
-            cert.setReqType(rs.getInt("RTYPE"));
-            cert.setRid(rs.getInt("RID"));
-            cert.setSn(rs.getString("SN"));
-
-            String str = rs.getString("TID");
-            if (StringUtil.isNotBlank(str)) {
-              cert.setTid(str);
-            }
-
-            int userId = rs.getInt("UID");
-            if (userId != 0) {
-              cert.setUid(userId);
-            }
-            cert.setUpdate(rs.getLong("LUPDATE"));
-
-            int revoked = rs.getInt("REV");
-            cert.setRev(revoked);
-
-            if (revoked == 1) {
-              cert.setRr(rs.getInt("RR"));
-              cert.setRt(rs.getLong("RT"));
-              long revInvTime = rs.getLong("RIT");
-              if (revInvTime != 0) {
-                cert.setRit(revInvTime);
-              }
-            }
-
-            cert.setCrlScope(rs.getInt("CRL_SCOPE"));
-
             cert.validate();
             ((CaCertstore.Certs) entriesInCurrentFile).add(cert);
           } else if (CaDbEntryType.CRL == type) {
@@ -481,6 +457,185 @@ class CaCertstoreDbExporter extends DbPorter {
     System.out.println(" exported " + sum + " entries from " + tablesText);
   } // method exportEntries
 
+  /**
+   * Whether the table CERT is exported in ID ranges by several workers. An export started
+   * sequentially is continued sequentially, and vice versa.
+   */
+  private boolean isCertsExportedInShards()
+      throws IOException {
+    if (!CertShardProcessLog.list(baseDir, PREFIX_EXPORT_SHARD_PROCESS_LOG_FILENAME).isEmpty()) {
+      return true;
+    }
+
+    return numWorkers > 1
+        && !new File(baseDir, CaDbEntryType.CERT.getDirName() + ".mf").exists();
+  } // method isCertsExportedInShards
+
+  private Exception exportCertsInShards(CaCertstore certstore, File processLogFile) {
+    try {
+      exportCertsInShards0(certstore, processLogFile);
+      return null;
+    } catch (Exception ex) {
+      // delete the temporary files
+      deleteTmpFiles(baseDir, "tmp-");
+
+      System.err.println("\nexporting table CERT has been cancelled due to error,\n"
+          + "please continue with the option '--resume'");
+      LOG.error("Exception", ex);
+      return ex;
+    }
+  } // method exportCertsInShards
+
+  private void exportCertsInShards0(CaCertstore certstore, File processLogFile)
+      throws Exception {
+    final CaDbEntryType type = CaDbEntryType.CERT;
+    new File(baseDir, type.getDirName()).mkdirs();
+
+    final long maxId = max(type.getTableName(), "ID");
+    List<CertShardProcessLog> shardLogs =
+        CertShardProcessLog.list(baseDir, PREFIX_EXPORT_SHARD_PROCESS_LOG_FILENAME);
+
+    if (shardLogs.isEmpty()) {
+      if (count(type.getTableName()) == 0) {
+        // nothing to split
+        Exception ex = exportEntries(type, certstore, processLogFile, null);
+        if (ex != null) {
+          throw ex;
+        }
+        return;
+      }
+
+      final long minId = min(type.getTableName(), "ID");
+      for (CaCertstore.CertShard shard : splitIds(minId, maxId, numWorkers)) {
+        shardLogs.add(CertShardProcessLog.create(baseDir,
+            PREFIX_EXPORT_SHARD_PROCESS_LOG_FILENAME, shard));
+      }
+    }
+
+    // mark the table CERT as the current one, the progress is recorded per shard
+    echoToFile(type.getTableName() + ":0", processLogFile);
+
+    long numProcessedBefore = 0;
+    for (CertShardProcessLog shardLog : shardLogs) {
+      numProcessedBefore += shardLog.getShard().getCount();
+    }
+
+    long total = count(type.getTableName()) - numProcessedBefore;
+    if (total < 1) {
+      total = 1; // to avoid exception
+    }
+
+    System.out.println("exporting table CERT in " + shardLogs.size() + " shards with "
+        + numWorkers + " workers");
+    ProcessLog processLog = new ProcessLog(total);
+    processLog.printHeader();
+
+    AtomicBoolean failed = new AtomicBoolean(false);
+    List<CertShardExporter> exporters = new ArrayList<>(shardLogs.size());
+    for (CertShardProcessLog shardLog : shardLogs) {
+      if (!shardLog.isFinished()) {
+        exporters.add(new CertShardExporter(datasource, baseDir, stopMe, failed, shardLog,
+            numCertsInBundle, numCertsPerSelect, maxId, processLog));
+      }
+    }
+
+    runWorkers(exporters, numWorkers);
+
+    processLog.printTrailer();
+
+    int sum = 0;
+    List<CaCertstore.CertShard> shards = new ArrayList<>(shardLogs.size());
+    for (CertShardProcessLog shardLog : shardLogs) {
+      shards.add(shardLog.getShard());
+      sum += shardLog.getShard().getCount();
+    }
+
+    for (CertShardExporter exporter : exporters) {
+      System.out.println(" shard " + exporter.shardLog.getShard().getNo() + ": exported "
+          + StringUtil.formatAccount(exporter.numExported, 1) + " certificates in "
+          + StringUtil.formatTime(exporter.durationMs / 1000, false) + " ("
+          + StringUtil.formatAccount(exporter.numExported * 1000 / Math.max(1,
+              exporter.durationMs), 1) + " per second)");
+    }
+
+    certstore.setCertShards(shards);
+    certstore.setCountCerts(sum);
+
+    // all successful, delete the process log files
+    for (CertShardProcessLog shardLog : shardLogs) {
+      shardLog.delete();
+    }
+    processLogFile.delete();
+    System.out.println(" exported " + processLog.numProcessed() + " entries from table CERT");
+  } // method exportCertsInShards0
+
+  /**
+   * Splits the IDs from {@code minId} to {@code maxId} into at most {@code numShards} ranges
+   * of equal width. The last range is open-ended, so that it contains also the certificates
+   * added during the export.
+   */
+  static List<CaCertstore.CertShard> splitIds(long minId, long maxId, int numShards) {
+    final long range = maxId - minId + 1;
+    numShards = (int) Math.min(numShards, range);
+    final long width = (range + numShards - 1) / numShards;
+
+    List<CaCertstore.CertShard> shards = new ArrayList<>(numShards);
+    for (int i = 0; i < numShards; i++) {
+      long fromId = minId + i * width;
+      if (fromId > maxId) {
+        break;
+      }
+
+      CaCertstore.CertShard shard = new CaCertstore.CertShard();
+      shard.setNo(i + 1);
+      shard.setFromId(fromId);
+      shard.setToId(Math.min(maxId, fromId + width - 1));
+      shards.add(shard);
+    }
+
+    // fewer shards than numShards if the width has been rounded up
+    shards.get(shards.size() - 1).setToId(Long.MAX_VALUE);
+    return shards;
+  } // method splitIds
+
+  /**
+   * Runs the workers in a pool with at most {@code numThreads} threads.
+   * @throws Exception
+   *           the first exception thrown by a worker.
+   */
+  static void runWorkers(List<? extends Callable<Void>> workers, int numThreads)
+      throws Exception {
+    if (workers.isEmpty()) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, workers.size()));
+    try {
+      List<Future<Void>> futures = new ArrayList<>(workers.size());
+      for (Callable<Void> worker : workers) {
+        futures.add(executor.submit(worker));
+      }
+
+      Exception exception = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          if (exception == null) {
+            Throwable cause = ex.getCause();
+            exception = (cause instanceof Exception) ? (Exception) cause : new Exception(cause);
+          }
+        }
+      }
+
+      if (exception != null) {
+        throw exception;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  } // method runWorkers
+
   private void exportPublishQueue(CaCertstore certstore)
       throws DataAccessException, InvalidConfException {
     System.out.println("exporting table PUBLISHQUEUE");
@@ -555,6 +710,51 @@ class CaCertstoreDbExporter extends DbPorter {
     }
   } // method createContainer
 
+  private static CaCertstore.Cert buildCert(ResultSet rs, long id)
+      throws SQLException {
+    CaCertstore.Cert cert = new CaCertstore.Cert();
+    cert.setId(id);
+    cert.setCaId(rs.getInt("CA_ID"));
+    cert.setEe(rs.getBoolean("EE"));
+
+    long fpReqSubject = rs.getLong("FP_RS");
+    if (fpReqSubject != 0) {
+      cert.setFpRs(fpReqSubject);
+      cert.setRs(rs.getString("REQ_SUBJECT"));
+    }
+
+    cert.setPid(rs.getInt("PID"));
+    cert.setReqType(rs.getInt("RTYPE"));
+    cert.setRid(rs.getInt("RID"));
+    cert.setSn(rs.getString("SN"));
+
+    String str = rs.getString("TID");
+    if (StringUtil.isNotBlank(str)) {
+      cert.setTid(str);
+    }
+
+    int userId = rs.getInt("UID");
+    if (userId != 0) {
+      cert.setUid(userId);
+    }
+    cert.setUpdate(rs.getLong("LUPDATE"));
+
+    int revoked = rs.getInt("REV");
+    cert.setRev(revoked);
+
+    if (revoked == 1) {
+      cert.setRr(rs.getInt("RR"));
+      cert.setRt(rs.getLong("RT"));
+      long revInvTime = rs.getLong("RIT");
+      if (revInvTime != 0) {
+        cert.setRit(revInvTime);
+      }
+    }
+
+    cert.setCrlScope(rs.getInt("CRL_SCOPE"));
+    return cert;
+  } // method buildCert
+
   private static void setCount(CaDbEntryType type, CaCertstore certstore, int num) {
     switch (type) {
       case CERT:
@@ -573,4 +773,242 @@ class CaCertstoreDbExporter extends DbPorter {
         throw new IllegalStateException("unknown CaDbEntryType " + type);
     }
   } // method setCount
+
+  /**
+   * Removes the bundles written after the last checkpoint of the shard from the manifest and
+   * deletes their files, they will be exported again. This includes the bundles renamed but
+   * not yet listed in the manifest, and the temporary bundles of an aborted run.
+   */
+  static void removeUnfinishedBundles(File manifestFile, File entriesDir,
+      CaCertstore.CertShard shard, long lastId)
+          throws IOException {
+    final String dirName = CaDbEntryType.CERT.getDirName();
+
+    File[] tmpFiles = manifestFile.getParentFile().listFiles();
+    if (tmpFiles != null) {
+      String tmpPrefix = "tmp-" + dirName + "-" + shard.getNo() + "-";
+      for (File file : tmpFiles) {
+        if (file.getName().startsWith(tmpPrefix)) {
+          deleteBundle(file);
+        }
+      }
+    }
+
+    if (manifestFile.exists()) {
+      StringBuilder sb = new StringBuilder();
+      for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        long maxIdOfBundle = CertBundle.getMaxId(line);
+        if (maxIdOfBundle != -1 && maxIdOfBundle <= lastId) {
+          sb.append(line).append('\n');
+        } else {
+          deleteBundle(new File(entriesDir, line));
+        }
+      }
+      echoToFile(sb.toString(), manifestFile);
+    }
+
+    // bundles of this shard after the checkpoint, renamed but not listed in the manifest
+    File[] bundleFiles = entriesDir.listFiles();
+    if (bundleFiles != null) {
+      for (File file : bundleFiles) {
+        String name = file.getName();
+        if (!(name.startsWith(dirName + "_") && name.endsWith(CertBundle.SUFFIX))) {
+          continue;
+        }
+
+        long minIdOfBundle = CertBundle.getMinId(name);
+        if (minIdOfBundle > lastId && minIdOfBundle >= shard.getFromId()
+            && minIdOfBundle <= shard.getToId()) {
+          deleteBundle(file);
+        }
+      }
+    }
+  } // method removeUnfinishedBundles
+
+  private static void deleteBundle(File file)
+      throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+
+    if (!file.delete()) {
+      throw new IOException("could not delete the unfinished bundle " + file.getPath());
+    }
+    LOG.info("deleted the unfinished bundle {}", file.getPath());
+  } // method deleteBundle
+
+  /**
+   * Exports one ID range of the table CERT with its own database connection.
+   */
+  private static class CertShardExporter extends DbToolBase implements Callable<Void> {
+
+    private final AtomicBoolean failed;
+
+    private final CertShardProcessLog shardLog;
+
+    private final int numCertsInBundle;
+
+    private final int numCertsPerSelect;
+
+    private final long maxId;
+
+    private final ProcessLog processLog;
+
+    private long numExported;
+
+    private long durationMs;
+
+    CertShardExporter(DataSourceWrapper datasource, String baseDir, AtomicBoolean stopMe,
+        AtomicBoolean failed, CertShardProcessLog shardLog, int numCertsInBundle,
+        int numCertsPerSelect, long maxId, ProcessLog processLog)
+            throws DataAccessException {
+      super(datasource, baseDir, stopMe);
+      this.failed = failed;
+      this.shardLog = shardLog;
+      this.numCertsInBundle = numCertsInBundle;
+      this.numCertsPerSelect = numCertsPerSelect;
+      this.maxId = maxId;
+      this.processLog = processLog;
+    }
+
+    @Override
+    public Void call()
+        throws Exception {
+      long start = System.currentTimeMillis();
+      try {
+        export();
+        return null;
+      } catch (Exception ex) {
+        failed.set(true);
+        LogUtil.error(LOG, ex, "could not export shard " + shardLog.getShard().getNo());
+        throw ex;
+      } finally {
+        durationMs = System.currentTimeMillis() - start;
+        close();
+      }
+    } // method call
+
+    private void export()
+        throws Exception {
+      final CaDbEntryType type = CaDbEntryType.CERT;
+      final CaCertstore.CertShard shard = shardLog.getShard();
+      final File entriesDir = new File(baseDir, type.getDirName());
+      final File manifestFile = new File(baseDir, type.getDirName() + "-" + shard.getNo() + ".mf");
+
+      long lastId = shardLog.getLastId();
+      removeUnfinishedBundles(manifestFile, entriesDir, shard, lastId);
+
+      String sql = datasource.buildSelectFirstSql(numCertsPerSelect, "ID ASC",
+          SQL_CORE_CERT + " WHERE ID>=? AND ID<=?");
+
+      PreparedStatement ps = prepareStatement(sql);
+      OutputStream manifestOs = null;
+
+      CertBundle.Writer writer = null;
+      File bundleFile = null;
+      long minIdOfBundle = -1;
+      long maxIdOfBundle = -1;
+
+      try {
+        manifestOs = Files.newOutputStream(manifestFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        while (true) {
+          if (stopMe.get()) {
+            throw new InterruptedException("interrupted by the user");
+          } else if (failed.get()) {
+            throw new InterruptedException("interrupted due to error in other shard");
+          }
+
+          ps.setLong(1, lastId + 1);
+          ps.setLong(2, shard.getToId());
+
+          int numRows = 0;
+          ResultSet rs = ps.executeQuery();
+          try {
+            while (rs.next()) {
+              long id = rs.getLong("ID");
+              lastId = id;
+              numRows++;
+
+              byte[] certBytes = Base64.decodeFast(rs.getString("CERT"));
+              CaCertstore.Cert cert = buildCert(rs, id);
+
+              if (writer == null) {
+                bundleFile = new File(baseDir, "tmp-" + type.getDirName() + "-" + shard.getNo()
+                    + "-" + System.currentTimeMillis() + CertBundle.SUFFIX);
+                writer = new CertBundle.Writer(bundleFile);
+                minIdOfBundle = id;
+              }
+
+              writer.write(cert, certBytes);
+              maxIdOfBundle = id;
+
+              if (writer.getCount() == numCertsInBundle) {
+                finishBundle(writer, bundleFile, entriesDir, manifestOs,
+                    minIdOfBundle, maxIdOfBundle);
+                writer = null;
+              }
+            }
+          } finally {
+            rs.close();
+          }
+
+          // no entries anymore
+          if (numRows == 0) {
+            break;
+          }
+        }
+
+        if (writer != null) {
+          finishBundle(writer, bundleFile, entriesDir, manifestOs, minIdOfBundle, maxIdOfBundle);
+          writer = null;
+        }
+
+        shardLog.finish();
+      } catch (SQLException ex) {
+        throw translate(sql, ex);
+      } finally {
+        if (writer != null) {
+          IoUtil.closeQuietly(writer);
+          bundleFile.delete();
+        }
+        IoUtil.closeQuietly(manifestOs);
+        releaseResources(ps, null);
+      }
+    } // method export
+
+    private void finishBundle(CertBundle.Writer writer, File bundleFile, File entriesDir,
+        OutputStream manifestOs, long minIdOfBundle, long maxIdOfBundle)
+            throws IOException {
+      writer.close();
+
+      String filename = buildFilename(CaDbEntryType.CERT.getDirName() + "_", CertBundle.SUFFIX,
+          minIdOfBundle, maxIdOfBundle, maxId);
+      File destFile = new File(entriesDir, filename);
+      // may exist if the previous run has been interrupted before the checkpoint
+      destFile.delete();
+      if (!bundleFile.renameTo(destFile)) {
+        throw new IOException("could not rename " + bundleFile.getPath() + " to "
+            + destFile.getPath());
+      }
+
+      writeLine(manifestOs, filename);
+      manifestOs.flush();
+
+      int num = writer.getCount();
+      numExported += num;
+      shardLog.update(shardLog.getShard().getCount() + num, maxIdOfBundle);
+
+      processLog.addNumProcessed(num);
+      processLog.printStatus();
+    } // method finishBundle
+
+  } // class CertShardExporter
+
 }
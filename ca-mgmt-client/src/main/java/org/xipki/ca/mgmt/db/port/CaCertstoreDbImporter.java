@@ -27,8 +27,12 @@ import java.security.cert.CertificateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -50,7 +54,9 @@ import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
 import org.xipki.util.ProcessLog;
+import org.xipki.util.StringUtil;
 
 import com.alibaba.fastjson.JSON;
 
@@ -81,12 +87,15 @@ class CaCertstoreDbImporter extends DbPorter {
 
   private final int numCertsPerCommit;
 
+  private final int numWorkers;
+
   CaCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, int numCertsPerCommit,
-      boolean resume, AtomicBoolean stopMe)
+      boolean resume, int numWorkers, AtomicBoolean stopMe)
           throws Exception {
     super(datasource, srcDir, stopMe);
 
     this.numCertsPerCommit = Args.positive(numCertsPerCommit, "numCertsPerCommit");
+    this.numWorkers = Args.positive(numWorkers, "numWorkers");
 
     File processLogFile = new File(baseDir, DbPorter.IMPORT_PROCESS_LOG_FILENAME);
     if (resume) {
@@ -98,6 +107,12 @@ class CaCertstoreDbImporter extends DbPorter {
         throw new Exception("please either specify '--resume' option or delete the file "
             + processLogFile.getPath() + " first");
       }
+
+      // checkpoints of shards left by an import without process log
+      for (CertShardProcessLog shardLog
+          : CertShardProcessLog.list(baseDir, PREFIX_IMPORT_SHARD_PROCESS_LOG_FILENAME)) {
+        shardLog.delete();
+      }
     }
   } // constructor
 
@@ -222,6 +237,10 @@ class CaCertstoreDbImporter extends DbPorter {
 
   private Exception importEntries(CaDbEntryType type, CaCertstore certstore,
       File processLogFile, Integer numProcessedInLastProcess, Long idProcessedInLastProcess) {
+    if (type == CaDbEntryType.CERT && !certstore.getCertShards().isEmpty()) {
+      return importCertsInShards(certstore, processLogFile);
+    }
+
     String tablesText = "table " + type.getTableName();
 
     try {
@@ -346,6 +365,77 @@ class CaCertstoreDbImporter extends DbPorter {
     }
   } // method importEntries
 
+  private Exception importCertsInShards(CaCertstore certstore, File processLogFile) {
+    final CaDbEntryType type = CaDbEntryType.CERT;
+    try {
+      // mark the table CERT as the current one, the progress is recorded per shard
+      echoToFile(type + ":0:0", processLogFile);
+
+      List<CertShardProcessLog> shardLogs =
+          CertShardProcessLog.list(baseDir, PREFIX_IMPORT_SHARD_PROCESS_LOG_FILENAME);
+      Set<Integer> shardNos = new HashSet<>();
+      for (CertShardProcessLog shardLog : shardLogs) {
+        shardNos.add(shardLog.getShard().getNo());
+      }
+
+      for (CaCertstore.CertShard shard : certstore.getCertShards()) {
+        if (!shardNos.contains(shard.getNo())) {
+          CaCertstore.CertShard importShard = new CaCertstore.CertShard();
+          importShard.setNo(shard.getNo());
+          importShard.setFromId(shard.getFromId());
+          importShard.setToId(shard.getToId());
+          shardLogs.add(CertShardProcessLog.create(baseDir,
+              PREFIX_IMPORT_SHARD_PROCESS_LOG_FILENAME, importShard));
+        }
+      }
+
+      long numProcessedBefore = 0;
+      for (CertShardProcessLog shardLog : shardLogs) {
+        numProcessedBefore += shardLog.getShard().getCount();
+      }
+
+      System.out.println("importing entries to table CERT in " + shardLogs.size()
+          + " shards with " + numWorkers + " workers");
+      ProcessLog processLog = new ProcessLog(certstore.getCountCerts() - numProcessedBefore);
+      processLog.printHeader();
+
+      AtomicBoolean failed = new AtomicBoolean(false);
+      List<CertShardImporter> importers = new ArrayList<>(shardLogs.size());
+      for (CertShardProcessLog shardLog : shardLogs) {
+        if (!shardLog.isFinished()) {
+          importers.add(new CertShardImporter(datasource, baseDir, stopMe, failed, shardLog,
+              numCertsPerCommit, processLog));
+        }
+      }
+
+      CaCertstoreDbExporter.runWorkers(importers, numWorkers);
+
+      processLog.printTrailer();
+
+      for (CertShardImporter importer : importers) {
+        System.out.println(" shard " + importer.shardLog.getShard().getNo() + ": imported "
+            + StringUtil.formatAccount(importer.numImported, 1) + " certificates in "
+            + StringUtil.formatTime(importer.durationMs / 1000, false) + " ("
+            + StringUtil.formatAccount(importer.numImported * 1000 / Math.max(1,
+                importer.durationMs), 1) + " per second)");
+      }
+
+      echoToFile(type + ":" + (numProcessedBefore + processLog.numProcessed()) + ":-1",
+          processLogFile);
+      for (CertShardProcessLog shardLog : shardLogs) {
+        shardLog.delete();
+      }
+
+      System.out.println(" imported " + processLog.numProcessed() + " entries");
+      return null;
+    } catch (Exception ex) {
+      System.err.println("\nimporting table CERT has been cancelled due to error,\n"
+          + "please continue with the option '--resume'");
+      LOG.error("Exception", ex);
+      return ex;
+    }
+  } // method importCertsInShards
+
   private long importCerts(String entriesZipFile, long minId,
       File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
       PreparedStatement stmt, String sql)
@@ -400,67 +490,8 @@ class CaCertstoreDbImporter extends DbPorter {
         // rawcert
         byte[] encodedCert = IoUtil.read(zipFile.getInputStream(certZipEnty));
 
-        TBSCertificate tbsCert;
         try {
-          Certificate cc = Certificate.getInstance(encodedCert);
-          tbsCert = cc.getTBSCertificate();
-        } catch (RuntimeException ex) {
-          LOG.error("could not parse certificate in file {}", filename);
-          LOG.debug("could not parse certificate in file " + filename, ex);
-          throw new CertificateException(ex.getMessage(), ex);
-        }
-
-        String b64Sha1FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
-
-        // cert
-        String subjectText = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
-
-        try {
-          int idx = 1;
-
-          stmt.setLong(idx++, id);
-          stmt.setLong(idx++, cert.getUpdate());
-          stmt.setString(idx++, tbsCert.getSerialNumber().getPositiveValue().toString(16));
-
-          stmt.setString(idx++, subjectText);
-          long fpSubject = X509Util.fpCanonicalizedName(tbsCert.getSubject());
-          stmt.setLong(idx++, fpSubject);
-
-          if (cert.getFpRs() != null) {
-            stmt.setLong(idx++, cert.getFpRs());
-          } else {
-            stmt.setNull(idx++, Types.BIGINT);
-          }
-
-          stmt.setLong(idx++, tbsCert.getStartDate().getDate().getTime() / 1000);
-          stmt.setLong(idx++, tbsCert.getEndDate().getDate().getTime() / 1000);
-          setInt(stmt, idx++, cert.getRev());
-          setInt(stmt, idx++, cert.getRr());
-          setLong(stmt, idx++, cert.getRt());
-          setLong(stmt, idx++, cert.getRit());
-          setInt(stmt, idx++, cert.getPid());
-          setInt(stmt, idx++, cert.getCaId());
-
-          setInt(stmt, idx++, cert.getRid());
-          setInt(stmt, idx++, cert.getUid());
-          Extension extension = tbsCert.getExtensions().getExtension(Extension.basicConstraints);
-          boolean ee = true;
-          if (extension != null) {
-            ASN1Encodable asn1 = extension.getParsedValue();
-            ee = !BasicConstraints.getInstance(asn1).isCA();
-          }
-
-          stmt.setInt(idx++, ee ? 1 : 0);
-          stmt.setInt(idx++, cert.getReqType());
-          String tidS = null;
-          if (cert.getTid() != null) {
-            tidS = cert.getTid();
-          }
-          stmt.setString(idx++, tidS);
-          stmt.setString(idx++, b64Sha1FpCert);
-          stmt.setString(idx++, cert.getRs());
-          stmt.setInt(idx++, cert.getCrlScope());
-          stmt.setString(idx++, Base64.encodeToString(encodedCert));
+          setCertParams(stmt, cert, encodedCert, maxX500nameLen);
           stmt.addBatch();
         } catch (SQLException ex) {
           throw translate(sql, ex);
@@ -501,6 +532,71 @@ class CaCertstoreDbImporter extends DbPorter {
     }
   } // method importCerts
 
+  private static void setCertParams(PreparedStatement stmt, CaCertstore.Cert cert,
+      byte[] encodedCert, int maxX500nameLen)
+          throws SQLException, CertificateException {
+    TBSCertificate tbsCert;
+    try {
+      Certificate cc = Certificate.getInstance(encodedCert);
+      tbsCert = cc.getTBSCertificate();
+    } catch (RuntimeException ex) {
+      LOG.error("could not parse certificate with id {}", cert.getId());
+      LOG.debug("could not parse certificate with id " + cert.getId(), ex);
+      throw new CertificateException(ex.getMessage(), ex);
+    }
+
+    String b64Sha1FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
+
+    // cert
+    String subjectText = X509Util.cutX500Name(tbsCert.getSubject(), maxX500nameLen);
+
+    int idx = 1;
+
+    stmt.setLong(idx++, cert.getId());
+    stmt.setLong(idx++, cert.getUpdate());
+    stmt.setString(idx++, tbsCert.getSerialNumber().getPositiveValue().toString(16));
+
+    stmt.setString(idx++, subjectText);
+    long fpSubject = X509Util.fpCanonicalizedName(tbsCert.getSubject());
+    stmt.setLong(idx++, fpSubject);
+
+    if (cert.getFpRs() != null) {
+      stmt.setLong(idx++, cert.getFpRs());
+    } else {
+      stmt.setNull(idx++, Types.BIGINT);
+    }
+
+    stmt.setLong(idx++, tbsCert.getStartDate().getDate().getTime() / 1000);
+    stmt.setLong(idx++, tbsCert.getEndDate().getDate().getTime() / 1000);
+    setInt(stmt, idx++, cert.getRev());
+    setInt(stmt, idx++, cert.getRr());
+    setLong(stmt, idx++, cert.getRt());
+    setLong(stmt, idx++, cert.getRit());
+    setInt(stmt, idx++, cert.getPid());
+    setInt(stmt, idx++, cert.getCaId());
+
+    setInt(stmt, idx++, cert.getRid());
+    setInt(stmt, idx++, cert.getUid());
+    Extension extension = tbsCert.getExtensions().getExtension(Extension.basicConstraints);
+    boolean ee = true;
+    if (extension != null) {
+      ASN1Encodable asn1 = extension.getParsedValue();
+      ee = !BasicConstraints.getInstance(asn1).isCA();
+    }
+
+    stmt.setInt(idx++, ee ? 1 : 0);
+    stmt.setInt(idx++, cert.getReqType());
+    String tidS = null;
+    if (cert.getTid() != null) {
+      tidS = cert.getTid();
+    }
+    stmt.setString(idx++, tidS);
+    stmt.setString(idx++, b64Sha1FpCert);
+    stmt.setString(idx++, cert.getRs());
+    stmt.setInt(idx++, cert.getCrlScope());
+    stmt.setString(idx++, Base64.encodeToString(encodedCert));
+  } // method setCertParams
+
   private long importCrls(String entriesZipFile, long minId,
       File processLogFile, ProcessLog processLog, int numProcessedInLastProcess,
       PreparedStatement stmt, String sql)
@@ -840,4 +936,154 @@ class CaCertstoreDbImporter extends DbPorter {
     }
   } // method importReqCerts
 
+  /**
+   * Imports one ID range of the table CERT with its own database connection.
+   */
+  private static class CertShardImporter extends DbPorter implements Callable<Void> {
+
+    private final AtomicBoolean failed;
+
+    private final CertShardProcessLog shardLog;
+
+    private final int numCertsPerCommit;
+
+    private final ProcessLog processLog;
+
+    private long numImported;
+
+    private long durationMs;
+
+    CertShardImporter(DataSourceWrapper datasource, String baseDir, AtomicBoolean stopMe,
+        AtomicBoolean failed, CertShardProcessLog shardLog, int numCertsPerCommit,
+        ProcessLog processLog)
+            throws DataAccessException {
+      super(datasource, baseDir, stopMe);
+      this.failed = failed;
+      this.shardLog = shardLog;
+      this.numCertsPerCommit = numCertsPerCommit;
+      this.processLog = processLog;
+    }
+
+    @Override
+    public Void call()
+        throws Exception {
+      long start = System.currentTimeMillis();
+      try {
+        importToDb();
+        return null;
+      } catch (Exception ex) {
+        failed.set(true);
+        LogUtil.error(LOG, ex, "could not import shard " + shardLog.getShard().getNo());
+        throw ex;
+      } finally {
+        durationMs = System.currentTimeMillis() - start;
+        close();
+      }
+    } // method call
+
+    private void importToDb()
+        throws Exception {
+      final CaDbEntryType type = CaDbEntryType.CERT;
+      final CaCertstore.CertShard shard = shardLog.getShard();
+      final String sql = SQL_ADD_CERT;
+
+      long lastId = shardLog.getLastId();
+      // remove the entries of this shard written after the last checkpoint
+      if (!deleteFromTableWithIdInRange(type.getTableName(), "ID", lastId, shard.getToId(), LOG)) {
+        throw new DataAccessException("could not delete entries of shard " + shard.getNo()
+            + " from table " + type.getTableName());
+      }
+
+      DbPortFileNameIterator entriesFileIterator = new DbPortFileNameIterator(
+          baseDir + File.separator + type.getDirName() + "-" + shard.getNo() + ".mf",
+          CertBundle.SUFFIX);
+      PreparedStatement stmt = null;
+
+      try {
+        stmt = prepareStatement(sql);
+        disableAutoCommit();
+
+        while (entriesFileIterator.hasNext()) {
+          String entriesFile = entriesFileIterator.next();
+          long maxIdOfBundle = CertBundle.getMaxId(entriesFile);
+          if (maxIdOfBundle != -1 && maxIdOfBundle <= lastId) {
+            // already imported
+            continue;
+          }
+
+          List<CertBundle.Entry> entries = CertBundle.read(
+              new File(baseDir + File.separator + type.getDirName(), entriesFile));
+
+          int numEntriesInBatch = 0;
+          long lastIdInBatch = lastId;
+          for (CertBundle.Entry entry : entries) {
+            if (stopMe.get()) {
+              throw new InterruptedException("interrupted by the user");
+            } else if (failed.get()) {
+              throw new InterruptedException("interrupted due to error in other shard");
+            }
+
+            CaCertstore.Cert cert = entry.getCert();
+            long id = cert.getId();
+            if (id <= lastId) {
+              continue;
+            }
+
+            try {
+              setCertParams(stmt, cert, entry.getEncoded(), maxX500nameLen);
+              stmt.addBatch();
+            } catch (SQLException ex) {
+              throw translate(sql, ex);
+            }
+
+            lastIdInBatch = id;
+            numEntriesInBatch++;
+            if (numEntriesInBatch == numCertsPerCommit) {
+              lastId = commitBatch(stmt, sql, numEntriesInBatch, lastId, lastIdInBatch);
+              numEntriesInBatch = 0;
+            }
+          }
+
+          if (numEntriesInBatch > 0) {
+            lastId = commitBatch(stmt, sql, numEntriesInBatch, lastId, lastIdInBatch);
+          }
+        }
+
+        shardLog.finish();
+      } finally {
+        recoverAutoCommit();
+        releaseResources(stmt, null);
+        entriesFileIterator.close();
+      }
+    } // method importToDb
+
+    private long commitBatch(PreparedStatement stmt, String sql, int numEntries,
+        long lastCommittedId, long lastIdInBatch)
+            throws Exception {
+      final CaCertstore.CertShard shard = shardLog.getShard();
+      try {
+        stmt.executeBatch();
+        commit("(commit import to CA)");
+      } catch (Throwable th) {
+        rollback();
+        deleteFromTableWithIdInRange(CaDbEntryType.CERT.getTableName(), "ID", lastCommittedId,
+            shard.getToId(), LOG);
+        if (th instanceof SQLException) {
+          throw translate(sql, (SQLException) th);
+        } else if (th instanceof Exception) {
+          throw (Exception) th;
+        } else {
+          throw new Exception(th);
+        }
+      }
+
+      numImported += numEntries;
+      shardLog.update(shard.getCount() + numEntries, lastIdInBatch);
+      processLog.addNumProcessed(numEntries);
+      processLog.printStatus();
+      return lastIdInBatch;
+    } // method commitBatch
+
+  } // class CertShardImporter
+
 }
@@ -0,0 +1,302 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.xipki.util.Args;
+
+/**
+ * Binary bundle of CERT entries used by the parallel export and import of the CA certstore.
+ *
+ * <p>Instead of one ZIP entry per certificate plus a JSON overview, the entries are written
+ * one after another, each field length-prefixed, into one deflated stream:
+ * <pre>
+ * bundle := MAGIC record* END count
+ * record := RECORD id caId ee pid rid reqType update crlScope uid sn tid fpRs rs
+ *           rev [rr rt rit] cert
+ * </pre>
+ * The number of records is repeated at the end to detect truncated files.
+ *
+ * @author Lijun Liao
+ */
+
+class CertBundle {
+
+  static class Entry {
+
+    private final CaCertstore.Cert cert;
+
+    private final byte[] encoded;
+
+    Entry(CaCertstore.Cert cert, byte[] encoded) {
+      this.cert = cert;
+      this.encoded = encoded;
+    }
+
+    CaCertstore.Cert getCert() {
+      return cert;
+    }
+
+    byte[] getEncoded() {
+      return encoded;
+    }
+
+  } // class Entry
+
+  static class Writer implements Closeable {
+
+    private final Deflater deflater;
+
+    private final DataOutputStream out;
+
+    private int count;
+
+    private boolean closed;
+
+    Writer(File file)
+        throws IOException {
+      this.deflater = new Deflater(Deflater.BEST_SPEED);
+      this.out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(
+          Files.newOutputStream(file.toPath()), BUFFER_SIZE), deflater, BUFFER_SIZE));
+      out.writeInt(MAGIC);
+    }
+
+    void write(CaCertstore.Cert cert, byte[] encoded)
+        throws IOException {
+      out.writeByte(RECORD);
+      out.writeLong(cert.getId());
+      out.writeInt(cert.getCaId());
+      out.writeBoolean(cert.getEe());
+      out.writeInt(cert.getPid());
+      out.writeInt(cert.getRid());
+      out.writeInt(cert.getReqType());
+      out.writeLong(cert.getUpdate());
+      out.writeInt(cert.getCrlScope());
+      out.writeInt(cert.getUid() == null ? 0 : cert.getUid());
+      writeString(cert.getSn());
+      writeString(cert.getTid());
+      out.writeLong(cert.getFpRs() == null ? 0 : cert.getFpRs());
+      writeString(cert.getRs());
+
+      int rev = cert.getRev();
+      out.writeInt(rev);
+      if (rev == 1) {
+        out.writeInt(cert.getRr());
+        out.writeLong(cert.getRt());
+        out.writeLong(cert.getRit() == null ? 0 : cert.getRit());
+      }
+
+      out.writeInt(encoded.length);
+      out.write(encoded);
+      count++;
+    } // method write
+
+    int getCount() {
+      return count;
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      if (closed) {
+        return;
+      }
+
+      closed = true;
+      try {
+        out.writeByte(END);
+        out.writeInt(count);
+        out.close();
+      } finally {
+        deflater.end();
+      }
+    } // method close
+
+    private void writeString(String str)
+        throws IOException {
+      if (str == null) {
+        out.writeInt(-1);
+      } else {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    } // method writeString
+
+  } // class Writer
+
+  static final String SUFFIX = ".bin";
+
+  private static final int MAGIC = 0x58434231; // XCB1
+
+  private static final int RECORD = 1;
+
+  private static final int END = 0;
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private CertBundle() {
+  }
+
+  static List<Entry> read(File file)
+      throws IOException {
+    Inflater inflater = new Inflater();
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE),
+        inflater, BUFFER_SIZE))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("invalid certificate bundle " + file.getPath());
+      }
+
+      List<Entry> entries = new ArrayList<>();
+      while (true) {
+        int tag;
+        try {
+          tag = in.readUnsignedByte();
+        } catch (EOFException ex) {
+          throw new IOException("truncated certificate bundle " + file.getPath());
+        }
+
+        if (tag == END) {
+          int count = in.readInt();
+          if (count != entries.size()) {
+            throw new IOException("certificate bundle " + file.getPath() + " contains "
+                + entries.size() + " entries, but " + count + " are expected");
+          }
+          return entries;
+        } else if (tag != RECORD) {
+          throw new IOException("invalid record tag " + tag + " in certificate bundle "
+              + file.getPath());
+        }
+
+        CaCertstore.Cert cert = new CaCertstore.Cert();
+        cert.setId(in.readLong());
+        cert.setCaId(in.readInt());
+        cert.setEe(in.readBoolean());
+        cert.setPid(in.readInt());
+        cert.setRid(in.readInt());
+        cert.setReqType(in.readInt());
+        cert.setUpdate(in.readLong());
+        cert.setCrlScope(in.readInt());
+
+        int uid = in.readInt();
+        if (uid != 0) {
+          cert.setUid(uid);
+        }
+
+        cert.setSn(readString(in));
+        cert.setTid(readString(in));
+
+        long fpRs = in.readLong();
+        String rs = readString(in);
+        if (fpRs != 0) {
+          cert.setFpRs(fpRs);
+          cert.setRs(rs);
+        }
+
+        int rev = in.readInt();
+        cert.setRev(rev);
+        if (rev == 1) {
+          cert.setRr(in.readInt());
+          cert.setRt(in.readLong());
+          long rit = in.readLong();
+          if (rit != 0) {
+            cert.setRit(rit);
+          }
+        }
+
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        entries.add(new Entry(cert, encoded));
+      }
+    } finally {
+      inflater.end();
+    }
+  } // method read
+
+  /**
+   * Returns the lowest ID contained in the bundle with the given name.
+   * @param filename
+   *          Name of the bundle, as built by {@link DbPorter#buildFilename}.
+   * @return the lowest ID, or -1 if the name could not be parsed.
+   */
+  static long getMinId(String filename) {
+    Args.notNull(filename, "filename");
+    int fromIdx = filename.lastIndexOf('_');
+    int toIdx = filename.lastIndexOf('-');
+    if (fromIdx == -1 || toIdx <= fromIdx) {
+      return -1;
+    }
+
+    try {
+      return Long.parseLong(filename.substring(fromIdx + 1, toIdx));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  } // method getMinId
+
+  /**
+   * Returns the highest ID contained in the bundle with the given name.
+   * @param filename
+   *          Name of the bundle, as built by {@link DbPorter#buildFilename}.
+   * @return the highest ID, or -1 if the name could not be parsed.
+   */
+  static long getMaxId(String filename) {
+    Args.notNull(filename, "filename");
+    int fromIdx = filename.lastIndexOf('-');
+    int toIdx = filename.lastIndexOf('.');
+    if (fromIdx == -1 || toIdx <= fromIdx) {
+      return -1;
+    }
+
+    try {
+      return Long.parseLong(filename.substring(fromIdx + 1, toIdx));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  } // method getMaxId
+
+  private static String readString(DataInputStream in)
+      throws IOException {
+    int len = in.readInt();
+    if (len == -1) {
+      return null;
+    }
+
+    byte[] bytes = new byte[len];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  } // method readString
+
+}
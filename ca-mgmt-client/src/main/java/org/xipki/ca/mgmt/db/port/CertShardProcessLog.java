@@ -0,0 +1,159 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+
+/**
+ * Checkpoint of one ID range (shard) of the table CERT exported or imported in parallel.
+ * The file contains {@code <fromId>:<toId>:<count>:<lastId>:<finished>}, where lastId is the
+ * last processed ID and finished is {@code true} or {@code false}.
+ *
+ * @author Lijun Liao
+ */
+
+class CertShardProcessLog {
+
+  private static final String SUFFIX = ".process";
+
+  private final File file;
+
+  private final CaCertstore.CertShard shard;
+
+  private long lastId;
+
+  private boolean finished;
+
+  private CertShardProcessLog(File file, CaCertstore.CertShard shard, long lastId,
+      boolean finished) {
+    this.file = file;
+    this.shard = shard;
+    this.lastId = lastId;
+    this.finished = finished;
+  }
+
+  static CertShardProcessLog create(String dir, String prefix, CaCertstore.CertShard shard)
+      throws IOException {
+    Args.notNull(shard, "shard");
+    File file = new File(dir, prefix + shard.getNo() + SUFFIX);
+    CertShardProcessLog log = new CertShardProcessLog(file, shard, shard.getFromId() - 1, false);
+    log.save();
+    return log;
+  } // method create
+
+  /**
+   * Reads all checkpoints with the given prefix.
+   * @param dir
+   *          Directory of the checkpoint files.
+   * @param prefix
+   *          Prefix of the checkpoint files.
+   * @return the checkpoints sorted by the start of the ID range.
+   * @throws IOException
+   *           if a checkpoint file could not be read.
+   */
+  static List<CertShardProcessLog> list(String dir, String prefix)
+      throws IOException {
+    List<CertShardProcessLog> logs = new ArrayList<>();
+    File[] files = new File(dir).listFiles();
+    if (files == null) {
+      return logs;
+    }
+
+    for (File file : files) {
+      String name = file.getName();
+      if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+        continue;
+      }
+
+      int no;
+      try {
+        no = Integer.parseInt(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+      } catch (NumberFormatException ex) {
+        continue;
+      }
+
+      String content = new String(IoUtil.read(file)).trim();
+      StringTokenizer st = new StringTokenizer(content, ":");
+      if (st.countTokens() != 5) {
+        throw new IOException("invalid content of file " + file.getPath() + ": " + content);
+      }
+
+      CaCertstore.CertShard shard = new CaCertstore.CertShard();
+      shard.setNo(no);
+      shard.setFromId(Long.parseLong(st.nextToken()));
+      shard.setToId(Long.parseLong(st.nextToken()));
+      shard.setCount(Integer.parseInt(st.nextToken()));
+      long lastId = Long.parseLong(st.nextToken());
+      logs.add(new CertShardProcessLog(file, shard, lastId,
+          Boolean.parseBoolean(st.nextToken())));
+    }
+
+    Collections.sort(logs, new Comparator<CertShardProcessLog>() {
+      @Override
+      public int compare(CertShardProcessLog o1, CertShardProcessLog o2) {
+        return Long.compare(o1.shard.getFromId(), o2.shard.getFromId());
+      }
+    });
+    return logs;
+  } // method list
+
+  CaCertstore.CertShard getShard() {
+    return shard;
+  }
+
+  long getLastId() {
+    return lastId;
+  }
+
+  boolean isFinished() {
+    return finished;
+  }
+
+  void update(int count, long lastId)
+      throws IOException {
+    shard.setCount(count);
+    this.lastId = lastId;
+    save();
+  }
+
+  void finish()
+      throws IOException {
+    this.finished = true;
+    save();
+  }
+
+  void delete() {
+    file.delete();
+  }
+
+  private void save()
+      throws IOException {
+    DbPorter.echoToFile(shard.getFromId() + ":" + shard.getToId() + ":" + shard.getCount()
+        + ":" + lastId + ":" + finished, file);
+  }
+
+}
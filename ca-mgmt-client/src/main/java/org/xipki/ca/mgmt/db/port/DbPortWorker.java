@@ -54,12 +54,42 @@ public abstract class DbPortWorker implements Runnable {
   public DbPortWorker(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
       String dbConfFile)
           throws PasswordResolverException, IOException {
+    this(datasourceFactory, passwordResolver, dbConfFile, 1);
+  }
+
+  /**
+   * Constructor.
+   * @param numConnections
+   *          Number of database connections used concurrently. The maximumPoolSize of the
+   *          datasource will be increased if required.
+   */
+  public DbPortWorker(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
+      String dbConfFile, int numConnections)
+          throws PasswordResolverException, IOException {
     Properties props = DbPorter.getDbConfProperties(
         Files.newInputStream(Paths.get(IoUtil.expandFilepath(dbConfFile))));
+    if (numConnections > 1) {
+      String str = props.getProperty("maximumPoolSize");
+      // 10 is the default value of HikariCP
+      int poolSize = (str == null) ? 10 : Integer.parseInt(str.trim());
+      if (poolSize < numConnections) {
+        props.setProperty("maximumPoolSize", Integer.toString(numConnections));
+      }
+    }
+
     this.datasource = datasourceFactory.createDataSource("ds-" + dbConfFile, props,
         passwordResolver);
   }
 
+  /**
+   * Returns the number of database connections used by the given number of workers: one
+   * per worker plus two for the main thread if more than one worker is used. A single worker
+   * runs in the main thread, the configured pool size is kept.
+   */
+  static int numConnections(int numWorkers) {
+    return (numWorkers > 1) ? numWorkers + 2 : 1;
+  }
+
   public final Exception exception() {
     return exception;
   }
@@ -89,13 +119,24 @@ public abstract class DbPortWorker implements Runnable {
 
     private final int batchEntriesPerCommit;
 
+    private final int numWorkers;
+
     public ImportCaDb(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
         String dbConfFile, boolean resume, String srcFolder, int batchEntriesPerCommit)
         throws PasswordResolverException, IOException {
-      super(datasourceFactory, passwordResolver, dbConfFile);
+      this(datasourceFactory, passwordResolver, dbConfFile, resume, srcFolder,
+          batchEntriesPerCommit, 1);
+    }
+
+    public ImportCaDb(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
+        String dbConfFile, boolean resume, String srcFolder, int batchEntriesPerCommit,
+        int numWorkers)
+        throws PasswordResolverException, IOException {
+      super(datasourceFactory, passwordResolver, dbConfFile, numConnections(numWorkers));
       this.resume = resume;
       this.srcFolder = IoUtil.expandFilepath(srcFolder);
       this.batchEntriesPerCommit = batchEntriesPerCommit;
+      this.numWorkers = Args.positive(numWorkers, "numWorkers");
     }
 
     @Override
@@ -124,7 +165,7 @@ public abstract class DbPortWorker implements Runnable {
 
         // CertStore
         CaCertstoreDbImporter certStoreImporter = new CaCertstoreDbImporter(datasource,
-            srcFolder, batchEntriesPerCommit, resume, stopMe);
+            srcFolder, batchEntriesPerCommit, resume, numWorkers, stopMe);
         certStoreImporter.importToDb();
         certStoreImporter.close();
       } finally {
@@ -150,15 +191,26 @@ public abstract class DbPortWorker implements Runnable {
 
     private final int numCertsPerSelect;
 
+    private final int numWorkers;
+
     public ExportCaDb(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
         String dbConfFile, String destFolder, boolean resume, int numCertsInBundle,
         int numCertsPerSelect)
             throws PasswordResolverException, IOException {
-      super(datasourceFactory, passwordResolver, dbConfFile);
+      this(datasourceFactory, passwordResolver, dbConfFile, destFolder, resume, numCertsInBundle,
+          numCertsPerSelect, 1);
+    }
+
+    public ExportCaDb(DataSourceFactory datasourceFactory, PasswordResolver passwordResolver,
+        String dbConfFile, String destFolder, boolean resume, int numCertsInBundle,
+        int numCertsPerSelect, int numWorkers)
+            throws PasswordResolverException, IOException {
+      super(datasourceFactory, passwordResolver, dbConfFile, numConnections(numWorkers));
       this.destFolder = IoUtil.expandFilepath(destFolder);
       this.resume = resume;
       this.numCertsInBundle = numCertsInBundle;
       this.numCertsPerSelect = numCertsPerSelect;
+      this.numWorkers = Args.positive(numWorkers, "numWorkers");
       checkDestFolder();
     }
 
@@ -204,7 +256,7 @@ public abstract class DbPortWorker implements Runnable {
 
         // CertStore
         CaCertstoreDbExporter certStoreExporter = new CaCertstoreDbExporter(datasource, destFolder,
-            numCertsInBundle, numCertsPerSelect, resume, stopMe);
+            numCertsInBundle, numCertsPerSelect, resume, numWorkers, stopMe);
         certStoreExporter.export();
         certStoreExporter.close();
       } finally {
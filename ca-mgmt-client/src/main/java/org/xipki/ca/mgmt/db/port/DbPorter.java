@@ -116,12 +116,20 @@ public class DbPorter extends DbToolBase {
 
     private BufferedReader reader;
 
+    private final String suffix;
+
     private String nextFilename;
 
     public DbPortFileNameIterator(String filename)
         throws IOException {
+      this(filename, ".zip");
+    }
+
+    public DbPortFileNameIterator(String filename, String suffix)
+        throws IOException {
       Args.notNull(filename, "filename");
 
+      this.suffix = Args.notBlank(suffix, "suffix");
       this.reader = Files.newBufferedReader(Paths.get(filename));
       this.nextFilename = readNextFilenameLine();
     }
@@ -162,7 +170,7 @@ public class DbPorter extends DbToolBase {
       String line;
       while ((line = reader.readLine()) != null) {
         line = line.trim();
-        if (StringUtil.isBlank(line) || line.startsWith("#") || !line.endsWith(".zip")) {
+        if (StringUtil.isBlank(line) || line.startsWith("#") || !line.endsWith(suffix)) {
           continue;
         }
         return line;
@@ -191,6 +199,10 @@ public class DbPorter extends DbToolBase {
 
   public static final String IMPORT_TO_OCSP_PROCESS_LOG_FILENAME = "import-to-ocsp.process";
 
+  public static final String PREFIX_EXPORT_SHARD_PROCESS_LOG_FILENAME = "export-certs-";
+
+  public static final String PREFIX_IMPORT_SHARD_PROCESS_LOG_FILENAME = "import-certs-";
+
   public static final int VERSION = 1;
 
   protected final int dbSchemaVersion;
@@ -27,7 +27,10 @@ import java.security.cert.CertificateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -289,9 +292,81 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
 
     PreparedStatement psCert = prepareStatement(SQL_ADD_CERT);
 
-    DbPortFileNameIterator certsFileIterator = new DbPortFileNameIterator(
-        baseDir + File.separator + CaDbEntryType.CERT.getDirName() + ".mf");
+    if (!certstore.getCertShards().isEmpty()) {
+      try {
+        importCertsInShards(certstore, certhashAlgo, psCert, revokedOnly, caIds, minId,
+            processLogFile, processLog, numProcessedBefore, importLog);
+      } finally {
+        releaseResources(psCert, null);
+      }
+    } else {
+      DbPortFileNameIterator certsFileIterator = new DbPortFileNameIterator(
+          baseDir + File.separator + CaDbEntryType.CERT.getDirName() + ".mf");
+      importCerts(certsFileIterator, certhashAlgo, psCert, revokedOnly, caIds, minId,
+          processLogFile, processLog, numProcessedBefore, importLog);
+    }
+
+    processLog.printTrailer();
+    DbPorter.echoToFile(MSG_CERTS_FINISHED, processLogFile);
+    System.out.println("processed " + processLog.numProcessed() + " and imported "
+        + importLog.numProcessed() + " certificates");
+  } // method importCert
 
+  /**
+   * Imports the certificates of the shards written by the parallel export one after another,
+   * the shards are sorted by the ID range.
+   */
+  private void importCertsInShards(CaCertstore certstore, HashAlgo certhashAlgo,
+      PreparedStatement psCert, boolean revokedOnly, List<Integer> caIds, long minId,
+      File processLogFile, ProcessLog processLog, int numProcessedBefore, ProcessLog importLog)
+          throws Exception {
+    List<CaCertstore.CertShard> shards = new ArrayList<>(certstore.getCertShards());
+    Collections.sort(shards, new Comparator<CaCertstore.CertShard>() {
+      @Override
+      public int compare(CaCertstore.CertShard o1, CaCertstore.CertShard o2) {
+        return Long.compare(o1.getFromId(), o2.getFromId());
+      }
+    });
+
+    String certsDir = baseDir + File.separator + CaDbEntryType.CERT.getDirName();
+    for (CaCertstore.CertShard shard : shards) {
+      if (shard.getToId() < minId) {
+        continue;
+      }
+
+      DbPortFileNameIterator certsFileIterator = new DbPortFileNameIterator(
+          certsDir + "-" + shard.getNo() + ".mf", CertBundle.SUFFIX);
+      try {
+        while (certsFileIterator.hasNext()) {
+          String certsFile = certsFileIterator.next();
+          long maxIdOfBundle = CertBundle.getMaxId(certsFile);
+          if (maxIdOfBundle != -1 && maxIdOfBundle < minId) {
+            // try next file
+            continue;
+          }
+
+          certsFile = certsDir + File.separator + certsFile;
+          try {
+            long lastId = importCert0(certhashAlgo, psCert, certsFile, revokedOnly, caIds,
+                minId, processLogFile, processLog, numProcessedBefore, importLog);
+            minId = lastId + 1;
+          } catch (Exception ex) {
+            System.err.println("\ncould not import certificates from file " + certsFile
+                + ".\nplease continue with the option '--resume'");
+            LOG.error("Exception", ex);
+            throw ex;
+          }
+        }
+      } finally {
+        certsFileIterator.close();
+      }
+    }
+  } // method importCertsInShards
+
+  private void importCerts(DbPortFileNameIterator certsFileIterator, HashAlgo certhashAlgo,
+      PreparedStatement psCert, boolean revokedOnly, List<Integer> caIds, long minId,
+      File processLogFile, ProcessLog processLog, int numProcessedBefore, ProcessLog importLog)
+          throws Exception {
     try {
       while (certsFileIterator.hasNext()) {
         String certsFile = baseDir + File.separator + CaDbEntryType.CERT.getDirName()
@@ -328,34 +403,45 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
       releaseResources(psCert, null);
       certsFileIterator.close();
     }
-
-    processLog.printTrailer();
-    DbPorter.echoToFile(MSG_CERTS_FINISHED, processLogFile);
-    System.out.println("processed " + processLog.numProcessed() + " and imported "
-        + importLog.numProcessed() + " certificates");
-  } // method importCert
+  } // method importCerts
 
   private long importCert0(HashAlgo certhashAlgo, PreparedStatement psCert, String certsZipFile,
       boolean revokedOnly, List<Integer> caIds, long minId, File processLogFile,
       ProcessLog processLog, int numProcessedInLastProcess, ProcessLog importLog)
           throws Exception {
-    ZipFile zipFile = new ZipFile(new File(certsZipFile));
-    ZipEntry certsEntry = zipFile.getEntry("overview.json");
+    ZipFile zipFile = null;
+    List<CaCertstore.Cert> list;
+    // only set for the binary bundles
+    List<byte[]> encodedCerts = null;
+
+    if (certsZipFile.endsWith(CertBundle.SUFFIX)) {
+      List<CertBundle.Entry> entries = CertBundle.read(new File(certsZipFile));
+      list = new ArrayList<>(entries.size());
+      encodedCerts = new ArrayList<>(entries.size());
+      for (CertBundle.Entry entry : entries) {
+        list.add(entry.getCert());
+        encodedCerts.add(entry.getEncoded());
+      }
+    } else {
+      zipFile = new ZipFile(new File(certsZipFile));
+      ZipEntry certsEntry = zipFile.getEntry("overview.json");
 
-    CaCertstore.Certs certs;
-    try {
-      certs = JSON.parseObject(zipFile.getInputStream(certsEntry), Charset.forName("UTF-8"),
-          CaCertstore.Certs.class);
-    } catch (Exception ex) {
+      CaCertstore.Certs certs;
       try {
-        zipFile.close();
-      } catch (Exception e2) {
-        LOG.error("could not close ZIP file {}: {}", certsZipFile, e2.getMessage());
-        LOG.debug("could not close ZIP file " + certsZipFile, e2);
+        certs = JSON.parseObject(zipFile.getInputStream(certsEntry), Charset.forName("UTF-8"),
+            CaCertstore.Certs.class);
+      } catch (Exception ex) {
+        try {
+          zipFile.close();
+        } catch (Exception e2) {
+          LOG.error("could not close ZIP file {}: {}", certsZipFile, e2.getMessage());
+          LOG.debug("could not close ZIP file " + certsZipFile, e2);
+        }
+        throw ex;
       }
-      throw ex;
+      certs.validate();
+      list = certs.getCerts();
     }
-    certs.validate();
 
     disableAutoCommit();
 
@@ -364,7 +450,6 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
       int numImportedEntriesInBatch = 0;
       long lastSuccessfulCertId = 0;
 
-      List<CaCertstore.Cert> list = certs.getCerts();
       final int n = list.size();
 
       for (int i = 0; i < n; i++) {
@@ -387,12 +472,9 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
           if (caIds.contains(caId)) {
             numImportedEntriesInBatch++;
 
-            String filename = cert.getFile();
-
-            // rawcert
-            ZipEntry certZipEnty = zipFile.getEntry(filename);
             // rawcert
-            byte[] encodedCert = IoUtil.read(zipFile.getInputStream(certZipEnty));
+            byte[] encodedCert = (encodedCerts != null) ? encodedCerts.get(i)
+                : IoUtil.read(zipFile.getInputStream(zipFile.getEntry(cert.getFile())));
             String certhash = certhashAlgo.base64Hash(encodedCert);
 
             TBSCertificate tbsCert;
@@ -400,7 +482,7 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
               Certificate cc = Certificate.getInstance(encodedCert);
               tbsCert = cc.getTBSCertificate();
             } catch (RuntimeException ex) {
-              LogUtil.error(LOG, ex, "could not parse certificate in file " + filename);
+              LogUtil.error(LOG, ex, "could not parse certificate with id " + id);
               throw new CertificateException(ex.getMessage(), ex);
             }
 
@@ -477,7 +559,9 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
       return lastSuccessfulCertId;
     } finally {
       recoverAutoCommit();
-      zipFile.close();
+      if (zipFile != null) {
+        zipFile.close();
+      }
     }
   } // method importCert0
 
@@ -0,0 +1,264 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.diffdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.ProcessLog;
+
+/**
+ * MergeDigestDiff test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class MergeDigestDiffTest {
+
+  private static class RecordingReporter extends DigestDiffReporter {
+
+    private final AtomicInteger numGood = new AtomicInteger();
+
+    private final List<String> missing = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> unexpected =
+        Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> diff = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+    RecordingReporter(String reportDirname)
+        throws IOException {
+      super(reportDirname, new byte[0]);
+    }
+
+    @Override
+    public void addGood(BigInteger serialNumber) {
+      numGood.incrementAndGet();
+    }
+
+    @Override
+    public void addGood(int numCerts) {
+      numGood.addAndGet(numCerts);
+    }
+
+    @Override
+    public void addMissing(BigInteger serialNumber) {
+      missing.add(serialNumber.toString(16));
+    }
+
+    @Override
+    public void addUnexpected(BigInteger serialNumber) {
+      unexpected.add(serialNumber.toString(16));
+    }
+
+    @Override
+    public void addDiff(DigestEntry refCert, DigestEntry targetCert) {
+      diff.add(refCert.getSerialNumber().toString(16));
+    }
+
+    @Override
+    public void addError(String errorMessage) {
+      errors.add(errorMessage);
+    }
+
+  } // class RecordingReporter
+
+  private static final int CA_ID = 1;
+
+  private static final String CREATE_CERT = "CREATE TABLE CERT (ID BIGINT NOT NULL PRIMARY KEY,"
+      + " CA_ID INT NOT NULL, SN VARCHAR(40) NOT NULL, REV SMALLINT NOT NULL, RR SMALLINT,"
+      + " RT BIGINT, RIT BIGINT, SHA1 VARCHAR(28) NOT NULL)";
+
+  private File reportDir;
+
+  private DataSourceWrapper refDatasource;
+
+  private DataSourceWrapper targetDatasource;
+
+  @Before
+  public void setUp()
+      throws Exception {
+    reportDir = Files.createTempDirectory("diff-test").toFile();
+    refDatasource = H2DataSources.create(CREATE_CERT);
+    targetDatasource = H2DataSources.create(CREATE_CERT);
+  }
+
+  @After
+  public void tearDown() {
+    refDatasource.close();
+    targetDatasource.close();
+
+    File[] files = reportDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    reportDir.delete();
+  } // method tearDown
+
+  @Test
+  public void testBucketOf() {
+    Assert.assertEquals(0, MergeDigestDiff.bucketOf("0"));
+    Assert.assertEquals(0x0ff, MergeDigestDiff.bucketOf("1"));
+    Assert.assertEquals(0xaaf, MergeDigestDiff.bucketOf("ab"));
+    Assert.assertEquals(0xabc, MergeDigestDiff.bucketOf("abc"));
+    Assert.assertEquals(0xabc, MergeDigestDiff.bucketOf("abcd"));
+    Assert.assertEquals(0xfff, MergeDigestDiff.bucketOf("fff"));
+    Assert.assertEquals(0xfef, MergeDigestDiff.bucketOf("ff"));
+  }
+
+  @Test
+  public void testBucketBoundaries() {
+    String[] serials = {"0", "1", "f", "10", "1f", "100", "aa", "aaf", "ab", "ab0", "ab00",
+      "abf", "abff", "ac", "ff", "ffe", "fff", "ffff", "123456789abcdef"};
+    for (String serial : serials) {
+      int bucket = MergeDigestDiff.bucketOf(serial);
+      Assert.assertTrue("bucket of " + serial,
+          bucket >= 0 && bucket < MergeDigestDiff.NUM_BUCKETS);
+
+      // the serial number is in the SQL range of its bucket
+      String from = MergeDigestDiff.fromSerial(bucket);
+      String to = MergeDigestDiff.toSerial(bucket + 1);
+      Assert.assertTrue(serial + " < " + from, serial.compareTo(from) >= 0);
+      Assert.assertTrue(serial + " >= " + to, to == null || serial.compareTo(to) < 0);
+    }
+
+    Assert.assertEquals(OrderedDigestReader.MIN_SERIAL, MergeDigestDiff.fromSerial(0));
+    Assert.assertNull(MergeDigestDiff.toSerial(MergeDigestDiff.NUM_BUCKETS));
+  } // method testBucketBoundaries
+
+  @Test
+  public void testMismatchingRanges()
+      throws Exception {
+    // short serial numbers and serial numbers at the bucket boundaries
+    String[] serials = {"1", "a", "aaf", "ab", "ab0", "abc", "abcd", "1234567", "7f", "8", "80",
+      "fff01"};
+    long id = 1;
+    for (String serial : serials) {
+      insert(refDatasource, id, serial, false, "h" + serial);
+      if ("abc".equals(serial)) {
+        insert(targetDatasource, id, serial, false, "changed");
+      } else if (!"1234567".equals(serial)) {
+        insert(targetDatasource, id, serial, false, "h" + serial);
+      }
+      id++;
+    }
+    insert(targetDatasource, id, "5555", false, "h5555");
+
+    for (boolean rangeHash : new boolean[]{true, false}) {
+      RecordingReporter reporter = diff(false, rangeHash);
+      String desc = "rangeHash=" + rangeHash;
+      Assert.assertEquals("errors " + desc, Collections.emptyList(), reporter.errors);
+      Assert.assertEquals("good " + desc, serials.length - 2, reporter.numGood.get());
+      Assert.assertEquals("diff " + desc, Collections.singletonList("abc"), reporter.diff);
+      Assert.assertEquals("missing " + desc, Collections.singletonList("1234567"),
+          reporter.missing);
+      Assert.assertEquals("unexpected " + desc, Collections.singletonList("5555"),
+          reporter.unexpected);
+    }
+  } // method testMismatchingRanges
+
+  @Test
+  public void testRevokedOnly()
+      throws Exception {
+    insert(refDatasource, 1, "10", true, "h10");
+    insert(refDatasource, 2, "20", true, "h20");
+    insert(refDatasource, 3, "30", false, "h30");
+    insert(refDatasource, 4, "40", true, "h40");
+    insert(refDatasource, 5, "abcd", true, "habcd");
+
+    insert(targetDatasource, 1, "10", true, "h10");
+    // revoked only in the reference database
+    insert(targetDatasource, 2, "20", false, "h20");
+    insert(targetDatasource, 3, "30", false, "h30");
+    insert(targetDatasource, 4, "40", true, "h40");
+    insert(targetDatasource, 5, "abcd", true, "habcd");
+    // not revoked, not in the reference database: ignored
+    insert(targetDatasource, 6, "50", false, "h50");
+    // revoked, not in the reference database
+    insert(targetDatasource, 7, "60", true, "h60");
+
+    for (boolean rangeHash : new boolean[]{true, false}) {
+      RecordingReporter reporter = diff(true, rangeHash);
+      String desc = "rangeHash=" + rangeHash;
+      Assert.assertEquals("errors " + desc, Collections.emptyList(), reporter.errors);
+      Assert.assertEquals("good " + desc, 3, reporter.numGood.get());
+      Assert.assertEquals("diff " + desc, Collections.singletonList("20"), reporter.diff);
+      Assert.assertEquals("missing " + desc, Collections.emptyList(), reporter.missing);
+      Assert.assertEquals("unexpected " + desc, Collections.singletonList("60"),
+          reporter.unexpected);
+    }
+  } // method testRevokedOnly
+
+  private RecordingReporter diff(boolean revokedOnly, boolean rangeHash)
+      throws Exception {
+    RecordingReporter reporter = new RecordingReporter(
+        new File(reportDir, "report-" + revokedOnly + "-" + rangeHash).getPath());
+    try {
+      // few rows per SELECT to read several pages
+      MergeDigestDiff diff = new MergeDigestDiff(refDatasource, DbType.XIPKI_CA_v5, CA_ID,
+          targetDatasource, DbType.XIPKI_CA_v5, CA_ID, HashAlgo.SHA1, revokedOnly, 2, 2,
+          rangeHash, reporter, new AtomicBoolean(false));
+      diff.diff(new ProcessLog(100));
+    } finally {
+      reporter.close();
+    }
+    return reporter;
+  } // method diff
+
+  private static void insert(DataSourceWrapper datasource, long id, String serial,
+      boolean revoked, String hash)
+          throws Exception {
+    Connection conn = datasource.getConnection();
+    try (PreparedStatement ps = conn.prepareStatement(
+        "INSERT INTO CERT (ID,CA_ID,SN,REV,RR,RT,RIT,SHA1) VALUES (?,?,?,?,?,?,?,?)")) {
+      ps.setLong(1, id);
+      ps.setInt(2, CA_ID);
+      ps.setString(3, serial);
+      ps.setInt(4, revoked ? 1 : 0);
+      ps.setInt(5, revoked ? 1 : 0);
+      ps.setLong(6, revoked ? 1600000000L : 0);
+      ps.setLong(7, 0);
+      ps.setString(8, hash);
+      ps.executeUpdate();
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method insert
+
+}
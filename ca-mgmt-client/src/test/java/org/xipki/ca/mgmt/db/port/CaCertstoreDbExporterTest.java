@@ -0,0 +1,186 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of the parallel export of the table CERT.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CaCertstoreDbExporterTest {
+
+  @Test
+  public void testSplitIds() {
+    assertSplit(0, 99, 4);
+    assertSplit(1, 100, 4);
+    assertSplit(1, 9, 4);
+    assertSplit(5, 5, 4);
+    assertSplit(1, 3, 8);
+    assertSplit(1, 1000, 1);
+  }
+
+  @Test
+  public void testSplitIdsRoundedWidth() {
+    // width 3: 1-3, 4-6, 7-MAX
+    List<CaCertstore.CertShard> shards = CaCertstoreDbExporter.splitIds(1, 9, 4);
+    Assert.assertEquals("number of shards", 3, shards.size());
+    Assert.assertEquals("toId", 3, shards.get(0).getToId());
+    Assert.assertEquals("toId", 6, shards.get(1).getToId());
+    Assert.assertEquals("toId", Long.MAX_VALUE, shards.get(2).getToId());
+  }
+
+  @Test
+  public void testRunWorkers()
+      throws Exception {
+    final AtomicInteger counter = new AtomicInteger();
+    List<Callable<Void>> workers = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      workers.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          counter.incrementAndGet();
+          return null;
+        }
+      });
+    }
+
+    CaCertstoreDbExporter.runWorkers(workers, 3);
+    Assert.assertEquals("executed workers", 10, counter.get());
+  } // method testRunWorkers
+
+  @Test
+  public void testRunWorkersFailure() {
+    final AtomicInteger counter = new AtomicInteger();
+    List<Callable<Void>> workers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final int no = i;
+      workers.add(new Callable<Void>() {
+        @Override
+        public Void call()
+            throws Exception {
+          counter.incrementAndGet();
+          if (no == 1) {
+            throw new IllegalStateException("worker " + no);
+          }
+          return null;
+        }
+      });
+    }
+
+    try {
+      CaCertstoreDbExporter.runWorkers(workers, 2);
+      Assert.fail("exception expected");
+    } catch (Exception ex) {
+      Assert.assertEquals("message", "worker 1", ex.getMessage());
+    }
+    Assert.assertEquals("executed workers", 4, counter.get());
+  } // method testRunWorkersFailure
+
+  @Test
+  public void testRemoveUnfinishedBundles()
+      throws Exception {
+    File baseDir = Files.createTempDirectory("export-test").toFile();
+    File entriesDir = new File(baseDir, "certs");
+    entriesDir.mkdirs();
+    try {
+      File manifestFile = new File(baseDir, "certs-1.mf");
+      DbPorter.echoToFile("certs_001-010.bin\ncerts_011-020.bin\ncerts_021-030.bin\n",
+          manifestFile);
+
+      // checkpoint at 20: the 3rd bundle is listed, the 4th renamed but not yet listed
+      for (String name : Arrays.asList("certs_001-010.bin", "certs_011-020.bin",
+          "certs_021-030.bin", "certs_031-040.bin", "certs_101-110.bin")) {
+        touch(new File(entriesDir, name));
+      }
+      touch(new File(baseDir, "tmp-certs-1-1600000000000.bin"));
+      touch(new File(baseDir, "tmp-certs-10-1600000000000.bin"));
+
+      CaCertstore.CertShard shard = new CaCertstore.CertShard();
+      shard.setNo(1);
+      shard.setFromId(1);
+      shard.setToId(100);
+      CaCertstoreDbExporter.removeUnfinishedBundles(manifestFile, entriesDir, shard, 20);
+
+      Assert.assertEquals("manifest", Arrays.asList("certs_001-010.bin", "certs_011-020.bin"),
+          Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8));
+      // the bundle of shard 2 and the temporary bundle of shard 10 are kept
+      Assert.assertEquals("bundles", Arrays.asList("certs_001-010.bin", "certs_011-020.bin",
+          "certs_101-110.bin"), sortedNames(entriesDir));
+      Assert.assertEquals("base directory", Arrays.asList("certs", "certs-1.mf",
+          "tmp-certs-10-1600000000000.bin"), sortedNames(baseDir));
+    } finally {
+      for (File dir : Arrays.asList(entriesDir, baseDir)) {
+        for (File file : dir.listFiles()) {
+          file.delete();
+        }
+        dir.delete();
+      }
+    }
+  } // method testRemoveUnfinishedBundles
+
+  private static void touch(File file)
+      throws IOException {
+    Files.write(file.toPath(), new byte[1]);
+  }
+
+  private static List<String> sortedNames(File dir) {
+    List<String> names = new ArrayList<>(Arrays.asList(dir.list()));
+    Collections.sort(names);
+    return names;
+  }
+
+  /**
+   * Asserts that the shards cover all IDs from minId without gaps and overlaps, and that the
+   * last shard is open-ended.
+   */
+  private static void assertSplit(long minId, long maxId, int numWorkers) {
+    List<CaCertstore.CertShard> shards = CaCertstoreDbExporter.splitIds(minId, maxId, numWorkers);
+    String desc = "[" + minId + ", " + maxId + "] with " + numWorkers + " workers";
+    Assert.assertTrue("no shard for " + desc, !shards.isEmpty());
+    Assert.assertTrue("too many shards for " + desc, shards.size() <= numWorkers);
+
+    long nextId = minId;
+    for (int i = 0; i < shards.size(); i++) {
+      CaCertstore.CertShard shard = shards.get(i);
+      Assert.assertEquals("shard no for " + desc, i + 1, shard.getNo());
+      Assert.assertEquals("fromId for " + desc, nextId, shard.getFromId());
+      Assert.assertTrue("empty shard for " + desc, shard.getToId() >= shard.getFromId());
+      nextId = shard.getToId() + 1;
+    }
+
+    Assert.assertEquals("last toId for " + desc, Long.MAX_VALUE,
+        shards.get(shards.size() - 1).getToId());
+  } // method assertSplit
+
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CertShardProcessLog test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CertShardProcessLogTest {
+
+  private static final String PREFIX = "export-shard-";
+
+  private File dir;
+
+  @Before
+  public void createDir()
+      throws IOException {
+    dir = Files.createTempDirectory("shard-test").toFile();
+  }
+
+  @After
+  public void deleteDir() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void testNewShardStartingAtZero()
+      throws IOException {
+    CertShardProcessLog log = CertShardProcessLog.create(dir.getPath(), PREFIX,
+        newShard(1, 0, 99));
+    Assert.assertEquals("lastId", -1, log.getLastId());
+    Assert.assertFalse("new shard is finished", log.isFinished());
+
+    List<CertShardProcessLog> logs = CertShardProcessLog.list(dir.getPath(), PREFIX);
+    Assert.assertEquals("number of shards", 1, logs.size());
+    Assert.assertEquals("lastId", -1, logs.get(0).getLastId());
+    Assert.assertFalse("new shard is finished after reading", logs.get(0).isFinished());
+  } // method testNewShardStartingAtZero
+
+  @Test
+  public void testResume()
+      throws IOException {
+    CertShardProcessLog log1 = CertShardProcessLog.create(dir.getPath(), PREFIX,
+        newShard(1, 0, 99));
+    CertShardProcessLog log2 = CertShardProcessLog.create(dir.getPath(), PREFIX,
+        newShard(2, 100, Long.MAX_VALUE));
+    CertShardProcessLog log3 = CertShardProcessLog.create(dir.getPath(), PREFIX,
+        newShard(3, 50, 60));
+
+    // shard 1 is finished, shard 2 has been interrupted, shard 3 has not been started
+    log1.update(100, 99);
+    log1.finish();
+    log2.update(20, 130);
+
+    List<CertShardProcessLog> logs = CertShardProcessLog.list(dir.getPath(), PREFIX);
+    Assert.assertEquals("number of shards", 3, logs.size());
+
+    // sorted by fromId
+    CertShardProcessLog resumed1 = logs.get(0);
+    Assert.assertEquals("shard no", 1, resumed1.getShard().getNo());
+    Assert.assertTrue("shard 1 is finished", resumed1.isFinished());
+    Assert.assertEquals("count", 100, resumed1.getShard().getCount());
+    Assert.assertEquals("lastId", 99, resumed1.getLastId());
+
+    CertShardProcessLog resumed3 = logs.get(1);
+    Assert.assertEquals("shard no", 3, resumed3.getShard().getNo());
+    Assert.assertFalse("shard 3 is finished", resumed3.isFinished());
+    Assert.assertEquals("lastId", 49, resumed3.getLastId());
+
+    CertShardProcessLog resumed2 = logs.get(2);
+    Assert.assertEquals("shard no", 2, resumed2.getShard().getNo());
+    Assert.assertFalse("shard 2 is finished", resumed2.isFinished());
+    Assert.assertEquals("count", 20, resumed2.getShard().getCount());
+    Assert.assertEquals("lastId", 130, resumed2.getLastId());
+    Assert.assertEquals("fromId", 100, resumed2.getShard().getFromId());
+    Assert.assertEquals("toId", Long.MAX_VALUE, resumed2.getShard().getToId());
+
+    for (CertShardProcessLog log : logs) {
+      log.delete();
+    }
+    Assert.assertTrue("deleted", CertShardProcessLog.list(dir.getPath(), PREFIX).isEmpty());
+  } // method testResume
+
+  @Test
+  public void testListIgnoresOtherFiles()
+      throws IOException {
+    CertShardProcessLog.create(dir.getPath(), PREFIX, newShard(1, 1, 10));
+    CertShardProcessLog.create(dir.getPath(), "import-shard-", newShard(1, 1, 10));
+    DbPorter.echoToFile("CERT:0", new File(dir, PREFIX + "x.process"));
+
+    Assert.assertEquals("number of shards", 1,
+        CertShardProcessLog.list(dir.getPath(), PREFIX).size());
+  } // method testListIgnoresOtherFiles
+
+  @Test(expected = IOException.class)
+  public void testInvalidContent()
+      throws IOException {
+    DbPorter.echoToFile("0:99:0", new File(dir, PREFIX + "1.process"));
+    CertShardProcessLog.list(dir.getPath(), PREFIX);
+  }
+
+  private static CaCertstore.CertShard newShard(int no, long fromId, long toId) {
+    CaCertstore.CertShard shard = new CaCertstore.CertShard();
+    shard.setNo(no);
+    shard.setFromId(fromId);
+    shard.setToId(toId);
+    return shard;
+  }
+
+}
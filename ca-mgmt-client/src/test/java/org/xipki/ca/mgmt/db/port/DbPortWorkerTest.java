@@ -0,0 +1,40 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.mgmt.db.port;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DbPortWorker test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class DbPortWorkerTest {
+
+  @Test
+  public void testNumConnections() {
+    // a single worker runs in the main thread
+    Assert.assertEquals("connections for 1 worker", 1, DbPortWorker.numConnections(1));
+    Assert.assertEquals("connections for 2 workers", 4, DbPortWorker.numConnections(2));
+    Assert.assertEquals("connections for 8 workers", 10, DbPortWorker.numConnections(8));
+  }
+
+}
@@ -128,6 +128,8 @@ public class CaAuditConstants {
 
   public static final String NAME_serial = "serial";
 
+  public static final String NAME_serials = "serials";
+
   public static final String NAME_this_update = "this_update";
 
   public static final String NAME_tid = "tid";
@@ -163,6 +165,8 @@ public class CaAuditConstants {
 
   public static final String TYPE_revoke_cert = "revoke_cert";
 
+  public static final String TYPE_revoke_certs = "revoke_certs";
+
   public static final String TYPE_revoke_suspendedCert = "revoke_suspended_cert";
 
 }
@@ -92,10 +92,14 @@ public class CaInfo {
 
   private DhpocControl dhpocControl;
 
-  private Map<String, ConcurrentContentSigner> signers;
+  private volatile Map<String, ConcurrentContentSigner> signers;
 
   private ConcurrentContentSigner dfltSigner;
 
+  private SecurityFactory deferredSignerFactory;
+
+  private final SignerInitBackoff signerInitBackoff = new SignerInitBackoff();
+
   private RevokeSuspendedControl revokeSuspendedCertsControl;
 
   public CaInfo(CaEntry caEntry, CertStore certStore)
@@ -348,6 +352,10 @@ public class CaInfo {
   }
 
   public ConcurrentContentSigner getSigner(List<String> algoNames) {
+    if (signers == null && !initDeferredSigner()) {
+      return null;
+    }
+
     if (CollectionUtil.isEmpty(algoNames)) {
       return dfltSigner;
     }
@@ -361,7 +369,66 @@ public class CaInfo {
     return null;
   } // method getSigner
 
-  public boolean initSigner(SecurityFactory securityFactory)
+  /**
+   * Defers the creation of the signers until they are used for the first time.
+   * @param securityFactory
+   *          Security factory to create the signers.
+   */
+  public void deferSigner(SecurityFactory securityFactory) {
+    this.deferredSignerFactory = Args.notNull(securityFactory, "securityFactory");
+  }
+
+  /**
+   * Whether the signers have been created.
+   * @return whether the signers are available.
+   */
+  public boolean isSignerAvailable() {
+    return signers != null;
+  }
+
+  /**
+   * Creates the deferred signers if not created yet. After a failure, the next attempt is
+   * delayed exponentially.
+   * @return whether the signers are available.
+   */
+  public synchronized boolean initDeferredSigner() {
+    if (signers != null) {
+      return true;
+    }
+
+    SecurityFactory securityFactory = deferredSignerFactory;
+    if (securityFactory == null || !signerInitBackoff.isAttemptAllowed()) {
+      return false;
+    }
+
+    try {
+      boolean initialized = initSigner(securityFactory);
+      signerInitBackoff.succeeded();
+      return initialized;
+    } catch (XiSecurityException ex) {
+      long delayMs = signerInitBackoff.failed();
+      LogUtil.error(LOG, ex, "could not initialize the deferred signer of CA " + getIdent()
+          + ", next attempt in " + delayMs + " ms");
+      return false;
+    }
+  } // method initDeferredSigner
+
+  /**
+   * Takes over the signers of the previous instance of this CA, whose CA entry has not
+   * been changed.
+   * @param previous
+   *          Previous instance of this CA.
+   */
+  public synchronized void takeOverSigners(CaInfo previous) {
+    Args.notNull(previous, "previous");
+    Map<String, ConcurrentContentSigner> previousSigners = previous.signers;
+    if (signers == null && previousSigners != null) {
+      dfltSigner = previous.dfltSigner;
+      signers = previousSigners;
+    }
+  } // method takeOverSigners
+
+  public synchronized boolean initSigner(SecurityFactory securityFactory)
       throws XiSecurityException {
     if (signers != null) {
       return true;
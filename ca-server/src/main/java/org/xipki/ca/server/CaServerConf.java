@@ -128,6 +128,65 @@ public class CaServerConf extends ValidatableConf {
 
   } // class CtLogConf
 
+  public static class KeypairPoolConf extends ValidatableConf {
+
+    /**
+     * Number of keypairs kept in the pool for each key type.
+     */
+    private int size = 10;
+
+    /**
+     * Number of threads to generate the keypairs.
+     */
+    private int threads = 1;
+
+    /**
+     * Maximal time in seconds a keypair may stay in the pool.
+     */
+    private int maxAge = 3600;
+
+    public int getSize() {
+      return size;
+    }
+
+    public void setSize(int size) {
+      this.size = size;
+    }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getMaxAge() {
+      return maxAge;
+    }
+
+    public void setMaxAge(int maxAge) {
+      this.maxAge = maxAge;
+    }
+
+    @Override
+    public void validate()
+        throws InvalidConfException {
+      if (size < 1) {
+        throw new InvalidConfException("size may not be less than 1");
+      }
+
+      if (threads < 1) {
+        throw new InvalidConfException("threads may not be less than 1");
+      }
+
+      if (maxAge < 60) {
+        throw new InvalidConfException("maxAge may not be less than 60");
+      }
+    }
+
+  } // class KeypairPoolConf
+
   private AuditConf audit;
 
   private SecurityConf security;
@@ -145,12 +204,41 @@ public class CaServerConf extends ValidatableConf {
    */
   private int shardId = 0;
 
+  /**
+   * Number of threads to start the CAs, 1 to start them one after another.
+   */
+  private int startupThreads = 4;
+
+  /**
+   * Whether the signers of the CAs and of the responders with configured certificate
+   * are created on first use instead of at the startup.
+   */
+  private boolean lazySigners = false;
+
+  /**
+   * Whether the lazily created signers are created in background directly after the startup.
+   * Only applied if lazySigners is true.
+   */
+  private boolean warmupSigners = true;
+
+  /**
+   * Interval in seconds in which a slave CA system applies the changes logged by the master
+   * in the table CHANGE_LOG, 0 to apply them only on restart.
+   */
+  private int changeLogInterval = 10;
+
   private List<DataSourceConf> datasources;
 
   private List<SslContext> sslContexts;
 
   private CtLogConf ctLog;
 
+  /**
+   * Pool of pre-generated keypairs for the CA-generated keys. If not set, the keypairs
+   * will be generated on demand.
+   */
+  private KeypairPoolConf keypairPool;
+
   /**
    * list of classes that implement org.xipki.ca.api.profile.CertprofileFactory
    */
@@ -186,6 +274,38 @@ public class CaServerConf extends ValidatableConf {
     this.shardId = shardId;
   }
 
+  public int getStartupThreads() {
+    return startupThreads;
+  }
+
+  public void setStartupThreads(int startupThreads) {
+    this.startupThreads = startupThreads;
+  }
+
+  public boolean isLazySigners() {
+    return lazySigners;
+  }
+
+  public void setLazySigners(boolean lazySigners) {
+    this.lazySigners = lazySigners;
+  }
+
+  public boolean isWarmupSigners() {
+    return warmupSigners;
+  }
+
+  public void setWarmupSigners(boolean warmupSigners) {
+    this.warmupSigners = warmupSigners;
+  }
+
+  public int getChangeLogInterval() {
+    return changeLogInterval;
+  }
+
+  public void setChangeLogInterval(int changeLogInterval) {
+    this.changeLogInterval = changeLogInterval;
+  }
+
   public List<DataSourceConf> getDatasources() {
     return datasources;
   }
@@ -256,6 +376,14 @@ public class CaServerConf extends ValidatableConf {
     this.ctLog = ctLog;
   }
 
+  public KeypairPoolConf getKeypairPool() {
+    return keypairPool;
+  }
+
+  public void setKeypairPool(KeypairPoolConf keypairPool) {
+    this.keypairPool = keypairPool;
+  }
+
   public synchronized SslContextConf getSslContextConf(String name) {
     if (sslContexts == null || sslContexts.isEmpty()) {
       return null;
@@ -284,9 +412,18 @@ public class CaServerConf extends ValidatableConf {
       throw new InvalidConfException("shardId is not in [0, 127]");
     }
 
+    if (startupThreads < 1) {
+      throw new InvalidConfException("startupThreads may not be less than 1");
+    }
+
+    if (changeLogInterval < 0) {
+      throw new InvalidConfException("changeLogInterval may not be negative");
+    }
+
     notEmpty(datasources, "datasources");
     validate(remoteMgmt);
     validate(security);
+    validate(keypairPool);
   } // method validate
 
 }
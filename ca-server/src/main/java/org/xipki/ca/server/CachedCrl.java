@@ -0,0 +1,116 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import static org.xipki.util.Args.notNull;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.util.X509Util;
+import org.xipki.util.StringUtil;
+
+/**
+ * In-memory copy of a CRL, together with the information required to answer
+ * conditional HTTP requests.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CachedCrl {
+
+  private final X509CRLHolder crl;
+
+  private final byte[] encoded;
+
+  private final BigInteger crlNumber;
+
+  private final boolean deltaCrl;
+
+  private final long thisUpdate;
+
+  private final Long nextUpdate;
+
+  private final String etag;
+
+  public CachedCrl(X509CRLHolder crl) throws IOException {
+    this(crl, crl.getEncoded());
+  }
+
+  public CachedCrl(X509CRLHolder crl, byte[] encoded) {
+    this.crl = notNull(crl, "crl");
+    this.encoded = notNull(encoded, "encoded");
+
+    byte[] extnValue = X509Util.getCoreExtValue(crl.getExtensions(), Extension.cRLNumber);
+    this.crlNumber = (extnValue == null) ? null
+        : ASN1Integer.getInstance(extnValue).getPositiveValue();
+    this.deltaCrl = crl.getExtension(Extension.deltaCRLIndicator) != null;
+    this.thisUpdate = crl.getThisUpdate().getTime();
+    Date nu = crl.getNextUpdate();
+    this.nextUpdate = (nu == null) ? null : nu.getTime();
+    // same as the ETag of OCSP response, see RFC 5019 6.2
+    this.etag = StringUtil.concat("\"", HashAlgo.SHA1.hexHash(encoded), "\"");
+  }
+
+  public X509CRLHolder getCrl() {
+    return crl;
+  }
+
+  /**
+   * Returns the DER encoding of the CRL. The returned array must not be modified.
+   * @return the encoded CRL.
+   */
+  public byte[] getEncoded() {
+    return encoded;
+  }
+
+  public BigInteger getCrlNumber() {
+    return crlNumber;
+  }
+
+  public boolean isDeltaCrl() {
+    return deltaCrl;
+  }
+
+  /**
+   * Returns the thisUpdate in milliseconds since 1970-01-01T00:00:00Z.
+   * @return thisUpdate of the CRL.
+   */
+  public long getThisUpdate() {
+    return thisUpdate;
+  }
+
+  /**
+   * Returns the nextUpdate in milliseconds since 1970-01-01T00:00:00Z.
+   * @return nextUpdate of the CRL, may be {@code null}.
+   */
+  public Long getNextUpdate() {
+    return nextUpdate;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+}
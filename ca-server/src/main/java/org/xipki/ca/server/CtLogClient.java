@@ -17,7 +17,12 @@
 
 package org.xipki.ca.server;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -29,13 +34,30 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.ca.api.OperationException;
 import org.xipki.ca.api.OperationException.ErrorCode;
+import org.xipki.ca.api.mgmt.CtlogControl;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.security.ctlog.CtLog;
@@ -47,10 +69,9 @@ import org.xipki.security.ctlog.CtLog.SignedCertificateTimestampList;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainRequest;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainResponse;
 import org.xipki.util.Args;
-import org.xipki.util.Curl;
-import org.xipki.util.Curl.CurlResult;
-import org.xipki.util.DefaultCurl;
 import org.xipki.util.Hex;
+import org.xipki.util.IoUtil;
+import org.xipki.util.ObjectCreationException;
 import org.xipki.util.StringUtil;
 import org.xipki.util.http.SslContextConf;
 
@@ -59,34 +80,106 @@ import com.alibaba.fastjson.JSON;
 /**
  * Certificate transparency (CT) log client.
  *
+ * <p>The precertificate is submitted to all CT log servers concurrently, and the SCTs
+ * are returned as soon as the required number of SCTs has been collected. The HTTP
+ * connections are kept alive and reused for further requests. If all threads of the
+ * bounded pool are busy, the requesting thread calls the CT log server itself.
+ *
  * @author Lijun Liao
  */
-public class CtLogClient {
+public class CtLogClient implements Closeable {
 
   private static Logger LOG = LoggerFactory.getLogger(CtLogClient.class);
 
-  private final Curl curl;
+  /**
+   * Maximal number of concurrent requests to one CT log server.
+   */
+  private static final int MAX_THREADS_PER_LOG = 4;
 
   private final List<String> addPreChainUrls;
 
+  private final int minScts;
+
+  private final int timeout;
+
+  private final SslContextConf sslContextConf;
+
+  private final ExecutorService executor;
+
+  private SSLSocketFactory sslSocketFactory;
+
+  private HostnameVerifier hostnameVerifier;
+
+  private boolean initialized;
+
   public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf) {
+    this(serverUrls, sslContextConf, serverUrls.size(), CtlogControl.DFLT_TIMEOUT);
+  }
+
+  public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf, int minScts,
+      int timeout) {
     Args.notEmpty(serverUrls, "serverUrls");
+    this.minScts = Args.range(minScts, "minScts", 1, serverUrls.size());
+    this.timeout = Args.positive(timeout, "timeout");
+    this.sslContextConf = sslContextConf;
 
-    DefaultCurl dfltCurl  = new DefaultCurl();
-    dfltCurl.setSslContextConf(sslContextConf);
-    this.curl = dfltCurl;
     this.addPreChainUrls = new ArrayList<>(serverUrls.size());
     for (String m : serverUrls) {
       String addPreChainUrl = m.endsWith("/")
           ? m + "ct/v1/add-pre-chain" : m + "/ct/v1/add-pre-chain";
       this.addPreChainUrls.add(addPreChainUrl);
     }
+
+    final AtomicInteger threadNumber = new AtomicInteger(1);
+    ThreadPoolExecutor tpe = new ThreadPoolExecutor(addPreChainUrls.size(),
+        addPreChainUrls.size() * MAX_THREADS_PER_LOG, 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ctlog-client-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          }
+        },
+        new RejectedExecutionHandler() {
+          @Override
+          public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+              throw new RejectedExecutionException("CT log client has been closed");
+            }
+            // all threads are busy: the requesting thread calls the CT log itself
+            task.run();
+          }
+        });
+    tpe.allowCoreThreadTimeOut(true);
+    this.executor = tpe;
   } // constructor
 
+  private synchronized void initIfNotDone() throws OperationException {
+    if (initialized) {
+      return;
+    }
+
+    if (sslContextConf != null && sslContextConf.isUseSslConf()) {
+      try {
+        sslSocketFactory = sslContextConf.getSslSocketFactory();
+        hostnameVerifier = sslContextConf.buildHostnameVerifier();
+      } catch (ObjectCreationException ex) {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+            "could not initialize SSL context: " + ex.getMessage());
+      }
+    }
+
+    initialized = true;
+  } // method initIfNotDone
+
   public SignedCertificateTimestampList getCtLogScts(
       X509CertificateHolder precert, X509Cert caCert, List<X509Cert> certchain,
       CtLogPublicKeyFinder publicKeyFinder)
           throws OperationException {
+    initIfNotDone();
+
     AddPreChainRequest request = new AddPreChainRequest();
     List<byte[]> chain = new LinkedList<>();
     request.setChain(chain);
@@ -120,74 +213,192 @@ public class CtLogClient {
       }
     }
 
-    byte[] content = JSON.toJSONBytes(request);
+    final byte[] content = JSON.toJSONBytes(request);
     if (LOG.isDebugEnabled()) {
       LOG.debug("CTLog Request: {}", StringUtil.toUtf8String(content));
     }
 
-    List<SignedCertificateTimestamp> scts = new ArrayList<>(addPreChainUrls.size());
-    Map<String, String> headers = new HashMap<>();
-    headers.put("content-type", "application/json");
-    for (String url : addPreChainUrls) {
-      CurlResult res;
+    final int n = addPreChainUrls.size();
+    CompletionService<SignedCertificateTimestamp> completionService =
+        new ExecutorCompletionService<>(executor);
+    Map<Future<SignedCertificateTimestamp>, Integer> futures = new HashMap<>(n * 2);
+
+    for (int i = 0; i < n; i++) {
+      final String url = addPreChainUrls.get(i);
+      Future<SignedCertificateTimestamp> future;
       try {
-        res = curl.curlPost(url, false, headers, null, content);
-      } catch (Exception ex) {
-        throw new OperationException(ErrorCode.SYSTEM_FAILURE,
-            "error while calling " + url + ": " + ex.getMessage());
+        future = completionService.submit(new Callable<SignedCertificateTimestamp>() {
+          @Override
+          public SignedCertificateTimestamp call() throws OperationException {
+            return getSct(url, content, issuerKeyHash, preCertTbsCert, publicKeyFinder);
+          }
+        });
+      } catch (RejectedExecutionException ex) {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "CT log client has been closed");
       }
+      futures.put(future, i);
+    }
 
-      byte[] respContent = res.getContent();
-      if (respContent == null) {
-        throw new OperationException(ErrorCode.SYSTEM_FAILURE,
-            "server does not return any content while responding " + url);
+    SignedCertificateTimestamp[] sctArray = new SignedCertificateTimestamp[n];
+    int numScts = 0;
+    String firstError = null;
+    long deadline = System.currentTimeMillis() + timeout;
+
+    try {
+      for (int i = 0; i < n && numScts < minScts; i++) {
+        long remaining = deadline - System.currentTimeMillis();
+        Future<SignedCertificateTimestamp> future = (remaining <= 0) ? null
+            : completionService.poll(remaining, TimeUnit.MILLISECONDS);
+        if (future == null) {
+          if (firstError == null) {
+            firstError = "timeout while waiting for SCTs";
+          }
+          break;
+        }
+
+        try {
+          sctArray[futures.get(future)] = future.get();
+          numScts++;
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause();
+          String msg = (cause instanceof OperationException)
+              ? ((OperationException) cause).getErrorMessage() : String.valueOf(cause);
+          LOG.warn("could not get SCT: {}", msg);
+          if (firstError == null) {
+            firstError = msg;
+          }
+        }
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "interrupted");
+    } finally {
+      // the SCTs of the remaining servers are not required
+      for (Future<SignedCertificateTimestamp> future : futures.keySet()) {
+        future.cancel(true);
+      }
+    }
+
+    if (numScts < minScts) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "got only " + numScts
+          + " SCTs, but at least " + minScts + " are required: " + firstError);
+    }
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+    List<SignedCertificateTimestamp> scts = new ArrayList<>(numScts);
+    for (SignedCertificateTimestamp sct : sctArray) {
+      if (sct != null) {
+        scts.add(sct);
       }
+    }
+
+    return new SignedCertificateTimestampList(new SerializedSCT(scts));
+  } // method getCtLogScts
+
+  private SignedCertificateTimestamp getSct(String url, byte[] content, byte[] issuerKeyHash,
+      byte[] preCertTbsCert, CtLogPublicKeyFinder publicKeyFinder)
+          throws OperationException {
+    byte[] respContent;
+    try {
+      respContent = post(url, content);
+    } catch (IOException ex) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+          "error while calling " + url + ": " + ex.getMessage());
+    }
 
-      AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
+    if (respContent == null || respContent.length == 0) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+          "server does not return any content while responding " + url);
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+    }
+
+    AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
 
-      DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
-      byte sctVersion = resp.getSct_version();
-      byte[] logId = resp.getId();
-      String hexLogId = Hex.encodeUpper(logId);
-      long timestamp = resp.getTimestamp();
-      byte[] extensions = resp.getExtensions();
+    DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
+    byte sctVersion = resp.getSct_version();
+    byte[] logId = resp.getId();
+    String hexLogId = Hex.encodeUpper(logId);
+    long timestamp = resp.getTimestamp();
+    byte[] extensions = resp.getExtensions();
+
+    PublicKey verifyKey = publicKeyFinder == null ? null : publicKeyFinder.getPublicKey(logId);
+    if (verifyKey == null) {
+      LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
+    } else {
+      SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
+      String sigAlgo = getSignatureAlgo(algorithm);
+
+      boolean sigValid;
+      try {
+        Signature sig = Signature.getInstance(sigAlgo, "BC");
+        sig.initVerify(verifyKey);
+        CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
+        sigValid = sig.verify(ds.getSignature());
+      } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException
+          | SignatureException ex) {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
+      }
 
-      PublicKey verifyKey = publicKeyFinder == null ? null : publicKeyFinder.getPublicKey(logId);
-      if (verifyKey == null) {
-        LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
+      if (sigValid) {
+        LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
       } else {
-        SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
-        String sigAlgo = getSignatureAlgo(algorithm);
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
+      }
+    }
 
-        boolean sigValid;
-        try {
-          Signature sig = Signature.getInstance(sigAlgo, "BC");
-          sig.initVerify(verifyKey);
-          CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
-          sigValid = sig.verify(ds.getSignature());
-        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException
-            | SignatureException ex) {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
-        }
+    return new SignedCertificateTimestamp(sctVersion, logId, timestamp, extensions, ds);
+  } // method getSct
 
-        if (sigValid) {
-          LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
-        } else {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
-        }
+  /**
+   * Sends the request via HTTP POST. The connection is not disconnected explicitly,
+   * so that it can be reused by the HTTP keep-alive mechanism.
+   */
+  private byte[] post(String url, byte[] content) throws IOException {
+    HttpURLConnection httpConn = IoUtil.openHttpConn(new URL(url));
+    if (httpConn instanceof HttpsURLConnection) {
+      if (sslSocketFactory != null) {
+        ((HttpsURLConnection) httpConn).setSSLSocketFactory(sslSocketFactory);
       }
+      if (hostnameVerifier != null) {
+        ((HttpsURLConnection) httpConn).setHostnameVerifier(hostnameVerifier);
+      }
+    }
 
-      SignedCertificateTimestamp sct = new SignedCertificateTimestamp(sctVersion,
-          logId, timestamp, extensions, ds);
-      scts.add(sct);
+    httpConn.setConnectTimeout(timeout);
+    httpConn.setReadTimeout(timeout);
+    httpConn.setRequestMethod("POST");
+    httpConn.setUseCaches(false);
+    httpConn.setDoOutput(true);
+    httpConn.setRequestProperty("Content-Type", "application/json");
+    httpConn.setFixedLengthStreamingMode(content.length);
+
+    try (OutputStream os = httpConn.getOutputStream()) {
+      os.write(content);
     }
 
-    return new SignedCertificateTimestampList(new SerializedSCT(scts));
-  } // method getCtLogScts
+    int respCode = httpConn.getResponseCode();
+    if (respCode != HttpURLConnection.HTTP_OK) {
+      // read the error stream completely, otherwise the connection cannot be reused
+      InputStream errorStream = httpConn.getErrorStream();
+      if (errorStream != null) {
+        IoUtil.read(errorStream);
+      }
+      throw new IOException("bad response: " + respCode + " " + httpConn.getResponseMessage());
+    }
+
+    return IoUtil.read(httpConn.getInputStream());
+  } // method post
+
+  int getLargestPoolSize() {
+    return ((ThreadPoolExecutor) executor).getLargestPoolSize();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
 
   private static String getSignatureAlgo(SignatureAndHashAlgorithm algorithm)
       throws OperationException {
@@ -22,9 +22,8 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.slf4j.Logger;
@@ -33,6 +32,7 @@ import org.xipki.ca.server.CaServerConf.CtLogConf;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.util.KeyUtil;
 import org.xipki.security.util.X509Util;
+import org.xipki.util.Hex;
 import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 
@@ -45,11 +45,7 @@ public class CtLogPublicKeyFinder {
 
   private static final Logger LOG = LoggerFactory.getLogger(CtLogPublicKeyFinder.class);
 
-  private final byte[][] logIds;
-
-  private final PublicKey[] publicKeys;
-
-  private final boolean withPublicKeys;
+  private final Map<String, PublicKey> publicKeys = new HashMap<>();
 
   public CtLogPublicKeyFinder(CtLogConf conf)
       throws IOException {
@@ -69,16 +65,9 @@ public class CtLogPublicKeyFinder {
     }
 
     if (keyFiles == null || keyFiles.length == 0) {
-      this.logIds = null;
-      this.publicKeys = null;
-      this.withPublicKeys = false;
       return;
     }
 
-    final int size = keyFiles.length;
-    List<byte[]> logIdList = new ArrayList<>(size);
-    List<PublicKey> publicKeyList = new ArrayList<>(size);
-
     for (File m : keyFiles) {
       byte[] keyBytes = IoUtil.read(m);
       keyBytes = X509Util.toDerEncoded(keyBytes);
@@ -87,30 +76,16 @@ public class CtLogPublicKeyFinder {
         byte[] logId = HashAlgo.SHA256.hash(spki.getEncoded());
         PublicKey key = KeyUtil.generatePublicKey(spki);
 
-        logIdList.add(logId);
-        publicKeyList.add(key);
+        publicKeys.put(Hex.encode(logId), key);
         LOG.info("loaded CtLog public key {}", m.getName());
       } catch (IOException | InvalidKeySpecException ex) {
         LogUtil.error(LOG, ex, "could not load CtLog public key " + m.getName());
       }
     }
-
-    this.logIds = logIdList.toArray(new byte[0][0]);
-    this.publicKeys = publicKeyList.toArray(new PublicKey[0]);
-    this.withPublicKeys = logIds != null && logIds.length > 0;
-
   }
 
   public PublicKey getPublicKey(byte[] logId) {
-    if (withPublicKeys) {
-      for (int i = 0; i < logIds.length; i++) {
-        if (Arrays.equals(logId, logIds[i])) {
-          return publicKeys[i];
-        }
-      }
-    }
-
-    return null;
+    return publicKeys.isEmpty() ? null : publicKeys.get(Hex.encode(logId));
   }
 
 }
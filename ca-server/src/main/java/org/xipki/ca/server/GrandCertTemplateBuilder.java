@@ -97,11 +97,14 @@ class GrandCertTemplateBuilder {
 
   private final CaInfo caInfo;
 
+  private final KeypairPool keypairPool;
+
   private final SecureRandom random = new SecureRandom();
 
-  GrandCertTemplateBuilder(CaInfo caInfo, CertStore certstore) {
+  GrandCertTemplateBuilder(CaInfo caInfo, CertStore certstore, KeypairPool keypairPool) {
     this.caInfo = caInfo;
     this.certstore = certstore;
+    this.keypairPool = keypairPool;
 
     X509Cert caCert = caInfo.getCaEntry().getCert();
     SubjectPublicKeyInfo caSpki = caCert.getSubjectPublicKeyInfo();
@@ -146,6 +149,9 @@ class GrandCertTemplateBuilder {
 
     ConcurrentContentSigner signer = caInfo.getSigner(certprofile.getSignatureAlgorithms());
     if (signer == null) {
+      if (!caInfo.isSignerAvailable()) {
+        throw new OperationException(SYSTEM_FAILURE, "CA signer is not available");
+      }
       throw new OperationException(SYSTEM_FAILURE,
           "CA does not support any signature algorithm restricted by the cert profile");
     }
@@ -262,9 +268,10 @@ class GrandCertTemplateBuilder {
             throw new OperationException(BAD_CERT_TEMPLATE, "keysize too large");
           }
 
-          BigInteger publicExponent = tkg.getPublicExponent();
-
-          KeyPair kp = KeyUtil.generateRSAKeypair(keysize, publicExponent, random);
+          KeyPair kp = (keypairPool == null) ? null : keypairPool.take(kg);
+          if (kp == null) {
+            kp = KeyUtil.generateRSAKeypair(keysize, tkg.getPublicExponent(), random);
+          }
           java.security.interfaces.RSAPublicKey rsaPubKey =
               (java.security.interfaces.RSAPublicKey) kp.getPublic();
 
@@ -297,7 +304,10 @@ class GrandCertTemplateBuilder {
         } else if (kg instanceof KeypairGenControl.ECKeypairGenControl) {
           KeypairGenControl.ECKeypairGenControl tkg = (KeypairGenControl.ECKeypairGenControl) kg;
           ASN1ObjectIdentifier curveOid = tkg.getCurveOid();
-          KeyPair kp = KeyUtil.generateECKeypair(curveOid, random);
+          KeyPair kp = (keypairPool == null) ? null : keypairPool.take(kg);
+          if (kp == null) {
+            kp = KeyUtil.generateECKeypair(curveOid, random);
+          }
           ECPublicKey pub = (ECPublicKey) kp.getPublic();
           int orderBitLength = pub.getParams().getOrder().bitLength();
 
@@ -324,7 +334,10 @@ class GrandCertTemplateBuilder {
               new org.bouncycastle.asn1.sec.ECPrivateKey(orderBitLength, priv.getS()));
         } else if (kg instanceof KeypairGenControl.DSAKeypairGenControl) {
           KeypairGenControl.DSAKeypairGenControl tkg = (KeypairGenControl.DSAKeypairGenControl) kg;
-          KeyPair kp = KeyUtil.generateDSAKeypair(tkg.getParameterSpec(), random);
+          KeyPair kp = (keypairPool == null) ? null : keypairPool.take(kg);
+          if (kp == null) {
+            kp = KeyUtil.generateDSAKeypair(tkg.getParameterSpec(), random);
+          }
 
           grantedPublicKeyInfo = new SubjectPublicKeyInfo(tkg.getKeyAlgorithm(),
               new ASN1Integer(((DSAPublicKey) kp.getPublic()).getY()));
@@ -336,7 +349,10 @@ class GrandCertTemplateBuilder {
         } else if (kg instanceof KeypairGenControl.EDDSAKeypairGenControl) {
           KeypairGenControl.EDDSAKeypairGenControl tkg =
               (KeypairGenControl.EDDSAKeypairGenControl) kg;
-          KeyPair kp = KeyUtil.generateEdECKeypair(tkg.getKeyAlgorithm().getAlgorithm(), random);
+          KeyPair kp = (keypairPool == null) ? null : keypairPool.take(kg);
+          if (kp == null) {
+            kp = KeyUtil.generateEdECKeypair(tkg.getKeyAlgorithm().getAlgorithm(), random);
+          }
           grantedPublicKeyInfo = KeyUtil.createSubjectPublicKeyInfo(kp.getPublic());
           // make sure that the algorithm match
           if (!grantedPublicKeyInfo.getAlgorithm().equals(tkg.getKeyAlgorithm())) {
@@ -20,12 +20,14 @@ package org.xipki.ca.server;
 import static org.xipki.util.Args.notNull;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 
 import org.bouncycastle.cert.X509CRLHolder;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.CertificateInfo;
 import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.ca.api.mgmt.entry.PublisherEntry;
 import org.xipki.ca.api.publisher.CertPublisher;
 import org.xipki.ca.api.publisher.CertPublisherException;
@@ -71,6 +73,11 @@ public class IdentifiedCertPublisher implements Closeable {
     return certPublisher.certificateRevoked(caCert, cert, certprofile, revInfo);
   }
 
+  public List<CertWithRevocationInfo> certificatesRevoked(X509Cert caCert,
+      List<CertWithRevocationInfo> revokedCerts) {
+    return certPublisher.certificatesRevoked(caCert, revokedCerts);
+  }
+
   public boolean crlAdded(X509Cert caCert, X509CRLHolder crl) {
     return certPublisher.crlAdded(caCert, crl);
   }
@@ -24,6 +24,7 @@ import static org.xipki.ca.server.CertprofileUtil.createSubjectInfoAccess;
 import static org.xipki.util.Args.notNull;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -33,7 +34,9 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
@@ -102,12 +105,89 @@ public class IdentifiedCertprofile implements Closeable {
   private final CertprofileEntry dbEntry;
   private final Certprofile certprofile;
 
+  /*
+   * Request-independent extension values, computed once. If null, the value is computed
+   * for each certificate.
+   */
+  private final ExtensionValue basicConstraints;
+
+  private final ExtensionValue keyUsage;
+
+  private final ExtensionValue extendedKeyUsage;
+
+  private final ExtensionValue ocspNoCheck;
+
+  private final ExtensionValue certificatePolicies;
+
+  /*
+   * Extension values derived from the CA, one entry per CA. Rebuilt if the CA information or
+   * the CRL signer has been changed.
+   */
+  private final ConcurrentHashMap<String, CaExtensions> caExtensionsMap =
+      new ConcurrentHashMap<>();
+
+  private static class CaExtensions {
+
+    private final PublicCaInfo publicCaInfo;
+
+    private final X509Cert crlSignerCert;
+
+    private final Map<ASN1ObjectIdentifier, ExtensionValue> values;
+
+    CaExtensions(PublicCaInfo publicCaInfo, X509Cert crlSignerCert,
+        Map<ASN1ObjectIdentifier, ExtensionValue> values) {
+      this.publicCaInfo = publicCaInfo;
+      this.crlSignerCert = crlSignerCert;
+      this.values = values;
+    }
+
+  } // class CaExtensions
+
   public IdentifiedCertprofile(CertprofileEntry dbEntry, Certprofile certprofile)
       throws CertprofileException {
     this.dbEntry = notNull(dbEntry, "dbEntry");
     this.certprofile = notNull(certprofile, "certprofile");
 
     this.certprofile.initialize(dbEntry.getConf());
+
+    Map<ASN1ObjectIdentifier, ExtensionControl> controls = certprofile.getExtensionControls();
+    if (controls == null) {
+      controls = Collections.emptyMap();
+    }
+
+    ExtensionControl extControl = controls.get(Extension.basicConstraints);
+    this.basicConstraints = (extControl == null) ? null
+        : precompile(extControl, CaUtil.createBasicConstraints(certprofile.getCertLevel(),
+            certprofile.getPathLenBasicConstraint()));
+
+    // KeyUsage and ExtendedKeyUsage are constant if no usage is optional
+    final Map<ASN1ObjectIdentifier, Extension> noRequestedExtns = Collections.emptyMap();
+    boolean constant = true;
+    extControl = controls.get(Extension.keyUsage);
+    if (extControl != null && certprofile.getKeyUsage() != null) {
+      for (KeyUsageControl k : certprofile.getKeyUsage()) {
+        constant &= k.isRequired();
+      }
+    }
+    this.keyUsage = (extControl == null || !constant) ? null
+        : precompile(createKeyUsage(extControl, noRequestedExtns));
+
+    constant = true;
+    extControl = controls.get(Extension.extendedKeyUsage);
+    if (extControl != null && certprofile.getExtendedKeyUsages() != null) {
+      for (ExtKeyUsageControl k : certprofile.getExtendedKeyUsages()) {
+        constant &= k.isRequired();
+      }
+    }
+    this.extendedKeyUsage = (extControl == null || !constant) ? null
+        : precompile(createExtendedKeyUsage(extControl, noRequestedExtns));
+
+    extControl = controls.get(ObjectIdentifiers.Extn.id_extension_pkix_ocsp_nocheck);
+    this.ocspNoCheck = (extControl == null) ? null : precompile(extControl, DERNull.INSTANCE);
+
+    extControl = controls.get(Extension.certificatePolicies);
+    this.certificatePolicies = (extControl == null) ? null
+        : precompile(extControl, certprofile.getCertificatePolicies());
   } // constructor
 
   public NameId getIdent() {
@@ -376,86 +456,15 @@ public class IdentifiedCertprofile implements Closeable {
       addExtension(values, extType, value, extControl);
     }
 
-    // Authority key identifier
-    extType = Extension.authorityKeyIdentifier;
-    extControl = controls.remove(extType);
-    if (extControl != null) {
-      AuthorityKeyIdentifier value = null;
-      if (certprofile.useIssuerAndSerialInAki()) {
-        GeneralNames x509CaIssuer = new GeneralNames(
-            new GeneralName(publicCaInfo.getIssuer()));
-        value = new AuthorityKeyIdentifier(x509CaIssuer, publicCaInfo.getSerialNumber());
-      } else {
-        byte[] ikiValue = publicCaInfo.getSubjectKeyIdentifer();
-        if (ikiValue != null) {
-          value = new AuthorityKeyIdentifier(ikiValue);
-        }
-      }
-
-      addExtension(values, extType, value, extControl);
-    }
-
-    // IssuerAltName
-    extType = Extension.issuerAlternativeName;
-    extControl = controls.remove(extType);
-    if (extControl != null) {
-      GeneralNames value = publicCaInfo.getSubjectAltName();
-      addExtension(values, extType, value, extControl);
-    }
-
-    // AuthorityInfoAccess
-    extType = Extension.authorityInfoAccess;
-    extControl = controls.remove(extType);
-    CaUris caUris = publicCaInfo.getCaUris();
-
-    if (extControl != null) {
-      AuthorityInfoAccessControl aiaControl = certprofile.getAiaControl();
-
-      List<String> caIssuers = null;
-      if (aiaControl == null || aiaControl.isIncludesCaIssuers()) {
-        caIssuers = caUris.getCacertUris();
-      }
-
-      List<String> ocspUris = null;
-      if (aiaControl == null || aiaControl.isIncludesOcsp()) {
-        ocspUris = caUris.getOcspUris();
-      }
-
-      AuthorityInformationAccess value = null;
-      if (CollectionUtil.isNotEmpty(caIssuers) || CollectionUtil.isNotEmpty(ocspUris)) {
-        value = CaUtil.createAuthorityInformationAccess(
-            caIssuers, ocspUris);
-      }
-      addExtension(values, extType, value, extControl);
-    }
-
-    if (controls.containsKey(Extension.cRLDistributionPoints)
-        || controls.containsKey(Extension.freshestCRL)) {
-      X500Name crlSignerSubject = (crlSignerCert == null) ? null : crlSignerCert.getSubject();
-      X500Name x500CaPrincipal = publicCaInfo.getSubject();
-
-      // CRLDistributionPoints
-      extType = Extension.cRLDistributionPoints;
+    // AuthorityKeyIdentifier, IssuerAltName, AuthorityInfoAccess, CRLDistributionPoints and
+    // FreshestCRL depend only on the CA
+    Map<ASN1ObjectIdentifier, ExtensionValue> caExtensions =
+        getCaExtensions(publicCaInfo, crlSignerCert);
+    for (Entry<ASN1ObjectIdentifier, ExtensionValue> entry : caExtensions.entrySet()) {
+      extType = entry.getKey();
       extControl = controls.remove(extType);
       if (extControl != null) {
-        CRLDistPoint value = null;
-        if (CollectionUtil.isNotEmpty(caUris.getCrlUris())) {
-          value = CaUtil.createCrlDistributionPoints(caUris.getCrlUris(),
-              x500CaPrincipal, crlSignerSubject);
-        }
-        addExtension(values, extType, value, extControl);
-      }
-
-      // FreshestCRL
-      extType = Extension.freshestCRL;
-      extControl = controls.remove(extType);
-      if (extControl != null) {
-        CRLDistPoint value = null;
-        if (CollectionUtil.isNotEmpty(caUris.getDeltaCrlUris())) {
-          value = CaUtil.createCrlDistributionPoints(caUris.getDeltaCrlUris(),
-              x500CaPrincipal, crlSignerSubject);
-        }
-        addExtension(values, extType, value, extControl);
+        addExtension(values, extType, entry.getValue(), extControl);
       }
     }
 
@@ -463,27 +472,15 @@ public class IdentifiedCertprofile implements Closeable {
     extType = Extension.basicConstraints;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      BasicConstraints value = CaUtil.createBasicConstraints(certprofile.getCertLevel(),
-          certprofile.getPathLenBasicConstraint());
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, basicConstraints, extControl);
     }
 
     // KeyUsage
     extType = Extension.keyUsage;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      Set<KeyUsage> usages = new HashSet<>();
-      Set<KeyUsageControl> usageOccs = certprofile.getKeyUsage();
-      for (KeyUsageControl k : usageOccs) {
-        if (k.isRequired()) {
-          usages.add(k.getKeyUsage());
-        }
-      }
-
-      // the optional KeyUsage will only be set if requested explicitly
-      addRequestedKeyusage(usages, requestedExtns, usageOccs);
-
-      org.bouncycastle.asn1.x509.KeyUsage value = X509Util.createKeyUsage(usages);
+      ExtensionValue value = (keyUsage != null) ? keyUsage
+          : createKeyUsage(extControl, requestedExtns);
       addExtension(values, extType, value, extControl);
     }
 
@@ -491,28 +488,8 @@ public class IdentifiedCertprofile implements Closeable {
     extType = Extension.extendedKeyUsage;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      List<ASN1ObjectIdentifier> usages = new LinkedList<>();
-      Set<ExtKeyUsageControl> usageOccs = certprofile.getExtendedKeyUsages();
-      for (ExtKeyUsageControl k : usageOccs) {
-        if (k.isRequired()) {
-          usages.add(k.getExtKeyUsage());
-        }
-      }
-
-      // the optional ExtKeyUsage will only be set if requested explicitly
-      addRequestedExtKeyusage(usages, requestedExtns, usageOccs);
-
-      if (extControl.isCritical()
-          && usages.contains(ObjectIdentifiers.XKU.id_kp_anyExtendedKeyUsage)) {
-        extControl = new ExtensionControl(false, extControl.isRequired(),
-            extControl.isRequest());
-      }
-
-      if (!extControl.isCritical() && usages.contains(ObjectIdentifiers.XKU.id_kp_timeStamping)) {
-        extControl = new ExtensionControl(true, extControl.isRequired(), extControl.isRequest());
-      }
-
-      ExtendedKeyUsage value = X509Util.createExtendedUsage(usages);
+      ExtensionValue value = (extendedKeyUsage != null) ? extendedKeyUsage
+          : createExtendedKeyUsage(extControl, requestedExtns);
       addExtension(values, extType, value, extControl);
     }
 
@@ -521,7 +498,7 @@ public class IdentifiedCertprofile implements Closeable {
     extControl = controls.remove(extType);
     if (extControl != null) {
       // the extension ocsp-nocheck will only be set if requested explicitly
-      addExtension(values, extType, DERNull.INSTANCE, extControl);
+      addExtension(values, extType, ocspNoCheck, extControl);
     }
 
     // SubjectInfoAccess
@@ -537,8 +514,7 @@ public class IdentifiedCertprofile implements Closeable {
     extType = Extension.certificatePolicies;
     extControl = controls.remove(extType);
     if (extControl != null) {
-      ASN1Encodable value = certprofile.getCertificatePolicies();
-      addExtension(values, extType, value, extControl);
+      addExtension(values, extType, certificatePolicies, extControl);
     }
 
     ExtensionValues subvalues = certprofile.getExtensions(Collections.unmodifiableMap(controls),
@@ -673,6 +649,169 @@ public class IdentifiedCertprofile implements Closeable {
     return values;
   } // method getExtensions
 
+  private Map<ASN1ObjectIdentifier, ExtensionValue> getCaExtensions(PublicCaInfo publicCaInfo,
+      X509Cert crlSignerCert)
+          throws CertprofileException {
+    notNull(publicCaInfo, "publicCaInfo");
+    String caKey = publicCaInfo.getC14nSubject();
+    CaExtensions cached = caExtensionsMap.get(caKey);
+    if (cached != null && cached.publicCaInfo == publicCaInfo
+        && cached.crlSignerCert == crlSignerCert) {
+      return cached.values;
+    }
+
+    Map<ASN1ObjectIdentifier, ExtensionControl> controls = certprofile.getExtensionControls();
+    // value null: extension is configured, but no value can be derived from the CA
+    Map<ASN1ObjectIdentifier, ExtensionValue> values = new HashMap<>();
+
+    // AuthorityKeyIdentifier
+    ASN1ObjectIdentifier extType = Extension.authorityKeyIdentifier;
+    ExtensionControl extControl = controls.get(extType);
+    if (extControl != null) {
+      AuthorityKeyIdentifier value = null;
+      if (certprofile.useIssuerAndSerialInAki()) {
+        GeneralNames x509CaIssuer = new GeneralNames(
+            new GeneralName(publicCaInfo.getIssuer()));
+        value = new AuthorityKeyIdentifier(x509CaIssuer, publicCaInfo.getSerialNumber());
+      } else {
+        byte[] ikiValue = publicCaInfo.getSubjectKeyIdentifer();
+        if (ikiValue != null) {
+          value = new AuthorityKeyIdentifier(ikiValue);
+        }
+      }
+
+      values.put(extType, precompile(extControl, value));
+    }
+
+    // IssuerAltName
+    extType = Extension.issuerAlternativeName;
+    extControl = controls.get(extType);
+    if (extControl != null) {
+      values.put(extType, precompile(extControl, publicCaInfo.getSubjectAltName()));
+    }
+
+    // AuthorityInfoAccess
+    extType = Extension.authorityInfoAccess;
+    extControl = controls.get(extType);
+    CaUris caUris = publicCaInfo.getCaUris();
+
+    if (extControl != null) {
+      AuthorityInfoAccessControl aiaControl = certprofile.getAiaControl();
+
+      List<String> caIssuers = null;
+      if (aiaControl == null || aiaControl.isIncludesCaIssuers()) {
+        caIssuers = caUris.getCacertUris();
+      }
+
+      List<String> ocspUris = null;
+      if (aiaControl == null || aiaControl.isIncludesOcsp()) {
+        ocspUris = caUris.getOcspUris();
+      }
+
+      AuthorityInformationAccess value = null;
+      if (CollectionUtil.isNotEmpty(caIssuers) || CollectionUtil.isNotEmpty(ocspUris)) {
+        value = CaUtil.createAuthorityInformationAccess(
+            caIssuers, ocspUris);
+      }
+      values.put(extType, precompile(extControl, value));
+    }
+
+    if (controls.containsKey(Extension.cRLDistributionPoints)
+        || controls.containsKey(Extension.freshestCRL)) {
+      X500Name crlSignerSubject = (crlSignerCert == null) ? null : crlSignerCert.getSubject();
+      X500Name x500CaPrincipal = publicCaInfo.getSubject();
+
+      // CRLDistributionPoints
+      extType = Extension.cRLDistributionPoints;
+      extControl = controls.get(extType);
+      if (extControl != null) {
+        CRLDistPoint value = null;
+        if (CollectionUtil.isNotEmpty(caUris.getCrlUris())) {
+          value = CaUtil.createCrlDistributionPoints(caUris.getCrlUris(),
+              x500CaPrincipal, crlSignerSubject);
+        }
+        values.put(extType, precompile(extControl, value));
+      }
+
+      // FreshestCRL
+      extType = Extension.freshestCRL;
+      extControl = controls.get(extType);
+      if (extControl != null) {
+        CRLDistPoint value = null;
+        if (CollectionUtil.isNotEmpty(caUris.getDeltaCrlUris())) {
+          value = CaUtil.createCrlDistributionPoints(caUris.getDeltaCrlUris(),
+              x500CaPrincipal, crlSignerSubject);
+        }
+        values.put(extType, precompile(extControl, value));
+      }
+    }
+
+    values = Collections.unmodifiableMap(values);
+    caExtensionsMap.put(caKey, new CaExtensions(publicCaInfo, crlSignerCert, values));
+    return values;
+  } // method getCaExtensions
+
+  private ExtensionValue createKeyUsage(ExtensionControl extControl,
+      Map<ASN1ObjectIdentifier, Extension> requestedExtns) {
+    Set<KeyUsage> usages = new HashSet<>();
+    Set<KeyUsageControl> usageOccs = certprofile.getKeyUsage();
+    for (KeyUsageControl k : usageOccs) {
+      if (k.isRequired()) {
+        usages.add(k.getKeyUsage());
+      }
+    }
+
+    // the optional KeyUsage will only be set if requested explicitly
+    addRequestedKeyusage(usages, requestedExtns, usageOccs);
+
+    org.bouncycastle.asn1.x509.KeyUsage value = X509Util.createKeyUsage(usages);
+    return (value == null) ? null : new ExtensionValue(extControl.isCritical(), value);
+  } // method createKeyUsage
+
+  private ExtensionValue createExtendedKeyUsage(ExtensionControl extControl,
+      Map<ASN1ObjectIdentifier, Extension> requestedExtns) {
+    List<ASN1ObjectIdentifier> usages = new LinkedList<>();
+    Set<ExtKeyUsageControl> usageOccs = certprofile.getExtendedKeyUsages();
+    for (ExtKeyUsageControl k : usageOccs) {
+      if (k.isRequired()) {
+        usages.add(k.getExtKeyUsage());
+      }
+    }
+
+    // the optional ExtKeyUsage will only be set if requested explicitly
+    addRequestedExtKeyusage(usages, requestedExtns, usageOccs);
+
+    boolean critical = extControl.isCritical();
+    if (critical && usages.contains(ObjectIdentifiers.XKU.id_kp_anyExtendedKeyUsage)) {
+      critical = false;
+    }
+
+    if (!critical && usages.contains(ObjectIdentifiers.XKU.id_kp_timeStamping)) {
+      critical = true;
+    }
+
+    ExtendedKeyUsage value = X509Util.createExtendedUsage(usages);
+    return (value == null) ? null : new ExtensionValue(critical, value);
+  } // method createExtendedKeyUsage
+
+  private static ExtensionValue precompile(ExtensionControl extControl, ASN1Encodable value)
+      throws CertprofileException {
+    return (value == null) ? null
+        : precompile(new ExtensionValue(extControl.isCritical(), value));
+  } // method precompile
+
+  private static ExtensionValue precompile(ExtensionValue value)
+      throws CertprofileException {
+    if (value != null) {
+      try {
+        value.getEncodedValue();
+      } catch (IOException ex) {
+        throw new CertprofileException("could not encode extension value", ex);
+      }
+    }
+    return value;
+  } // method precompile
+
   public CertLevel getCertLevel() {
     return certprofile.getCertLevel();
   }
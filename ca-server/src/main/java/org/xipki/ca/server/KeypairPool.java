@@ -0,0 +1,361 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import static org.xipki.util.Args.notNull;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SecureRandom;
+import java.security.spec.DSAParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.profile.KeypairGenControl;
+import org.xipki.ca.server.CaServerConf.KeypairPoolConf;
+import org.xipki.security.EdECConstants;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.HealthCheckResult;
+import org.xipki.util.LogUtil;
+
+/**
+ * Pool of keypairs pre-generated in background for the CA-generated keys.
+ *
+ * <p>For each {@link KeypairGenControl} requested at least once, a pool is created and filled
+ * up to the configured size by the background threads. Keypairs pooled longer than the
+ * configured max. age are discarded.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class KeypairPool implements Closeable {
+
+  private static class PooledKeypair {
+
+    private final KeyPair keypair;
+
+    private final long createdAt;
+
+    PooledKeypair(KeyPair keypair) {
+      this.keypair = keypair;
+      this.createdAt = System.currentTimeMillis();
+    }
+
+  } // class PooledKeypair
+
+  private class Pool implements Runnable {
+
+    private final String name;
+
+    private final BlockingQueue<PooledKeypair> queue;
+
+    private final KeyPairGenerator generator;
+
+    private final AtomicBoolean filling = new AtomicBoolean(false);
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private final AtomicLong generated = new AtomicLong();
+
+    Pool(String name, KeypairGenControl control)
+        throws NoSuchAlgorithmException, NoSuchProviderException,
+          InvalidAlgorithmParameterException {
+      this.name = name;
+      this.queue = new ArrayBlockingQueue<>(size);
+
+      // this generator is used only by the thread which fills this pool.
+      SecureRandom random = new SecureRandom();
+      if (control instanceof KeypairGenControl.RSAKeypairGenControl) {
+        KeypairGenControl.RSAKeypairGenControl tkg =
+            (KeypairGenControl.RSAKeypairGenControl) control;
+        generator = KeyPairGenerator.getInstance("RSA", "BC");
+        generator.initialize(
+            new RSAKeyGenParameterSpec(tkg.getKeysize(), tkg.getPublicExponent()), random);
+      } else if (control instanceof KeypairGenControl.ECKeypairGenControl) {
+        KeypairGenControl.ECKeypairGenControl tkg =
+            (KeypairGenControl.ECKeypairGenControl) control;
+        generator = KeyPairGenerator.getInstance("EC", "BC");
+        generator.initialize(new ECGenParameterSpec(tkg.getCurveOid().getId()), random);
+      } else if (control instanceof KeypairGenControl.DSAKeypairGenControl) {
+        KeypairGenControl.DSAKeypairGenControl tkg =
+            (KeypairGenControl.DSAKeypairGenControl) control;
+        generator = KeyPairGenerator.getInstance("DSA", "BC");
+        generator.initialize(tkg.getParameterSpec(), random);
+      } else if (control instanceof KeypairGenControl.EDDSAKeypairGenControl) {
+        KeypairGenControl.EDDSAKeypairGenControl tkg =
+            (KeypairGenControl.EDDSAKeypairGenControl) control;
+        generator = KeyPairGenerator.getInstance(
+            EdECConstants.getName(tkg.getKeyAlgorithm().getAlgorithm()), "BC");
+        generator.initialize(
+            EdECConstants.getKeyBitSize(tkg.getKeyAlgorithm().getAlgorithm()), random);
+      } else {
+        throw new IllegalArgumentException("unknown KeypairGenControl " + control);
+      }
+    } // constructor
+
+    KeyPair take() {
+      while (true) {
+        PooledKeypair kp = queue.poll();
+        if (kp == null) {
+          misses.incrementAndGet();
+          fill();
+          return null;
+        }
+
+        if (isExpired(kp)) {
+          expired.incrementAndGet();
+          destroy(kp);
+          continue;
+        }
+
+        hits.incrementAndGet();
+        fill();
+        return kp.keypair;
+      }
+    } // method take
+
+    void fill() {
+      if (!closed && filling.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RuntimeException ex) {
+          // executor has been shutdown
+          filling.set(false);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed && queue.remainingCapacity() > 0) {
+          if (!queue.offer(new PooledKeypair(generator.generateKeyPair()))) {
+            break;
+          }
+          generated.incrementAndGet();
+        }
+      } catch (RuntimeException ex) {
+        LogUtil.error(LOG, ex, "could not generate keypair for pool " + name);
+      } finally {
+        filling.set(false);
+      }
+    } // method run
+
+    void removeExpired() {
+      // the keypairs are ordered by the creation time, the oldest is at the head.
+      Iterator<PooledKeypair> it = queue.iterator();
+      while (it.hasNext()) {
+        PooledKeypair kp = it.next();
+        if (!isExpired(kp)) {
+          break;
+        }
+
+        if (queue.remove(kp)) {
+          expired.incrementAndGet();
+          destroy(kp);
+        }
+      }
+    } // method removeExpired
+
+    void clear() {
+      PooledKeypair kp;
+      while ((kp = queue.poll()) != null) {
+        destroy(kp);
+      }
+    }
+
+    HealthCheckResult healthCheck() {
+      HealthCheckResult result = new HealthCheckResult();
+      result.setName(name);
+      result.setHealthy(true);
+      Map<String, Object> statuses = result.getStatuses();
+      statuses.put("size", queue.size());
+      statuses.put("hits", hits.get());
+      statuses.put("misses", misses.get());
+      statuses.put("expired", expired.get());
+      statuses.put("generated", generated.get());
+      return result;
+    }
+
+  } // class Pool
+
+  private static final Logger LOG = LoggerFactory.getLogger(KeypairPool.class);
+
+  private final int size;
+
+  private final long maxAgeMs;
+
+  private final ScheduledThreadPoolExecutor executor;
+
+  private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+  private volatile boolean closed;
+
+  public KeypairPool(KeypairPoolConf conf) {
+    notNull(conf, "conf");
+    this.size = conf.getSize();
+    this.maxAgeMs = conf.getMaxAge() * 1000L;
+
+    final AtomicInteger threadNumber = new AtomicInteger(1);
+    ThreadFactory threadFactory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "keypair-pool-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    };
+
+    this.executor = new ScheduledThreadPoolExecutor(conf.getThreads(), threadFactory);
+    long period = Math.max(1, conf.getMaxAge() / 4);
+    this.executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        for (Pool pool : pools.values()) {
+          pool.removeExpired();
+        }
+      }
+    }, period, period, TimeUnit.SECONDS);
+
+    LOG.info("started keypair pool: size={}, threads={}, maxAge={}s", size, conf.getThreads(),
+        conf.getMaxAge());
+  } // constructor
+
+  /**
+   * Takes a pre-generated keypair for the given control.
+   *
+   * @param control the control how to generate the keypair. Must not be {@code null}.
+   * @return the pre-generated keypair, or {@code null} if no keypair is available, in this case
+   *         the caller has to generate the keypair itself.
+   */
+  public KeyPair take(KeypairGenControl control) {
+    if (closed) {
+      return null;
+    }
+
+    String name = getPoolName(notNull(control, "control"));
+    if (name == null) {
+      return null;
+    }
+
+    Pool pool = pools.get(name);
+    if (pool == null) {
+      synchronized (pools) {
+        pool = pools.get(name);
+        if (pool == null) {
+          try {
+            pool = new Pool(name, control);
+          } catch (NoSuchAlgorithmException | NoSuchProviderException
+              | InvalidAlgorithmParameterException | RuntimeException ex) {
+            LogUtil.error(LOG, ex, "could not create keypair pool " + name);
+            return null;
+          }
+          pools.put(name, pool);
+        }
+      }
+    }
+
+    return pool.take();
+  } // method take
+
+  public void healthCheck(HealthCheckResult parentResult) {
+    HealthCheckResult result = new HealthCheckResult();
+    result.setName("KeypairPool");
+    result.setHealthy(true);
+    for (Pool pool : pools.values()) {
+      result.addChildCheck(pool.healthCheck());
+    }
+    parentResult.addChildCheck(result);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    for (Pool pool : pools.values()) {
+      pool.clear();
+    }
+    pools.clear();
+  }
+
+  private boolean isExpired(PooledKeypair kp) {
+    return System.currentTimeMillis() - kp.createdAt > maxAgeMs;
+  }
+
+  private static String getPoolName(KeypairGenControl control) {
+    if (control instanceof KeypairGenControl.RSAKeypairGenControl) {
+      KeypairGenControl.RSAKeypairGenControl tkg =
+          (KeypairGenControl.RSAKeypairGenControl) control;
+      return "RSA/" + tkg.getKeysize() + "/" + tkg.getPublicExponent().toString(16);
+    } else if (control instanceof KeypairGenControl.ECKeypairGenControl) {
+      return "EC/" + ((KeypairGenControl.ECKeypairGenControl) control).getCurveOid().getId();
+    } else if (control instanceof KeypairGenControl.DSAKeypairGenControl) {
+      DSAParameterSpec spec = ((KeypairGenControl.DSAKeypairGenControl) control)
+          .getParameterSpec();
+      BigInteger p = spec.getP();
+      return "DSA/" + p.bitLength() + "/" + HashAlgo.SHA1.hexHash(
+          p.toByteArray(), spec.getQ().toByteArray(), spec.getG().toByteArray());
+    } else if (control instanceof KeypairGenControl.EDDSAKeypairGenControl) {
+      return EdECConstants.getName(
+          ((KeypairGenControl.EDDSAKeypairGenControl) control).getKeyAlgorithm().getAlgorithm());
+    } else {
+      return null;
+    }
+  } // method getPoolName
+
+  private static void destroy(PooledKeypair kp) {
+    if (kp.keypair.getPrivate() instanceof Destroyable) {
+      Destroyable key = (Destroyable) kp.keypair.getPrivate();
+      if (!key.isDestroyed()) {
+        try {
+          key.destroy();
+        } catch (DestroyFailedException ex) {
+          // most key implementations do not support destroy(), ignore it.
+        }
+      }
+    }
+  }
+
+}
@@ -19,22 +19,73 @@ package org.xipki.ca.server;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Random serial number generator.
  *
+ * <p>To avoid a global contention point, the generator consists of several stripes, each
+ * with its own {@link SecureRandom} and a buffer of pre-fetched random bytes. A thread
+ * always uses the same stripe. The NAF weight is computed on the raw bytes, so that only
+ * accepted candidates are converted to {@link BigInteger}.
+ *
+ * <p>The fingerprints of recently generated serial numbers are kept in a lock-free table,
+ * a candidate which matches one of them is discarded.
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
 
 class RandomSerialNumberGenerator {
 
+  private static class Stripe {
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final byte[] buffer = new byte[ENTROPY_BUFFER_SIZE];
+
+    private int offset = ENTROPY_BUFFER_SIZE;
+
+    /**
+     * Fills {@code bytes} with random bytes from the pre-fetched buffer.
+     */
+    private synchronized void nextBytes(byte[] bytes) {
+      int len = bytes.length;
+      if (len > ENTROPY_BUFFER_SIZE - offset) {
+        random.nextBytes(buffer);
+        offset = 0;
+      }
+
+      System.arraycopy(buffer, offset, bytes, 0, len);
+      // do not reuse the random bytes
+      for (int i = offset; i < offset + len; i++) {
+        buffer[i] = 0;
+      }
+      offset += len;
+    }
+
+  } // class Stripe
+
+  private static final int ENTROPY_BUFFER_SIZE = 1024;
+
+  private static final int RECENT_SERIALS_SIZE = 1 << 16;
+
   private static RandomSerialNumberGenerator instance;
 
-  private final SecureRandom random;
+  private final Stripe[] stripes;
+
+  private final int stripeMask;
+
+  private final AtomicLongArray recentSerials = new AtomicLongArray(RECENT_SERIALS_SIZE);
 
   private RandomSerialNumberGenerator() {
-    this.random = new SecureRandom();
+    // number of stripes: power of 2, not less than 2 * number of processors
+    int num = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    this.stripes = new Stripe[num];
+    for (int i = 0; i < num; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.stripeMask = num - 1;
   }
 
   /**
@@ -46,24 +97,74 @@ class RandomSerialNumberGenerator {
     final byte[] rndBytes = new byte[byteLen];
     final int minWeight = byteLen * 2;
 
+    Stripe stripe = stripes[stripeIndex(Thread.currentThread().getId())];
+
     while (true) {
-      random.nextBytes(rndBytes);
+      stripe.nextBytes(rndBytes);
       // set the first bit to 0.
       rndBytes[0] &= 0x7F;
 
       // check NAF weight
-      BigInteger bi = new BigInteger(rndBytes);
+      if (nafWeight(rndBytes) < minWeight) {
+        continue;
+      }
 
-      BigInteger threeBi = bi.shiftLeft(1).add(bi);
-      BigInteger diff = threeBi.xor(bi);
-      int nafWeight = diff.bitCount();
-      if (nafWeight >= minWeight) {
-        return bi;
+      if (!markAsIssued(rndBytes)) {
+        // collision with a recently generated serial number
+        continue;
       }
-    }
 
+      return new BigInteger(rndBytes);
+    }
   } // method nextSerialNumber
 
+  private int stripeIndex(long threadId) {
+    long hash = threadId * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & stripeMask;
+  }
+
+  /**
+   * Records the fingerprint (the last 8 bytes) of the serial number in the table of
+   * recently generated serial numbers.
+   * @return {@code false} if the fingerprint is already contained in the table,
+   *         {@code true} otherwise.
+   */
+  private boolean markAsIssued(byte[] serial) {
+    long fp = 0;
+    int len = serial.length;
+    for (int i = Math.max(0, len - 8); i < len; i++) {
+      fp = (fp << 8) | (serial[i] & 0xFF);
+    }
+
+    int index = (int) (fp ^ (fp >>> 32)) & (RECENT_SERIALS_SIZE - 1);
+    return recentSerials.getAndSet(index, fp) != fp;
+  }
+
+  /**
+   * Computes the bit count of {@code (3 * n) XOR n}, where n is the unsigned big-endian
+   * integer {@code bytes}. This equals to {@code n.shiftLeft(1).add(n).xor(n).bitCount()}.
+   * @param bytes the integer
+   * @return the NAF weight.
+   */
+  static int nafWeight(byte[] bytes) {
+    int weight = 0;
+    // carry of the addition
+    int carry = 0;
+    // the highest bit of the less significant byte, shifted into the current byte
+    int shiftIn = 0;
+
+    for (int i = bytes.length - 1; i >= 0; i--) {
+      int b = bytes[i] & 0xFF;
+      int sum = b + (((b << 1) | shiftIn) & 0xFF) + carry;
+      carry = sum >>> 8;
+      shiftIn = b >>> 7;
+      weight += Integer.bitCount((sum & 0xFF) ^ b);
+    }
+
+    // the bytes above the most significant byte of n are 0.
+    return weight + Integer.bitCount(shiftIn + carry);
+  } // method nafWeight
+
   public static synchronized RandomSerialNumberGenerator getInstance() {
     if (instance == null) {
       instance = new RandomSerialNumberGenerator();
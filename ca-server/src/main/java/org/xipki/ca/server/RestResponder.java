@@ -86,6 +86,10 @@ public class RestResponder {
 
     private byte[] body;
 
+    private String etag;
+
+    private Long lastModified;
+
     public RestResponse(int statusCode, String contentType, Map<String, String> headers,
         byte[] body) {
       this.statusCode = statusCode;
@@ -127,6 +131,32 @@ public class RestResponder {
       this.body = body;
     }
 
+    /**
+     * Returns the entity tag of the body, used to answer the conditional request with
+     * header If-None-Match.
+     * @return the entity tag, may be {@code null}.
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    public void setEtag(String etag) {
+      this.etag = etag;
+    }
+
+    /**
+     * Returns the last modification time (milliseconds since 1970-01-01T00:00:00Z) of the
+     * body, used to answer the conditional request with header If-Modified-Since.
+     * @return the last modification time, may be {@code null}.
+     */
+    public Long getLastModified() {
+      return lastModified;
+    }
+
+    public void setLastModified(Long lastModified) {
+      this.lastModified = lastModified;
+    }
+
   } // class RestResponse
 
   private static class HttpRespAuditException extends Exception {
@@ -537,6 +567,24 @@ public class RestResponder {
           }
         }
 
+        if (crlNumber == null) {
+          // the current CRL is cached in memory
+          CachedCrl crl = ca.getCachedCurrentCrl();
+          if (crl == null) {
+            String message = "could not get CRL";
+            LOG.warn(message);
+            throw new HttpRespAuditException(INTERNAL_SERVER_ERROR, message, INFO, FAILED);
+          }
+
+          Map<String, String> headers = new HashMap<>();
+          headers.put(RestAPIConstants.HEADER_PKISTATUS, RestAPIConstants.PKISTATUS_accepted);
+          RestResponse resp = new RestResponse(OK, RestAPIConstants.CT_pkix_crl, headers,
+              crl.getEncoded());
+          resp.setEtag(crl.getEtag());
+          resp.setLastModified(crl.getThisUpdate());
+          return resp;
+        }
+
         X509CRLHolder crl = ca.getCrl(crlNumber);
         if (crl == null) {
           String message = "could not get CRL";
@@ -19,13 +19,19 @@ package org.xipki.ca.server;
 
 import static org.xipki.util.Args.notNull;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.GeneralName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xipki.ca.api.mgmt.entry.SignerEntry;
 import org.xipki.security.ConcurrentContentSigner;
 import org.xipki.security.SecurityFactory;
 import org.xipki.security.SignerConf;
 import org.xipki.security.X509Cert;
+import org.xipki.util.LogUtil;
 import org.xipki.util.ObjectCreationException;
 
 /**
@@ -35,11 +41,17 @@ import org.xipki.util.ObjectCreationException;
  * @since 2.0.0
  */
 
-public class SignerEntryWrapper {
+public class SignerEntryWrapper implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SignerEntryWrapper.class);
 
   private SignerEntry dbEntry;
 
-  private ConcurrentContentSigner signer;
+  private volatile ConcurrentContentSigner signer;
+
+  private SecurityFactory deferredSignerFactory;
+
+  private final SignerInitBackoff signerInitBackoff = new SignerInitBackoff();
 
   private X500Name subject;
 
@@ -51,6 +63,7 @@ public class SignerEntryWrapper {
   public void setDbEntry(SignerEntry dbEntry) {
     this.dbEntry = notNull(dbEntry, "dbEntry");
     signer = null;
+    deferredSignerFactory = null;
     if (dbEntry.getCertificate() != null) {
       subject = dbEntry.getCertificate().getSubject();
       subjectAsGeneralName = new GeneralName(subject);
@@ -58,10 +71,59 @@ public class SignerEntryWrapper {
   }
 
   public ConcurrentContentSigner getSigner() {
+    if (signer == null) {
+      initDeferredSigner();
+    }
     return signer;
   }
 
-  public void initSigner(SecurityFactory securityFactory)
+  /**
+   * Defers the creation of the signer until it is used for the first time. Only possible
+   * if the certificate is configured, otherwise the signer is created immediately.
+   * @param securityFactory
+   *          Security factory to create the signer.
+   * @throws ObjectCreationException
+   *           if the signer without configured certificate could not be created.
+   */
+  public void deferSigner(SecurityFactory securityFactory)
+      throws ObjectCreationException {
+    notNull(securityFactory, "securityFactory");
+    if (dbEntry != null && dbEntry.getCertificate() != null) {
+      this.deferredSignerFactory = securityFactory;
+    } else {
+      initSigner(securityFactory);
+    }
+  } // method deferSigner
+
+  /**
+   * Creates the deferred signer if not created yet. After a failure, the next attempt is
+   * delayed exponentially.
+   * @return whether the signer is available.
+   */
+  public synchronized boolean initDeferredSigner() {
+    if (signer != null) {
+      return true;
+    }
+
+    SecurityFactory securityFactory = deferredSignerFactory;
+    if (securityFactory == null || !signerInitBackoff.isAttemptAllowed()) {
+      return false;
+    }
+
+    try {
+      initSigner(securityFactory);
+      signerInitBackoff.succeeded();
+      return true;
+    } catch (ObjectCreationException ex) {
+      long delayMs = signerInitBackoff.failed();
+      LOG.error("could not initialize the deferred signer {}, next attempt in {} ms: {}",
+          dbEntry.getName(), delayMs, ex.getMessage());
+      LOG.debug("could not initialize the deferred signer " + dbEntry.getName(), ex);
+      return false;
+    }
+  } // method initDeferredSigner
+
+  public synchronized void initSigner(SecurityFactory securityFactory)
       throws ObjectCreationException {
     notNull(securityFactory, "securityFactory");
     if (signer != null) {
@@ -74,18 +136,19 @@ public class SignerEntryWrapper {
 
     X509Cert responderCert = dbEntry.getCertificate();
     dbEntry.setConfFaulty(true);
-    signer = securityFactory.createSigner(dbEntry.getType(), new SignerConf(dbEntry.getConf()),
-        responderCert);
-    if (signer.getCertificate() == null) {
+    ConcurrentContentSigner newSigner = securityFactory.createSigner(dbEntry.getType(),
+        new SignerConf(dbEntry.getConf()), responderCert);
+    if (newSigner.getCertificate() == null) {
       throw new ObjectCreationException("signer without certificate is not allowed");
     }
     dbEntry.setConfFaulty(false);
 
     if (dbEntry.getBase64Cert() == null) {
-      dbEntry.setCertificate(signer.getCertificate());
-      subject = signer.getCertificate().getSubject();
+      dbEntry.setCertificate(newSigner.getCertificate());
+      subject = newSigner.getCertificate().getSubject();
       subjectAsGeneralName = new GeneralName(subject);
     }
+    signer = newSigner;
   } // method initSigner
 
   public SignerEntry getDbEntry() {
@@ -93,7 +156,8 @@ public class SignerEntryWrapper {
   }
 
   public boolean isHealthy() {
-    return (signer == null) ? false : signer.isHealthy();
+    ConcurrentContentSigner signer0 = getSigner();
+    return (signer0 == null) ? false : signer0.isHealthy();
   }
 
   public GeneralName getSubjectAsGeneralName() {
@@ -104,4 +168,22 @@ public class SignerEntryWrapper {
     return subject;
   }
 
+  /**
+   * Closes the signer if it has been created. A deferred signer will not be created
+   * afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    deferredSignerFactory = null;
+    ConcurrentContentSigner signer0 = signer;
+    signer = null;
+    if (signer0 != null) {
+      try {
+        signer0.close();
+      } catch (IOException ex) {
+        LogUtil.warn(LOG, ex, "could not close signer " + dbEntry.getName());
+      }
+    }
+  } // method close
+
 }
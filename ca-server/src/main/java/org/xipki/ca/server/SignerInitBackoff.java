@@ -0,0 +1,70 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+/**
+ * Exponential backoff of the attempts to create a deferred signer, so that a failing
+ * creation, e.g. the login to an unavailable HSM, is not repeated for every request.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+class SignerInitBackoff {
+
+  static final long DFLT_MIN_DELAY_MS = 1000;
+
+  static final long DFLT_MAX_DELAY_MS = 60 * 1000;
+
+  private final long minDelayMs;
+
+  private final long maxDelayMs;
+
+  private long delayMs;
+
+  private long nextAttemptMs;
+
+  SignerInitBackoff() {
+    this(DFLT_MIN_DELAY_MS, DFLT_MAX_DELAY_MS);
+  }
+
+  SignerInitBackoff(long minDelayMs, long maxDelayMs) {
+    this.minDelayMs = minDelayMs;
+    this.maxDelayMs = maxDelayMs;
+  }
+
+  synchronized boolean isAttemptAllowed() {
+    return System.currentTimeMillis() >= nextAttemptMs;
+  }
+
+  /**
+   * Records a failed attempt.
+   * @return the delay in milliseconds before the next attempt.
+   */
+  synchronized long failed() {
+    delayMs = (delayMs == 0) ? minDelayMs : Math.min(maxDelayMs, 2 * delayMs);
+    nextAttemptMs = System.currentTimeMillis() + delayMs;
+    return delayMs;
+  }
+
+  synchronized void succeeded() {
+    delayMs = 0;
+    nextAttemptMs = 0;
+  }
+
+}
@@ -185,11 +185,15 @@ public class X509Ca extends X509CaModule implements Closeable {
     }
 
     if (caInfo.isSignerRequired()) {
-      try {
-        caInfo.initSigner(caManager.getSecurityFactory());
-      } catch (XiSecurityException ex) {
-        LogUtil.error(LOG, ex, "security.createSigner caSigner for CA " + caIdent);
-        throw new OperationException(SYSTEM_FAILURE, ex);
+      if (caManager.isLazySigners()) {
+        caInfo.deferSigner(caManager.getSecurityFactory());
+      } else {
+        try {
+          caInfo.initSigner(caManager.getSecurityFactory());
+        } catch (XiSecurityException ex) {
+          LogUtil.error(LOG, ex, "security.createSigner caSigner for CA " + caIdent);
+          throw new OperationException(SYSTEM_FAILURE, ex);
+        }
       }
     }
 
@@ -201,7 +205,8 @@ public class X509Ca extends X509CaModule implements Closeable {
 
     this.publisherModule = new X509PublisherModule(caManager, caInfo, certstore);
     this.crlModule = new X509CrlModule(caManager, caInfo, certstore, publisherModule);
-    this.grandCertTemplateBuilder = new GrandCertTemplateBuilder(caInfo, certstore);
+    this.grandCertTemplateBuilder = new GrandCertTemplateBuilder(caInfo, certstore,
+        caManager.getKeypairPool());
     this.revokerModule = new X509RevokerModule(caManager, caInfo, certstore, publisherModule);
     this.removerModule = new X509RemoverModule(caManager, caInfo, certstore, publisherModule);
 
@@ -298,6 +303,10 @@ public class X509Ca extends X509CaModule implements Closeable {
     return crlModule.getCurrentCrl();
   }
 
+  public CachedCrl getCachedCurrentCrl() throws OperationException {
+    return crlModule.getCachedCurrentCrl();
+  }
+
   public X509CRLHolder getCrl(BigInteger crlNumber) throws OperationException {
     return crlModule.getCrl(crlNumber);
   } // method getCrl
@@ -347,6 +356,18 @@ public class X509Ca extends X509CaModule implements Closeable {
     return revokerModule.revokeCert(serialNumber, reason, invalidityTime, msgId);
   }
 
+  public int revokeCerts(NameId certprofile, X500Name subjectPattern, Date notBeforeFrom,
+      Date notBeforeTo, CrlReason reason, Date invalidityTime, String msgId)
+          throws OperationException {
+    return revokerModule.revokeCerts(certprofile, subjectPattern, notBeforeFrom, notBeforeTo,
+        reason, invalidityTime, msgId);
+  }
+
+  public int revokeCerts(List<BigInteger> serialNumbers, CrlReason reason, Date invalidityTime,
+      String msgId) throws OperationException {
+    return revokerModule.revokeCerts(serialNumbers, reason, invalidityTime, msgId);
+  }
+
   public CertWithDbId unrevokeCert(BigInteger serialNumber, String msgId)
       throws OperationException {
     return revokerModule.unrevokeCert(serialNumber, msgId);
@@ -524,7 +545,9 @@ public class X509Ca extends X509CaModule implements Closeable {
       if (extensionTuples != null) {
         for (ASN1ObjectIdentifier extensionType : extensionTuples.getExtensionTypes()) {
           ExtensionValue extValue = extensionTuples.getExtensionValue(extensionType);
-          certBuilder.addExtension(extensionType, extValue.isCritical(), extValue.getValue());
+          // use the cached DER encoding, request-independent values are encoded only once
+          certBuilder.addExtension(extensionType, extValue.isCritical(),
+              extValue.getEncodedValue());
         }
       }
 
@@ -725,13 +748,18 @@ public class X509Ca extends X509CaModule implements Closeable {
     boolean healthy = true;
 
     ConcurrentContentSigner signer = caInfo.getSigner(null);
-    if (signer != null) {
-      boolean caSignerHealthy = signer.isHealthy();
+    if (signer != null || caInfo.isSignerRequired()) {
+      // the signer may be created lazily, a required signer which could not be created
+      // is unhealthy
+      boolean caSignerHealthy = signer != null && signer.isHealthy();
       healthy &= caSignerHealthy;
 
       HealthCheckResult signerHealth = new HealthCheckResult();
       signerHealth.setName("Signer");
       signerHealth.setHealthy(caSignerHealthy);
+      if (signer != null) {
+        signerHealth.getStatuses().putAll(signer.getStatistics());
+      }
       result.addChildCheck(signerHealth);
     }
 
@@ -741,11 +769,17 @@ public class X509Ca extends X509CaModule implements Closeable {
     HealthCheckResult databaseHealth = new HealthCheckResult();
     databaseHealth.setName("Database");
     databaseHealth.setHealthy(databaseHealthy);
+    databaseHealth.getStatuses().putAll(certstore.getDatasourceStatistics());
     result.addChildCheck(databaseHealth);
 
     healthy &= crlModule.healthCheck(result);
     healthy &= publisherModule.healthCheck(result);
 
+    KeypairPool keypairPool = caManager.getKeypairPool();
+    if (keypairPool != null) {
+      keypairPool.healthCheck(result);
+    }
+
     result.setHealthy(healthy);
 
     return result;
@@ -759,6 +793,9 @@ public class X509Ca extends X509CaModule implements Closeable {
   public void close() {
     crlModule.close();
     revokerModule.close();
+    if (ctlogClient != null) {
+      ctlogClient.close();
+    }
 
     ScheduledThreadPoolExecutor executor = caManager.getScheduledThreadPoolExecutor();
     if (executor != null) {
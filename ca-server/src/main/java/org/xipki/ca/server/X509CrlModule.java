@@ -85,6 +85,8 @@ import org.xipki.util.LogUtil;
 
 public class X509CrlModule extends X509CaModule implements Closeable {
 
+  private static final long CRL_CACHE_CHECK_INTERVAL_MS = 60L * MS_PER_SECOND;
+
   private class CrlGenerationService implements Runnable {
 
     @Override
@@ -189,6 +191,12 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
   private X509PublisherModule publisher;
 
+  private final Object crlCacheLock = new Object();
+
+  private volatile CachedCrl currentCrl;
+
+  private volatile long lastCrlCacheCheck;
+
   public X509CrlModule(CaManagerImpl caManager, CaInfo caInfo, CertStore certstore,
       X509PublisherModule publisher) throws OperationException {
     super(caInfo);
@@ -234,14 +242,99 @@ public class X509CrlModule extends X509CaModule implements Closeable {
   }
 
   public X509CRLHolder getCurrentCrl() throws OperationException {
-    return getCrl(null);
+    CachedCrl crl = getCachedCurrentCrl();
+    return (crl == null) ? null : crl.getCrl();
   }
 
+  /**
+   * Gets the current CRL (the latest generated full or delta CRL). The CRL is kept in memory
+   * and will be read from the database only if it has not been loaded yet or a new CRL has
+   * been generated by another CA instance.
+   *
+   * @return the current CRL, may be {@code null}.
+   * @throws OperationException
+   *         if error occurs.
+   */
+  public CachedCrl getCachedCurrentCrl() throws OperationException {
+    CachedCrl crl = currentCrl;
+    if (crl != null && !isCurrentCrlOutdated(crl)) {
+      return crl;
+    }
+
+    synchronized (crlCacheLock) {
+      CachedCrl crl0 = currentCrl;
+      if (crl0 != null && crl0 != crl) {
+        // loaded by another thread or replaced by a newly generated CRL
+        return crl0;
+      }
+
+      LOG.info("     START loadCurrentCrl: ca={}", caIdent.getName());
+      boolean successful = false;
+      try {
+        byte[] encodedCrl = certstore.getEncodedCrl(caIdent, null);
+        if (encodedCrl == null) {
+          successful = true;
+          return null;
+        }
+
+        try {
+          crl = new CachedCrl(X509Util.parseCrl(encodedCrl), encodedCrl);
+        } catch (CRLException ex) {
+          throw new OperationException(SYSTEM_FAILURE, ex);
+        } catch (RuntimeException ex) {
+          throw new OperationException(SYSTEM_FAILURE, ex);
+        }
+
+        currentCrl = crl;
+        successful = true;
+        LOG.info("SUCCESSFUL loadCurrentCrl: ca={}, crlNumber={}, thisUpdate={}",
+            caIdent.getName(), crl.getCrlNumber(), crl.getCrl().getThisUpdate());
+        return crl;
+      } finally {
+        if (!successful) {
+          LOG.info("    FAILED loadCurrentCrl: ca={}", caIdent.getName());
+        }
+      }
+    }
+  } // method getCachedCurrentCrl
+
+  /**
+   * In master mode the cached CRL is replaced by {@link #generateCrl0} and is never outdated.
+   * Otherwise the thisUpdate of the CRLs in the database is checked at most once every
+   * {@link #CRL_CACHE_CHECK_INTERVAL_MS} milliseconds.
+   */
+  private boolean isCurrentCrlOutdated(CachedCrl crl) throws OperationException {
+    if (caManager.isMasterMode()) {
+      return false;
+    }
+
+    long now = System.currentTimeMillis();
+    if (now - lastCrlCacheCheck < CRL_CACHE_CHECK_INTERVAL_MS) {
+      return false;
+    }
+
+    lastCrlCacheCheck = now;
+    // In seconds
+    long thisUpdate = Math.max(certstore.getThisUpdateOfCurrentCrl(caIdent, false),
+        certstore.getThisUpdateOfCurrentCrl(caIdent, true));
+    return thisUpdate > crl.getThisUpdate() / 1000;
+  } // method isCurrentCrlOutdated
+
   public X509CRLHolder getCrl(BigInteger crlNumber) throws OperationException {
+    if (crlNumber == null) {
+      return getCurrentCrl();
+    }
+
     LOG.info("     START getCrl: ca={}, crlNumber={}", caIdent.getName(), crlNumber);
     boolean successful = false;
 
     try {
+      CachedCrl cachedCrl = currentCrl;
+      if (cachedCrl != null && crlNumber.equals(cachedCrl.getCrlNumber())) {
+        successful = true;
+        return cachedCrl.getCrl();
+      }
+
       byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber);
       if (encodedCrl == null) {
         return null;
@@ -268,14 +361,25 @@ public class X509CrlModule extends X509CaModule implements Closeable {
   } // method getCrl
 
   public CertificateList getBcCurrentCrl() throws OperationException {
-    return getBcCrl(null);
+    X509CRLHolder crl = getCurrentCrl();
+    return (crl == null) ? null : crl.toASN1Structure();
   }
 
   public CertificateList getBcCrl(BigInteger crlNumber) throws OperationException {
+    if (crlNumber == null) {
+      return getBcCurrentCrl();
+    }
+
     LOG.info("     START getCrl: ca={}, crlNumber={}", caIdent.getName(), crlNumber);
     boolean successful = false;
 
     try {
+      CachedCrl cachedCrl = currentCrl;
+      if (cachedCrl != null && crlNumber.equals(cachedCrl.getCrlNumber())) {
+        successful = true;
+        return cachedCrl.getCrl().toASN1Structure();
+      }
+
       byte[] encodedCrl = certstore.getEncodedCrl(caIdent, crlNumber);
       if (encodedCrl == null) {
         return null;
@@ -521,6 +625,14 @@ public class X509CrlModule extends X509CaModule implements Closeable {
         allRevInfos.clear(); // free the memory
       }
 
+      // the signer may be created lazily, check it before a CRL number is consumed
+      @SuppressWarnings("resource")
+      ConcurrentContentSigner concurrentSigner = (crlSigner == null)
+          ? caInfo.getSigner(null) : crlSigner.getSigner();
+      if (concurrentSigner == null) {
+        throw new OperationException(SYSTEM_FAILURE, "CRL signer is not available");
+      }
+
       BigInteger crlNumber = caInfo.nextCrlNumber();
       event.addEventData(CaAuditConstants.NAME_crl_number, crlNumber);
       if (baseCrlNumber != null) {
@@ -530,7 +642,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       try {
         // AuthorityKeyIdentifier
         byte[] akiValues = indirectCrl
-            ? crlSigner.getSigner().getCertificate().getSubjectKeyId()
+            ? concurrentSigner.getCertificate().getSubjectKeyId()
             : pci.getSubjectKeyIdentifer();
         AuthorityKeyIdentifier aki = new AuthorityKeyIdentifier(akiValues);
         crlBuilder.addExtension(Extension.authorityKeyIdentifier, false, aki);
@@ -574,10 +686,6 @@ public class X509CrlModule extends X509CaModule implements Closeable {
         throw new OperationException(INVALID_EXTENSION, ex);
       }
 
-      @SuppressWarnings("resource")
-      ConcurrentContentSigner concurrentSigner = (crlSigner == null)
-          ? caInfo.getSigner(null) : crlSigner.getSigner();
-
       ConcurrentBagEntrySigner signer0;
       try {
         signer0 = concurrentSigner.borrowSigner();
@@ -594,7 +702,18 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
       caInfo.getCaEntry().setNextCrlNumber(crlNumber.longValue() + 1);
       caManager.commitNextCrlNo(caIdent, caInfo.getCaEntry().getNextCrlNumber());
-      publisher.publishCrl(crl);
+      if (publisher.publishCrl(crl)) {
+        try {
+          currentCrl = new CachedCrl(crl);
+        } catch (IOException ex) {
+          // should not happen, the CRL has been encoded successfully while publishing
+          LogUtil.warn(LOG, ex, "could not cache the CRL");
+          currentCrl = null;
+        }
+      } else {
+        // the CRL may or may not be saved in the database
+        currentCrl = null;
+      }
 
       successful = true;
       LOG.info("SUCCESSFUL generateCrl: ca={}, crlNumber={}, thisUpdate={}", caIdent.getName(),
@@ -647,13 +766,18 @@ public class X509CrlModule extends X509CaModule implements Closeable {
   boolean healthCheck(HealthCheckResult parentResult) {
     boolean healthy = true;
     SignerEntryWrapper signer = getCrlSigner();
-    if (signer != null && signer.getSigner() != null) {
-      boolean crlSignerHealthy = signer.isHealthy();
+    if (signer != null) {
+      // the signer may be created lazily, a signer which could not be created is unhealthy
+      ConcurrentContentSigner signer0 = signer.getSigner();
+      boolean crlSignerHealthy = signer0 != null && signer0.isHealthy();
       healthy &= crlSignerHealthy;
 
       HealthCheckResult crlSignerHealth = new HealthCheckResult();
       crlSignerHealth.setName("CRLSigner");
       crlSignerHealth.setHealthy(crlSignerHealthy);
+      if (signer0 != null) {
+        crlSignerHealth.getStatuses().putAll(signer0.getStatistics());
+      }
       parentResult.addChildCheck(crlSignerHealth);
     }
     return healthy;
@@ -349,6 +349,33 @@ class X509PublisherModule extends X509CaModule {
     } // end for
   }
 
+  void publishCertsRevoked(List<CertWithRevocationInfo> revokedCerts) {
+    if (CollectionUtil.isEmpty(revokedCerts)) {
+      return;
+    }
+
+    for (IdentifiedCertPublisher publisher : publishers()) {
+      List<CertWithRevocationInfo> failedCerts = revokedCerts;
+      if (!publisher.isAsyn()) {
+        try {
+          failedCerts = publisher.certificatesRevoked(caCert, revokedCerts);
+        } catch (RuntimeException ex) {
+          LogUtil.error(LOG, ex, "could not publish revocation of " + revokedCerts.size()
+              + " certificates to the publisher " + publisher.getIdent());
+        }
+      } // end if
+
+      for (CertWithRevocationInfo failedCert : failedCerts) {
+        Long certId = failedCert.getCert().getCertId();
+        try {
+          certstore.addToPublishQueue(publisher.getIdent(), certId.longValue(), caIdent);
+        } catch (Throwable th) {
+          LogUtil.error(LOG, th, "could not add entry to PublishQueue");
+        }
+      }
+    } // end for
+  } // method publishCertsRevoked
+
   void publishCertUnrevoked(CertWithDbId unrevokedCert) {
     for (IdentifiedCertPublisher publisher : publishers()) {
       if (!publisher.isAsyn()) {
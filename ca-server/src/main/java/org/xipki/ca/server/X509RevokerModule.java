@@ -24,16 +24,19 @@ import static org.xipki.util.Args.notNull;
 import java.io.Closeable;
 import java.math.BigInteger;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.bouncycastle.asn1.x500.X500Name;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.audit.AuditEvent;
 import org.xipki.ca.api.CertWithDbId;
+import org.xipki.ca.api.NameId;
 import org.xipki.ca.api.OperationException;
 import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.ca.server.db.CertStore;
@@ -88,6 +91,8 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(X509RevokerModule.class);
 
+  private static final int BULK_REVOKE_BATCH_SIZE = 1000;
+
   private final boolean masterMode;
 
   private final CertStore certstore;
@@ -126,8 +131,23 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
           "insufficient permission to revoke CA certificate");
     }
 
+    reason = checkReason(reason);
+
+    AuditEvent event = newPerfAuditEvent(CaAuditConstants.TYPE_revoke_cert, msgId);
+    boolean successful = true;
+    try {
+      CertWithRevocationInfo ret = revokeCertificate0(serialNumber, reason,
+          invalidityTime, false, event);
+      successful = (ret != null);
+      return ret;
+    } finally {
+      finish(event, successful);
+    }
+  } // method revokeCertificate
+
+  private static CrlReason checkReason(CrlReason reason) throws OperationException {
     if (reason == null) {
-      reason = CrlReason.UNSPECIFIED;
+      return CrlReason.UNSPECIFIED;
     }
 
     switch (reason) {
@@ -143,22 +163,172 @@ public class X509RevokerModule extends X509CaModule implements Closeable {
       case CESSATION_OF_OPERATION:
       case CERTIFICATE_HOLD:
       case PRIVILEGE_WITHDRAWN:
-        break;
+        return reason;
       default:
         throw new IllegalStateException("unknown CRL reason " + reason);
     } // switch (reason)
+  } // method checkReason
+
+  /**
+   * Revokes all unrevoked certificates matching the given filter. The certificates are revoked
+   * and published in batches. Certificates on hold are revoked too, unless the reason is
+   * certificateHold.
+   *
+   * @param certprofile
+   *          Certificate profile. Could be {@code null}.
+   * @param subjectPattern
+   *          Subject pattern. Could be {@code null}.
+   * @param notBeforeFrom
+   *          Earliest notBefore (inclusive). Could be {@code null}.
+   * @param notBeforeTo
+   *          Latest notBefore (inclusive). Could be {@code null}.
+   * @param reason
+   *          Revocation reason. Could be {@code null}.
+   * @param invalidityTime
+   *          Invalidity time. Could be {@code null}.
+   * @param msgId
+   *          Message id.
+   * @return number of revoked certificates.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  public int revokeCerts(NameId certprofile, X500Name subjectPattern, Date notBeforeFrom,
+      Date notBeforeTo, CrlReason reason, Date invalidityTime, String msgId)
+          throws OperationException {
+    reason = checkReason(reason);
+
+    LOG.info("     START revokeCertificates: ca={}, certprofile={}, subject={}, notBefore=[{}, {}],"
+        + " reason={}", caIdent.getName(), (certprofile == null ? null : certprofile.getName()),
+        subjectPattern, notBeforeFrom, notBeforeTo, reason.getDescription());
 
-    AuditEvent event = newPerfAuditEvent(CaAuditConstants.TYPE_revoke_cert, msgId);
-    boolean successful = true;
+    int sum = 0;
+    long startId = 0;
+    while (true) {
+      List<CertWithRevocationInfo> certs = certstore.getUnrevokedCerts(caIdent,
+          includeSuspended(reason), startId, certprofile, subjectPattern, notBeforeFrom,
+          notBeforeTo, BULK_REVOKE_BATCH_SIZE, caIdNameMap);
+      if (certs.isEmpty()) {
+        break;
+      }
+
+      // revokeCerts0() removes the CA certificate from the list
+      final int numFetched = certs.size();
+      startId = certs.get(numFetched - 1).getCert().getCertId();
+      sum += revokeCerts0(certs, reason, invalidityTime, msgId);
+      if (numFetched < BULK_REVOKE_BATCH_SIZE) {
+        break;
+      }
+    }
+
+    LOG.info("SUCCESSFUL revokeCertificates: ca={}, revoked {} certificates",
+        caIdent.getName(), sum);
+    return sum;
+  } // method revokeCerts
+
+  /**
+   * Revokes the unrevoked certificates with the given serial numbers. The certificates are
+   * revoked and published in batches, unknown and revoked certificates are ignored.
+   * Certificates on hold are revoked too, unless the reason is certificateHold.
+   *
+   * @param serialNumbers
+   *          Serial numbers. Must not be {@code null}.
+   * @param reason
+   *          Revocation reason. Could be {@code null}.
+   * @param invalidityTime
+   *          Invalidity time. Could be {@code null}.
+   * @param msgId
+   *          Message id.
+   * @return number of revoked certificates.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  public int revokeCerts(List<BigInteger> serialNumbers, CrlReason reason, Date invalidityTime,
+      String msgId) throws OperationException {
+    notNull(serialNumbers, "serialNumbers");
+    reason = checkReason(reason);
+
+    LOG.info("     START revokeCertificates: ca={}, {} serial numbers, reason={}",
+        caIdent.getName(), serialNumbers.size(), reason.getDescription());
+
+    int sum = 0;
+    final int size = serialNumbers.size();
+    for (int from = 0; from < size; from += BULK_REVOKE_BATCH_SIZE) {
+      List<BigInteger> batch =
+          serialNumbers.subList(from, Math.min(size, from + BULK_REVOKE_BATCH_SIZE));
+      List<CertWithRevocationInfo> certs =
+          certstore.getUnrevokedCerts(caIdent, includeSuspended(reason), batch, caIdNameMap);
+      sum += revokeCerts0(certs, reason, invalidityTime, msgId);
+    }
+
+    LOG.info("SUCCESSFUL revokeCertificates: ca={}, revoked {} certificates",
+        caIdent.getName(), sum);
+    return sum;
+  } // method revokeCerts
+
+  private int revokeCerts0(List<CertWithRevocationInfo> certs, CrlReason reason,
+      Date invalidityTime, String msgId) throws OperationException {
+    if (caInfo.isSelfSigned()) {
+      Iterator<CertWithRevocationInfo> it = certs.iterator();
+      while (it.hasNext()) {
+        if (caInfo.getSerialNumber().equals(it.next().getCert().getCert().getSerialNumber())) {
+          LOG.warn("ignored the CA certificate in the revocation of certificates");
+          it.remove();
+        }
+      }
+    }
+
+    if (certs.isEmpty()) {
+      return 0;
+    }
+
+    AuditEvent event = newPerfAuditEvent(CaAuditConstants.TYPE_revoke_certs, msgId);
+    event.addEventData(CaAuditConstants.NAME_reason, reason.getDescription());
+    if (invalidityTime != null) {
+      event.addEventData(CaAuditConstants.NAME_invalidity_time,
+          DateUtil.toUtcTimeyyyyMMddhhmmss(invalidityTime));
+    }
+
+    boolean successful = false;
+    List<CertWithRevocationInfo> revokedCerts = null;
     try {
-      CertWithRevocationInfo ret = revokeCertificate0(serialNumber, reason,
-          invalidityTime, false, event);
-      successful = (ret != null);
-      return ret;
+      CertRevocationInfo revInfo = new CertRevocationInfo(reason, new Date(), invalidityTime);
+      revokedCerts = certstore.revokeCerts(caIdent, certs, revInfo);
+      event.addEventData(CaAuditConstants.NAME_num, revokedCerts.size());
+
+      publisherModule.publishCertsRevoked(revokedCerts);
+
+      if (LOG.isDebugEnabled()) {
+        for (CertWithRevocationInfo revokedCert : revokedCerts) {
+          LOG.debug("revoked certificate: ca={}, serialNumber={}", caIdent.getName(),
+              LogUtil.formatCsn(revokedCert.getCert().getCert().getSerialNumber()));
+        }
+      }
+
+      successful = true;
+      return revokedCerts.size();
     } finally {
+      // if the revocation failed, the certificates which may have been revoked
+      event.addEventData(CaAuditConstants.NAME_serials,
+          formatSerials(revokedCerts == null ? certs : revokedCerts));
       finish(event, successful);
     }
-  } // method revokeCertificate
+  } // method revokeCerts0
+
+  private static boolean includeSuspended(CrlReason reason) {
+    // as in revokeCertificate(), a certificate on hold cannot be put on hold again.
+    return reason != CrlReason.CERTIFICATE_HOLD;
+  }
+
+  private static String formatSerials(List<CertWithRevocationInfo> certs) {
+    StringBuilder sb = new StringBuilder(certs.size() * 42);
+    for (CertWithRevocationInfo cert : certs) {
+      if (sb.length() > 0) {
+        sb.append(",");
+      }
+      sb.append(LogUtil.formatCsn(cert.getCert().getCert().getSerialNumber()));
+    }
+    return sb.toString();
+  } // method formatSerials
 
   public CertWithDbId unrevokeCert(BigInteger serialNumber, String msgId)
       throws OperationException {
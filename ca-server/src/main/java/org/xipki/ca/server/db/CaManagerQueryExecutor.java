@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -86,6 +87,7 @@ import org.xipki.util.Base64;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.ConfPairs;
 import org.xipki.util.InvalidConfException;
+import org.xipki.util.LogUtil;
 import org.xipki.util.ObjectCreationException;
 import org.xipki.util.StringUtil;
 import org.xipki.util.Validity;
@@ -98,8 +100,62 @@ import org.xipki.util.Validity;
  */
 public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
+  /**
+   * Entry of the table CHANGE_LOG: the entity (type and name) changed by the master in
+   * the given version.
+   */
+  public static class ChangeLogEntry {
+
+    private final long version;
+
+    private final String type;
+
+    private final String name;
+
+    public ChangeLogEntry(long version, String type, String name) {
+      this.version = version;
+      this.type = notBlank(type, "type");
+      this.name = notBlank(name, "name");
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return concat(type, " ", name, " (version ", Long.toString(version), ")");
+    }
+
+  } // class ChangeLogEntry
+
+  // the types of the changed entities are the names of their tables.
+  public static final String CHANGE_CA = "CA";
+
+  public static final String CHANGE_CAALIAS = "CAALIAS";
+
+  public static final String CHANGE_PROFILE = "PROFILE";
+
+  public static final String CHANGE_PUBLISHER = "PUBLISHER";
+
+  public static final String CHANGE_REQUESTOR = "REQUESTOR";
+
+  public static final String CHANGE_SIGNER = "SIGNER";
+
+  public static final String CHANGE_USER = "TUSER";
+
   private static final Logger LOG = LoggerFactory.getLogger(CaManagerQueryExecutor.class);
 
+  private static final int MAX_CHANGE_LOGS_PER_SELECT = 1000;
+
   private final String sqlSelectProfileId;
   private final String sqlSelectProfile;
   private final String sqlSelectPublisherId;
@@ -113,6 +169,9 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
   private final String sqlSelectSystemEvent;
   private final String sqlSelectUserId;
   private final String sqlSelectUser;
+  private final String sqlSelectChangeLogs;
+
+  private final boolean changeLogSupported;
 
   private final Map<Table, AtomicLong> cachedIdMap = new HashMap<>();
 
@@ -147,8 +206,109 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
         "EVENT_TIME,EVENT_OWNER FROM SYSTEM_EVENT WHERE NAME=?");
 
     this.sqlSelectUser = buildSelectFirstSql("ID,ACTIVE,PASSWORD FROM TUSER WHERE NAME=?");
+
+    this.sqlSelectChangeLogs = datasource.buildSelectFirstSql(MAX_CHANGE_LOGS_PER_SELECT,
+        "ID ASC", "ID,TYPE,NAME FROM CHANGE_LOG WHERE ID>?");
+
+    boolean tableExists;
+    try {
+      tableExists = datasource.tableExists(null, "CHANGE_LOG");
+    } catch (DataAccessException ex) {
+      LogUtil.warn(LOG, ex, "could not check the existence of table CHANGE_LOG");
+      tableExists = false;
+    }
+
+    this.changeLogSupported = tableExists;
+    if (!changeLogSupported) {
+      LOG.warn("table CHANGE_LOG does not exist, slave CA systems apply changes only on restart");
+    }
   } // constructor
 
+  /**
+   * Whether the changes are logged in the table CHANGE_LOG.
+   * @return whether the table CHANGE_LOG exists.
+   */
+  public boolean isChangeLogSupported() {
+    return changeLogSupported;
+  }
+
+  /**
+   * Retrieve the version of the last change.
+   * @return the highest version in the table CHANGE_LOG, 0 if no change has been logged.
+   * @throws CaMgmtException
+   *            If error occurs.
+   */
+  public long getMaxChangeLogVersion() throws CaMgmtException {
+    try {
+      return datasource.getMax(null, Table.CHANGE_LOG.name(), "ID");
+    } catch (DataAccessException ex) {
+      throw new CaMgmtException(ex);
+    }
+  } // method getMaxChangeLogVersion
+
+  /**
+   * Retrieve the changes after the given version, ordered by the version.
+   * @param afterVersion Version of the last applied change.
+   * @return the changes, at most {@link #MAX_CHANGE_LOGS_PER_SELECT} entries.
+   * @throws CaMgmtException
+   *            If error occurs.
+   */
+  public List<ChangeLogEntry> getChangeLogs(long afterVersion) throws CaMgmtException {
+    List<ResultRow> rows = execQueryPrepStmt0(sqlSelectChangeLogs, col2Long(afterVersion));
+    List<ChangeLogEntry> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      ret.add(new ChangeLogEntry(getLong(rs, "ID"), rs.getString("TYPE"), rs.getString("NAME")));
+    }
+    return ret;
+  } // method getChangeLogs
+
+  /**
+   * Deletes the changes logged before the given time. The last change is kept, since the
+   * versions of the next changes are based on it.
+   * @param beforeTime Time in seconds since January 1, 1970, 00:00:00 GMT.
+   * @return number of deleted changes.
+   * @throws CaMgmtException
+   *            If error occurs.
+   */
+  public int deleteChangeLogs(long beforeTime) throws CaMgmtException {
+    if (!changeLogSupported) {
+      return 0;
+    }
+
+    return execUpdatePrepStmt0("DELETE FROM CHANGE_LOG WHERE EVENT_TIME<? AND ID<?",
+        col2Long(beforeTime), col2Long(getMaxChangeLogVersion()));
+  } // method deleteChangeLogs
+
+  // synchronized: the slaves expect the versions to become visible without gaps.
+  private synchronized void logChange(String type, String name) throws CaMgmtException {
+    if (!changeLogSupported) {
+      return;
+    }
+
+    long version = getNextId(Table.CHANGE_LOG);
+    try {
+      execUpdatePrepStmt0("INSERT INTO CHANGE_LOG (ID,TYPE,NAME,EVENT_TIME) VALUES (?,?,?,?)",
+          col2Long(version), col2Str(type), col2Str(name),
+          col2Long(System.currentTimeMillis() / 1000L));
+    } catch (CaMgmtException ex) {
+      // release the version, otherwise the slaves would wait for it and restart.
+      cachedIdMap.get(Table.CHANGE_LOG).compareAndSet(version, version - 1);
+      throw new CaMgmtException(concat("the change of ", type, " '", name,
+          "' has been saved but could not be logged, slave CA systems apply it on restart: ",
+          ex.getMessage()), ex);
+    }
+    LOG.debug("logged change of {} '{}' with version {}", type, name, version);
+  } // method logChange
+
+  @Override
+  public boolean deleteRowWithName(String name, String table) throws CaMgmtException {
+    boolean deleted = super.deleteRowWithName(name, table);
+    if (deleted) {
+      logChange(table, name);
+    }
+    return deleted;
+  } // method deleteRowWithName
+
   /**
    * Retrieve the system event.
    * @param eventName Event name
@@ -476,6 +636,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (LOG.isInfoEnabled()) {
       LOG.info("add CA '{}': {}", caEntry.getIdent(), caEntry.toString(false, true));
     }
+    logChange(CHANGE_CA, caEntry.getIdent().getName());
   } // method addCa
 
   public void addCaAlias(String aliasName, NameId ca) throws CaMgmtException {
@@ -488,6 +649,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
       throw new CaMgmtException("could not add CA alias " + aliasName);
     }
     LOG.info("added CA alias '{}' for CA '{}'", aliasName, ca);
+    logChange(CHANGE_CAALIAS, aliasName);
   } // method addCaAlias
 
   public void addCertprofile(CertprofileEntry dbEntry) throws CaMgmtException {
@@ -505,6 +667,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     }
 
     LOG.info("added profile '{}': {}", dbEntry.getIdent(), dbEntry);
+    logChange(CHANGE_PROFILE, dbEntry.getIdent().getName());
   } // method addCertprofile
 
   public void addCertprofileToCa(NameId profile, NameId ca) throws CaMgmtException {
@@ -529,6 +692,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     }
 
     LOG.info("added {} '{}' to CA '{}'", desc, entity, ca);
+    logChange(CHANGE_CA, ca.getName());
   } // method addPublisherToCa
 
   public void addRequestor(RequestorEntry dbEntry) throws CaMgmtException {
@@ -548,6 +712,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (LOG.isInfoEnabled()) {
       LOG.info("added requestor '{}': {}", dbEntry.getIdent(), dbEntry.toString(false));
     }
+    logChange(CHANGE_REQUESTOR, dbEntry.getIdent().getName());
   } // method addRequestor
 
   public void addEmbeddedRequestor(String requestorName) throws CaMgmtException {
@@ -563,6 +728,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
       throw new CaMgmtException("could not add requestor " + requestorName);
     }
     LOG.info("added requestor '{}'", requestorName);
+    logChange(CHANGE_REQUESTOR, requestorName);
   } // method addRequestorIfNeeded
 
   public void addRequestorToCa(CaHasRequestorEntry requestor, NameId ca) throws CaMgmtException {
@@ -584,6 +750,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     LOG.info("added requestor '{}' to CA '{}': ra: {}; permission: {}; profile: {}",
         requestorIdent, ca, requestor.isRa(), requestor.getPermission(), profilesText);
+    logChange(CHANGE_CA, ca.getName());
   } // method addRequestorToCa
 
   public void addPublisher(PublisherEntry dbEntry) throws CaMgmtException {
@@ -601,6 +768,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     }
 
     LOG.info("added publisher '{}': {}", dbEntry.getIdent(), dbEntry);
+    logChange(CHANGE_PUBLISHER, name);
   } // method addPublisher
 
   public void changeCa(ChangeCaEntry changeCaEntry, CaEntry currentCaEntry,
@@ -789,6 +957,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
         colStr("SIGNER_CONF", signerConf, false, true),
         colStr("DHPOC_CONTROL", changeCaEntry.getDhpocControl(), false, true),
         colStr("REVOKE_SUSPENDED_CONTROL", changeCaEntry.getRevokeSuspendedControl()));
+    logChange(CHANGE_CA, changeCaEntry.getIdent().getName());
   } // method changeCa
 
   public void commitNextCrlNoIfLess(NameId ca, long nextCrlNo) throws CaMgmtException {
@@ -817,6 +986,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
       changeIfNotNull("PROFILE", colInt("ID", nameId.getId()), colStr("TYPE", type),
           colStr("CONF", conf));
       failed = false;
+      logChange(CHANGE_PROFILE, nameId.getName());
       return profile;
     } finally {
       if (failed) {
@@ -849,6 +1019,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     changeIfNotNull("REQUESTOR", colInt("ID", nameId.getId()),
         colStr("TYPE", type), colStr("CONF", conf));
+    logChange(CHANGE_REQUESTOR, nameId.getName());
     return requestor;
   } // method changeRequestor
 
@@ -870,6 +1041,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     changeIfNotNull("SIGNER", colStr("NAME", name), colStr("TYPE", type),
         colStr("CERT", base64Cert), colStr("CONF", conf, false, true));
+    logChange(CHANGE_SIGNER, name);
     return responder;
   } // method changeSigner
 
@@ -885,6 +1057,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     IdentifiedCertPublisher publisher = publisherManager.createPublisher(dbEntry);
 
     changeIfNotNull("PUBLISHER", colStr("NAME", name), colStr("TYPE", type), colStr("CONF", conf));
+    logChange(CHANGE_PUBLISHER, name);
     return publisher;
   } // method changePublisher
 
@@ -897,6 +1070,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (num == 0) {
       throw new CaMgmtException("could not delelted CA " + caName);
     }
+    logChange(CHANGE_CA, caName);
   } // method removeCa
 
   public void removeCaAlias(String aliasName) throws CaMgmtException {
@@ -905,6 +1079,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (num == 0) {
       throw new CaMgmtException("could not remove CA Alias " + aliasName);
     }
+    logChange(CHANGE_CAALIAS, aliasName);
   } // method removeCaAlias
 
   public void removeCertprofileFromCa(String profileName, String caName) throws CaMgmtException {
@@ -913,6 +1088,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     removeEntityFromCa("profile", profileName, caName, sqlSelectProfileId,
         "DELETE FROM CA_HAS_PROFILE WHERE CA_ID=? AND PROFILE_ID=?");
+    logChange(CHANGE_CA, caName);
   } // method removeCertprofileFromCa
 
   public void removeRequestorFromCa(String requestorName, String caName) throws CaMgmtException {
@@ -921,6 +1097,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     removeEntityFromCa("requestor", requestorName, caName, sqlSelectRequestorId,
         "DELETE FROM CA_HAS_REQUESTOR WHERE CA_ID=? AND REQUESTOR_ID=?");
+    logChange(CHANGE_CA, caName);
   } // method removeRequestorFromCa
 
   public void removePublisherFromCa(String publisherName, String caName) throws CaMgmtException {
@@ -929,6 +1106,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     removeEntityFromCa("publisher", publisherName, caName, sqlSelectPublisherId,
         "DELETE FROM CA_HAS_PUBLISHER WHERE CA_ID=? AND PUBLISHER_ID=?");
+    logChange(CHANGE_CA, caName);
   } // method removePublisherFromCa
 
   public void removeUserFromCa(String username, String caName) throws CaMgmtException {
@@ -937,6 +1115,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     removeEntityFromCa("user", username, caName, sqlSelectUserId,
         "DELETE FROM CA_HAS_USER WHERE CA_ID=? AND USER_ID=?");
+    logChange(CHANGE_USER, username);
   } // method removeUserFromCa
 
   private void removeEntityFromCa(String desc, String name, String caName,
@@ -962,6 +1141,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (num == 0) {
       throw new CaMgmtException("could not revoke CA " + caName);
     }
+    logChange(CHANGE_CA, caName);
   } // method revokeCa
 
   public void addSigner(SignerEntry dbEntry) throws CaMgmtException {
@@ -977,6 +1157,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     }
 
     LOG.info("added signer: {}", dbEntry.toString(false, true));
+    logChange(CHANGE_SIGNER, dbEntry.getName());
   } // method addSigner
 
   public void unlockCa() throws CaMgmtException {
@@ -995,6 +1176,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
     if (num == 0) {
       throw new CaMgmtException("could not unrevoke CA " + caName);
     }
+    logChange(CHANGE_CA, caName);
   } // method unrevokeCa
 
   public void addUser(AddUserEntry userEntry) throws CaMgmtException {
@@ -1022,6 +1204,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
       throw new CaMgmtException("could not add user " + name);
     }
     LOG.info("added user '{}'", name);
+    logChange(CHANGE_USER, name);
   } // method addUser
 
   public void changeUser(ChangeUserEntry userEntry) throws CaMgmtException {
@@ -1041,6 +1224,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     changeIfNotNull("TUSER", colInt("ID", existingId), colBool("ACTIVE", userEntry.getActive()),
         colStr("PASSWORD", hashedPassword, true, false));
+    logChange(CHANGE_USER, username);
   } // method changeUser
 
   public void addUserToCa(CaHasUserEntry user, NameId ca) throws CaMgmtException {
@@ -1067,6 +1251,7 @@ public class CaManagerQueryExecutor extends CaManagerQueryExecutorBase {
 
     LOG.info("added user '{}' to CA '{}': permission: {}; profile: {}",
         userIdent, ca, user.getPermission(), profilesText);
+    logChange(CHANGE_USER, userIdent.getName());
   } // method addUserToCa
 
   public Map<String, CaHasUserEntry> getCaHasUsersForUser(String user, CaIdNameMap idNameMap)
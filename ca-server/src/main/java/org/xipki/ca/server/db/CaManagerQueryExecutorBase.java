@@ -55,7 +55,8 @@ class CaManagerQueryExecutorBase extends QueryExecutor {
     TUSER,
     CA,
     // BigInt
-    CA_HAS_USER;
+    CA_HAS_USER,
+    CHANGE_LOG;
   }
 
   private static final Logger LOG = LoggerFactory.getLogger(QueryExecutor.class);
@@ -105,6 +106,11 @@ class CaManagerQueryExecutorBase extends QueryExecutor {
     return num > 0;
   } // method deleteRowWithName
 
+  public boolean existsRowWithName(String name, String table) throws CaMgmtException {
+    final String sql = buildSelectFirstSql(concat("NAME FROM ", table, " WHERE NAME=?"));
+    return execQuery1PrepStmt0(sql, col2Str(name)) != null;
+  } // method existsRowWithName
+
   protected static String str(String sa, String sb) {
     return (sa != null) ? getRealString(sa) : sb;
   }
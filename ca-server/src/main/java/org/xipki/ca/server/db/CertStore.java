@@ -30,17 +30,21 @@ import static org.xipki.util.Args.positive;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.security.cert.CRLException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -170,6 +174,16 @@ public class CertStore extends CertStoreBase {
 
   private static final Logger LOG = LoggerFactory.getLogger(CertStore.class);
 
+  /*
+   * Successful user authentications and CA-has-user entries are cached for at most this
+   * time. Changes done via the CaManager clear the caches immediately, changes done by other
+   * CA instances sharing the same database become effective after this time, or as soon as
+   * a slave CA system applies them from the table CHANGE_LOG.
+   */
+  private static final long USER_CACHE_TTL_MS = 5L * 60 * 1000; // 5 minutes
+
+  private static final int USER_CACHE_SIZE = 1000;
+
   private final String sqlCertForId;
 
   private final String sqlCertWithRevInfo;
@@ -210,15 +224,62 @@ public class CertStore extends CertStoreBase {
 
   private final LruCache<Integer, String> cacheSqlSerialsRevoked = new LruCache<>(5);
 
+  private final LruCache<Integer, String> cacheSqlUnrevokedCertsForSerials = new LruCache<>(5);
+
+  private final LruCache<Integer, String> cacheSqlUnrevokedOrSuspendedCertsForSerials =
+      new LruCache<>(5);
+
+  private static class CachedUserAuth {
+
+    private final int userId;
+
+    // salted digest of the password, the password itself is not kept in the memory.
+    private final byte[] passwordDigest;
+
+    private final long expiresAt;
+
+    CachedUserAuth(int userId, byte[] passwordDigest, long expiresAt) {
+      this.userId = userId;
+      this.passwordDigest = passwordDigest;
+      this.expiresAt = expiresAt;
+    }
+
+  } // class CachedUserAuth
+
+  private static class CachedCaHasUser {
+
+    // null if the user is not assigned to the CA
+    private final CaHasUserEntry entry;
+
+    private final long expiresAt;
+
+    CachedCaHasUser(CaHasUserEntry entry, long expiresAt) {
+      this.entry = entry;
+      this.expiresAt = expiresAt;
+    }
+
+  } // class CachedCaHasUser
+
+  private final byte[] userCacheSalt = new byte[32];
+
+  private final LruCache<String, CachedUserAuth> cacheUserAuths =
+      new LruCache<>(USER_CACHE_SIZE);
+
+  private final LruCache<String, CachedCaHasUser> cacheCaHasUsers =
+      new LruCache<>(USER_CACHE_SIZE);
+
   private final UniqueIdGenerator idGenerator;
 
   private final AtomicInteger cachedCrlId = new AtomicInteger(0);
 
+  private long userCacheTtlMs = USER_CACHE_TTL_MS;
+
   public CertStore(DataSourceWrapper datasource, UniqueIdGenerator idGenerator)
       throws DataAccessException {
     super(datasource);
 
     this.idGenerator = notNull(idGenerator, "idGenerator");
+    new SecureRandom().nextBytes(userCacheSalt);
 
     this.sqlCertForId = buildSelectFirstSql("PID,RID,REV,RR,RT,RIT,CERT FROM CERT WHERE ID=?");
     this.sqlCertWithRevInfo = buildSelectFirstSql(
@@ -649,7 +710,7 @@ public class CertStore extends CertStoreBase {
   private byte[] getEncodedCrl(NameId ca) throws OperationException {
     notNull(ca, "ca");
 
-    List<ResultRow> rows = execQueryPrepStmt0(sqlCrl, col2Int(ca.getId()));
+    List<ResultRow> rows = execReadOnlyQueryPrepStmt0(sqlCrl, col2Int(ca.getId()));
     long currentThisUpdate = 0;
 
     String b64Crl = null;
@@ -672,7 +733,7 @@ public class CertStore extends CertStoreBase {
       return getEncodedCrl(ca);
     }
 
-    ResultRow rs = execQuery1PrepStmt0(sqlCrlWithNo,
+    ResultRow rs = execReadOnlyQuery1PrepStmt0(sqlCrlWithNo,
         col2Int(ca.getId()), col2Long(crlNumber.longValue()));
 
     return rs == null ? null : Base64.decodeFast(rs.getString("CRL"));
@@ -859,24 +920,7 @@ public class CertStore extends CertStoreBase {
 
     if (subjectPattern != null) {
       sb.append(" AND SUBJECT LIKE ?");
-
-      StringBuilder buffer = new StringBuilder(100);
-      buffer.append("%");
-      RDN[] rdns = subjectPattern.getRDNs();
-      for (int i = 0; i < rdns.length; i++) {
-        X500Name rdnName = new X500Name(new RDN[]{rdns[i]});
-        String rdnStr = X509Util.getRfc4519Name(rdnName);
-        if (rdnStr.indexOf('%') != -1) {
-          throw new OperationException(BAD_REQUEST,
-              "the character '%' is not allowed in subjectPattern");
-        }
-        if (rdnStr.indexOf('*') != -1) {
-          rdnStr = rdnStr.replace('*', '%');
-        }
-        buffer.append(rdnStr);
-        buffer.append("%");
-      }
-      params.add(col2Str(buffer.toString()));
+      params.add(col2Str(buildSubjectLikePattern(subjectPattern)));
     }
 
     String sortByStr = null;
@@ -899,7 +943,7 @@ public class CertStore extends CertStoreBase {
     }
 
     final String sql = datasource.buildSelectFirstSql(numEntries, sortByStr, sb.toString());
-    List<ResultRow> rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
+    List<ResultRow> rows = execReadOnlyQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
 
     List<CertListInfo> ret = new LinkedList<>();
     for (ResultRow rs : rows) {
@@ -911,7 +955,306 @@ public class CertStore extends CertStoreBase {
     return ret;
   } // method listCerts
 
+  private static String buildSubjectLikePattern(X500Name subjectPattern)
+      throws OperationException {
+    StringBuilder buffer = new StringBuilder(100);
+    buffer.append("%");
+    RDN[] rdns = subjectPattern.getRDNs();
+    for (int i = 0; i < rdns.length; i++) {
+      X500Name rdnName = new X500Name(new RDN[]{rdns[i]});
+      String rdnStr = X509Util.getRfc4519Name(rdnName);
+      if (rdnStr.indexOf('%') != -1) {
+        throw new OperationException(BAD_REQUEST,
+            "the character '%' is not allowed in subjectPattern");
+      }
+      if (rdnStr.indexOf('*') != -1) {
+        rdnStr = rdnStr.replace('*', '%');
+      }
+      buffer.append(rdnStr);
+      buffer.append("%");
+    }
+    return buffer.toString();
+  } // method buildSubjectLikePattern
+
+  /**
+   * Returns the unrevoked certificates with ID greater than {@code startId} which match the
+   * given filter, ordered by the ID.
+   *
+   * @param ca
+   *          CA. Must not be {@code null}.
+   * @param includeSuspended
+   *          Whether the certificates on hold are returned too.
+   * @param startId
+   *          Only certificates with ID greater than it are returned.
+   * @param certprofile
+   *          Certificate profile. Could be {@code null}.
+   * @param subjectPattern
+   *          Subject pattern. Could be {@code null}.
+   * @param notBeforeFrom
+   *          Earliest notBefore (inclusive). Could be {@code null}.
+   * @param notBeforeTo
+   *          Latest notBefore (inclusive). Could be {@code null}.
+   * @param numEntries
+   *          Maximal number of returned certificates.
+   * @param idNameMap
+   *          ID name map. Must not be {@code null}.
+   * @return the matching certificates.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  public List<CertWithRevocationInfo> getUnrevokedCerts(NameId ca, boolean includeSuspended,
+      long startId, NameId certprofile, X500Name subjectPattern, Date notBeforeFrom,
+      Date notBeforeTo, int numEntries, CaIdNameMap idNameMap) throws OperationException {
+    notNulls(ca, "ca", idNameMap, "idNameMap");
+    positive(numEntries, "numEntries");
+
+    StringBuilder sb = new StringBuilder(200);
+    sb.append("ID,PID,REV,RR,RT,RIT,CERT FROM CERT WHERE ID>? AND CA_ID=? AND ")
+      .append(unrevokedCondition(includeSuspended));
+
+    List<SqlColumn2> params = new ArrayList<>(6);
+    params.add(col2Long(startId));
+    params.add(col2Int(ca.getId()));
+
+    if (certprofile != null) {
+      sb.append(" AND PID=?");
+      params.add(col2Int(certprofile.getId()));
+    }
+    if (notBeforeFrom != null) {
+      sb.append(" AND NBEFORE>?");
+      params.add(col2Long(notBeforeFrom.getTime() / 1000 - 1));
+    }
+    if (notBeforeTo != null) {
+      sb.append(" AND NBEFORE<?");
+      params.add(col2Long(notBeforeTo.getTime() / 1000 + 1));
+    }
+    if (subjectPattern != null) {
+      sb.append(" AND SUBJECT LIKE ?");
+      params.add(col2Str(buildSubjectLikePattern(subjectPattern)));
+    }
+
+    final String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC", sb.toString());
+    List<ResultRow> rows = execQueryPrepStmt0(sql, params.toArray(new SqlColumn2[0]));
+
+    List<CertWithRevocationInfo> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      ret.add(buildCertWithRevInfo(getLong(rs, "ID"), rs, idNameMap));
+    }
+    return ret;
+  } // method getUnrevokedCerts
+
+  /**
+   * Returns the unrevoked certificates with the given serial numbers.
+   *
+   * @param ca
+   *          CA. Must not be {@code null}.
+   * @param includeSuspended
+   *          Whether the certificates on hold are returned too.
+   * @param serialNumbers
+   *          Serial numbers. Must not be {@code null}.
+   * @param idNameMap
+   *          ID name map. Must not be {@code null}.
+   * @return the unrevoked certificates, unknown and revoked certificates are ignored.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  public List<CertWithRevocationInfo> getUnrevokedCerts(NameId ca, boolean includeSuspended,
+      List<BigInteger> serialNumbers, CaIdNameMap idNameMap) throws OperationException {
+    notNulls(ca, "ca", serialNumbers, "serialNumbers", idNameMap, "idNameMap");
+
+    final int num = serialNumbers.size();
+    if (num == 0) {
+      return Collections.emptyList();
+    }
+
+    LruCache<Integer, String> cache = includeSuspended
+        ? cacheSqlUnrevokedOrSuspendedCertsForSerials : cacheSqlUnrevokedCertsForSerials;
+    String sql = cache.get(num);
+    if (sql == null) {
+      sql = buildArraySql(datasource, "ID,PID,REV,RR,RT,RIT,CERT FROM CERT WHERE CA_ID=? AND "
+          + unrevokedCondition(includeSuspended) + " AND SN", num);
+      cache.put(num, sql);
+    }
+
+    SqlColumn2[] params = new SqlColumn2[1 + num];
+    params[0] = col2Int(ca.getId());
+    for (int i = 0; i < num; i++) {
+      params[1 + i] = col2Str(serialNumbers.get(i).toString(16));
+    }
+
+    List<ResultRow> rows = execQueryPrepStmt0(sql, params);
+    List<CertWithRevocationInfo> ret = new ArrayList<>(rows.size());
+    for (ResultRow rs : rows) {
+      ret.add(buildCertWithRevInfo(getLong(rs, "ID"), rs, idNameMap));
+    }
+    return ret;
+  } // method getUnrevokedCerts
+
+  private static String unrevokedCondition(boolean includeSuspended) {
+    return includeSuspended
+        ? "(REV=0 OR (REV=1 AND RR=" + CrlReason.CERTIFICATE_HOLD.getCode() + "))" : "REV=0";
+  }
+
+  /**
+   * Revokes the given unrevoked certificates and certificates on hold, with one UPDATE
+   * statement for each kind. As in {@link #revokeCert(NameId, BigInteger, CertRevocationInfo,
+   * boolean, CaIdNameMap)}, the certificates on hold keep their revocation and invalidity time.
+   *
+   * @param ca
+   *          CA. Must not be {@code null}.
+   * @param certs
+   *          Unrevoked certificates and certificates on hold. Must not be {@code null}.
+   * @param revInfo
+   *          Revocation information. Must not be {@code null}.
+   * @return the certificates revoked by this method, with the revocation information. The
+   *         certificates revoked concurrently by others are not contained.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  public List<CertWithRevocationInfo> revokeCerts(NameId ca, List<CertWithRevocationInfo> certs,
+      CertRevocationInfo revInfo) throws OperationException {
+    notNulls(ca, "ca", certs, "certs", revInfo, "revInfo");
+
+    if (certs.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<CertWithRevocationInfo> unrevokedCerts = new ArrayList<>(certs.size());
+    List<CertWithRevocationInfo> suspendedCerts = new ArrayList<>();
+    for (CertWithRevocationInfo cert : certs) {
+      CertRevocationInfo currentRevInfo = cert.getRevInfo();
+      if (currentRevInfo == null) {
+        unrevokedCerts.add(cert);
+      } else if (currentRevInfo.getReason() == CrlReason.CERTIFICATE_HOLD
+          && revInfo.getReason() != CrlReason.CERTIFICATE_HOLD) {
+        suspendedCerts.add(cert);
+      } else {
+        LOG.warn("ignored certificate {}, already revoked with reason {}",
+            LogUtil.formatCsn(cert.getCert().getCert().getSerialNumber()),
+            currentRevInfo.getReason().getDescription());
+      }
+    }
+
+    long lastUpdate = System.currentTimeMillis() / 1000;
+    int reasonCode = revInfo.getReason().getCode();
+
+    List<CertWithRevocationInfo> revokedCerts = new ArrayList<>(certs.size());
+    if (!unrevokedCerts.isEmpty()) {
+      long revTime = revInfo.getRevocationTime().getTime() / 1000;
+      Long invTime = (revInfo.getInvalidityTime() == null) ? null
+          : revInfo.getInvalidityTime().getTime() / 1000;
+
+      List<CertWithRevocationInfo> revoked = updateCerts(unrevokedCerts,
+          "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE CA_ID=? AND REV=0 AND ID",
+          new SqlColumn2[]{col2Long(lastUpdate), col2Bool(true), col2Long(revTime),
+            col2Long(invTime), col2Int(reasonCode), col2Int(ca.getId())},
+          "SELECT ID FROM CERT WHERE LUPDATE=? AND RT=? AND RR=? AND ID",
+          new SqlColumn2[]{col2Long(lastUpdate), col2Long(revTime), col2Int(reasonCode)});
+
+      for (CertWithRevocationInfo cert : revoked) {
+        cert.setRevInfo(new CertRevocationInfo(revInfo.getReason(),
+            revInfo.getRevocationTime(), revInfo.getInvalidityTime()));
+      }
+      revokedCerts.addAll(revoked);
+    }
+
+    if (!suspendedCerts.isEmpty()) {
+      List<CertWithRevocationInfo> revoked = updateCerts(suspendedCerts,
+          "UPDATE CERT SET LUPDATE=?,RR=? WHERE CA_ID=? AND REV=1 AND RR="
+              + CrlReason.CERTIFICATE_HOLD.getCode() + " AND ID",
+          new SqlColumn2[]{col2Long(lastUpdate), col2Int(reasonCode), col2Int(ca.getId())},
+          "SELECT ID FROM CERT WHERE LUPDATE=? AND RR=? AND ID",
+          new SqlColumn2[]{col2Long(lastUpdate), col2Int(reasonCode)});
+
+      for (CertWithRevocationInfo cert : revoked) {
+        CertRevocationInfo currentRevInfo = cert.getRevInfo();
+        cert.setRevInfo(new CertRevocationInfo(revInfo.getReason(),
+            currentRevInfo.getRevocationTime(), currentRevInfo.getInvalidityTime()));
+      }
+      revokedCerts.addAll(revoked);
+    }
+
+    return revokedCerts;
+  } // method revokeCerts
+
+  /**
+   * Updates the given certificates with one UPDATE statement.
+   *
+   * @param certs
+   *          Certificates to be updated.
+   * @param updateSqlPrefix
+   *          UPDATE statement without the IN clause of the IDs.
+   * @param updateParams
+   *          Parameters of the UPDATE statement, without the IDs.
+   * @param querySqlPrefix
+   *          SELECT statement without the IN clause of the IDs, to find the updated
+   *          certificates if some of them have been changed concurrently.
+   * @param queryParams
+   *          Parameters of the SELECT statement, without the IDs.
+   * @return the certificates updated by this method.
+   * @throws OperationException
+   *           If error occurs.
+   */
+  private List<CertWithRevocationInfo> updateCerts(List<CertWithRevocationInfo> certs,
+      String updateSqlPrefix, SqlColumn2[] updateParams, String querySqlPrefix,
+      SqlColumn2[] queryParams) throws OperationException {
+    final int num = certs.size();
+    String inClause = buildInClause(num);
+
+    int count = execUpdatePrepStmt0(updateSqlPrefix + inClause, withCertIds(updateParams, certs));
+    if (count == num) {
+      return certs;
+    }
+
+    // some certificates have been revoked concurrently, find the ones revoked by us.
+    LOG.warn("{} of {} certificates have been revoked concurrently", num - count, num);
+
+    List<ResultRow> rows = execQueryPrepStmt0(querySqlPrefix + inClause,
+        withCertIds(queryParams, certs));
+    Set<Long> updatedIds = new HashSet<>();
+    for (ResultRow rs : rows) {
+      updatedIds.add(getLong(rs, "ID"));
+    }
+
+    List<CertWithRevocationInfo> updatedCerts = new ArrayList<>(updatedIds.size());
+    for (CertWithRevocationInfo cert : certs) {
+      if (updatedIds.contains(cert.getCert().getCertId())) {
+        updatedCerts.add(cert);
+      }
+    }
+    return updatedCerts;
+  } // method updateCerts
+
+  private static SqlColumn2[] withCertIds(SqlColumn2[] params,
+      List<CertWithRevocationInfo> certs) {
+    SqlColumn2[] ret = Arrays.copyOf(params, params.length + certs.size());
+    int idx = params.length;
+    for (CertWithRevocationInfo cert : certs) {
+      ret[idx++] = col2Long(cert.getCert().getCertId());
+    }
+    return ret;
+  } // method withCertIds
+
+  private static String buildInClause(int num) {
+    StringBuilder sb = new StringBuilder(5 + num * 2);
+    sb.append(" IN (?");
+    for (int i = 1; i < num; i++) {
+      sb.append(",?");
+    }
+    sb.append(")");
+    return sb.toString();
+  } // method buildInClause
+
   public NameId authenticateUser(String user, byte[] password) throws OperationException {
+    // verification of the password hash is expensive, use the cached result if the same
+    // password has been successfully verified recently.
+    byte[] passwordDigest = HashAlgo.SHA256.hash(userCacheSalt, password);
+    CachedUserAuth cached = cacheUserAuths.get(user);
+    if (cached != null && cached.expiresAt > System.currentTimeMillis()
+        && MessageDigest.isEqual(cached.passwordDigest, passwordDigest)) {
+      return new NameId(cached.userId, user);
+    }
+
     final String sql = sqlActiveUserInfoForName;
 
     ResultRow rs = execQuery1PrepStmt0(sql, col2Str(user));
@@ -927,7 +1270,13 @@ public class CertStore extends CertStoreBase {
     }
 
     boolean valid = PasswordHash.validatePassword(password, expPasswordText);
-    return valid ? new NameId(id, user) : null;
+    if (!valid) {
+      return null;
+    }
+
+    cacheUserAuths.put(user, new CachedUserAuth(id, passwordDigest,
+        System.currentTimeMillis() + userCacheTtlMs));
+    return new NameId(id, user);
   } // method authenticateUser
 
   public String getUsername(int id) throws OperationException {
@@ -936,19 +1285,54 @@ public class CertStore extends CertStoreBase {
   } // method getUsername
 
   public CaHasUserEntry getCaHasUser(NameId ca, NameId user) throws OperationException {
+    String cacheKey = ca.getId() + ":" + user.getId();
+    CachedCaHasUser cached = cacheCaHasUsers.get(cacheKey);
+    if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+      return copy(cached.entry);
+    }
+
     ResultRow rs = execQuery1PrepStmt0(sqlCaHasUser, col2Int(ca.getId()), col2Int(user.getId()));
-    if (rs == null) {
+    CaHasUserEntry entry = null;
+    if (rs != null) {
+      List<String> list = StringUtil.split(rs.getString("PROFILES"), ",");
+      Set<String> profiles = (list == null) ? null : new HashSet<>(list);
+
+      entry = new CaHasUserEntry(new NameId(user.getId(), user.getName()));
+      entry.setPermission(getInt(rs, "PERMISSION"));
+      entry.setProfiles(profiles);
+    }
+
+    cacheCaHasUsers.put(cacheKey,
+        new CachedCaHasUser(entry, System.currentTimeMillis() + userCacheTtlMs));
+    return copy(entry);
+  } // method getCaHasUser
+
+  // the cached entries are shared, the callers get their own modifiable copies
+  private static CaHasUserEntry copy(CaHasUserEntry entry) {
+    if (entry == null) {
       return null;
     }
 
-    List<String> list = StringUtil.split(rs.getString("PROFILES"), ",");
-    Set<String> profiles = (list == null) ? null : new HashSet<>(list);
+    NameId user = entry.getUserIdent();
+    CaHasUserEntry ret = new CaHasUserEntry(new NameId(user.getId(), user.getName()));
+    ret.setPermission(entry.getPermission());
+    ret.setProfiles(entry.getProfiles());
+    return ret;
+  } // method copy
 
-    CaHasUserEntry entry = new CaHasUserEntry(user);
-    entry.setPermission(getInt(rs, "PERMISSION"));
-    entry.setProfiles(profiles);
-    return entry;
-  } // method getCaHasUser
+  // for the tests only
+  void setUserCacheTtl(long ttlMs) {
+    this.userCacheTtlMs = ttlMs;
+  }
+
+  /**
+   * Clears the cached user authentications and CA-has-user entries. Must be called after
+   * a user or the assignment of users to CAs has been changed.
+   */
+  public void clearUserCaches() {
+    cacheUserAuths.evictAll();
+    cacheCaHasUsers.evictAll();
+  } // method clearUserCaches
 
   public KnowCertResult knowsCertForSerial(NameId ca, BigInteger serial) throws OperationException {
     notNull(serial, "serial");
@@ -1163,6 +1547,14 @@ public class CertStore extends CertStoreBase {
     }
   } // method isHealthy
 
+  /**
+   * Returns the statistics of the underlying datasource.
+   * @return the statistics of the datasource.
+   */
+  public Map<String, Object> getDatasourceStatistics() {
+    return datasource.getStatistics();
+  }
+
   public void deleteUnreferencedRequests() throws OperationException {
     execUpdateStmt0(SQL_DELETE_UNREFERENCED_REQUEST);
   } // method deleteUnreferencedRequests
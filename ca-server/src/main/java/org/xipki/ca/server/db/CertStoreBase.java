@@ -162,6 +162,24 @@ public class CertStoreBase extends QueryExecutor {
     }
   }
 
+  protected ResultRow execReadOnlyQuery1PrepStmt0(String sql, SqlColumn2... params)
+      throws OperationException {
+    try {
+      return execReadOnlyQuery1PrepStmt(sql, params);
+    } catch (DataAccessException ex) {
+      throw new OperationException(ErrorCode.DATABASE_FAILURE, ex);
+    }
+  }
+
+  protected List<ResultRow> execReadOnlyQueryPrepStmt0(String sql, SqlColumn2... params)
+      throws OperationException {
+    try {
+      return execReadOnlyQueryPrepStmt(sql, params);
+    } catch (DataAccessException ex) {
+      throw new OperationException(ErrorCode.DATABASE_FAILURE, ex);
+    }
+  }
+
   protected PreparedStatement buildPrepStmt0(String sql, SqlColumn2... columns)
       throws OperationException {
     try {
@@ -254,18 +254,38 @@ class QueryExecutor {
 
   protected ResultRow execQuery1PrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    List<ResultRow> rows = execQueryPrepStmt(true, sql, params);
+    List<ResultRow> rows = execQueryPrepStmt(true, false, sql, params);
     return rows.isEmpty() ? null : rows.get(0);
   }
 
   protected List<ResultRow> execQueryPrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    return execQueryPrepStmt(false, sql, params);
+    return execQueryPrepStmt(false, false, sql, params);
   }
 
-  private List<ResultRow> execQueryPrepStmt(boolean single, String sql, SqlColumn2... params)
+  /**
+   * Same as {@link #execQuery1PrepStmt(String, SqlColumn2...)}, but the query may be
+   * answered by a read replica of the database.
+   */
+  protected ResultRow execReadOnlyQuery1PrepStmt(String sql, SqlColumn2... params)
       throws DataAccessException {
-    PreparedStatement ps = buildPrepStmt(sql, params);
+    List<ResultRow> rows = execQueryPrepStmt(true, true, sql, params);
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  /**
+   * Same as {@link #execQueryPrepStmt(String, SqlColumn2...)}, but the query may be
+   * answered by a read replica of the database.
+   */
+  protected List<ResultRow> execReadOnlyQueryPrepStmt(String sql, SqlColumn2... params)
+      throws DataAccessException {
+    return execQueryPrepStmt(false, true, sql, params);
+  }
+
+  private List<ResultRow> execQueryPrepStmt(boolean single, boolean readOnly, String sql,
+      SqlColumn2... params)
+      throws DataAccessException {
+    PreparedStatement ps = buildPrepStmt(readOnly, sql, params);
     ResultSet rs = null;
     try {
       rs = ps.executeQuery();
@@ -286,10 +306,15 @@ class QueryExecutor {
 
   protected PreparedStatement buildPrepStmt(String sql,  SqlColumn2... columns)
       throws DataAccessException {
+    return buildPrepStmt(false, sql, columns);
+  }
+
+  private PreparedStatement buildPrepStmt(boolean readOnly, String sql, SqlColumn2... columns)
+      throws DataAccessException {
     PreparedStatement ps = null;
     boolean succ = false;
     try {
-      ps = datasource.prepareStatement(sql);
+      ps = readOnly ? datasource.prepareReadOnlyStatement(sql) : datasource.prepareStatement(sql);
 
       int index = 0;
       for (SqlColumn2 col : columns) {
@@ -27,6 +27,7 @@ import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -171,7 +172,8 @@ class Ca2Manager {
           }
         }
       }
-      ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf);
+      ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf,
+          ctlogControl.getMinScts(), ctlogControl.getTimeout());
     }
 
     X509Ca ca;
@@ -259,6 +261,9 @@ class Ca2Manager {
       return;
     }
 
+    // the signers of unchanged CAs are taken over, e.g. in restartCaSystem().
+    Map<String, CaInfo> previousCaInfos = new HashMap<>(manager.caInfos);
+
     manager.caInfos.clear();
     manager.caHasRequestors.clear();
     manager.caHasPublishers.clear();
@@ -268,6 +273,13 @@ class Ca2Manager {
     List<String> names = manager.queryExecutor.namesFromTable("CA");
     for (String name : names) {
       createCa(name);
+
+      CaInfo previous = previousCaInfos.get(name);
+      CaInfo current = manager.caInfos.get(name);
+      if (previous != null && current != null
+          && current.getCaEntry().equals(previous.getCaEntry(), true, false)) {
+        current.takeOverSigners(previous);
+      }
     }
     casInitialized = true;
   } // method initCas
@@ -285,6 +297,11 @@ class Ca2Manager {
       oldCa.close();
     }
 
+    loadCa(name);
+    return true;
+  } // method createCa
+
+  private CaInfo loadCa(String name) throws CaMgmtException {
     CaManagerQueryExecutor queryExecutor = manager.queryExecutor;
 
     CaInfo ca = queryExecutor.createCaInfo(name, manager.masterMode, manager.certstore);
@@ -317,8 +334,103 @@ class Ca2Manager {
     manager.caHasPublishers.put(name, publisherNames);
     LOG.info("CA {} is associated with publishers: {}", name, publisherNames);
 
-    return true;
-  } // method createCa
+    return ca;
+  } // method loadCa
+
+  /**
+   * Reloads the CA changed by the master. The running CA is replaced only after the new
+   * one has been started, and is closed after requests in process have been finished.
+   * @param name
+   *          CA name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadCa(String name) throws CaMgmtException {
+    name = toNonBlankLower(name, "name");
+
+    if (!manager.queryExecutor.existsRowWithName(name, "CA")) {
+      CaInfo caInfo = manager.caInfos.remove(name);
+      if (caInfo != null) {
+        manager.idNameMap.removeCa(name);
+      }
+      manager.caHasProfiles.remove(name);
+      manager.caHasPublishers.remove(name);
+      manager.caHasRequestors.remove(name);
+      manager.cmpResponders.remove(name);
+      manager.scepResponders.remove(name);
+      manager.closeLater(manager.x509cas.remove(name), "CA " + name);
+      LOG.info("removed CA {}", name);
+      return;
+    }
+
+    CaInfo previous = manager.caInfos.get(name);
+    X509Ca oldCa = manager.x509cas.get(name);
+
+    CaInfo current = loadCa(name);
+    takeOverSigners(previous, current);
+
+    boolean started = false;
+    if (CaStatus.ACTIVE == current.getCaEntry().getStatus()) {
+      started = startCa(name);
+      if (started) {
+        LOG.info("reloaded CA {}", name);
+      } else {
+        LOG.error("could not start reloaded CA {}", name);
+      }
+    } else {
+      LOG.info("reloaded inactive CA {}", name);
+    }
+
+    if (!started) {
+      manager.x509cas.remove(name);
+      manager.cmpResponders.remove(name);
+    }
+
+    if (!started || current.getScepResponderName() == null) {
+      manager.scepResponders.remove(name);
+    }
+
+    if (oldCa != null && oldCa != manager.x509cas.get(name)) {
+      manager.closeLater(oldCa, "CA " + name);
+    }
+  } // method reloadCa
+
+  /**
+   * Lets the reloaded CA take over the signers of the previous one if the CA entry, apart
+   * from the dynamic fields, has not been changed.
+   * @param previous
+   *          Previous CA, may be {@code null}.
+   * @param current
+   *          Reloaded CA.
+   * @return whether the signers have been taken over.
+   */
+  static boolean takeOverSigners(CaInfo previous, CaInfo current) {
+    if (previous == null || !current.getCaEntry().equals(previous.getCaEntry(), true, false)) {
+      return false;
+    }
+
+    current.takeOverSigners(previous);
+    return current.isSignerAvailable();
+  } // method takeOverSigners
+
+  /**
+   * Reloads the CA alias changed by the master.
+   * @param aliasName
+   *          Alias name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadCaAlias(String aliasName) throws CaMgmtException {
+    aliasName = toNonBlankLower(aliasName, "aliasName");
+    Integer caId = manager.queryExecutor.createCaAliases().get(aliasName);
+    if (caId == null) {
+      manager.caAliases.remove(aliasName);
+      LOG.info("removed CA alias {}", aliasName);
+    } else {
+      manager.caAliases.put(aliasName, caId);
+      LOG.info("reloaded CA alias {}", aliasName);
+    }
+  } // method reloadCaAlias
 
   void addCa(CaEntry caEntry) throws CaMgmtException {
     assertMasterModeAndSetuped();
@@ -644,6 +756,9 @@ class Ca2Manager {
     entry.setCmpControl(caEntry.getCmpControl());
     entry.setCrlControl(caEntry.getCrlControl());
     entry.setScepControl(caEntry.getScepControl());
+    entry.setCtlogControl(caEntry.getCtlogControl());
+    entry.setDhpocControl(caEntry.getDhpocControl());
+    entry.setRevokeSuspendedControl(caEntry.getRevokeSuspendedControl());
     entry.setCmpResponderName(caEntry.getCmpResponderName());
     entry.setScepResponderName(caEntry.getScepResponderName());
     entry.setCrlSignerName(caEntry.getCrlSignerName());
@@ -737,6 +852,75 @@ class Ca2Manager {
     }
   } // method revokeCertificate
 
+  int revokeCertificates(String caName, String certprofile, X500Name subjectPattern,
+      Date notBeforeFrom, Date notBeforeTo, CrlReason reason, Date invalidityTime)
+          throws CaMgmtException {
+    assertMasterModeAndSetuped();
+
+    caName = toNonBlankLower(caName, "caName");
+    if (certprofile == null && subjectPattern == null
+        && notBeforeFrom == null && notBeforeTo == null) {
+      throw new CaMgmtException("at least one of certprofile, subjectPattern, notBeforeFrom "
+          + "and notBeforeTo must be specified");
+    }
+
+    NameId profileIdent = null;
+    if (certprofile != null) {
+      profileIdent = manager.idNameMap.getCertprofile(certprofile.toLowerCase());
+      if (profileIdent == null) {
+        throw manager.logAndCreateException(concat("unknown certprofile ", certprofile));
+      }
+    }
+
+    X509Ca ca = getX509Ca(caName);
+    int num;
+    try {
+      num = ca.revokeCerts(profileIdent, subjectPattern, notBeforeFrom, notBeforeTo, reason,
+          invalidityTime, CaAuditConstants.MSGID_ca_mgmt);
+    } catch (OperationException ex) {
+      throw new CaMgmtException(ex.getMessage(), ex);
+    }
+
+    generateCrlAfterRevocation(ca, num);
+    return num;
+  } // method revokeCertificates
+
+  int revokeCertificates(String caName, List<BigInteger> serialNumbers, CrlReason reason,
+      Date invalidityTime, boolean suppressCrl) throws CaMgmtException {
+    assertMasterModeAndSetuped();
+
+    caName = toNonBlankLower(caName, "caName");
+    notNull(serialNumbers, "serialNumbers");
+
+    X509Ca ca = getX509Ca(caName);
+    int num;
+    try {
+      num = ca.revokeCerts(serialNumbers, reason, invalidityTime, CaAuditConstants.MSGID_ca_mgmt);
+    } catch (OperationException ex) {
+      throw new CaMgmtException(ex.getMessage(), ex);
+    }
+
+    if (!suppressCrl) {
+      generateCrlAfterRevocation(ca, num);
+    }
+    return num;
+  } // method revokeCertificates
+
+  private void generateCrlAfterRevocation(X509Ca ca, int numRevokedCerts) {
+    // one CRL for all revoked certificates instead of waiting for the next scheduled CRL
+    if (numRevokedCerts == 0 || ca.getCaInfo().getCrlControl() == null) {
+      return;
+    }
+
+    try {
+      ca.generateCrlOnDemand(CaAuditConstants.MSGID_ca_mgmt);
+    } catch (OperationException ex) {
+      // the certificates are revoked, the CRL will be generated by the next scheduled run
+      LogUtil.warn(LOG, ex, "could not generate CRL for CA " + ca.getCaIdent().getName()
+          + " after revoking " + numRevokedCerts + " certificates");
+    }
+  } // method generateCrlAfterRevocation
+
   void unrevokeCertificate(String caName, BigInteger serialNumber) throws CaMgmtException {
     assertMasterModeAndSetuped();
 
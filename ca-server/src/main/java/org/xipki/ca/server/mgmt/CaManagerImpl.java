@@ -18,6 +18,13 @@
 package org.xipki.ca.server.mgmt;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_CA;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_CAALIAS;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_PROFILE;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_PUBLISHER;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_REQUESTOR;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_SIGNER;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_USER;
 import static org.xipki.util.Args.notBlank;
 import static org.xipki.util.Args.notNull;
 import static org.xipki.util.Args.toNonBlankLower;
@@ -30,6 +37,7 @@ import java.io.InputStream;
 import java.math.BigInteger;
 import java.net.SocketException;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -37,7 +45,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.bouncycastle.asn1.x500.X500Name;
@@ -77,6 +90,7 @@ import org.xipki.ca.server.CaServerConf;
 import org.xipki.ca.server.CtLogPublicKeyFinder;
 import org.xipki.ca.server.IdentifiedCertPublisher;
 import org.xipki.ca.server.IdentifiedCertprofile;
+import org.xipki.ca.server.KeypairPool;
 import org.xipki.ca.server.RequestorEntryWrapper;
 import org.xipki.ca.server.RestResponder;
 import org.xipki.ca.server.ScepResponder;
@@ -190,8 +204,39 @@ public class CaManagerImpl implements CaManager, Closeable {
 
   } // class CaRestarter
 
+  private class ChangeLogTailer implements Runnable {
+
+    private boolean inProcess;
+
+    @Override
+    public void run() {
+      if (inProcess) {
+        return;
+      }
+
+      inProcess = true;
+      try {
+        changeLogApplier.closeReplacedObjects(System.currentTimeMillis());
+        long changeLogVersion = changeLogApplier.getVersion();
+        if (caSystemSetuped && changeLogVersion >= 0) {
+          changeLogApplier.apply(queryExecutor.getChangeLogs(changeLogVersion));
+        }
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "ChangeLogTailer");
+      } finally {
+        inProcess = false;
+      }
+    } // method run
+
+  } // class ChangeLogTailer
+
   private static final Logger LOG = LoggerFactory.getLogger(CaManagerImpl.class);
 
+  private static final long CHANGE_LOG_RETENTION_SECONDS = 7L * 24 * 60 * 60; // 7 days
+
+  // replaced objects may still be used by requests in process.
+  private static final long REPLACED_OBJECT_CLOSE_DELAY_MS = 60L * 1000; // 1 minute
+
   private static final String version;
 
   private static final String EVENT_LOCK = "LOCK";
@@ -269,12 +314,31 @@ public class CaManagerImpl implements CaManager, Closeable {
 
   private CtLogPublicKeyFinder ctLogPublicKeyFinder;
 
-  private boolean caSystemSetuped;
+  private KeypairPool keypairPool;
+
+  boolean caSystemSetuped;
 
   private Date lastStartTime;
 
   private boolean initializing;
 
+  private ExecutorService startupExecutor;
+
+  final ChangeLogApplier changeLogApplier =
+      new ChangeLogApplier(REPLACED_OBJECT_CLOSE_DELAY_MS) {
+
+        @Override
+        protected void applyChange(String type, String name) throws CaMgmtException {
+          CaManagerImpl.this.applyChange(type, name);
+        }
+
+        @Override
+        protected void restart() throws CaMgmtException {
+          restartCaSystem();
+        }
+
+      };
+
   private final Ca2Manager ca2Manager;
 
   private final CertprofileManager certprofileManager;
@@ -397,11 +461,20 @@ public class CaManagerImpl implements CaManager, Closeable {
       }
     }
 
+    if (caServerConf.getKeypairPool() != null && keypairPool == null) {
+      keypairPool = new KeypairPool(caServerConf.getKeypairPool());
+    }
+
     if (this.datasourceNameConfFileMap == null) {
       this.datasourceNameConfFileMap = new ConcurrentHashMap<>();
       List<DataSourceConf> datasourceList = caServerConf.getDatasources();
+      List<FileOrValue> caReadReplicas = null;
       for (DataSourceConf datasource : datasourceList) {
         String name = datasource.getName();
+        if ("ca".equals(name)) {
+          caReadReplicas = datasource.getReadReplicas();
+        }
+
         FileOrValue conf = datasource.getConf();
         this.datasourceNameConfFileMap.put(name, conf);
         if (conf.getFile() != null) {
@@ -416,7 +489,7 @@ public class CaManagerImpl implements CaManager, Closeable {
         throw new CaMgmtException("no datasource named 'ca' configured");
       }
 
-      this.datasource = loadDatasource("ca", caDatasourceConf);
+      this.datasource = loadDatasource("ca", caDatasourceConf, caReadReplicas);
     }
 
     this.queryExecutor = new CaManagerQueryExecutor(this.datasource);
@@ -439,6 +512,13 @@ public class CaManagerImpl implements CaManager, Closeable {
           queryExecutor.addEmbeddedRequestor(embeddedName);
         }
       }
+
+      queryExecutor.deleteChangeLogs(
+          System.currentTimeMillis() / 1000L - CHANGE_LOG_RETENTION_SECONDS);
+    } else {
+      // the configuration loaded below contains all changes until now.
+      changeLogApplier.setVersion(queryExecutor.isChangeLogSupported()
+          ? queryExecutor.getMaxChangeLogVersion() : -1);
     }
 
     final long epoch = DateUtil.parseUtcTimeyyyyMMdd("20100101").getTime();
@@ -450,19 +530,128 @@ public class CaManagerImpl implements CaManager, Closeable {
       throw new CaMgmtException(ex.getMessage(), ex);
     }
 
-    ca2Manager.initCaAliases();
-    certprofileManager.initCertprofiles();
-    publisherManager.initPublishers();
-    requestorManager.initRequestors();
-    signerManager.initSigners();
+    startupExecutor = Executors.newFixedThreadPool(caServerConf.getStartupThreads());
+
+    // the CA aliases, certprofiles, publishers, requestors and signers are independent of
+    // each other, the CAs refer to all of them.
+    List<Callable<Void>> tasks = new ArrayList<>(5);
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call()
+          throws CaMgmtException {
+        ca2Manager.initCaAliases();
+        return null;
+      }
+    });
+
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call()
+          throws CaMgmtException {
+        certprofileManager.initCertprofiles();
+        return null;
+      }
+    });
+
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call()
+          throws CaMgmtException {
+        publisherManager.initPublishers();
+        return null;
+      }
+    });
+
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call()
+          throws CaMgmtException {
+        requestorManager.initRequestors();
+        return null;
+      }
+    });
+
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call()
+          throws CaMgmtException {
+        signerManager.initSigners();
+        return null;
+      }
+    });
+
+    invokeAll(startupExecutor, tasks);
     ca2Manager.initCas();
   } // method init
 
-  private DataSourceWrapper loadDatasource(String datasourceName, FileOrValue datasourceConf)
+  /**
+   * Executes the tasks concurrently and waits until all are finished.
+   * @param executor
+   *          Executor to execute the tasks.
+   * @param tasks
+   *          Tasks to be executed.
+   * @return the results in the order of the tasks.
+   * @throws CaMgmtException
+   *           the exception of the first failed task.
+   */
+  static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks)
       throws CaMgmtException {
+    List<T> results = new ArrayList<>(tasks.size());
     try {
-      DataSourceWrapper datasource = datasourceFactory.createDataSource(
-          datasourceName, datasourceConf, securityFactory.getPasswordResolver());
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause();
+          if (cause instanceof CaMgmtException) {
+            throw (CaMgmtException) cause;
+          }
+          throw new CaMgmtException(cause.getMessage(), cause);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CaMgmtException("interrupted while starting the CA system", ex);
+    }
+    return results;
+  } // method invokeAll
+
+  private void warmupSigners() {
+    for (final String name : x509cas.keySet()) {
+      final CaInfo caInfo = caInfos.get(name);
+      if (caInfo == null || !caInfo.isSignerRequired()) {
+        continue;
+      }
+
+      scheduledThreadPoolExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (caInfo.initDeferredSigner()) {
+            LOG.info("warmed up signer of CA {}", name);
+          }
+        }
+      });
+    }
+
+    for (final String name : signers.keySet()) {
+      final SignerEntryWrapper signer = signers.get(name);
+      scheduledThreadPoolExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (signer.initDeferredSigner()) {
+            LOG.info("warmed up signer {}", name);
+          }
+        }
+      });
+    }
+  } // method warmupSigners
+
+  private DataSourceWrapper loadDatasource(String datasourceName, FileOrValue datasourceConf,
+      List<FileOrValue> readReplicaConfs)
+      throws CaMgmtException {
+    try {
+      DataSourceWrapper datasource = datasourceFactory.createDataSource(datasourceName,
+          datasourceConf, readReplicaConfs, securityFactory.getPasswordResolver());
 
       // test the datasource
       Connection conn = datasource.getConnection();
@@ -542,6 +731,10 @@ public class CaManagerImpl implements CaManager, Closeable {
     certprofileManager.reset();
     publisherManager.reset();
 
+    if (certstore != null) {
+      certstore.clearUserCaches();
+    }
+
     shutdownScheduledThreadPoolExecutor();
   } // method reset
 
@@ -618,14 +811,40 @@ public class CaManagerImpl implements CaManager, Closeable {
       List<String> startedCaNames = new LinkedList<>();
       List<String> failedCaNames = new LinkedList<>();
 
-      // Add the CAs to the store
-      for (String caName : caInfos.keySet()) {
+      // Add the CAs to the store, the CAs are independent of each other.
+      List<String> activeCaNames = new ArrayList<>(caInfos.size());
+      List<Callable<Boolean>> tasks = new ArrayList<>(caInfos.size());
+      for (final String caName : caInfos.keySet()) {
         CaStatus status = caInfos.get(caName).getCaEntry().getStatus();
         if (CaStatus.ACTIVE != status) {
           continue;
         }
 
-        if (ca2Manager.startCa(caName)) {
+        activeCaNames.add(caName);
+        tasks.add(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            try {
+              return ca2Manager.startCa(caName);
+            } catch (RuntimeException ex) {
+              LogUtil.error(LOG, ex, "could not start CA " + caName);
+              return false;
+            }
+          }
+        });
+      }
+
+      List<Boolean> results;
+      try {
+        results = invokeAll(startupExecutor, tasks);
+      } catch (CaMgmtException ex) {
+        LogUtil.error(LOG, ex);
+        return false;
+      }
+
+      for (int i = 0; i < activeCaNames.size(); i++) {
+        String caName = activeCaNames.get(i);
+        if (results.get(i)) {
           startedCaNames.add(caName);
           LOG.info("started CA {}", caName);
         } else {
@@ -635,6 +854,10 @@ public class CaManagerImpl implements CaManager, Closeable {
       }
 
       caSystemSetuped = true;
+
+      if (isLazySigners() && caServerConf.isWarmupSigners()) {
+        warmupSigners();
+      }
       StringBuilder sb = new StringBuilder();
       sb.append("started CA system");
 
@@ -686,11 +909,22 @@ public class CaManagerImpl implements CaManager, Closeable {
       LOG.info("{}", sb);
     } finally {
       initializing = false;
+      if (startupExecutor != null) {
+        startupExecutor.shutdown();
+        startupExecutor = null;
+      }
+
       if (!masterMode && persistentScheduledThreadPoolExecutor == null) {
         persistentScheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1);
         persistentScheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
         persistentScheduledThreadPoolExecutor.scheduleAtFixedRate(new CaRestarter(),
             300, 300, SECONDS);
+
+        int changeLogInterval = caServerConf.getChangeLogInterval();
+        if (changeLogInterval > 0) {
+          persistentScheduledThreadPoolExecutor.scheduleAtFixedRate(new ChangeLogTailer(),
+              changeLogInterval, changeLogInterval, SECONDS);
+        }
       }
     }
 
@@ -714,8 +948,14 @@ public class CaManagerImpl implements CaManager, Closeable {
       persistentScheduledThreadPoolExecutor = null;
     }
 
+    changeLogApplier.closeAllReplacedObjects();
     ca2Manager.close();
 
+    if (keypairPool != null) {
+      keypairPool.close();
+      keypairPool = null;
+    }
+
     if (caLockedByMe) {
       try {
         unlockCa();
@@ -894,6 +1134,7 @@ public class CaManagerImpl implements CaManager, Closeable {
     assertMasterModeAndSetuped();
 
     queryExecutor.removeUserFromCa(userName, caName);
+    certstore.clearUserCaches();
   } // method removeUserFromCa
 
   @Override
@@ -907,6 +1148,7 @@ public class CaManagerImpl implements CaManager, Closeable {
     }
 
     queryExecutor.addUserToCa(user, ca.getCaIdent());
+    certstore.clearUserCaches();
   } // method addUserToCa
 
   @Override
@@ -1090,6 +1332,21 @@ public class CaManagerImpl implements CaManager, Closeable {
     ca2Manager.revokeCertificate(caName, serialNumber, reason, invalidityTime);
   }
 
+  @Override
+  public int revokeCertificates(String caName, String certprofile, X500Name subjectPattern,
+      Date notBeforeFrom, Date notBeforeTo, CrlReason reason, Date invalidityTime)
+          throws CaMgmtException {
+    return ca2Manager.revokeCertificates(caName, certprofile, subjectPattern, notBeforeFrom,
+        notBeforeTo, reason, invalidityTime);
+  }
+
+  @Override
+  public int revokeCertificates(String caName, List<BigInteger> serialNumbers, CrlReason reason,
+      Date invalidityTime, boolean suppressCrl) throws CaMgmtException {
+    return ca2Manager.revokeCertificates(caName, serialNumbers, reason, invalidityTime,
+        suppressCrl);
+  }
+
   @Override
   public void unrevokeCertificate(String caName, BigInteger serialNumber) throws CaMgmtException {
     ca2Manager.unrevokeCertificate(caName, serialNumber);
@@ -1161,6 +1418,7 @@ public class CaManagerImpl implements CaManager, Closeable {
   public void changeUser(ChangeUserEntry changeUserEntry) throws CaMgmtException {
     assertMasterModeAndSetuped();
     queryExecutor.changeUser(changeUserEntry);
+    certstore.clearUserCaches();
   }
 
   @Override
@@ -1170,6 +1428,7 @@ public class CaManagerImpl implements CaManager, Closeable {
     if (!queryExecutor.deleteRowWithName(username, "TUSER")) {
       throw new CaMgmtException("unknown user " + username);
     }
+    certstore.clearUserCaches();
   } // method removeUser
 
   @Override
@@ -1251,10 +1510,58 @@ public class CaManagerImpl implements CaManager, Closeable {
     return ctLogPublicKeyFinder;
   }
 
+  public KeypairPool getKeypairPool() {
+    return keypairPool;
+  }
+
+  public boolean isLazySigners() {
+    return caServerConf != null && caServerConf.isLazySigners();
+  }
+
   public RestResponder getRestResponder() {
     return restResponder;
   }
 
+  private void applyChange(String type, String name) throws CaMgmtException {
+    switch (type) {
+      case CHANGE_SIGNER:
+        signerManager.reloadSigner(name);
+        break;
+      case CHANGE_REQUESTOR:
+        requestorManager.reloadRequestor(name);
+        break;
+      case CHANGE_PROFILE:
+        certprofileManager.reloadCertprofile(name);
+        break;
+      case CHANGE_PUBLISHER:
+        publisherManager.reloadPublisher(name);
+        break;
+      case CHANGE_USER:
+        certstore.clearUserCaches();
+        break;
+      case CHANGE_CA:
+        ca2Manager.reloadCa(name);
+        break;
+      case CHANGE_CAALIAS:
+        ca2Manager.reloadCaAlias(name);
+        break;
+      default:
+        throw new IllegalStateException("unknown change type " + type);
+    }
+  } // method applyChange
+
+  /**
+   * Closes the object replaced by applying a change after a delay, so that the requests
+   * in process can still use it.
+   * @param object
+   *          Replaced object, may be {@code null}.
+   * @param desc
+   *          Description of the object.
+   */
+  void closeLater(Closeable object, String desc) {
+    changeLogApplier.closeLater(object, desc);
+  } // method closeLater
+
   CaMgmtException logAndCreateException(String msg) {
     LOG.error(msg);
     return new CaMgmtException(msg);
@@ -104,6 +104,54 @@ class CertprofileManager {
     certprofilesInitialized = true;
   } // method initCertprofiles
 
+  /**
+   * Reloads the certificate profile changed by the master. The replaced profile is closed
+   * after requests in process have been finished.
+   * @param name
+   *          Profile name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadCertprofile(String name) throws CaMgmtException {
+    name = toNonBlankLower(name, "name");
+
+    CertprofileEntry oldDbEntry = manager.certprofileDbEntries.get(name);
+    if (!manager.queryExecutor.existsRowWithName(name, "PROFILE")) {
+      if (oldDbEntry != null) {
+        manager.idNameMap.removeCertprofile(oldDbEntry.getIdent().getId());
+        manager.certprofileDbEntries.remove(name);
+      }
+      manager.closeLater(manager.certprofiles.remove(name), "certprofile " + name);
+      LOG.info("removed certprofile {}", name);
+      return;
+    }
+
+    CertprofileEntry dbEntry = manager.queryExecutor.createCertprofile(name);
+    if (oldDbEntry != null && !oldDbEntry.isFaulty() && dbEntry.equals(oldDbEntry)) {
+      LOG.info("certprofile {} not changed", name);
+      return;
+    }
+
+    manager.idNameMap.addCertprofile(dbEntry.getIdent());
+
+    IdentifiedCertprofile profile = null;
+    dbEntry.setFaulty(true);
+    try {
+      profile = createCertprofile(dbEntry);
+      dbEntry.setFaulty(false);
+    } catch (CaMgmtException ex) {
+      LOG.error("could not reload certprofile {}", name);
+    }
+
+    IdentifiedCertprofile oldProfile = (profile == null) ? manager.certprofiles.remove(name)
+        : manager.certprofiles.put(name, profile);
+    manager.certprofileDbEntries.put(name, dbEntry);
+    manager.closeLater(oldProfile, "certprofile " + name);
+    if (profile != null) {
+      LOG.info("reloaded certprofile {}", name);
+    }
+  } // method reloadCertprofile
+
   void removeCertprofileFromCa(String profileName, String caName) throws CaMgmtException {
     manager.assertMasterModeAndSetuped();
 
@@ -0,0 +1,236 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_CA;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_CAALIAS;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_PROFILE;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_PUBLISHER;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_REQUESTOR;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_SIGNER;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_USER;
+import static org.xipki.util.Args.notNull;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+import org.xipki.ca.server.db.CaManagerQueryExecutor.ChangeLogEntry;
+import org.xipki.util.LogUtil;
+
+/**
+ * Applies the configuration changes logged by the master on a slave CA system, and closes
+ * the objects replaced by the changes after a delay.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+abstract class ChangeLogApplier {
+
+  private static class ReplacedObject {
+
+    private final Closeable object;
+
+    private final String desc;
+
+    private final long closeAfter;
+
+    ReplacedObject(Closeable object, String desc, long closeAfter) {
+      this.object = object;
+      this.desc = desc;
+      this.closeAfter = closeAfter;
+    }
+
+  } // class ReplacedObject
+
+  // order in which the changes are applied, the CAs refer to all other entities.
+  static final List<String> CHANGE_TYPES = Collections.unmodifiableList(
+      Arrays.asList(CHANGE_SIGNER, CHANGE_REQUESTOR, CHANGE_PROFILE, CHANGE_PUBLISHER,
+          CHANGE_USER, CHANGE_CA, CHANGE_CAALIAS));
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChangeLogApplier.class);
+
+  private final long closeDelayMs;
+
+  // version of the last applied change, -1 if the changes are not tailed.
+  private volatile long version = -1;
+
+  private final Queue<ReplacedObject> replacedObjects = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Constructor.
+   * @param closeDelayMs
+   *          Delay in milliseconds after which the replaced objects are closed.
+   */
+  ChangeLogApplier(long closeDelayMs) {
+    this.closeDelayMs = closeDelayMs;
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  void setVersion(long version) {
+    this.version = version;
+  }
+
+  /**
+   * Applies the changes following the last applied one. Each changed entity is applied once,
+   * in the order of {@link #CHANGE_TYPES}. A gap in the versions, an unknown type or a failed
+   * change restarts the CA system.
+   * @param changes
+   *          Changes with version greater than {@link #getVersion()}, in ascending order.
+   * @return whether the changes have been applied one by one.
+   * @throws CaMgmtException
+   *           if the CA system could not be restarted.
+   */
+  boolean apply(List<ChangeLogEntry> changes) throws CaMgmtException {
+    notNull(changes, "changes");
+    if (changes.isEmpty()) {
+      return true;
+    }
+
+    // the changed entities without duplicates, grouped by the type
+    Map<String, Set<String>> changedNames = new HashMap<>();
+    long expectedVersion = version + 1;
+    String restartReason = null;
+    for (ChangeLogEntry change : changes) {
+      if (change.getVersion() != expectedVersion) {
+        restartReason = "missing change with version " + expectedVersion;
+        break;
+      }
+      expectedVersion++;
+
+      String type = change.getType();
+      if (!CHANGE_TYPES.contains(type)) {
+        restartReason = "unknown change " + change;
+        break;
+      }
+
+      Set<String> names = changedNames.get(type);
+      if (names == null) {
+        names = new LinkedHashSet<>();
+        changedNames.put(type, names);
+      }
+      names.add(change.getName());
+    }
+
+    if (restartReason == null) {
+      try {
+        for (String type : CHANGE_TYPES) {
+          Set<String> names = changedNames.get(type);
+          if (names == null) {
+            continue;
+          }
+
+          for (String name : names) {
+            LOG.info("applying change of {} '{}'", type, name);
+            applyChange(type, name);
+          }
+        }
+      } catch (CaMgmtException | RuntimeException ex) {
+        LogUtil.error(LOG, ex, "could not apply the changes");
+        restartReason = "could not apply the changes";
+      }
+    }
+
+    if (restartReason != null) {
+      LOG.warn("{}, restart CA system", restartReason);
+      restart();
+      return false;
+    }
+
+    version = changes.get(changes.size() - 1).getVersion();
+    return true;
+  } // method apply
+
+  /**
+   * Closes the object replaced by applying a change after a delay, so that the requests
+   * in process can still use it.
+   * @param object
+   *          Replaced object, may be {@code null}.
+   * @param desc
+   *          Description of the object.
+   */
+  void closeLater(Closeable object, String desc) {
+    if (object != null) {
+      replacedObjects.add(new ReplacedObject(object, desc,
+          System.currentTimeMillis() + closeDelayMs));
+    }
+  } // method closeLater
+
+  /**
+   * Closes the replaced objects whose delay has expired.
+   * @param now
+   *          Current time in milliseconds.
+   */
+  void closeReplacedObjects(long now) {
+    ReplacedObject m;
+    while ((m = replacedObjects.peek()) != null && m.closeAfter <= now) {
+      if (replacedObjects.remove(m)) {
+        close(m);
+      }
+    }
+  } // method closeReplacedObjects
+
+  void closeAllReplacedObjects() {
+    ReplacedObject m;
+    while ((m = replacedObjects.poll()) != null) {
+      close(m);
+    }
+  } // method closeAllReplacedObjects
+
+  private static void close(ReplacedObject m) {
+    try {
+      m.object.close();
+      LOG.info("closed replaced {}", m.desc);
+    } catch (Exception ex) {
+      LogUtil.warn(LOG, ex, "could not close replaced " + m.desc);
+    }
+  } // method close
+
+  /**
+   * Reloads the changed entity.
+   * @param type
+   *          Type of the entity, one of {@link #CHANGE_TYPES}.
+   * @param name
+   *          Name of the entity.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  protected abstract void applyChange(String type, String name) throws CaMgmtException;
+
+  /**
+   * Restarts the CA system, which loads all changes.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  protected abstract void restart() throws CaMgmtException;
+
+}
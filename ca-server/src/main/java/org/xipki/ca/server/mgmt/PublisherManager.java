@@ -117,6 +117,54 @@ class PublisherManager {
     publishersInitialized = true;
   } // method initPublishers
 
+  /**
+   * Reloads the publisher changed by the master. The replaced publisher is closed after
+   * requests in process have been finished.
+   * @param name
+   *          Publisher name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadPublisher(String name) throws CaMgmtException {
+    name = toNonBlankLower(name, "name");
+
+    PublisherEntry oldDbEntry = manager.publisherDbEntries.get(name);
+    if (!manager.queryExecutor.existsRowWithName(name, "PUBLISHER")) {
+      if (oldDbEntry != null) {
+        manager.idNameMap.removePublisher(oldDbEntry.getIdent().getId());
+        manager.publisherDbEntries.remove(name);
+      }
+      manager.closeLater(manager.publishers.remove(name), "publisher " + name);
+      LOG.info("removed publisher {}", name);
+      return;
+    }
+
+    PublisherEntry dbEntry = manager.queryExecutor.createPublisher(name);
+    if (oldDbEntry != null && !oldDbEntry.isFaulty() && dbEntry.equals(oldDbEntry)) {
+      LOG.info("publisher {} not changed", name);
+      return;
+    }
+
+    manager.idNameMap.addPublisher(dbEntry.getIdent());
+
+    IdentifiedCertPublisher publisher = null;
+    dbEntry.setFaulty(true);
+    try {
+      publisher = createPublisher(dbEntry);
+      dbEntry.setFaulty(false);
+    } catch (CaMgmtException ex) {
+      LOG.error("could not reload publisher {}", name);
+    }
+
+    IdentifiedCertPublisher oldPublisher = (publisher == null) ? manager.publishers.remove(name)
+        : manager.publishers.put(name, publisher);
+    manager.publisherDbEntries.put(name, dbEntry);
+    manager.closeLater(oldPublisher, "publisher " + name);
+    if (publisher != null) {
+      LOG.info("reloaded publisher {}", name);
+    }
+  } // method reloadPublisher
+
   void removePublisherFromCa(String publisherName, String caName) throws CaMgmtException {
     manager.assertMasterModeAndSetuped();
 
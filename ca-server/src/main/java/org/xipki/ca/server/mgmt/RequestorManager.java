@@ -99,6 +99,46 @@ class RequestorManager {
     requestorsInitialized = true;
   } // method initRequestors
 
+  /**
+   * Reloads the requestor changed by the master.
+   * @param name
+   *          Requestor name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadRequestor(String name) throws CaMgmtException {
+    name = toNonBlankLower(name, "name");
+    if (RequestorInfo.NAME_BY_CA.equals(name) || RequestorInfo.NAME_BY_USER.equals(name)) {
+      // the embedded requestors are not changeable.
+      return;
+    }
+
+    RequestorEntry oldDbEntry = manager.requestorDbEntries.get(name);
+    if (!manager.queryExecutor.existsRowWithName(name, "REQUESTOR")) {
+      if (oldDbEntry != null) {
+        manager.idNameMap.removeRequestor(oldDbEntry.getIdent().getId());
+        manager.requestorDbEntries.remove(name);
+      }
+      manager.requestors.remove(name);
+      LOG.info("removed requestor {}", name);
+      return;
+    }
+
+    RequestorEntry dbEntry = manager.queryExecutor.createRequestor(name);
+    if (oldDbEntry != null && !oldDbEntry.isFaulty() && dbEntry.equals(oldDbEntry)) {
+      LOG.info("requestor {} not changed", name);
+      return;
+    }
+
+    RequestorEntryWrapper requestor = new RequestorEntryWrapper();
+    requestor.setDbEntry(dbEntry, manager.securityFactory.getPasswordResolver());
+
+    manager.idNameMap.addRequestor(dbEntry.getIdent());
+    manager.requestorDbEntries.put(name, dbEntry);
+    manager.requestors.put(name, requestor);
+    LOG.info("reloaded requestor {}", name);
+  } // method reloadRequestor
+
   void addRequestor(RequestorEntry requestorEntry) throws CaMgmtException {
     manager.assertMasterModeAndSetuped();
 
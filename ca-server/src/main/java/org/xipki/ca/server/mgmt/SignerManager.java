@@ -22,7 +22,9 @@ import static org.xipki.util.Args.notNull;
 import static org.xipki.util.Args.toNonBlankLower;
 import static org.xipki.util.StringUtil.concat;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +32,7 @@ import org.xipki.ca.api.mgmt.CaMgmtException;
 import org.xipki.ca.api.mgmt.entry.SignerEntry;
 import org.xipki.ca.server.CaInfo;
 import org.xipki.ca.server.SignerEntryWrapper;
+import org.xipki.util.LogUtil;
 import org.xipki.util.ObjectCreationException;
 
 /**
@@ -59,9 +62,14 @@ class SignerManager {
       return;
     }
 
+    // signers whose entry has not been changed are taken over, e.g. in restartCaSystem().
+    Map<String, SignerEntryWrapper> previousSigners = new HashMap<>(manager.signers);
+
     manager.signerDbEntries.clear();
     manager.signers.clear();
 
+    boolean lazy = manager.isLazySigners();
+
     List<String> names = manager.queryExecutor.namesFromTable("SIGNER");
     for (String name : names) {
       SignerEntry entry = manager.queryExecutor.createSigner(name);
@@ -70,10 +78,18 @@ class SignerManager {
         continue;
       }
 
+      SignerEntryWrapper previous = previousSigners.get(name);
+      if (previous != null && entry.equals(previous.getDbEntry())) {
+        manager.signerDbEntries.put(name, previous.getDbEntry());
+        manager.signers.put(name, previous);
+        LOG.info("took over unchanged signer {}", name);
+        continue;
+      }
+
       entry.setConfFaulty(true);
       manager.signerDbEntries.put(name, entry);
 
-      SignerEntryWrapper signer = createSigner(entry);
+      SignerEntryWrapper signer = createSigner(entry, lazy);
       if (signer != null) {
         entry.setConfFaulty(false);
         manager.signers.put(name, signer);
@@ -85,6 +101,56 @@ class SignerManager {
     signerInitialized = true;
   } // method initSigners
 
+  /**
+   * Reloads the signer changed by the master. The replaced signer is closed after requests
+   * in process have been finished.
+   * @param name
+   *          Signer name.
+   * @throws CaMgmtException
+   *           if error occurs.
+   */
+  void reloadSigner(String name) throws CaMgmtException {
+    name = toNonBlankLower(name, "name");
+
+    if (!manager.queryExecutor.existsRowWithName(name, "SIGNER")) {
+      manager.signerDbEntries.remove(name);
+      manager.closeLater(manager.signers.remove(name), "signer " + name);
+      LOG.info("removed signer {}", name);
+      return;
+    }
+
+    SignerEntry entry = manager.queryExecutor.createSigner(name);
+    SignerEntryWrapper previous = manager.signers.get(name);
+    if (previous != null && entry.equals(previous.getDbEntry())) {
+      LOG.info("signer {} not changed", name);
+      return;
+    }
+
+    SignerEntryWrapper signer = null;
+    entry.setConfFaulty(true);
+    try {
+      signer = createSigner(entry, manager.isLazySigners());
+      entry.setConfFaulty(false);
+    } catch (CaMgmtException ex) {
+      LogUtil.error(LOG, ex, "could not reload signer " + name);
+    }
+
+    manager.signerDbEntries.put(name, entry);
+    if (signer == null) {
+      manager.closeLater(manager.signers.remove(name), "signer " + name);
+      return;
+    }
+
+    manager.closeLater(manager.signers.put(name, signer), "signer " + name);
+    for (String caName : manager.scepResponders.keySet()) {
+      if (name.equals(manager.getCa(caName).getScepResponderName())) {
+        // update the SCEP responder
+        manager.scepResponders.get(caName).setResponder(signer);
+      }
+    }
+    LOG.info("reloaded signer {}", name);
+  } // method reloadSigner
+
   void addSigner(SignerEntry signerEntry) throws CaMgmtException {
     manager.assertMasterModeAndSetuped();
 
@@ -169,11 +235,20 @@ class SignerManager {
   } // method changeSigner
 
   SignerEntryWrapper createSigner(SignerEntry entry) throws CaMgmtException {
+    return createSigner(entry, false);
+  }
+
+  private SignerEntryWrapper createSigner(SignerEntry entry, boolean lazy)
+      throws CaMgmtException {
     notNull(entry, "entry");
     SignerEntryWrapper ret = new SignerEntryWrapper();
     ret.setDbEntry(entry);
     try {
-      ret.initSigner(manager.securityFactory);
+      if (lazy) {
+        ret.deferSigner(manager.securityFactory);
+      } else {
+        ret.initSigner(manager.securityFactory);
+      }
     } catch (ObjectCreationException ex) {
       final String message = "createSigner";
       LOG.debug(message, ex);
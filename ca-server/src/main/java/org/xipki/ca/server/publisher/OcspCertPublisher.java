@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import org.bouncycastle.cert.X509CRLHolder;
@@ -32,6 +33,7 @@ import org.xipki.audit.AuditStatus;
 import org.xipki.audit.Audits;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.ca.api.publisher.CertPublisher;
 import org.xipki.ca.api.publisher.CertPublisherException;
 import org.xipki.datasource.DataAccessException;
@@ -165,6 +167,19 @@ public class OcspCertPublisher extends CertPublisher {
     }
   } // method certificateRevoked
 
+  @Override
+  public List<CertWithRevocationInfo> certificatesRevoked(X509Cert caCert,
+      List<CertWithRevocationInfo> revokedCerts) {
+    try {
+      return queryExecutor.revokeCerts(caCert, revokedCerts);
+    } catch (Exception ex) {
+      LOG.warn("could not publish {} revoked certificates in one batch, publish them one by one:"
+          + " {}", revokedCerts.size(), ex.getMessage());
+      LOG.debug("error", ex);
+      return super.certificatesRevoked(caCert, revokedCerts);
+    }
+  } // method certificatesRevoked
+
   @Override
   public boolean certificateUnrevoked(X509Cert caCert, CertWithDbId cert) {
     try {
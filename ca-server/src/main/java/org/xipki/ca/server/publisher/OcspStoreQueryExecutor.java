@@ -39,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.OperationException;
 import org.xipki.ca.api.OperationException.ErrorCode;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.CertRevocationInfo;
@@ -334,6 +335,71 @@ class OcspStoreQueryExecutor {
     addOrUpdateCert(caCert, cert, revInfo);
   }
 
+  /**
+   * Revokes the given certificates. The registered certificates are updated in one JDBC batch,
+   * the other certificates are added one by one.
+   * @return the certificates whose revocation could not be stored, empty list if all
+   *         revocations are stored.
+   */
+  List<CertWithRevocationInfo> revokeCerts(X509Cert caCert,
+      List<CertWithRevocationInfo> revokedCerts)
+          throws DataAccessException {
+    notNull(caCert, "caCert");
+    notNull(revokedCerts, "revokedCerts");
+
+    int issuerId = getIssuerId(caCert);
+    long currentTimeSeconds = System.currentTimeMillis() / 1000;
+
+    final String sql = "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE IID=? AND SN=?";
+    int[] counts;
+    PreparedStatement ps = datasource.prepareStatement(sql);
+
+    try {
+      for (CertWithRevocationInfo revokedCert : revokedCerts) {
+        CertRevocationInfo revInfo = revokedCert.getRevInfo();
+        int idx = 1;
+        ps.setLong(idx++, currentTimeSeconds);
+        setBoolean(ps, idx++, true);
+        ps.setLong(idx++, revInfo.getRevocationTime().getTime() / 1000);
+        if (revInfo.getInvalidityTime() != null) {
+          ps.setLong(idx++, revInfo.getInvalidityTime().getTime() / 1000);
+        } else {
+          ps.setNull(idx++, Types.INTEGER);
+        }
+        ps.setInt(idx++, revInfo.getReason().getCode());
+        ps.setInt(idx++, issuerId);
+        ps.setString(idx++, revokedCert.getCert().getCert().getSerialNumber().toString(16));
+        ps.addBatch();
+      }
+      counts = ps.executeBatch();
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, null);
+    }
+
+    List<CertWithRevocationInfo> failedCerts = new LinkedList<>();
+    int idx = 0;
+    for (CertWithRevocationInfo revokedCert : revokedCerts) {
+      // SUCCESS_NO_INFO: the driver does not tell whether the certificate is registered
+      int count = (idx < counts.length) ? counts[idx] : Statement.SUCCESS_NO_INFO;
+      idx++;
+      if (count > 0) {
+        continue;
+      }
+
+      try {
+        addOrUpdateCert(caCert, revokedCert.getCert(), revokedCert.getRevInfo());
+      } catch (DataAccessException | OperationException ex) {
+        LOG.error("could not publish revocation of certificate with id {}: {}",
+            revokedCert.getCert().getCertId(), ex.getMessage());
+        failedCerts.add(revokedCert);
+      }
+    }
+
+    return failedCerts;
+  } // method revokeCerts
+
   void unrevokeCert(X509Cert issuer, CertWithDbId cert)
       throws DataAccessException {
     notNull(issuer, "issuer");
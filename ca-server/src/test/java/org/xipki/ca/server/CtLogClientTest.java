@@ -0,0 +1,266 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Certificate;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.OperationException;
+import org.xipki.ca.server.CaServerConf.CtLogConf;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.ObjectIdentifiers.Extn;
+import org.xipki.security.X509Cert;
+import org.xipki.security.ctlog.CtLog;
+import org.xipki.security.ctlog.CtLog.DigitallySigned;
+import org.xipki.security.ctlog.CtLog.HashAlgorithm;
+import org.xipki.security.ctlog.CtLog.SignatureAlgorithm;
+import org.xipki.security.ctlog.CtLog.SignatureAndHashAlgorithm;
+import org.xipki.security.ctlog.CtLog.SignedCertificateTimestampList;
+import org.xipki.security.ctlog.CtLogMessages.AddPreChainRequest;
+import org.xipki.security.ctlog.CtLogMessages.AddPreChainResponse;
+import org.xipki.security.util.KeyUtil;
+import org.xipki.util.IoUtil;
+
+import com.alibaba.fastjson.JSON;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * CtLogClient test against local stand-ins of CT log servers, which work as the
+ * dummy-ctlog-server in the examples.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CtLogClientTest {
+
+  private static final long SLOW_LOG_DELAY_MS = 5000;
+
+  private static final List<HttpServer> servers = new ArrayList<>();
+
+  private static final List<String> serverUrls = new ArrayList<>();
+
+  private static File keydir;
+
+  @BeforeClass
+  public static void startCtLogServers() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    keydir = Files.createTempDirectory("ctlog-keys").toFile();
+    // two fast logs and one slow log
+    for (int i = 0; i < 3; i++) {
+      KeyPair kp = KeyUtil.generateECKeypair(SECObjectIdentifiers.secp256r1, null);
+      byte[] spki = kp.getPublic().getEncoded();
+      IoUtil.save(new File(keydir, "log" + i + ".der"), spki);
+      startServer(kp.getPrivate(), spki, i == 2 ? SLOW_LOG_DELAY_MS : 0);
+    }
+  }
+
+  @AfterClass
+  public static void stopCtLogServers() {
+    for (HttpServer server : servers) {
+      server.stop(0);
+    }
+
+    for (File file : keydir.listFiles()) {
+      file.delete();
+    }
+    keydir.delete();
+  }
+
+  @Test
+  public void testGetCtLogScts() throws Exception {
+    CtLogConf conf = new CtLogConf();
+    conf.setKeydir(keydir.getPath());
+    CtLogPublicKeyFinder finder = new CtLogPublicKeyFinder(conf);
+
+    KeyPair caKp = KeyUtil.generateECKeypair(
+        org.bouncycastle.asn1.sec.SECObjectIdentifiers.secp256r1, null);
+    X509Cert caCert = new X509Cert(createCert(caKp, "CN=ca", caKp.getPublic().getEncoded(), false));
+    X509CertificateHolder precert = createCert(caKp, "CN=ee", caKp.getPublic().getEncoded(), true);
+
+    CtLogClient client = new CtLogClient(serverUrls, null, 2, 3000);
+    try {
+      // use the connections twice to test the re-use of connections.
+      for (int i = 0; i < 2; i++) {
+        long start = System.currentTimeMillis();
+        SignedCertificateTimestampList scts = client.getCtLogScts(precert, caCert, null, finder);
+        long duration = System.currentTimeMillis() - start;
+
+        Assert.assertEquals("number of SCTs", 2, scts.getSctList().size());
+        Assert.assertTrue("should not wait for the slow CT log", duration < SLOW_LOG_DELAY_MS);
+      }
+    } finally {
+      client.close();
+    }
+
+    // all 3 SCTs are required, the slow CT log responds after the timeout
+    client = new CtLogClient(serverUrls, null, 3, 1000);
+    try {
+      client.getCtLogScts(precert, caCert, null, finder);
+      Assert.fail("OperationException expected");
+    } catch (OperationException ex) {
+      // expected
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    CtLogConf conf = new CtLogConf();
+    conf.setKeydir(keydir.getPath());
+    final CtLogPublicKeyFinder finder = new CtLogPublicKeyFinder(conf);
+
+    KeyPair caKp = KeyUtil.generateECKeypair(SECObjectIdentifiers.secp256r1, null);
+    final X509Cert caCert =
+        new X509Cert(createCert(caKp, "CN=ca", caKp.getPublic().getEncoded(), false));
+    final X509CertificateHolder precert =
+        createCert(caKp, "CN=ee", caKp.getPublic().getEncoded(), true);
+
+    // the requests to the slow CT log occupy the threads until the read timeout
+    final CtLogClient client = new CtLogClient(serverUrls, null, 2, 2000);
+    final int numRequests = 20;
+    final AtomicInteger numSuccessful = new AtomicInteger();
+    ExecutorService callers = Executors.newFixedThreadPool(numRequests);
+    try {
+      for (int i = 0; i < numRequests; i++) {
+        callers.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              if (client.getCtLogScts(precert, caCert, null, finder).getSctList().size() == 2) {
+                numSuccessful.incrementAndGet();
+              }
+            } catch (OperationException ex) {
+              // counted as failed
+            }
+          }
+        });
+      }
+      callers.shutdown();
+      Assert.assertTrue("requests finished", callers.awaitTermination(30, TimeUnit.SECONDS));
+    } finally {
+      callers.shutdownNow();
+      client.close();
+    }
+
+    Assert.assertEquals("successful requests", numRequests, numSuccessful.get());
+    Assert.assertTrue("threads " + client.getLargestPoolSize(),
+        client.getLargestPoolSize() <= serverUrls.size() * 4);
+  } // method testConcurrentRequests
+
+  private static X509CertificateHolder createCert(KeyPair caKp, String subject, byte[] spki,
+      boolean precert) throws Exception {
+    Date notBefore = new Date();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(new X500Name("CN=ca"),
+        BigInteger.valueOf(notBefore.getTime()), notBefore,
+        new Date(notBefore.getTime() + 86400000L), new X500Name(subject),
+        SubjectPublicKeyInfo.getInstance(spki));
+    if (precert) {
+      builder.addExtension(Extn.id_precertificate, true, DERNull.INSTANCE);
+    }
+    return builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(caKp.getPrivate()));
+  }
+
+  private static void startServer(PrivateKey signingKey, byte[] spki, long delay)
+      throws IOException {
+    byte[] logId = HashAlgo.SHA256.hash(spki);
+    SignatureAndHashAlgorithm algorithm =
+        new SignatureAndHashAlgorithm(HashAlgorithm.sha256, SignatureAlgorithm.ecdsa);
+
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ct/v1/add-pre-chain", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          if (delay > 0) {
+            Thread.sleep(delay);
+          }
+
+          AddPreChainRequest req = JSON.parseObject(IoUtil.read(exchange.getRequestBody()),
+              AddPreChainRequest.class);
+          Certificate cert = Certificate.getInstance(req.getChain().get(0));
+          Certificate caCert = Certificate.getInstance(req.getChain().get(1));
+          byte[] issuerKeyHash = HashAlgo.SHA256.hash(
+              caCert.getSubjectPublicKeyInfo().getEncoded());
+          byte[] preCertTbsCert = CtLog.getPreCertTbsCert(cert.getTBSCertificate());
+
+          long timestamp = System.currentTimeMillis();
+          Signature sig = Signature.getInstance("SHA256withECDSA");
+          sig.initSign(signingKey);
+          CtLog.update(sig, (byte) 0, timestamp, null, issuerKeyHash, preCertTbsCert);
+
+          AddPreChainResponse resp = new AddPreChainResponse();
+          resp.setSct_version((byte) 0);
+          resp.setId(logId);
+          resp.setTimestamp(timestamp);
+          resp.setSignature(new DigitallySigned(algorithm, sig.sign()).getEncoded());
+
+          byte[] respContent = JSON.toJSONBytes(resp);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, respContent.length);
+          try (OutputStream os = exchange.getResponseBody()) {
+            os.write(respContent);
+          }
+        } catch (Exception ex) {
+          exchange.sendResponseHeaders(500, -1);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    servers.add(server);
+    serverUrls.add("http://127.0.0.1:" + server.getAddress().getPort());
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.CaUris;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.PublicCaInfo;
+import org.xipki.ca.api.mgmt.entry.CertprofileEntry;
+import org.xipki.ca.api.profile.ExtensionValue;
+import org.xipki.ca.api.profile.ExtensionValues;
+import org.xipki.ca.certprofile.xijson.XijsonCertprofile;
+import org.xipki.security.X509Cert;
+import org.xipki.util.IoUtil;
+
+/**
+ * Tests of the precompiled extensions of {@link IdentifiedCertprofile}: the certificates
+ * built from the cached encodings are byte-identical to the ones built by encoding the
+ * extension values for each certificate.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class IdentifiedCertprofileTest {
+
+  // representative TLS profile: constant, CA-derived and request-dependent extensions
+  private static final String PROFILE_FILE = "/certprofile/certprofile-cab-org-validated.json";
+
+  private static final X500Name SUBJECT = new X500Name("C=DE,O=myorg,CN=www.myorg.org");
+
+  private static final Date NOT_BEFORE = new Date(1600000000000L);
+
+  private static final Date NOT_AFTER = new Date(1630000000000L);
+
+  private static String profileConf;
+
+  private static KeyPair caKeypair;
+
+  private static KeyPair caKeypair2;
+
+  @BeforeClass
+  public static void init()
+      throws Exception {
+    try (InputStream is = IdentifiedCertprofileTest.class.getResourceAsStream(PROFILE_FILE)) {
+      profileConf = new String(IoUtil.read(is), StandardCharsets.UTF_8);
+    }
+    caKeypair = generateRsaKeyPair();
+    caKeypair2 = generateRsaKeyPair();
+  } // method init
+
+  @Test
+  public void testPrecompiledExtensions()
+      throws Exception {
+    IdentifiedCertprofile profile = newProfile();
+    // renewed CA: same subject, the CA-derived extensions differ
+    PublicCaInfo caInfo1 = newCaInfo("CN=ca1", caKeypair, "http://ca1.myorg.org");
+    PublicCaInfo caInfo2 = newCaInfo("CN=ca1", caKeypair2, "http://ca1-new.myorg.org");
+
+    // the first calls fill the caches, the later ones use them
+    for (PublicCaInfo caInfo : Arrays.asList(caInfo1, caInfo1, caInfo2, caInfo1)) {
+      SubjectPublicKeyInfo publicKey = SubjectPublicKeyInfo.getInstance(
+          generateRsaKeyPair().getPublic().getEncoded());
+
+      ExtensionValues values = getExtensions(profile, publicKey, caInfo);
+      for (ASN1ObjectIdentifier type : Arrays.asList(Extension.certificatePolicies,
+          Extension.authorityKeyIdentifier, Extension.subjectAlternativeName)) {
+        Assert.assertTrue("extension " + type.getId(), values.containsExtension(type));
+      }
+
+      byte[] cert = buildCert(caInfo, publicKey, values, true);
+      Assert.assertArrayEquals("certificate from the values",
+          buildCert(caInfo, publicKey, values, false), cert);
+
+      // new profile without any cached values
+      ExtensionValues freshValues = getExtensions(newProfile(), publicKey, caInfo);
+      Assert.assertArrayEquals("certificate from a new profile",
+          buildCert(caInfo, publicKey, freshValues, false), cert);
+    }
+  } // method testPrecompiledExtensions
+
+  private static IdentifiedCertprofile newProfile()
+      throws Exception {
+    CertprofileEntry entry = new CertprofileEntry(new NameId(1, "tls"), "xijson", profileConf);
+    return new IdentifiedCertprofile(entry, new XijsonCertprofile());
+  }
+
+  private static ExtensionValues getExtensions(IdentifiedCertprofile profile,
+      SubjectPublicKeyInfo publicKey, PublicCaInfo caInfo)
+          throws Exception {
+    return profile.getExtensions(SUBJECT, SUBJECT, null, publicKey, caInfo, null,
+        NOT_BEFORE, NOT_AFTER);
+  }
+
+  // as X509Ca with the cached encodings, or as before with the encoding of the values
+  private static byte[] buildCert(PublicCaInfo caInfo, SubjectPublicKeyInfo publicKey,
+      ExtensionValues values, boolean precompiled)
+          throws Exception {
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(caInfo.getSubject(),
+        BigInteger.valueOf(2), NOT_BEFORE, NOT_AFTER, SUBJECT, publicKey);
+    for (ASN1ObjectIdentifier type : values.getExtensionTypes()) {
+      ExtensionValue value = values.getExtensionValue(type);
+      if (precompiled) {
+        builder.addExtension(type, value.isCritical(), value.getEncodedValue());
+      } else {
+        builder.addExtension(type, value.isCritical(), value.getValue());
+      }
+    }
+    // RSA PKCS#1 v1.5 signatures are deterministic, the signing key is not relevant here
+    return builder.build(newSigner(caKeypair.getPrivate())).getEncoded();
+  } // method buildCert
+
+  private static PublicCaInfo newCaInfo(String subject, KeyPair keypair, String baseUri)
+      throws Exception {
+    X500Name name = new X500Name(subject);
+    JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name,
+        BigInteger.ONE, NOT_BEFORE, NOT_AFTER, name, keypair.getPublic());
+    builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+    builder.addExtension(Extension.keyUsage, true,
+        new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+    builder.addExtension(Extension.subjectKeyIdentifier, false,
+        new JcaX509ExtensionUtils().createSubjectKeyIdentifier(keypair.getPublic()));
+    X509Cert caCert = new X509Cert(builder.build(newSigner(keypair.getPrivate())));
+
+    CaUris caUris = new CaUris(Arrays.asList(baseUri + "/cacert"),
+        Arrays.asList(baseUri + "/ocsp"), Arrays.asList(baseUri + "/crl"), null);
+    return new PublicCaInfo(caCert, caUris, null);
+  } // method newCaInfo
+
+  private static ContentSigner newSigner(PrivateKey key)
+      throws Exception {
+    return new JcaContentSignerBuilder("SHA256withRSA").build(key);
+  }
+
+  private static KeyPair generateRsaKeyPair()
+      throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA");
+    kpGen.initialize(2048);
+    return kpGen.generateKeyPair();
+  }
+
+}
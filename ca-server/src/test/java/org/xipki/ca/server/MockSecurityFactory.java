@@ -0,0 +1,202 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.DfltConcurrentContentSigner;
+import org.xipki.security.SecurityFactory;
+import org.xipki.security.SignatureSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.security.XiContentSigner;
+import org.xipki.util.ObjectCreationException;
+
+/**
+ * Security factory creating signers which know their certificate, and sign with the given
+ * key if any. It records the created and the closed signers, and can be configured to fail.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class MockSecurityFactory implements InvocationHandler {
+
+  private final X509Cert cert;
+
+  private final PrivateKey key;
+
+  private final AtomicInteger numCreatedSigners = new AtomicInteger();
+
+  private final List<ConcurrentContentSigner> closedSigners =
+      Collections.synchronizedList(new ArrayList<ConcurrentContentSigner>());
+
+  private volatile boolean failing;
+
+  /**
+   * Constructor of a factory whose signers cannot sign.
+   * @param cert
+   *          Certificate of the signers without configured certificate.
+   */
+  public MockSecurityFactory(X509Cert cert) {
+    this(cert, null);
+  }
+
+  /**
+   * Constructor.
+   * @param cert
+   *          Certificate of the signers without configured certificate.
+   * @param key
+   *          EC key to sign with SHA256withECDSA. Could be {@code null}.
+   */
+  public MockSecurityFactory(X509Cert cert, PrivateKey key) {
+    this.cert = cert;
+    this.key = key;
+  }
+
+  public SecurityFactory newInstance() {
+    return (SecurityFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{SecurityFactory.class}, this);
+  }
+
+  public void setFailing(boolean failing) {
+    this.failing = failing;
+  }
+
+  public int getNumCreatedSigners() {
+    return numCreatedSigners.get();
+  }
+
+  public boolean isClosed(ConcurrentContentSigner signer) {
+    return closedSigners.contains(signer);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args)
+      throws Throwable {
+    if (!"createSigner".equals(method.getName())) {
+      throw new UnsupportedOperationException(method.getName());
+    }
+
+    numCreatedSigners.incrementAndGet();
+    if (failing) {
+      throw new ObjectCreationException("could not login to the HSM");
+    }
+
+    final X509Cert signerCert = (args[2] == null) ? cert : (X509Cert) args[2];
+    final ConcurrentContentSigner delegate = (key == null) ? null : createSigner(key);
+    return Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{ConcurrentContentSigner.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args)
+              throws Throwable {
+            switch (method.getName()) {
+              case "getCertificate":
+                return signerCert;
+              case "isHealthy":
+                return true;
+              case "getName":
+                return "mock";
+              case "close":
+                closedSigners.add((ConcurrentContentSigner) proxy);
+                return null;
+              case "equals":
+                return proxy == args[0];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              default:
+                if (delegate == null) {
+                  throw new UnsupportedOperationException(method.getName());
+                }
+
+                try {
+                  return method.invoke(delegate, args);
+                } catch (InvocationTargetException ex) {
+                  throw ex.getCause();
+                }
+            }
+          }
+        });
+  } // method invoke
+
+  private static ConcurrentContentSigner createSigner(PrivateKey key)
+      throws Exception {
+    XiContentSigner signer = new SignatureSigner(
+        new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256),
+        Signature.getInstance("SHA256withECDSA"), key);
+    return new DfltConcurrentContentSigner(false, Collections.singletonList(signer), key);
+  } // method createSigner
+
+  public static KeyPair generateKeyPair()
+      throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    return kpGen.generateKeyPair();
+  } // method generateKeyPair
+
+  public static X509Cert createCaCert(String subject)
+      throws Exception {
+    return createCaCert(subject, generateKeyPair());
+  }
+
+  /**
+   * Creates a self-signed CA certificate with the key usages keyCertSign and cRLSign.
+   * @param subject
+   *          Subject of the certificate.
+   * @param keypair
+   *          EC key pair.
+   * @return the certificate.
+   * @throws Exception
+   *           if error occurs.
+   */
+  public static X509Cert createCaCert(String subject, KeyPair keypair)
+      throws Exception {
+    X500Name name = new X500Name(subject);
+    Date notBefore = new Date();
+    Date notAfter = new Date(notBefore.getTime() + 365L * 24 * 3600 * 1000);
+    JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name,
+        BigInteger.ONE, notBefore, notAfter, name, keypair.getPublic());
+    builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+    builder.addExtension(Extension.keyUsage, true,
+        new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+    return new X509Cert(builder.build(
+        new JcaContentSignerBuilder("SHA256withECDSA").build(keypair.getPrivate())));
+  } // method createCaCert
+
+}
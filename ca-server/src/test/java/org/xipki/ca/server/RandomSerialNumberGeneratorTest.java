@@ -0,0 +1,70 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * RandomSerialNumberGenerator test.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class RandomSerialNumberGeneratorTest {
+
+  @Test
+  public void testNafWeight() {
+    Random random = new Random(1234);
+    for (int len = 1; len <= 20; len++) {
+      byte[] bytes = new byte[len];
+      for (int i = 0; i < 1000; i++) {
+        random.nextBytes(bytes);
+        if (i % 2 == 0) {
+          bytes[0] &= 0x7F;
+        }
+
+        BigInteger bi = new BigInteger(1, bytes);
+        int expected = bi.shiftLeft(1).add(bi).xor(bi).bitCount();
+        Assert.assertEquals("NAF weight", expected, RandomSerialNumberGenerator.nafWeight(bytes));
+      }
+    }
+  }
+
+  @Test
+  public void testNextSerialNumber() {
+    RandomSerialNumberGenerator generator = RandomSerialNumberGenerator.getInstance();
+    Set<BigInteger> serials = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      BigInteger serial = generator.nextSerialNumber(9);
+      Assert.assertTrue("serial number not positive", serial.signum() > 0);
+      Assert.assertTrue("serial number too long", serial.bitLength() <= 9 * 8 - 1);
+
+      BigInteger weight = serial.shiftLeft(1).add(serial).xor(serial);
+      Assert.assertTrue("NAF weight too small", weight.bitCount() >= 9 * 2);
+      Assert.assertTrue("duplicated serial number", serials.add(serial));
+    }
+  }
+
+}
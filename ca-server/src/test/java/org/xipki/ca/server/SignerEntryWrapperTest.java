@@ -0,0 +1,120 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.mgmt.entry.SignerEntry;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Base64;
+
+/**
+ * Tests of the lazily created signers.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class SignerEntryWrapperTest {
+
+  private static X509Cert caCert;
+
+  @BeforeClass
+  public static void createCert()
+      throws Exception {
+    caCert = MockSecurityFactory.createCaCert("CN=signer-test");
+  }
+
+  @Test
+  public void testLazySigner()
+      throws Exception {
+    MockSecurityFactory factory = new MockSecurityFactory(caCert);
+    SignerEntryWrapper wrapper = new SignerEntryWrapper();
+    wrapper.setDbEntry(newSignerEntry(true));
+    wrapper.deferSigner(factory.newInstance());
+    Assert.assertEquals("signer created before first use", 0, factory.getNumCreatedSigners());
+
+    ConcurrentContentSigner signer = wrapper.getSigner();
+    Assert.assertNotNull("signer", signer);
+    Assert.assertEquals("number of created signers", 1, factory.getNumCreatedSigners());
+
+    Assert.assertSame("signer", signer, wrapper.getSigner());
+    Assert.assertTrue("healthy", wrapper.isHealthy());
+    Assert.assertEquals("number of created signers", 1, factory.getNumCreatedSigners());
+  } // method testLazySigner
+
+  @Test
+  public void testLazySignerFailure()
+      throws Exception {
+    MockSecurityFactory factory = new MockSecurityFactory(caCert);
+    factory.setFailing(true);
+    SignerEntryWrapper wrapper = new SignerEntryWrapper();
+    wrapper.setDbEntry(newSignerEntry(true));
+    wrapper.deferSigner(factory.newInstance());
+
+    Assert.assertNull("signer", wrapper.getSigner());
+    Assert.assertEquals("number of attempts", 1, factory.getNumCreatedSigners());
+
+    // the next attempt is delayed
+    Assert.assertNull("signer", wrapper.getSigner());
+    Assert.assertFalse("healthy", wrapper.isHealthy());
+    Assert.assertFalse("initialized", wrapper.initDeferredSigner());
+    Assert.assertEquals("number of attempts", 1, factory.getNumCreatedSigners());
+  } // method testLazySignerFailure
+
+  @Test
+  public void testSignerWithoutCertificate()
+      throws Exception {
+    // the subject of the signer is required, the signer is created immediately
+    MockSecurityFactory factory = new MockSecurityFactory(caCert);
+    SignerEntryWrapper wrapper = new SignerEntryWrapper();
+    wrapper.setDbEntry(newSignerEntry(false));
+    wrapper.deferSigner(factory.newInstance());
+
+    Assert.assertEquals("number of created signers", 1, factory.getNumCreatedSigners());
+    Assert.assertEquals("subject", caCert.getSubject(), wrapper.getSubject());
+  } // method testSignerWithoutCertificate
+
+  @Test
+  public void testBackoff()
+      throws Exception {
+    SignerInitBackoff backoff = new SignerInitBackoff(20, 50);
+    Assert.assertTrue("attempt allowed", backoff.isAttemptAllowed());
+
+    Assert.assertEquals("delay", 20, backoff.failed());
+    Assert.assertFalse("attempt allowed", backoff.isAttemptAllowed());
+    Assert.assertEquals("delay", 40, backoff.failed());
+    Assert.assertEquals("delay", 50, backoff.failed());
+    Assert.assertEquals("delay", 50, backoff.failed());
+
+    Thread.sleep(100);
+    Assert.assertTrue("attempt allowed", backoff.isAttemptAllowed());
+
+    backoff.succeeded();
+    Assert.assertTrue("attempt allowed", backoff.isAttemptAllowed());
+    Assert.assertEquals("delay", 20, backoff.failed());
+  } // method testBackoff
+
+  private static SignerEntry newSignerEntry(boolean withCert) {
+    return new SignerEntry("responder1", "pkcs12", "algo=SHA256withECDSA",
+        withCert ? Base64.encodeToString(caCert.getEncoded()) : null);
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+
+/**
+ * In-memory CA databases with the given tables.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CaDataSources {
+
+  // read by the constructor of CertStore
+  private static final List<String> DBSCHEMA_SQLS = Arrays.asList(
+      "CREATE TABLE DBSCHEMA (NAME VARCHAR(45) NOT NULL PRIMARY KEY, VALUE2 VARCHAR(100))",
+      "INSERT INTO DBSCHEMA (NAME,VALUE2) VALUES ('VERSION','6')",
+      "INSERT INTO DBSCHEMA (NAME,VALUE2) VALUES ('X500NAME_MAXLEN','350')");
+
+  public static final String CREATE_CERT = "CREATE TABLE CERT ("
+      + "ID BIGINT NOT NULL PRIMARY KEY, CA_ID SMALLINT NOT NULL, SN VARCHAR(40) NOT NULL,"
+      + " PID SMALLINT NOT NULL, RID SMALLINT, FP_S BIGINT, FP_RS BIGINT,"
+      + " LUPDATE BIGINT NOT NULL, NBEFORE BIGINT NOT NULL, NAFTER BIGINT, REV SMALLINT NOT NULL,"
+      + " RR SMALLINT, RT BIGINT, RIT BIGINT, EE SMALLINT, UID INT, RTYPE SMALLINT,"
+      + " TID VARCHAR(43), CRL_SCOPE SMALLINT, SHA1 CHAR(28), SUBJECT VARCHAR(350) NOT NULL,"
+      + " CERT VARCHAR(6000) NOT NULL)";
+
+  private CaDataSources() {
+  }
+
+  /**
+   * Creates a new database with the table DBSCHEMA and the given tables.
+   * @param sqls
+   *          SQL statements to create and fill the tables.
+   * @return the datasource of the new database.
+   * @throws Exception
+   *           if error occurs.
+   */
+  public static DataSourceWrapper create(String... sqls)
+      throws Exception {
+    DataSourceWrapper datasource = H2DataSources.create(DBSCHEMA_SQLS.toArray(new String[0]));
+    H2DataSources.execute(datasource, sqls);
+    return datasource;
+  } // method create
+
+}
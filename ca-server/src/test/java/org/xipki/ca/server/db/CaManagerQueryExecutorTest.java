@@ -0,0 +1,103 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+import org.xipki.ca.server.db.CaManagerQueryExecutor.ChangeLogEntry;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+
+/**
+ * Tests of the logging of the configuration changes in the table CHANGE_LOG.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CaManagerQueryExecutorTest {
+
+  private DataSourceWrapper datasource;
+
+  private CaManagerQueryExecutor queryExecutor;
+
+  @Before
+  public void setUp()
+      throws Exception {
+    // the column NAME of CHANGE_LOG is shorter than that of CAALIAS, to let the log fail.
+    datasource = H2DataSources.create(
+        "CREATE TABLE CAALIAS (NAME VARCHAR(45) NOT NULL PRIMARY KEY, CA_ID SMALLINT NOT NULL)",
+        "CREATE TABLE CHANGE_LOG (ID BIGINT NOT NULL PRIMARY KEY, TYPE VARCHAR(20) NOT NULL,"
+            + " NAME VARCHAR(10), EVENT_TIME BIGINT NOT NULL)");
+    queryExecutor = new CaManagerQueryExecutor(datasource);
+  } // method setUp
+
+  @After
+  public void tearDown() {
+    if (datasource != null) {
+      datasource.close();
+    }
+  }
+
+  @Test
+  public void testLogChanges()
+      throws Exception {
+    Assert.assertTrue(queryExecutor.isChangeLogSupported());
+
+    NameId ca = new NameId(1, "ca1");
+    queryExecutor.addCaAlias("alias1", ca);
+    queryExecutor.addCaAlias("alias2", ca);
+
+    List<ChangeLogEntry> changes = queryExecutor.getChangeLogs(0);
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals(1, changes.get(0).getVersion());
+    Assert.assertEquals("alias1", changes.get(0).getName());
+    Assert.assertEquals(2, changes.get(1).getVersion());
+    Assert.assertEquals("alias2", changes.get(1).getName());
+  } // method testLogChanges
+
+  @Test
+  public void testFailedLogKeepsVersionsWithoutGap()
+      throws Exception {
+    NameId ca = new NameId(1, "ca1");
+    queryExecutor.addCaAlias("alias1", ca);
+
+    try {
+      queryExecutor.addCaAlias("alias-with-long-name", ca);
+      Assert.fail("CaMgmtException expected");
+    } catch (CaMgmtException ex) {
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("could not be logged"));
+    }
+
+    // the next change reuses the version of the failed log
+    queryExecutor.addCaAlias("alias3", ca);
+
+    List<ChangeLogEntry> changes = queryExecutor.getChangeLogs(0);
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals(1, changes.get(0).getVersion());
+    Assert.assertEquals(2, changes.get(1).getVersion());
+    Assert.assertEquals("alias3", changes.get(1).getName());
+  } // method testFailedLogKeepsVersionsWithoutGap
+
+}
@@ -0,0 +1,306 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
+import org.xipki.ca.server.CaIdNameMap;
+import org.xipki.ca.server.MockSecurityFactory;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+import org.xipki.security.CertRevocationInfo;
+import org.xipki.security.CrlReason;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Base64;
+
+/**
+ * Tests of the bulk revocation of certificates.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CertStoreTest {
+
+  private static final NameId CA = new NameId(1, "ca1");
+
+  private static final NameId PROFILE_TLS = new NameId(1, "tls");
+
+  private static final NameId PROFILE_SMIME = new NameId(2, "smime");
+
+  // revocation time and invalidity time of the certificate on hold, in seconds
+  private static final long HOLD_RT = 1000;
+
+  private static final long HOLD_RIT = 900;
+
+  private static final long UNREVOKED_1 = 1;
+
+  private static final long UNREVOKED_2 = 2;
+
+  private static final long ON_HOLD = 3;
+
+  private static final long REVOKED = 4;
+
+  private static final long OTHER_CA = 5;
+
+  private static ContentSigner signer;
+
+  private static KeyPair keypair;
+
+  private DataSourceWrapper datasource;
+
+  private CertStore certStore;
+
+  private CaIdNameMap idNameMap;
+
+  @BeforeClass
+  public static void init()
+      throws Exception {
+    keypair = MockSecurityFactory.generateKeyPair();
+    signer = new JcaContentSignerBuilder("SHA256withECDSA").build(keypair.getPrivate());
+  } // method init
+
+  @Before
+  public void setUp()
+      throws Exception {
+    datasource = CaDataSources.create(CaDataSources.CREATE_CERT);
+
+    // the serial number of each certificate equals its ID
+    addCert(UNREVOKED_1, CA, PROFILE_TLS, null);
+    addCert(UNREVOKED_2, CA, PROFILE_SMIME, null);
+    addCert(ON_HOLD, CA, PROFILE_TLS, CrlReason.CERTIFICATE_HOLD);
+    addCert(REVOKED, CA, PROFILE_TLS, CrlReason.KEY_COMPROMISE);
+    addCert(OTHER_CA, new NameId(2, "ca2"), PROFILE_TLS, null);
+
+    certStore = new CertStore(datasource, new UniqueIdGenerator(0, 0));
+    idNameMap = new CaIdNameMap();
+    idNameMap.addCertprofile(PROFILE_TLS);
+    idNameMap.addCertprofile(PROFILE_SMIME);
+  } // method setUp
+
+  @After
+  public void tearDown() {
+    datasource.close();
+  }
+
+  @Test
+  public void testGetUnrevokedCerts()
+      throws Exception {
+    Assert.assertEquals("certificates", Arrays.asList(UNREVOKED_1, UNREVOKED_2),
+        ids(certStore.getUnrevokedCerts(CA, false, 0, null, null, null, null, 10, idNameMap)));
+    Assert.assertEquals("certificates", Arrays.asList(UNREVOKED_1, UNREVOKED_2, ON_HOLD),
+        ids(certStore.getUnrevokedCerts(CA, true, 0, null, null, null, null, 10, idNameMap)));
+    Assert.assertEquals("certificates", Arrays.asList(UNREVOKED_1, ON_HOLD),
+        ids(certStore.getUnrevokedCerts(CA, true, 0, PROFILE_TLS, null, null, null, 10,
+            idNameMap)));
+
+    // paging by the ID of the last returned certificate
+    Assert.assertEquals("first page", Arrays.asList(UNREVOKED_1, UNREVOKED_2),
+        ids(certStore.getUnrevokedCerts(CA, true, 0, null, null, null, null, 2, idNameMap)));
+    Assert.assertEquals("second page", Collections.singletonList(ON_HOLD),
+        ids(certStore.getUnrevokedCerts(CA, true, UNREVOKED_2, null, null, null, null, 2,
+            idNameMap)));
+    Assert.assertEquals("last page", Collections.emptyList(),
+        ids(certStore.getUnrevokedCerts(CA, true, ON_HOLD, null, null, null, null, 2,
+            idNameMap)));
+  } // method testGetUnrevokedCerts
+
+  @Test
+  public void testGetUnrevokedCertsForSerials()
+      throws Exception {
+    List<BigInteger> serials = Arrays.asList(BigInteger.valueOf(UNREVOKED_1),
+        BigInteger.valueOf(ON_HOLD), BigInteger.valueOf(REVOKED), BigInteger.valueOf(OTHER_CA),
+        BigInteger.valueOf(99));
+
+    Assert.assertEquals("certificates", Collections.singletonList(UNREVOKED_1),
+        sortedIds(certStore.getUnrevokedCerts(CA, false, serials, idNameMap)));
+
+    List<CertWithRevocationInfo> certs =
+        certStore.getUnrevokedCerts(CA, true, serials, idNameMap);
+    Assert.assertEquals("certificates", Arrays.asList(UNREVOKED_1, ON_HOLD), sortedIds(certs));
+    for (CertWithRevocationInfo cert : certs) {
+      Assert.assertEquals("certprofile", PROFILE_TLS.getName(), cert.getCertprofile());
+      Assert.assertEquals("serial number", BigInteger.valueOf(cert.getCert().getCertId()),
+          cert.getCert().getCert().getSerialNumber());
+    }
+  } // method testGetUnrevokedCertsForSerials
+
+  @Test
+  public void testRevokeCerts()
+      throws Exception {
+    List<CertWithRevocationInfo> certs =
+        certStore.getUnrevokedCerts(CA, true, 0, null, null, null, null, 10, idNameMap);
+
+    Date revTime = new Date(2000 * 1000L);
+    Date invTime = new Date(1500 * 1000L);
+    List<CertWithRevocationInfo> revokedCerts = certStore.revokeCerts(CA, certs,
+        new CertRevocationInfo(CrlReason.KEY_COMPROMISE, revTime, invTime));
+    Assert.assertEquals("revoked certificates", Arrays.asList(UNREVOKED_1, UNREVOKED_2, ON_HOLD),
+        ids(revokedCerts));
+
+    for (CertWithRevocationInfo cert : revokedCerts) {
+      CertRevocationInfo revInfo = cert.getRevInfo();
+      Assert.assertEquals("reason", CrlReason.KEY_COMPROMISE, revInfo.getReason());
+      if (cert.getCert().getCertId() == ON_HOLD) {
+        // the certificate on hold keeps its revocation and invalidity time
+        Assert.assertEquals("revocation time", HOLD_RT * 1000,
+            revInfo.getRevocationTime().getTime());
+        Assert.assertEquals("invalidity time", HOLD_RIT * 1000,
+            revInfo.getInvalidityTime().getTime());
+      } else {
+        Assert.assertEquals("revocation time", revTime, revInfo.getRevocationTime());
+        Assert.assertEquals("invalidity time", invTime, revInfo.getInvalidityTime());
+      }
+    }
+
+    assertRevInfo(UNREVOKED_1, CrlReason.KEY_COMPROMISE, 2000, 1500);
+    assertRevInfo(UNREVOKED_2, CrlReason.KEY_COMPROMISE, 2000, 1500);
+    assertRevInfo(ON_HOLD, CrlReason.KEY_COMPROMISE, HOLD_RT, HOLD_RIT);
+    assertRevInfo(REVOKED, CrlReason.KEY_COMPROMISE, HOLD_RT, HOLD_RIT);
+    assertUnrevoked(OTHER_CA);
+  } // method testRevokeCerts
+
+  @Test
+  public void testRevokeCertsConcurrently()
+      throws Exception {
+    List<CertWithRevocationInfo> certs =
+        certStore.getUnrevokedCerts(CA, true, 0, null, null, null, null, 10, idNameMap);
+
+    // revoked by another request after the certificates have been selected
+    H2DataSources.execute(datasource,
+        "UPDATE CERT SET LUPDATE=1,REV=1,RT=3000,RIT=0,RR=4 WHERE ID=" + UNREVOKED_2,
+        "UPDATE CERT SET LUPDATE=1,RR=4 WHERE ID=" + ON_HOLD);
+
+    List<CertWithRevocationInfo> revokedCerts = certStore.revokeCerts(CA, certs,
+        new CertRevocationInfo(CrlReason.CESSATION_OF_OPERATION, new Date(2000 * 1000L)));
+    Assert.assertEquals("revoked certificates", Collections.singletonList(UNREVOKED_1),
+        ids(revokedCerts));
+
+    assertRevInfo(UNREVOKED_1, CrlReason.CESSATION_OF_OPERATION, 2000, 0);
+    assertRevInfo(UNREVOKED_2, CrlReason.SUPERSEDED, 3000, 0);
+    assertRevInfo(ON_HOLD, CrlReason.SUPERSEDED, HOLD_RT, HOLD_RIT);
+  } // method testRevokeCertsConcurrently
+
+  @Test
+  public void testHoldCerts()
+      throws Exception {
+    List<CertWithRevocationInfo> certs =
+        certStore.getUnrevokedCerts(CA, true, 0, null, null, null, null, 10, idNameMap);
+
+    // the certificate on hold is not put on hold again
+    List<CertWithRevocationInfo> revokedCerts = certStore.revokeCerts(CA, certs,
+        new CertRevocationInfo(CrlReason.CERTIFICATE_HOLD, new Date(2000 * 1000L)));
+    Assert.assertEquals("revoked certificates", Arrays.asList(UNREVOKED_1, UNREVOKED_2),
+        ids(revokedCerts));
+
+    assertRevInfo(UNREVOKED_1, CrlReason.CERTIFICATE_HOLD, 2000, 0);
+    assertRevInfo(ON_HOLD, CrlReason.CERTIFICATE_HOLD, HOLD_RT, HOLD_RIT);
+  } // method testHoldCerts
+
+  private void addCert(long id, NameId ca, NameId certprofile, CrlReason reason)
+      throws Exception {
+    X500Name subject = new X500Name("CN=cert" + id);
+    Date notBefore = new Date((System.currentTimeMillis() / 1000 - id) * 1000);
+    Date notAfter = new Date(notBefore.getTime() + 365L * 24 * 3600 * 1000);
+    X509Cert cert = new X509Cert(new JcaX509v3CertificateBuilder(new X500Name("CN=ca"),
+        BigInteger.valueOf(id), notBefore, notAfter, subject, keypair.getPublic()).build(signer));
+
+    Connection conn = datasource.getConnection();
+    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO CERT (ID,CA_ID,SN,PID,LUPDATE,"
+        + "NBEFORE,REV,RR,RT,RIT,SUBJECT,CERT) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)")) {
+      int idx = 1;
+      ps.setLong(idx++, id);
+      ps.setInt(idx++, ca.getId());
+      ps.setString(idx++, cert.getSerialNumber().toString(16));
+      ps.setInt(idx++, certprofile.getId());
+      ps.setLong(idx++, 1);
+      ps.setLong(idx++, notBefore.getTime() / 1000);
+      ps.setInt(idx++, (reason == null) ? 0 : 1);
+      ps.setInt(idx++, (reason == null) ? 0 : reason.getCode());
+      ps.setLong(idx++, (reason == null) ? 0 : HOLD_RT);
+      ps.setLong(idx++, (reason == null) ? 0 : HOLD_RIT);
+      ps.setString(idx++, subject.toString());
+      ps.setString(idx++, Base64.encodeToString(cert.getEncoded()));
+      ps.executeUpdate();
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method addCert
+
+  private void assertRevInfo(long id, CrlReason reason, long revTime, long invTime)
+      throws Exception {
+    Assert.assertEquals("revocation of certificate " + id,
+        Arrays.asList(1L, (long) reason.getCode(), revTime, invTime), queryRevInfo(id));
+  } // method assertRevInfo
+
+  private void assertUnrevoked(long id)
+      throws Exception {
+    Assert.assertEquals("revocation of certificate " + id, Arrays.asList(0L, 0L, 0L, 0L),
+        queryRevInfo(id));
+  } // method assertUnrevoked
+
+  private List<Long> queryRevInfo(long id)
+      throws Exception {
+    Connection conn = datasource.getConnection();
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT REV,RR,RT,RIT FROM CERT WHERE ID=" + id)) {
+      Assert.assertTrue("certificate " + id + " exists", rs.next());
+      return Arrays.asList(rs.getLong("REV"), rs.getLong("RR"), rs.getLong("RT"),
+          rs.getLong("RIT"));
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method queryRevInfo
+
+  private static List<Long> ids(List<CertWithRevocationInfo> certs) {
+    List<Long> ids = new ArrayList<>(certs.size());
+    for (CertWithRevocationInfo cert : certs) {
+      ids.add(cert.getCert().getCertId());
+    }
+    return ids;
+  } // method ids
+
+  private static List<Long> sortedIds(List<CertWithRevocationInfo> certs) {
+    List<Long> ids = ids(certs);
+    Collections.sort(ids);
+    return ids;
+  } // method sortedIds
+
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.db;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.entry.CaHasUserEntry;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+
+/**
+ * Tests of the cache of the CA-has-user entries.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CertStoreUserCacheTest {
+
+  private static final NameId CA = new NameId(1, "ca1");
+
+  private static final NameId USER = new NameId(10, "user1");
+
+  private DataSourceWrapper datasource;
+
+  private CertStore certStore;
+
+  @Before
+  public void setUp()
+      throws Exception {
+    datasource = CaDataSources.create("CREATE TABLE CA_HAS_USER (ID INT NOT NULL PRIMARY KEY,"
+        + " CA_ID SMALLINT NOT NULL, USER_ID INT NOT NULL, PERMISSION INT, PROFILES VARCHAR(200))",
+        "INSERT INTO CA_HAS_USER (ID,CA_ID,USER_ID,PERMISSION,PROFILES)"
+        + " VALUES (1,1,10,1,'tls,smime')");
+    certStore = new CertStore(datasource, new UniqueIdGenerator(0, 0));
+  } // method setUp
+
+  @After
+  public void tearDown() {
+    datasource.close();
+  }
+
+  @Test
+  public void testReturnedEntryIsCopy()
+      throws Exception {
+    CaHasUserEntry entry = certStore.getCaHasUser(CA, USER);
+    entry.setPermission(0xFF);
+    entry.setProfiles(new HashSet<>(Arrays.asList("all")));
+    entry.getUserIdent().setName("attacker");
+
+    assertEntry(certStore.getCaHasUser(CA, USER), 1, "tls", "smime");
+    Assert.assertEquals("user name", "user1",
+        certStore.getCaHasUser(CA, USER).getUserIdent().getName());
+  } // method testReturnedEntryIsCopy
+
+  @Test
+  public void testCachedUntilCleared()
+      throws Exception {
+    assertEntry(certStore.getCaHasUser(CA, USER), 1, "tls", "smime");
+
+    H2DataSources.execute(datasource,
+        "UPDATE CA_HAS_USER SET PERMISSION=2,PROFILES='tls' WHERE ID=1");
+    assertEntry(certStore.getCaHasUser(CA, USER), 1, "tls", "smime");
+
+    certStore.clearUserCaches();
+    assertEntry(certStore.getCaHasUser(CA, USER), 2, "tls");
+
+    H2DataSources.execute(datasource, "DELETE FROM CA_HAS_USER");
+    Assert.assertNotNull("cached entry", certStore.getCaHasUser(CA, USER));
+
+    certStore.clearUserCaches();
+    Assert.assertNull("removed entry", certStore.getCaHasUser(CA, USER));
+  } // method testCachedUntilCleared
+
+  @Test
+  public void testCacheExpiry()
+      throws Exception {
+    // entries expire immediately
+    certStore.setUserCacheTtl(0);
+    assertEntry(certStore.getCaHasUser(CA, USER), 1, "tls", "smime");
+
+    H2DataSources.execute(datasource,
+        "UPDATE CA_HAS_USER SET PERMISSION=2,PROFILES='tls' WHERE ID=1");
+    assertEntry(certStore.getCaHasUser(CA, USER), 2, "tls");
+
+    H2DataSources.execute(datasource, "DELETE FROM CA_HAS_USER");
+    Assert.assertNull("removed entry", certStore.getCaHasUser(CA, USER));
+  } // method testCacheExpiry
+
+  private static void assertEntry(CaHasUserEntry entry, int permission, String... profiles) {
+    Assert.assertNotNull("entry", entry);
+    Assert.assertEquals("permission", permission, entry.getPermission());
+    Assert.assertEquals("profiles", new HashSet<>(Arrays.asList(profiles)), entry.getProfiles());
+  }
+
+}
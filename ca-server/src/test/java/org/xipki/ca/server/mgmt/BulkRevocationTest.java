@@ -0,0 +1,357 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.audit.Audits;
+import org.xipki.ca.api.CertWithDbId;
+import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
+import org.xipki.ca.api.mgmt.CrlControl;
+import org.xipki.ca.api.mgmt.PermissionConstants;
+import org.xipki.ca.api.mgmt.entry.CaEntry;
+import org.xipki.ca.api.mgmt.entry.PublisherEntry;
+import org.xipki.ca.api.publisher.CertPublisher;
+import org.xipki.ca.server.CaInfo;
+import org.xipki.ca.server.IdentifiedCertPublisher;
+import org.xipki.ca.server.MockSecurityFactory;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.ca.server.X509Ca;
+import org.xipki.ca.server.db.CaDataSources;
+import org.xipki.ca.server.db.CaManagerQueryExecutor;
+import org.xipki.ca.server.db.CertStore;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.password.PasswordResolver;
+import org.xipki.security.CertRevocationInfo;
+import org.xipki.security.CrlReason;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Base64;
+import org.xipki.util.FileOrValue;
+import org.xipki.util.XipkiBaseDir;
+
+/**
+ * Tests of the revocation of many certificates by the CA manager: the certificates are revoked
+ * and published in batches, the CA certificate is not revoked, and one CRL is generated.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class BulkRevocationTest {
+
+  private static class CountingPublisher extends CertPublisher {
+
+    private int numRevokedCerts;
+
+    private int numRevokeCalls;
+
+    private final List<X509CRLHolder> crls = new ArrayList<>();
+
+    @Override
+    public void initialize(String conf, PasswordResolver passwordResolver,
+        Map<String, FileOrValue> datasourceConfs) {
+    }
+
+    @Override
+    public boolean publishsGoodCert() {
+      return true;
+    }
+
+    @Override
+    public boolean isAsyn() {
+      return false;
+    }
+
+    @Override
+    public boolean caAdded(X509Cert caCert) {
+      return true;
+    }
+
+    @Override
+    public boolean certificateAdded(CertificateInfo certInfo) {
+      return true;
+    }
+
+    @Override
+    public boolean certificateRevoked(X509Cert caCert, CertWithDbId cert, String certprofile,
+        CertRevocationInfo revInfo) {
+      throw new UnsupportedOperationException("revocations must be published in batches");
+    }
+
+    @Override
+    public List<CertWithRevocationInfo> certificatesRevoked(X509Cert caCert,
+        List<CertWithRevocationInfo> revokedCerts) {
+      numRevokeCalls++;
+      numRevokedCerts += revokedCerts.size();
+      return Collections.emptyList();
+    }
+
+    @Override
+    public boolean certificateUnrevoked(X509Cert caCert, CertWithDbId cert) {
+      return true;
+    }
+
+    @Override
+    public boolean certificateRemoved(X509Cert caCert, CertWithDbId cert) {
+      return true;
+    }
+
+    @Override
+    public boolean crlAdded(X509Cert caCert, X509CRLHolder crl) {
+      crls.add(crl);
+      return true;
+    }
+
+    @Override
+    public boolean caRevoked(X509Cert caCert, CertRevocationInfo revInfo) {
+      return true;
+    }
+
+    @Override
+    public boolean caUnrevoked(X509Cert caCert) {
+      return true;
+    }
+
+    @Override
+    public boolean isHealthy() {
+      return true;
+    }
+
+  } // class CountingPublisher
+
+  private static final NameId CA = new NameId(1, "ca1");
+
+  private static final NameId PROFILE_TLS = new NameId(1, "tls");
+
+  // more than two batches of X509RevokerModule
+  private static final int NUM_CERTS = 2500;
+
+  private static final String CREATE_CRL = "CREATE TABLE CRL (ID INT NOT NULL PRIMARY KEY,"
+      + " CA_ID SMALLINT NOT NULL, CRL_SCOPE SMALLINT NOT NULL, CRL_NO BIGINT NOT NULL,"
+      + " THISUPDATE BIGINT NOT NULL, NEXTUPDATE BIGINT, DELTACRL SMALLINT NOT NULL,"
+      + " BASECRL_NO BIGINT, CRL CLOB NOT NULL)";
+
+  private static KeyPair keypair;
+
+  private static X509Cert caCert;
+
+  // encoded end entity certificates, the serial number equals the index + 2
+  private static List<String> encodedCerts;
+
+  private DataSourceWrapper datasource;
+
+  private CaManagerImpl manager;
+
+  private CountingPublisher publisher;
+
+  @BeforeClass
+  public static void init()
+      throws Exception {
+    // the CA manager saves the file calock in the base directory
+    File basedir = Files.createTempDirectory("xipki").toFile();
+    basedir.deleteOnExit();
+    System.setProperty("XIPKI_BASE", basedir.getPath());
+    XipkiBaseDir.init();
+    Audits.init("embed", null);
+
+    keypair = MockSecurityFactory.generateKeyPair();
+    caCert = MockSecurityFactory.createCaCert("CN=ca1", keypair);
+
+    ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA")
+        .build(keypair.getPrivate());
+    Date notBefore = new Date();
+    Date notAfter = new Date(notBefore.getTime() + 365L * 24 * 3600 * 1000);
+    encodedCerts = new ArrayList<>(NUM_CERTS);
+    for (int i = 0; i < NUM_CERTS; i++) {
+      X509Cert cert = new X509Cert(new JcaX509v3CertificateBuilder(new X500Name("CN=ca1"),
+          BigInteger.valueOf(i + 2), notBefore, notAfter, new X500Name("CN=cert" + (i + 2)),
+          keypair.getPublic()).build(signer));
+      encodedCerts.add(Base64.encodeToString(cert.getEncoded()));
+    }
+  } // method init
+
+  @Before
+  public void setUp()
+      throws Exception {
+    datasource = CaDataSources.create(CaDataSources.CREATE_CERT, CREATE_CRL,
+        "CREATE TABLE CA (ID SMALLINT NOT NULL PRIMARY KEY, NAME VARCHAR(45) NOT NULL,"
+            + " NEXT_CRLNO BIGINT)",
+        "INSERT INTO CA (ID,NAME,NEXT_CRLNO) VALUES (1,'ca1',1)",
+        "CREATE TABLE PUBLISHQUEUE (PID SMALLINT NOT NULL, CA_ID SMALLINT NOT NULL,"
+            + " CID BIGINT NOT NULL)");
+
+    // the CA certificate has the lowest ID and is in the first batch
+    addCerts();
+
+    CertStore certStore = new CertStore(datasource, new UniqueIdGenerator(0, 0));
+
+    manager = new CaManagerImpl();
+    manager.queryExecutor = new CaManagerQueryExecutor(datasource);
+    manager.certstore = certStore;
+    manager.securityFactory = new MockSecurityFactory(caCert, keypair.getPrivate()).newInstance();
+    manager.idNameMap.addCa(CA);
+    manager.idNameMap.addCertprofile(PROFILE_TLS);
+
+    publisher = new CountingPublisher();
+    manager.publishers.put("counter", new IdentifiedCertPublisher(
+        new PublisherEntry(new NameId(1, "counter"), "counter", null), publisher));
+    manager.caHasPublishers.put(CA.getName(), Collections.singleton("counter"));
+
+    CaEntry caEntry = new CaEntry(CA, 16, 1, "pkcs12", "algo=SHA256withECDSA", null, 1, 365);
+    caEntry.setCert(caCert);
+    caEntry.setPermission(PermissionConstants.ALL);
+    caEntry.setCrlControl(new CrlControl("fullcrl.intervals=1"));
+
+    // created in slave mode, so that no background services are scheduled
+    X509Ca ca = new X509Ca(manager, new CaInfo(caEntry, certStore), certStore, null);
+    manager.x509cas.put(CA.getName(), ca);
+    manager.masterMode = true;
+    manager.caSystemSetuped = true;
+  } // method setUp
+
+  @After
+  public void tearDown() {
+    datasource.close();
+  }
+
+  @Test
+  public void testRevokeCertsOfProfile()
+      throws Exception {
+    int num = manager.revokeCertificates(CA.getName(), PROFILE_TLS.getName(), null, null, null,
+        CrlReason.KEY_COMPROMISE, null);
+    assertRevoked(num, 3);
+  } // method testRevokeCertsOfProfile
+
+  @Test
+  public void testRevokeCertsForSerials()
+      throws Exception {
+    List<BigInteger> serialNumbers = new ArrayList<>(NUM_CERTS + 2);
+    // CA certificate and an unknown certificate
+    serialNumbers.add(BigInteger.ONE);
+    serialNumbers.add(BigInteger.valueOf(NUM_CERTS + 100));
+    for (int i = 0; i < NUM_CERTS; i++) {
+      serialNumbers.add(BigInteger.valueOf(i + 2));
+    }
+
+    int num = manager.revokeCertificates(CA.getName(), serialNumbers, CrlReason.KEY_COMPROMISE,
+        null, false);
+    assertRevoked(num, 3);
+  } // method testRevokeCertsForSerials
+
+  @Test
+  public void testRevokeCertsForSerialsWithSuppressedCrl()
+      throws Exception {
+    // as the shell: several requests without CRL, and one CRL after the last request
+    List<BigInteger> serialNumbers = new ArrayList<>(NUM_CERTS);
+    for (int i = 0; i < NUM_CERTS; i++) {
+      serialNumbers.add(BigInteger.valueOf(i + 2));
+    }
+
+    final int half = NUM_CERTS / 2;
+    int num = manager.revokeCertificates(CA.getName(), serialNumbers.subList(0, half),
+        CrlReason.KEY_COMPROMISE, null, true);
+    num += manager.revokeCertificates(CA.getName(), serialNumbers.subList(half, NUM_CERTS),
+        CrlReason.KEY_COMPROMISE, null, true);
+    Assert.assertEquals("published CRLs", 0, publisher.crls.size());
+
+    manager.generateCrlOnDemand(CA.getName());
+    // two batches for each request
+    assertRevoked(num, 4);
+  } // method testRevokeCertsForSerialsWithSuppressedCrl
+
+  private void assertRevoked(int num, int numBatches)
+      throws Exception {
+    Assert.assertEquals("revoked certificates", NUM_CERTS, num);
+    Assert.assertEquals("revoked certificates in database", NUM_CERTS,
+        queryLong("SELECT COUNT(*) FROM CERT WHERE REV=1"));
+    Assert.assertEquals("revocation of the CA certificate", 0,
+        queryLong("SELECT REV FROM CERT WHERE ID=1"));
+
+    Assert.assertEquals("published revocations", NUM_CERTS, publisher.numRevokedCerts);
+    Assert.assertEquals("batches", numBatches, publisher.numRevokeCalls);
+
+    Assert.assertEquals("published CRLs", 1, publisher.crls.size());
+    Assert.assertEquals("CRLs in database", 1, queryLong("SELECT COUNT(*) FROM CRL"));
+    Assert.assertEquals("CRL entries", NUM_CERTS,
+        publisher.crls.get(0).getRevokedCertificates().size());
+  } // method assertRevoked
+
+  private void addCerts()
+      throws Exception {
+    long now = System.currentTimeMillis() / 1000;
+    Connection conn = datasource.getConnection();
+    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO CERT (ID,CA_ID,SN,PID,LUPDATE,"
+        + "NBEFORE,NAFTER,REV,RR,RT,RIT,SUBJECT,CERT) VALUES (?,?,?,?,?,?,?,0,0,0,0,?,?)")) {
+      for (int i = -1; i < NUM_CERTS; i++) {
+        long id = i + 2;
+        int idx = 1;
+        ps.setLong(idx++, id);
+        ps.setInt(idx++, CA.getId());
+        ps.setString(idx++, Long.toHexString(id));
+        ps.setInt(idx++, PROFILE_TLS.getId());
+        ps.setLong(idx++, now);
+        ps.setLong(idx++, now);
+        ps.setLong(idx++, now + 365L * 24 * 3600);
+        ps.setString(idx++, "CN=cert" + id);
+        ps.setString(idx++, (i == -1)
+            ? Base64.encodeToString(caCert.getEncoded()) : encodedCerts.get(i));
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method addCerts
+
+  private long queryLong(String sql)
+      throws Exception {
+    Connection conn = datasource.getConnection();
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getLong(1);
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method queryLong
+
+}
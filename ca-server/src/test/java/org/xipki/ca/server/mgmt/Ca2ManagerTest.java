@@ -0,0 +1,146 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.entry.CaEntry;
+import org.xipki.ca.server.CaInfo;
+import org.xipki.ca.server.MockSecurityFactory;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.ca.server.db.CaDataSources;
+import org.xipki.ca.server.db.CaManagerQueryExecutor;
+import org.xipki.ca.server.db.CertStore;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.util.XipkiBaseDir;
+
+/**
+ * Tests of the reload of the CAs changed by the master.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class Ca2ManagerTest {
+
+  private static X509Cert caCert;
+
+  private static MockSecurityFactory securityFactory;
+
+  private DataSourceWrapper datasource;
+
+  private CertStore certStore;
+
+  @BeforeClass
+  public static void init()
+      throws Exception {
+    // the CA manager saves the file calock in the base directory
+    File basedir = Files.createTempDirectory("xipki").toFile();
+    basedir.deleteOnExit();
+    System.setProperty("XIPKI_BASE", basedir.getPath());
+    XipkiBaseDir.init();
+
+    caCert = MockSecurityFactory.createCaCert("CN=ca1");
+    securityFactory = new MockSecurityFactory(caCert);
+  } // method init
+
+  @Before
+  public void setUp()
+      throws Exception {
+    datasource = CaDataSources.create(
+        "CREATE TABLE CAALIAS (NAME VARCHAR(45) NOT NULL PRIMARY KEY, CA_ID SMALLINT NOT NULL)");
+    certStore = new CertStore(datasource, new UniqueIdGenerator(0, 0));
+  }
+
+  @After
+  public void tearDown() {
+    datasource.close();
+  }
+
+  @Test
+  public void testTakeOverSignersOfUnchangedCa()
+      throws Exception {
+    CaInfo previous = new CaInfo(newCaEntry(1, "algo=SHA256withECDSA"), certStore);
+    Assert.assertTrue("signer initialized", previous.initSigner(securityFactory.newInstance()));
+    ConcurrentContentSigner signer = previous.getSigner(null);
+
+    // the CRL number is a dynamic field, changed by generating CRLs
+    CaInfo current = new CaInfo(newCaEntry(5, "algo=SHA256withECDSA"), certStore);
+    Assert.assertTrue("signers taken over", Ca2Manager.takeOverSigners(previous, current));
+    Assert.assertSame("signer", signer, current.getSigner(null));
+    Assert.assertFalse("signer closed", securityFactory.isClosed(signer));
+  } // method testTakeOverSignersOfUnchangedCa
+
+  @Test
+  public void testNoTakeOverSignersOfChangedCa()
+      throws Exception {
+    CaInfo previous = new CaInfo(newCaEntry(1, "algo=SHA256withECDSA"), certStore);
+    Assert.assertTrue("signer initialized", previous.initSigner(securityFactory.newInstance()));
+
+    CaInfo current = new CaInfo(newCaEntry(1, "algo=SHA384withECDSA"), certStore);
+    Assert.assertFalse("signers taken over", Ca2Manager.takeOverSigners(previous, current));
+    Assert.assertFalse("signer available", current.isSignerAvailable());
+  } // method testNoTakeOverSignersOfChangedCa
+
+  @Test
+  public void testNoTakeOverSignersOfNewCa()
+      throws Exception {
+    CaInfo current = new CaInfo(newCaEntry(1, "algo=SHA256withECDSA"), certStore);
+    Assert.assertFalse("signers taken over", Ca2Manager.takeOverSigners(null, current));
+    Assert.assertFalse("signer available", current.isSignerAvailable());
+  } // method testNoTakeOverSignersOfNewCa
+
+  @Test
+  public void testReloadCaAlias()
+      throws Exception {
+    CaManagerImpl manager = new CaManagerImpl();
+    manager.queryExecutor = new CaManagerQueryExecutor(datasource);
+    Ca2Manager ca2Manager = new Ca2Manager(manager);
+
+    H2DataSources.execute(datasource, "INSERT INTO CAALIAS (NAME,CA_ID) VALUES ('ca1-alias',1)");
+    ca2Manager.reloadCaAlias("ca1-alias");
+    Assert.assertEquals("CA id", Integer.valueOf(1), manager.caAliases.get("ca1-alias"));
+
+    H2DataSources.execute(datasource, "UPDATE CAALIAS SET CA_ID=2 WHERE NAME='ca1-alias'");
+    ca2Manager.reloadCaAlias("ca1-alias");
+    Assert.assertEquals("CA id", Integer.valueOf(2), manager.caAliases.get("ca1-alias"));
+
+    H2DataSources.execute(datasource, "DELETE FROM CAALIAS WHERE NAME='ca1-alias'");
+    ca2Manager.reloadCaAlias("ca1-alias");
+    Assert.assertNull("CA alias", manager.caAliases.get("ca1-alias"));
+  } // method testReloadCaAlias
+
+  private static CaEntry newCaEntry(long nextCrlNumber, String signerConf)
+      throws Exception {
+    CaEntry entry = new CaEntry(new NameId(1, "ca1"), 16, nextCrlNumber, "pkcs12", signerConf,
+        null, 1, 365);
+    entry.setCert(caCert);
+    return entry;
+  } // method newCaEntry
+
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+
+/**
+ * Tests of the parallel startup of the CA system.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class CaManagerImplTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void createExecutor() {
+    executor = Executors.newFixedThreadPool(3);
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testInvokeAllConcurrently()
+      throws Exception {
+    // each task waits for the other ones, succeeds only if all are executed concurrently
+    final CountDownLatch latch = new CountDownLatch(3);
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final int no = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call()
+            throws Exception {
+          latch.countDown();
+          if (!latch.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("tasks are not executed concurrently");
+          }
+          return no;
+        }
+      });
+    }
+
+    Assert.assertEquals("results", Arrays.asList(0, 1, 2),
+        CaManagerImpl.invokeAll(executor, tasks));
+  } // method testInvokeAllConcurrently
+
+  @Test
+  public void testInvokeAllCaMgmtException() {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    tasks.add(newTask(null));
+    tasks.add(newTask(new CaMgmtException("could not load certprofiles")));
+    tasks.add(newTask(null));
+
+    try {
+      CaManagerImpl.invokeAll(executor, tasks);
+      Assert.fail("CaMgmtException expected");
+    } catch (CaMgmtException ex) {
+      Assert.assertEquals("message", "could not load certprofiles", ex.getMessage());
+    }
+  } // method testInvokeAllCaMgmtException
+
+  @Test
+  public void testInvokeAllRuntimeException() {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    tasks.add(newTask(new IllegalStateException("invalid signer")));
+
+    try {
+      CaManagerImpl.invokeAll(executor, tasks);
+      Assert.fail("CaMgmtException expected");
+    } catch (CaMgmtException ex) {
+      Assert.assertTrue("cause", ex.getCause() instanceof IllegalStateException);
+    }
+  } // method testInvokeAllRuntimeException
+
+  private static Callable<Void> newTask(final Exception exception) {
+    return new Callable<Void>() {
+      @Override
+      public Void call()
+          throws Exception {
+        if (exception != null) {
+          throw exception;
+        }
+        return null;
+      }
+    };
+  }
+
+}
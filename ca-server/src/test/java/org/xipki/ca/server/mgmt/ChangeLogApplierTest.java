@@ -0,0 +1,201 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_CA;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_PROFILE;
+import static org.xipki.ca.server.db.CaManagerQueryExecutor.CHANGE_SIGNER;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+import org.xipki.ca.server.db.CaManagerQueryExecutor.ChangeLogEntry;
+
+/**
+ * Tests of the application of the configuration changes on slave CA systems.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class ChangeLogApplierTest {
+
+  private static class RecordingApplier extends ChangeLogApplier {
+
+    private final List<String> appliedChanges = new ArrayList<>();
+
+    private String failingName;
+
+    private int numRestarts;
+
+    RecordingApplier(long closeDelayMs) {
+      super(closeDelayMs);
+    }
+
+    @Override
+    protected void applyChange(String type, String name) throws CaMgmtException {
+      if (name.equals(failingName)) {
+        throw new CaMgmtException("could not reload " + name);
+      }
+      appliedChanges.add(type + " " + name);
+    }
+
+    @Override
+    protected void restart() {
+      numRestarts++;
+    }
+
+  } // class RecordingApplier
+
+  private static class CountingCloseable implements Closeable {
+
+    private int numClosed;
+
+    private final boolean fail;
+
+    CountingCloseable(boolean fail) {
+      this.fail = fail;
+    }
+
+    @Override
+    public void close() throws IOException {
+      numClosed++;
+      if (fail) {
+        throw new IOException("could not close");
+      }
+    }
+
+  } // class CountingCloseable
+
+  private static final long CLOSE_DELAY_MS = 60000;
+
+  @Test
+  public void testApplyChanges()
+      throws Exception {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    applier.setVersion(10);
+
+    // each entity once, the CAs after the entities they refer to
+    Assert.assertTrue("applied", applier.apply(Arrays.asList(
+        new ChangeLogEntry(11, CHANGE_CA, "ca1"),
+        new ChangeLogEntry(12, CHANGE_PROFILE, "tls"),
+        new ChangeLogEntry(13, CHANGE_SIGNER, "responder1"),
+        new ChangeLogEntry(14, CHANGE_CA, "ca1"),
+        new ChangeLogEntry(15, CHANGE_PROFILE, "smime"))));
+
+    Assert.assertEquals("applied changes",
+        Arrays.asList("SIGNER responder1", "PROFILE tls", "PROFILE smime", "CA ca1"),
+        applier.appliedChanges);
+    Assert.assertEquals("restarts", 0, applier.numRestarts);
+    Assert.assertEquals("version", 15, applier.getVersion());
+
+    Assert.assertTrue("applied", applier.apply(Collections.<ChangeLogEntry>emptyList()));
+    Assert.assertEquals("version", 15, applier.getVersion());
+  } // method testApplyChanges
+
+  @Test
+  public void testVersionGap()
+      throws Exception {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    applier.setVersion(10);
+
+    // the change with version 12 is missing, e.g. its transaction has not been committed yet.
+    Assert.assertFalse("applied", applier.apply(Arrays.asList(
+        new ChangeLogEntry(11, CHANGE_PROFILE, "tls"),
+        new ChangeLogEntry(13, CHANGE_CA, "ca1"))));
+
+    Assert.assertEquals("applied changes", Collections.emptyList(), applier.appliedChanges);
+    Assert.assertEquals("restarts", 1, applier.numRestarts);
+    Assert.assertEquals("version", 10, applier.getVersion());
+  } // method testVersionGap
+
+  @Test
+  public void testUnknownType()
+      throws Exception {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    applier.setVersion(0);
+
+    Assert.assertFalse("applied", applier.apply(Arrays.asList(
+        new ChangeLogEntry(1, CHANGE_PROFILE, "tls"),
+        new ChangeLogEntry(2, "KEYPAIR_GEN", "software"))));
+
+    Assert.assertEquals("applied changes", Collections.emptyList(), applier.appliedChanges);
+    Assert.assertEquals("restarts", 1, applier.numRestarts);
+  } // method testUnknownType
+
+  @Test
+  public void testFailedChange()
+      throws Exception {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    applier.setVersion(0);
+    applier.failingName = "tls";
+
+    Assert.assertFalse("applied", applier.apply(Arrays.asList(
+        new ChangeLogEntry(1, CHANGE_SIGNER, "responder1"),
+        new ChangeLogEntry(2, CHANGE_PROFILE, "tls"),
+        new ChangeLogEntry(3, CHANGE_CA, "ca1"))));
+
+    Assert.assertEquals("applied changes", Collections.singletonList("SIGNER responder1"),
+        applier.appliedChanges);
+    Assert.assertEquals("restarts", 1, applier.numRestarts);
+    Assert.assertEquals("version", 0, applier.getVersion());
+  } // method testFailedChange
+
+  @Test
+  public void testCloseReplacedObjectsAfterDelay() {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    CountingCloseable failing = new CountingCloseable(true);
+    CountingCloseable replaced = new CountingCloseable(false);
+    applier.closeLater(null, "nothing");
+    applier.closeLater(failing, "failing");
+    applier.closeLater(replaced, "replaced");
+
+    // requests in process may still use the replaced objects
+    applier.closeReplacedObjects(System.currentTimeMillis());
+    Assert.assertEquals("closed", 0, failing.numClosed);
+    Assert.assertEquals("closed", 0, replaced.numClosed);
+
+    applier.closeReplacedObjects(System.currentTimeMillis() + CLOSE_DELAY_MS);
+    Assert.assertEquals("closed", 1, failing.numClosed);
+    Assert.assertEquals("closed", 1, replaced.numClosed);
+
+    // closed only once
+    applier.closeReplacedObjects(System.currentTimeMillis() + CLOSE_DELAY_MS);
+    applier.closeAllReplacedObjects();
+    Assert.assertEquals("closed", 1, replaced.numClosed);
+  } // method testCloseReplacedObjectsAfterDelay
+
+  @Test
+  public void testCloseAllReplacedObjects() {
+    RecordingApplier applier = new RecordingApplier(CLOSE_DELAY_MS);
+    CountingCloseable replaced = new CountingCloseable(false);
+    applier.closeLater(replaced, "replaced");
+
+    // on shutdown, the replaced objects are closed without delay
+    applier.closeAllReplacedObjects();
+    Assert.assertEquals("closed", 1, replaced.numClosed);
+  } // method testCloseAllReplacedObjects
+
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.ca.server.mgmt;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.server.MockSecurityFactory;
+import org.xipki.ca.server.SignerEntryWrapper;
+import org.xipki.ca.server.db.CaManagerQueryExecutor;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.datasource.H2DataSources;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.util.XipkiBaseDir;
+
+/**
+ * Tests of the reload of the signers changed by the master.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class SignerManagerTest {
+
+  private static final String NAME = "responder1";
+
+  // after the delay of the replaced objects
+  private static final long LATER_MS = 3600L * 1000;
+
+  private static MockSecurityFactory securityFactory;
+
+  private DataSourceWrapper datasource;
+
+  private CaManagerImpl manager;
+
+  private SignerManager signerManager;
+
+  @BeforeClass
+  public static void init()
+      throws Exception {
+    // the CA manager saves the file calock in the base directory
+    File basedir = Files.createTempDirectory("xipki").toFile();
+    basedir.deleteOnExit();
+    System.setProperty("XIPKI_BASE", basedir.getPath());
+    XipkiBaseDir.init();
+
+    securityFactory = new MockSecurityFactory(MockSecurityFactory.createCaCert("CN=responder1"));
+  } // method init
+
+  @Before
+  public void setUp()
+      throws Exception {
+    datasource = H2DataSources.create(
+        "CREATE TABLE SIGNER (NAME VARCHAR(45) NOT NULL PRIMARY KEY,"
+        + " TYPE VARCHAR(100) NOT NULL, CERT VARCHAR(6000), CONF CLOB)");
+
+    manager = new CaManagerImpl();
+    manager.queryExecutor = new CaManagerQueryExecutor(datasource);
+    manager.setSecurityFactory(securityFactory.newInstance());
+    signerManager = new SignerManager(manager);
+  } // method setUp
+
+  @After
+  public void tearDown() {
+    datasource.close();
+  }
+
+  @Test
+  public void testReloadNewSigner()
+      throws Exception {
+    execUpdate("INSERT INTO SIGNER (TYPE,CONF,NAME) VALUES (?,?,?)", "pkcs12",
+        "algo=SHA256withECDSA");
+    signerManager.reloadSigner(NAME);
+
+    SignerEntryWrapper signer = manager.signers.get(NAME);
+    Assert.assertNotNull("signer", signer);
+    Assert.assertNotNull("signer", signer.getSigner());
+    Assert.assertNotNull("signer entry", manager.signerDbEntries.get(NAME));
+  } // method testReloadNewSigner
+
+  @Test
+  public void testReloadUnchangedSigner()
+      throws Exception {
+    ConcurrentContentSigner signer = loadSigner();
+    SignerEntryWrapper wrapper = manager.signers.get(NAME);
+
+    signerManager.reloadSigner(NAME);
+    Assert.assertSame("signer", wrapper, manager.signers.get(NAME));
+
+    manager.changeLogApplier.closeReplacedObjects(System.currentTimeMillis() + LATER_MS);
+    Assert.assertFalse("signer closed", securityFactory.isClosed(signer));
+  } // method testReloadUnchangedSigner
+
+  @Test
+  public void testReloadChangedSigner()
+      throws Exception {
+    ConcurrentContentSigner signer = loadSigner();
+
+    execUpdate("UPDATE SIGNER SET TYPE=?,CONF=? WHERE NAME=?", "pkcs12",
+        "algo=SHA384withECDSA");
+    signerManager.reloadSigner(NAME);
+
+    ConcurrentContentSigner newSigner = manager.signers.get(NAME).getSigner();
+    Assert.assertNotSame("signer", signer, newSigner);
+    Assert.assertEquals("signer conf", "algo=SHA384withECDSA",
+        manager.signerDbEntries.get(NAME).getConf());
+
+    // requests in process may still use the replaced signer
+    manager.changeLogApplier.closeReplacedObjects(System.currentTimeMillis());
+    Assert.assertFalse("signer closed", securityFactory.isClosed(signer));
+
+    manager.changeLogApplier.closeReplacedObjects(System.currentTimeMillis() + LATER_MS);
+    Assert.assertTrue("signer closed", securityFactory.isClosed(signer));
+    Assert.assertFalse("new signer closed", securityFactory.isClosed(newSigner));
+  } // method testReloadChangedSigner
+
+  @Test
+  public void testReloadRemovedSigner()
+      throws Exception {
+    ConcurrentContentSigner signer = loadSigner();
+
+    execUpdate("DELETE FROM SIGNER WHERE NAME=?");
+    signerManager.reloadSigner(NAME);
+
+    Assert.assertNull("signer", manager.signers.get(NAME));
+    Assert.assertNull("signer entry", manager.signerDbEntries.get(NAME));
+
+    manager.changeLogApplier.closeReplacedObjects(System.currentTimeMillis());
+    Assert.assertFalse("signer closed", securityFactory.isClosed(signer));
+
+    manager.changeLogApplier.closeReplacedObjects(System.currentTimeMillis() + LATER_MS);
+    Assert.assertTrue("signer closed", securityFactory.isClosed(signer));
+  } // method testReloadRemovedSigner
+
+  private ConcurrentContentSigner loadSigner()
+      throws Exception {
+    execUpdate("INSERT INTO SIGNER (TYPE,CONF,NAME) VALUES (?,?,?)", "pkcs12",
+        "algo=SHA256withECDSA");
+    signerManager.reloadSigner(NAME);
+    return manager.signers.get(NAME).getSigner();
+  } // method loadSigner
+
+  /**
+   * Executes the SQL statement with the given parameters, followed by the signer name.
+   */
+  private void execUpdate(String sql, String... params)
+      throws Exception {
+    Connection conn = datasource.getConnection();
+    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+      int idx = 1;
+      for (String param : params) {
+        ps.setString(idx++, param);
+      }
+      ps.setString(idx, NAME);
+      ps.executeUpdate();
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method execUpdate
+
+}
@@ -192,6 +192,8 @@ public class CaServletFilter implements Filter {
     if (caManager != null) {
       caManager.close();
     }
+
+    Audits.shutdown();
   } // method destroy
 
   @Override
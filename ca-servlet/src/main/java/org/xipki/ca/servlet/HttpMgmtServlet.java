@@ -630,6 +630,21 @@ public class HttpMgmtServlet extends HttpServlet {
           resp = null;
           break;
         }
+        case revokeCertificates: {
+          MgmtRequest.RevokeCertificates req = parse(in, MgmtRequest.RevokeCertificates.class);
+          int num;
+          if (req.getSerialNumbers() != null) {
+            num = caManager.revokeCertificates(req.getCaName(), req.getSerialNumbers(),
+                req.getReason(), req.getInvalidityTime(), req.isSuppressCrl());
+          } else {
+            X500Name subjectPattern = X500Name.getInstance(req.getEncodedSubjectDnPattern());
+            num = caManager.revokeCertificates(req.getCaName(), req.getCertprofile(),
+                subjectPattern, req.getNotBeforeFrom(), req.getNotBeforeTo(), req.getReason(),
+                req.getInvalidityTime());
+          }
+          resp = new MgmtResponse.IntResponse(num);
+          break;
+        }
         case unlockCa: {
           caManager.unlockCa();
           resp = null;
@@ -91,6 +91,25 @@ public class HttpRestServlet extends HttpServlet {
 
       RestResponse response = rest.service(path, event, requestBytes, httpRetriever);
 
+      String etag = response.getEtag();
+      Long lastModified = response.getLastModified();
+      if (etag != null) {
+        resp.setHeader("ETag", etag);
+      }
+      if (lastModified != null) {
+        resp.setDateHeader("Last-Modified", lastModified);
+      }
+
+      if (!viaPost && response.getStatusCode() == HttpServletResponse.SC_OK
+          && isNotModified(req, etag, lastModified)) {
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        resp.setContentLength(0);
+        if (event.getStatus() == null) {
+          event.setStatus(AuditStatus.SUCCESSFUL);
+        }
+        return;
+      }
+
       resp.setStatus(response.getStatusCode());
       if (response.getContentType() != null) {
         resp.setContentType(response.getContentType());
@@ -134,4 +153,44 @@ public class HttpRestServlet extends HttpServlet {
     }
   } // method service0
 
+  /**
+   * Evaluates the conditional headers as specified in RFC 7232: If-Modified-Since is
+   * ignored if If-None-Match is present.
+   */
+  private static boolean isNotModified(HttpServletRequest req, String etag, Long lastModified) {
+    String ifNoneMatch = req.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      if (etag == null) {
+        return false;
+      }
+
+      for (String token : ifNoneMatch.split(",")) {
+        token = token.trim();
+        if (token.startsWith("W/")) {
+          token = token.substring(2);
+        }
+
+        if ("*".equals(token) || etag.equals(token)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (lastModified == null) {
+      return false;
+    }
+
+    long ifModifiedSince;
+    try {
+      ifModifiedSince = req.getDateHeader("If-Modified-Since");
+    } catch (IllegalArgumentException ex) {
+      // invalid date, ignore it
+      return false;
+    }
+
+    // HTTP date has the precision of seconds
+    return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+  } // method isNotModified
+
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -355,8 +356,48 @@ public class XijsonExtensions {
     if (!extnIds.isEmpty()) {
       throw new CertprofileException("Cannot process the extensions: " + extnIds);
     }
+
+    precompileConstantExtensions();
   } // method initialize0
 
+  /**
+   * Computes the DER encoding of all request-independent extension values once, so that
+   * they are not encoded again for each certificate.
+   *
+   * @throws CertprofileException
+   *           If an extension value could not be encoded.
+   */
+  private void precompileConstantExtensions()
+      throws CertprofileException {
+    List<ExtensionValue> values = new LinkedList<>(Arrays.asList(additionalInformation,
+        inhibitAnyPolicy, nameConstraints, policyConstraints, policyMappings, qcStatments,
+        restriction, smimeCapabilities, tlsFeature, validityModel));
+
+    if (admission != null && !admission.isInputFromRequestRequired()) {
+      try {
+        values.add(admission.getExtensionValue(null));
+      } catch (BadCertTemplateException ex) {
+        throw new CertprofileException("could not build extension Admission", ex);
+      }
+    }
+
+    if (constantExtensions != null) {
+      values.addAll(constantExtensions.values());
+    }
+
+    for (ExtensionValue m : values) {
+      if (m == null) {
+        continue;
+      }
+
+      try {
+        m.getEncodedValue();
+      } catch (IOException ex) {
+        throw new CertprofileException("could not encode extension value", ex);
+      }
+    }
+  } // method precompileConstantExtensions
+
   /**
    * Process the extension.
    *
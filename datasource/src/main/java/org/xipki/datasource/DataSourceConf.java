@@ -17,6 +17,8 @@
 
 package org.xipki.datasource;
 
+import java.util.List;
+
 import org.xipki.util.FileOrValue;
 import org.xipki.util.InvalidConfException;
 import org.xipki.util.ValidatableConf;
@@ -32,6 +34,12 @@ public class DataSourceConf extends ValidatableConf {
 
   private String name;
 
+  /**
+   * Configurations of the read replicas, may be {@code null}. Read-heavy queries are
+   * distributed to the replicas, see {@link DataSourceWrapper#getReadOnlyConnection()}.
+   */
+  private List<FileOrValue> readReplicas;
+
   public FileOrValue getConf() {
     return conf;
   }
@@ -48,12 +56,21 @@ public class DataSourceConf extends ValidatableConf {
     this.name = value;
   }
 
+  public List<FileOrValue> getReadReplicas() {
+    return readReplicas;
+  }
+
+  public void setReadReplicas(List<FileOrValue> readReplicas) {
+    this.readReplicas = readReplicas;
+  }
+
   @Override
   public void validate()
       throws InvalidConfException {
     notBlank(name, "name");
     notNull(conf, "conf");
     validate(conf);
+    validate(readReplicas);
   }
 
 }
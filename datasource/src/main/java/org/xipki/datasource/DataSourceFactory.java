@@ -24,6 +24,7 @@ import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -46,17 +47,15 @@ public class DataSourceFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(DataSourceFactory.class);
 
+  private static final double DFLT_REPLICA_MAX_LAG = 30;
+
+  private static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_is_in_recovery() THEN "
+      + "COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())), 0) ELSE 0 END";
+
   public DataSourceWrapper createDataSource(String name, FileOrValue conf,
       PasswordResolver passwordResolver)
           throws PasswordResolverException, IOException {
-    Args.notNull(conf, "conf");
-
-    Properties props = new Properties();
-    try (Reader reader = new StringReader(conf.readContent())) {
-      props.load(reader);
-    }
-
-    return createDataSource(name, props, passwordResolver);
+    return createDataSource(name, loadProperties(conf), passwordResolver);
   } // method createDataSource
 
   public DataSourceWrapper createDataSource(String name, InputStream conf,
@@ -77,9 +76,118 @@ public class DataSourceFactory {
     return createDataSource(name, config, passwordResolver);
   } // method createDataSource
 
+  /**
+   * Creates a datasource with read replicas. Read-only queries issued via
+   * {@link DataSourceWrapper#getReadOnlyConnection()} and
+   * {@link DataSourceWrapper#prepareReadOnlyStatement(String)} are distributed to the replicas.
+   *
+   * @param name
+   *          Name of the datasource.
+   * @param conf
+   *          Configuration of the primary database. Must not be {@code null}.
+   * @param readReplicaConfs
+   *          Configurations of the read replicas. May be {@code null}.
+   * @param passwordResolver
+   *          Password resolver. May be {@code null}.
+   * @return the created datasource.
+   * @throws PasswordResolverException
+   *           if the password could not be resolved.
+   * @throws IOException
+   *           if the configuration could not be read.
+   */
+  public DataSourceWrapper createDataSource(String name, FileOrValue conf,
+      List<FileOrValue> readReplicaConfs, PasswordResolver passwordResolver)
+          throws PasswordResolverException, IOException {
+    DataSourceWrapper dataSource = createDataSource(name, conf, passwordResolver);
+    if (readReplicaConfs != null) {
+      try {
+        for (FileOrValue replicaConf : readReplicaConfs) {
+          addReadReplica(dataSource, loadProperties(replicaConf), passwordResolver);
+        }
+      } catch (PasswordResolverException | IOException | RuntimeException ex) {
+        dataSource.close();
+        throw ex;
+      }
+    }
+    return dataSource;
+  } // method createDataSource
+
+  public void addReadReplica(DataSourceWrapper dataSource, InputStream conf,
+      PasswordResolver passwordResolver)
+          throws PasswordResolverException, IOException {
+    Args.notNull(conf, "conf");
+    Properties config = new Properties();
+    try {
+      config.load(conf);
+    } finally {
+      try {
+        conf.close();
+      } catch (Exception ex) {
+        LOG.error("could not close stream: {}", ex.getMessage());
+      }
+    }
+
+    addReadReplica(dataSource, config, passwordResolver);
+  } // method addReadReplica
+
+  /**
+   * Adds a read replica to the datasource. Besides the properties of the primary database,
+   * the following properties are supported:
+   * <ul>
+   *   <li>replica.lagQuery: SQL query returning the replication lag in seconds. For
+   *     PostgreSQL the lag is computed from pg_last_xact_replay_timestamp() by default.</li>
+   *   <li>replica.maxLag: maximal accepted replication lag in seconds, defaults to
+   *     {@value #DFLT_REPLICA_MAX_LAG}. If exceeded, the primary database is used.</li>
+   * </ul>
+   *
+   * @param dataSource
+   *          The datasource. Must not be {@code null}.
+   * @param conf
+   *          Configuration of the read replica. Must not be {@code null}.
+   * @param passwordResolver
+   *          Password resolver. May be {@code null}.
+   * @throws PasswordResolverException
+   *           if the password could not be resolved.
+   */
+  public void addReadReplica(DataSourceWrapper dataSource, Properties conf,
+      PasswordResolver passwordResolver)
+          throws PasswordResolverException {
+    Args.notNull(dataSource, "dataSource");
+    Args.notNull(conf, "conf");
+
+    String lagQuery = conf.getProperty("replica.lagQuery");
+    String str = conf.getProperty("replica.maxLag");
+    double maxLag = (str == null) ? DFLT_REPLICA_MAX_LAG : Double.parseDouble(str);
+
+    Set<Object> keySet = new HashSet<>(conf.keySet());
+    for (Object key : keySet) {
+      if (((String) key).startsWith("replica.")) {
+        conf.remove(key);
+      }
+    }
+
+    DatabaseType databaseType = prepareConf(conf, passwordResolver);
+    if (databaseType != dataSource.getDatabaseType()) {
+      throw new IllegalArgumentException("type of read replica (" + databaseType
+          + ") differs from that of the datasource (" + dataSource.getDatabaseType() + ")");
+    }
+
+    if (lagQuery == null && databaseType == DatabaseType.POSTGRES) {
+      lagQuery = POSTGRES_LAG_QUERY;
+    }
+
+    dataSource.addReadReplica(conf, lagQuery, maxLag);
+  } // method addReadReplica
+
   public DataSourceWrapper createDataSource(String name, Properties conf,
       PasswordResolver passwordResolver)
           throws PasswordResolverException {
+    DatabaseType databaseType = prepareConf(conf, passwordResolver);
+    return DataSourceWrapper.createDataSource(name, conf, databaseType);
+  } // method createDataSource
+
+  private static DatabaseType prepareConf(Properties conf, PasswordResolver passwordResolver)
+      throws PasswordResolverException {
     Args.notNull(conf, "conf");
     DatabaseType databaseType;
     String className = conf.getProperty("dataSourceClassName");
@@ -147,8 +255,8 @@ public class DataSourceFactory {
       }
     }
 
-    return DataSourceWrapper.createDataSource(name, conf, databaseType);
-  } // method createDataSource
+    return databaseType;
+  } // method prepareConf
 
   public DataSourceWrapper createDataSourceForFile(String name, String confFile,
       PasswordResolver passwordResolver)
@@ -158,4 +266,15 @@ public class DataSourceFactory {
     return createDataSource(name, fileIn, passwordResolver);
   }
 
+  private static Properties loadProperties(FileOrValue conf)
+      throws IOException {
+    Args.notNull(conf, "conf");
+
+    Properties props = new Properties();
+    try (Reader reader = new StringReader(conf.readContent())) {
+      props.load(reader);
+    }
+    return props;
+  } // method loadProperties
+
 }
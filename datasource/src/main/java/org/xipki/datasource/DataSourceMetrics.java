@@ -0,0 +1,345 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.Hex;
+import org.xipki.util.LatencyHistogram;
+
+/**
+ * Metrics of a {@link DataSourceWrapper}: latency histogram, number of rows and errors per
+ * SQL text, wait time to get connections from the pool, and logging of slow queries.
+ *
+ * <p>The statements and result sets are wrapped by dynamic proxies which measure the
+ * executions. For queries, the measured latency is the time until the result set is
+ * returned, the rows are counted while the result set is iterated.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class DataSourceMetrics {
+
+  private static class SqlMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+  } // class SqlMetrics
+
+  private class StatementHandler implements InvocationHandler {
+
+    private final Statement target;
+
+    private final String sql;
+
+    StatementHandler(Statement target, String sql) {
+      this.target = target;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      String methodName = method.getName();
+      if (!methodName.startsWith("execute")) {
+        return invokeTarget(target, proxy, method, args);
+      }
+
+      String key = sql;
+      if (key == null) {
+        key = (args != null && args.length > 0 && args[0] instanceof String)
+            ? (String) args[0] : OTHER_SQL;
+      }
+
+      long start = System.nanoTime();
+      Object result;
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException ex) {
+        recordExecution(key, System.nanoTime() - start, 0, true);
+        throw ex.getCause();
+      }
+
+      long rows = 0;
+      if (result instanceof ResultSet) {
+        result = wrap((ResultSet) result, key);
+      } else if (result instanceof Integer || result instanceof Long) {
+        // executeUpdate, executeLargeUpdate
+        rows = ((Number) result).longValue();
+      } else if (result instanceof int[]) {
+        for (int m : (int[]) result) {
+          if (m > 0) {
+            rows += m;
+          }
+        }
+      } else if (result instanceof long[]) {
+        for (long m : (long[]) result) {
+          if (m > 0) {
+            rows += m;
+          }
+        }
+      }
+
+      recordExecution(key, System.nanoTime() - start, rows, false);
+      return result;
+    } // method invoke
+
+  } // class StatementHandler
+
+  private class ResultSetHandler implements InvocationHandler {
+
+    private final ResultSet target;
+
+    private final String sql;
+
+    private long rows;
+
+    private boolean closed;
+
+    ResultSetHandler(ResultSet target, String sql) {
+      this.target = target;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      String methodName = method.getName();
+      if ("next".equals(methodName)) {
+        Object result = invokeTarget(target, proxy, method, args);
+        if (Boolean.TRUE.equals(result)) {
+          rows++;
+        }
+        return result;
+      } else if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          recordRows(sql, rows);
+        }
+      }
+
+      return invokeTarget(target, proxy, method, args);
+    } // method invoke
+
+  } // class ResultSetHandler
+
+  private static final Logger LOG = LoggerFactory.getLogger(DataSourceMetrics.class);
+
+  /**
+   * Maximal number of distinct SQL texts, further SQL texts are summarized as
+   * {@value #OTHER_SQL}.
+   */
+  private static final int MAX_SQL_ENTRIES = 500;
+
+  private static final String OTHER_SQL = "<other>";
+
+  /**
+   * Maximal length of the SQL texts in the statistics.
+   */
+  private static final int MAX_SQL_LENGTH = 60;
+
+  private final String name;
+
+  private final long slowQueryThresholdNanos;
+
+  private final ConcurrentHashMap<String, SqlMetrics> sqlMetrics = new ConcurrentHashMap<>();
+
+  private final LatencyHistogram connectionWait = new LatencyHistogram();
+
+  private final AtomicLong connectionErrors = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param name
+   *          Name of the datasource.
+   * @param slowQueryThresholdMs
+   *          Executions taking longer than this threshold (in milliseconds) are logged.
+   *          Non-positive value deactivates the logging of slow queries.
+   */
+  public DataSourceMetrics(String name, long slowQueryThresholdMs) {
+    this.name = name;
+    this.slowQueryThresholdNanos = slowQueryThresholdMs * 1_000_000L;
+  }
+
+  PreparedStatement wrap(PreparedStatement ps, String sql) {
+    return (PreparedStatement) Proxy.newProxyInstance(DataSourceMetrics.class.getClassLoader(),
+        new Class<?>[]{PreparedStatement.class}, new StatementHandler(ps, sql));
+  }
+
+  Statement wrap(Statement stmt) {
+    return (Statement) Proxy.newProxyInstance(DataSourceMetrics.class.getClassLoader(),
+        new Class<?>[]{Statement.class}, new StatementHandler(stmt, null));
+  }
+
+  private ResultSet wrap(ResultSet rs, String sql) {
+    return (ResultSet) Proxy.newProxyInstance(DataSourceMetrics.class.getClassLoader(),
+        new Class<?>[]{ResultSet.class}, new ResultSetHandler(rs, sql));
+  }
+
+  void recordConnectionWait(long nanos, boolean error) {
+    connectionWait.record(nanos);
+    if (error) {
+      connectionErrors.incrementAndGet();
+    }
+  } // method recordConnectionWait
+
+  private void recordExecution(String sql, long nanos, long rows, boolean error) {
+    SqlMetrics metrics = getSqlMetrics(sql);
+    metrics.latency.record(nanos);
+    if (rows > 0) {
+      metrics.rows.addAndGet(rows);
+    }
+
+    if (error) {
+      metrics.errors.incrementAndGet();
+    }
+
+    if (slowQueryThresholdNanos > 0 && nanos > slowQueryThresholdNanos) {
+      LOG.warn("datasource {}: slow SQL ({} ms): {}", name, nanos / 1_000_000, sql);
+    }
+  } // method recordExecution
+
+  private void recordRows(String sql, long rows) {
+    if (rows > 0) {
+      getSqlMetrics(sql).rows.addAndGet(rows);
+    }
+  } // method recordRows
+
+  private SqlMetrics getSqlMetrics(String sql) {
+    SqlMetrics metrics = sqlMetrics.get(sql);
+    if (metrics != null) {
+      return metrics;
+    }
+
+    if (sqlMetrics.size() >= MAX_SQL_ENTRIES) {
+      sql = OTHER_SQL;
+    }
+
+    metrics = new SqlMetrics();
+    SqlMetrics old = sqlMetrics.putIfAbsent(sql, metrics);
+    return old == null ? metrics : old;
+  } // method getSqlMetrics
+
+  /**
+   * Returns the metrics. The SQL entries are sorted by the total execution time in
+   * descending order, so that the queries limiting the throughput come first. Long SQL
+   * texts are truncated and identified by their hash, so that the health output neither
+   * grows with the SQL texts nor shows the literal values in them.
+   *
+   * @return the metrics.
+   */
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("connectionWaits", connectionWait.getCount());
+    statistics.put("connectionErrors", connectionErrors.get());
+    statistics.put("avgConnectionWaitUs", connectionWait.getMean() / 1000);
+    statistics.put("p99ConnectionWaitUs", connectionWait.getPercentile(99) / 1000);
+    statistics.put("maxConnectionWaitUs", connectionWait.getMax() / 1000);
+
+    List<Entry<String, SqlMetrics>> entries = new ArrayList<>(sqlMetrics.entrySet());
+    Collections.sort(entries, new Comparator<Entry<String, SqlMetrics>>() {
+      @Override
+      public int compare(Entry<String, SqlMetrics> o1, Entry<String, SqlMetrics> o2) {
+        return Long.compare(o2.getValue().latency.getTotal(), o1.getValue().latency.getTotal());
+      }
+    });
+
+    Map<String, Object> sqls = new LinkedHashMap<>();
+    for (Entry<String, SqlMetrics> entry : entries) {
+      SqlMetrics metrics = entry.getValue();
+      LatencyHistogram latency = metrics.latency;
+
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("executions", latency.getCount());
+      map.put("errors", metrics.errors.get());
+      map.put("rows", metrics.rows.get());
+      map.put("totalMs", latency.getTotal() / 1_000_000);
+      map.put("avgUs", latency.getMean() / 1000);
+      map.put("p50Us", latency.getPercentile(50) / 1000);
+      map.put("p99Us", latency.getPercentile(99) / 1000);
+      map.put("maxUs", latency.getMax() / 1000);
+      sqls.put(abbreviate(entry.getKey()), map);
+    }
+    statistics.put("sql", sqls);
+    return statistics;
+  } // method getStatistics
+
+  public void reset() {
+    sqlMetrics.clear();
+    connectionWait.reset();
+    connectionErrors.set(0);
+  } // method reset
+
+  static String abbreviate(String sql) {
+    if (sql.length() <= MAX_SQL_LENGTH) {
+      return sql;
+    }
+
+    byte[] hash;
+    try {
+      hash = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not supported", ex);
+    }
+    return sql.substring(0, MAX_SQL_LENGTH) + "... #" + Hex.encode(Arrays.copyOf(hash, 4));
+  } // method abbreviate
+
+  private static Object invokeTarget(Object target, Object proxy, Method method, Object[] args)
+      throws Throwable {
+    String methodName = method.getName();
+    if ("equals".equals(methodName) && args != null && args.length == 1) {
+      return proxy == args[0];
+    } else if ("hashCode".equals(methodName) && (args == null || args.length == 0)) {
+      return System.identityHashCode(proxy);
+    }
+
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  } // method invokeTarget
+
+}
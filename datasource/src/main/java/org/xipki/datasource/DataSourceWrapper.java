@@ -32,8 +32,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +52,7 @@ import org.xipki.util.LruCache;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 /**
  * A wrapper of {@link HikariDataSource}.
@@ -373,6 +383,10 @@ public abstract class DataSourceWrapper implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(DataSourceWrapper.class);
 
+  private static final long REPLICA_CHECK_INTERVAL_SECONDS = 10;
+
+  private static final String DFLT_SLOW_QUERY_THRESHOLD_MS = "2000";
+
   /**
    * References the real data source implementation this class acts as pure
    * proxy for. Derived classes must set this field at construction time.
@@ -393,6 +407,19 @@ public abstract class DataSourceWrapper implements Closeable {
 
   private final LruCache<String, String> cacheSeqNameSqls;
 
+  private final List<ReadReplica> readReplicas = new CopyOnWriteArrayList<>();
+
+  private final AtomicInteger nextReplicaIndex = new AtomicInteger();
+
+  private ScheduledThreadPoolExecutor replicaChecker;
+
+  private ScheduledFuture<?> replicaCheckTask;
+
+  /**
+   * Metrics of the SQL executions, {@code null} if deactivated.
+   */
+  private DataSourceMetrics metrics;
+
   private DataSourceWrapper(String name, HikariDataSource service, DatabaseType dbType) {
     this.service = notNull(service, "service");
     this.databaseType = notNull(dbType, "dbType");
@@ -416,9 +443,18 @@ public abstract class DataSourceWrapper implements Closeable {
 
   public final Connection getConnection()
       throws DataAccessException {
+    long start = System.nanoTime();
     try {
-      return service.getConnection();
+      Connection conn = service.getConnection();
+      if (metrics != null) {
+        metrics.recordConnectionWait(System.nanoTime() - start, false);
+      }
+      return conn;
     } catch (Exception ex) {
+      if (metrics != null) {
+        metrics.recordConnectionWait(System.nanoTime() - start, true);
+      }
+
       Throwable cause = ex.getCause();
       if (cause instanceof SQLException) {
         ex = (SQLException) cause;
@@ -449,8 +485,65 @@ public abstract class DataSourceWrapper implements Closeable {
     }
   } // method returnConnection
 
+  /**
+   * Returns a connection to be used for read-only queries. The connection is taken from one
+   * of the available read replicas in round-robin order. If no read replica is configured or
+   * none of them is available, a connection to the primary database is returned.
+   *
+   * @return connection for read-only queries.
+   * @throws DataAccessException
+   *           if no connection could be obtained.
+   */
+  public final Connection getReadOnlyConnection()
+      throws DataAccessException {
+    int size = readReplicas.size();
+    if (size > 0) {
+      int offset = (nextReplicaIndex.getAndIncrement() & 0x7FFFFFFF) % size;
+      for (int i = 0; i < size; i++) {
+        ReadReplica replica = readReplicas.get((offset + i) % size);
+        if (!replica.isAvailable()) {
+          continue;
+        }
+
+        long start = System.nanoTime();
+        try {
+          Connection conn = replica.getConnection();
+          if (metrics != null) {
+            metrics.recordConnectionWait(System.nanoTime() - start, false);
+          }
+          return conn;
+        } catch (Exception ex) {
+          LOG.debug("could not get connection from read replica {}", replica.getName());
+        }
+      }
+    }
+
+    return getConnection();
+  } // method getReadOnlyConnection
+
+  public final boolean hasReadReplicas() {
+    return !readReplicas.isEmpty();
+  }
+
   @Override
   public void close() {
+    synchronized (readReplicas) {
+      if (replicaCheckTask != null) {
+        replicaCheckTask.cancel(false);
+        replicaCheckTask = null;
+      }
+
+      if (replicaChecker != null) {
+        replicaChecker.shutdownNow();
+        replicaChecker = null;
+      }
+    }
+
+    for (ReadReplica replica : readReplicas) {
+      replica.close();
+    }
+    readReplicas.clear();
+
     try {
       service.close();
     } catch (RuntimeException ex) {
@@ -459,6 +552,44 @@ public abstract class DataSourceWrapper implements Closeable {
     }
   } // method close
 
+  void addReadReplica(Properties props, String lagQuery, double maxLagSeconds) {
+    notNull(props, "props");
+    removeProperties(props, "metrics.");
+    adaptDb2Schema(props);
+    String replicaName = name + "-replica" + (readReplicas.size() + 1);
+    ReadReplica replica = new ReadReplica(replicaName,
+        new HikariDataSource(new HikariConfig(props)), lagQuery, maxLagSeconds);
+    readReplicas.add(replica);
+    LOG.info("added read replica {} to datasource {}", replicaName, name);
+
+    synchronized (readReplicas) {
+      if (replicaChecker == null) {
+        final String threadName = "datasource-" + name + "-replica-check";
+        replicaChecker = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+
+        replicaCheckTask = replicaChecker.scheduleAtFixedRate(new Runnable() {
+          @Override
+          public void run() {
+            checkReadReplicas();
+          }
+        }, REPLICA_CHECK_INTERVAL_SECONDS, REPLICA_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+      }
+    }
+  } // method addReadReplica
+
+  void checkReadReplicas() {
+    for (ReadReplica m : readReplicas) {
+      m.check();
+    }
+  }
+
   public final PrintWriter getLogWriter()
       throws SQLException {
     return service.getLogWriter();
@@ -468,7 +599,7 @@ public abstract class DataSourceWrapper implements Closeable {
       throws DataAccessException {
     notNull(conn, "conn");
     try {
-      return conn.createStatement();
+      return wrap(conn.createStatement());
     } catch (SQLException ex) {
       throw translate(null, ex);
     }
@@ -479,7 +610,7 @@ public abstract class DataSourceWrapper implements Closeable {
     Connection conn = getConnection();
     boolean succ = false;
     try {
-      Statement stmt = conn.createStatement();
+      Statement stmt = wrap(conn.createStatement());
       succ = true;
       return stmt;
     } catch (SQLException ex) {
@@ -495,7 +626,7 @@ public abstract class DataSourceWrapper implements Closeable {
       throws DataAccessException {
     notNull(conn, "conn");
     try {
-      return conn.prepareStatement(sqlQuery);
+      return wrap(conn.prepareStatement(sqlQuery), sqlQuery);
     } catch (SQLException ex) {
       throw translate(sqlQuery, ex);
     }
@@ -503,11 +634,30 @@ public abstract class DataSourceWrapper implements Closeable {
 
   public PreparedStatement prepareStatement(String sqlQuery)
       throws DataAccessException {
-    Connection conn = getConnection();
+    return prepareStatement0(getConnection(), sqlQuery);
+  } // method prepareStatement
+
+  /**
+   * Prepares a statement for a read-only query, the statement is bound to a connection
+   * returned by {@link #getReadOnlyConnection()}.
+   *
+   * @param sqlQuery
+   *          SQL query. Must not be {@code null}.
+   * @return the prepared statement.
+   * @throws DataAccessException
+   *           if database error occurs.
+   */
+  public PreparedStatement prepareReadOnlyStatement(String sqlQuery)
+      throws DataAccessException {
+    return prepareStatement0(getReadOnlyConnection(), sqlQuery);
+  } // method prepareReadOnlyStatement
+
+  private PreparedStatement prepareStatement0(Connection conn, String sqlQuery)
+      throws DataAccessException {
 
     boolean succ = false;
     try {
-      PreparedStatement ps = conn.prepareStatement(sqlQuery);
+      PreparedStatement ps = wrap(conn.prepareStatement(sqlQuery), sqlQuery);
       succ = true;
       return ps;
     } catch (SQLException ex) {
@@ -517,7 +667,46 @@ public abstract class DataSourceWrapper implements Closeable {
         returnConnection(conn);
       }
     }
-  } // method prepareStatement
+  } // method prepareStatement0
+
+  private Statement wrap(Statement stmt) {
+    return metrics == null ? stmt : metrics.wrap(stmt);
+  }
+
+  private PreparedStatement wrap(PreparedStatement ps, String sql) {
+    return metrics == null ? ps : metrics.wrap(ps, sql);
+  }
+
+  /**
+   * Returns the statistics of the connection pool, the read replicas and, if activated,
+   * the SQL executions (see {@link DataSourceMetrics#getStatistics()}).
+   *
+   * @return the statistics.
+   */
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("maxPoolSize", service.getMaximumPoolSize());
+    HikariPoolMXBean pool = service.getHikariPoolMXBean();
+    if (pool != null) {
+      statistics.put("activeConnections", pool.getActiveConnections());
+      statistics.put("idleConnections", pool.getIdleConnections());
+      statistics.put("totalConnections", pool.getTotalConnections());
+      statistics.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+    }
+
+    if (!readReplicas.isEmpty()) {
+      Map<String, Object> replicas = new LinkedHashMap<>();
+      for (ReadReplica replica : readReplicas) {
+        replicas.put(replica.getName(), replica.isAvailable() ? "available" : "unavailable");
+      }
+      statistics.put("readReplicas", replicas);
+    }
+
+    if (metrics != null) {
+      statistics.putAll(metrics.getStatistics());
+    }
+    return statistics;
+  } // method getStatistics
 
   public void releaseResources(Statement ps, ResultSet rs) {
     releaseResources(ps, rs, true);
@@ -1154,6 +1343,63 @@ public abstract class DataSourceWrapper implements Closeable {
     notNull(props, "props");
     notNull(databaseType, "databaseType");
 
+    adaptDb2Schema(props);
+
+    if (databaseType == DatabaseType.DB2 || databaseType == DatabaseType.H2
+        || databaseType == DatabaseType.HSQL || databaseType == DatabaseType.MYSQL
+        || databaseType == DatabaseType.MARIADB || databaseType == DatabaseType.ORACLE
+        || databaseType == DatabaseType.POSTGRES) {
+      boolean metricsEnabled = Boolean.parseBoolean(
+          props.getProperty("metrics.enabled", "false"));
+      long slowQueryThreshold = Long.parseLong(
+          props.getProperty("metrics.slowQueryThreshold", DFLT_SLOW_QUERY_THRESHOLD_MS));
+      removeProperties(props, "metrics.");
+
+      HikariConfig conf = new HikariConfig(props);
+      HikariDataSource service = new HikariDataSource(conf);
+      DataSourceWrapper wrapper;
+      switch (databaseType) {
+        case DB2:
+          wrapper = new DB2(name, service);
+          break;
+        case H2:
+          wrapper = new H2(name, service);
+          break;
+        case HSQL:
+          wrapper = new HSQL(name, service);
+          break;
+        case MYSQL:
+          wrapper = new MySQL(name, service);
+          break;
+        case MARIADB:
+          wrapper = new MariaDB(name, service);
+          break;
+        case ORACLE:
+          wrapper = new Oracle(name, service);
+          break;
+        default: // POSTGRESQL:
+          wrapper = new PostgreSQL(name, service);
+          break;
+      }
+
+      if (metricsEnabled) {
+        wrapper.metrics = new DataSourceMetrics(name, slowQueryThreshold);
+      }
+      return wrapper;
+    } else {
+      throw new IllegalArgumentException("unknown datasource type " + databaseType);
+    }
+  } // method createDataSource
+
+  private static void removeProperties(Properties props, String prefix) {
+    for (String key : props.stringPropertyNames()) {
+      if (key.startsWith(prefix)) {
+        props.remove(key);
+      }
+    }
+  } // method removeProperties
+
+  private static void adaptDb2Schema(Properties props) {
     // The DB2 schema name is case-sensitive, and must be specified in uppercase characters
     String datasourceClassName = props.getProperty("dataSourceClassName");
     if (datasourceClassName != null) {
@@ -1187,32 +1433,6 @@ public abstract class DataSourceWrapper implements Closeable {
         }
       }
     } // end if
-
-    if (databaseType == DatabaseType.DB2 || databaseType == DatabaseType.H2
-        || databaseType == DatabaseType.HSQL || databaseType == DatabaseType.MYSQL
-        || databaseType == DatabaseType.MARIADB || databaseType == DatabaseType.ORACLE
-        || databaseType == DatabaseType.POSTGRES) {
-      HikariConfig conf = new HikariConfig(props);
-      HikariDataSource service = new HikariDataSource(conf);
-      switch (databaseType) {
-        case DB2:
-          return new DB2(name, service);
-        case H2:
-          return new H2(name, service);
-        case HSQL:
-          return new HSQL(name, service);
-        case MYSQL:
-          return new MySQL(name, service);
-        case MARIADB:
-          return new MariaDB(name, service);
-        case ORACLE:
-          return new Oracle(name, service);
-        default: // POSTGRESQL:
-          return new PostgreSQL(name, service);
-      }
-    } else {
-      throw new IllegalArgumentException("unknown datasource type " + databaseType);
-    }
-  } // method createDataSource
+  } // method adaptDb2Schema
 
 }
@@ -0,0 +1,146 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.LogUtil;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A read replica of the primary database of a {@link DataSourceWrapper}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+class ReadReplica {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReadReplica.class);
+
+  private final String name;
+
+  private final HikariDataSource service;
+
+  /**
+   * SQL query returning the replication lag in seconds, may be {@code null}.
+   */
+  private final String lagQuery;
+
+  private final double maxLagSeconds;
+
+  private volatile boolean available = true;
+
+  ReadReplica(String name, HikariDataSource service, String lagQuery, double maxLagSeconds) {
+    this.name = name;
+    this.service = service;
+    this.lagQuery = lagQuery;
+    this.maxLagSeconds = maxLagSeconds;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  boolean isAvailable() {
+    return available;
+  }
+
+  Connection getConnection()
+      throws SQLException {
+    try {
+      return service.getConnection();
+    } catch (SQLException | RuntimeException ex) {
+      markUnavailable("could not get connection: " + ex.getMessage());
+      throw ex;
+    }
+  } // method getConnection
+
+  /**
+   * Checks whether the replica is reachable and, if a lag query is configured, whether
+   * its replication lag does not exceed the configured maximal lag.
+   */
+  void check() {
+    Connection conn = null;
+    Statement stmt = null;
+    ResultSet rs = null;
+    try {
+      conn = service.getConnection();
+      if (lagQuery == null) {
+        if (!conn.isValid(5)) {
+          markUnavailable("connection is not valid");
+          return;
+        }
+      } else {
+        stmt = conn.createStatement();
+        rs = stmt.executeQuery(lagQuery);
+        double lag = rs.next() ? rs.getDouble(1) : 0;
+        if (lag > maxLagSeconds) {
+          markUnavailable("replication lag " + lag + " s exceeds " + maxLagSeconds + " s");
+          return;
+        }
+      }
+
+      if (!available) {
+        available = true;
+        LOG.info("read replica {} is available again", name);
+      }
+    } catch (SQLException | RuntimeException ex) {
+      LogUtil.warn(LOG, ex, "error checking read replica " + name);
+      markUnavailable(ex.getMessage());
+    } finally {
+      close(rs);
+      close(stmt);
+      close(conn);
+    }
+  } // method check
+
+  void close() {
+    try {
+      service.close();
+    } catch (RuntimeException ex) {
+      LOG.warn("could not close read replica {}: {}", name, ex.getMessage());
+    }
+  } // method close
+
+  private void markUnavailable(String reason) {
+    if (available) {
+      available = false;
+      LOG.warn("read replica {} is not available, use the primary: {}", name, reason);
+    }
+  } // method markUnavailable
+
+  private static void close(AutoCloseable obj) {
+    if (obj == null) {
+      return;
+    }
+
+    try {
+      obj.close();
+    } catch (Exception ex) {
+      LOG.debug("could not close {}: {}", obj.getClass().getName(), ex.getMessage());
+    }
+  } // method close
+
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the metrics of the SQL executions of {@link DataSourceWrapper}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class DataSourceMetricsTest {
+
+  private static final String CREATE_T =
+      "CREATE TABLE T (ID INT NOT NULL PRIMARY KEY, NAME VARCHAR(100))";
+
+  @Test
+  public void testDeactivatedByDefault()
+      throws Exception {
+    DataSourceWrapper datasource = H2DataSources.create(CREATE_T);
+    try {
+      H2DataSources.execute(datasource, "INSERT INTO T (ID,NAME) VALUES (1,'a')");
+      Assert.assertFalse("SQL metrics", datasource.getStatistics().containsKey("sql"));
+    } finally {
+      datasource.close();
+    }
+  } // method testDeactivatedByDefault
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSqlMetrics()
+      throws Exception {
+    Properties props = new Properties();
+    props.setProperty("dataSourceClassName", "org.h2.jdbcx.JdbcDataSource");
+    props.setProperty("dataSource.url", "jdbc:h2:mem:metricstest;DB_CLOSE_DELAY=-1");
+    props.setProperty("dataSource.user", "sa");
+    props.setProperty("dataSource.password", "");
+    props.setProperty("maximumPoolSize", "2");
+    props.setProperty("metrics.enabled", "true");
+
+    DataSourceWrapper datasource =
+        new DataSourceFactory().createDataSource("metricstest", props, null);
+    try {
+      H2DataSources.execute(datasource, CREATE_T);
+
+      final String insertSql = "INSERT INTO T (ID,NAME) VALUES (?,?)";
+      for (int i = 1; i <= 3; i++) {
+        insert(datasource, insertSql, i);
+      }
+      try {
+        // duplicate primary key
+        insert(datasource, insertSql, 1);
+        Assert.fail("SQLException expected");
+      } catch (SQLException ex) {
+        // expected
+      }
+
+      final String longSql = "SELECT ID,NAME FROM T WHERE NAME IS NOT NULL AND ID > 0"
+          + " AND NAME <> 'secret literal value' ORDER BY ID";
+      PreparedStatement ps = datasource.prepareStatement(longSql);
+      ResultSet rs = null;
+      try {
+        rs = ps.executeQuery();
+        while (rs.next()) {
+          // count the rows
+        }
+      } finally {
+        datasource.releaseResources(ps, rs);
+      }
+
+      Map<String, Object> statistics = datasource.getStatistics();
+      Assert.assertTrue("connection waits", (Long) statistics.get("connectionWaits") >= 5);
+
+      Map<String, Object> sqls = (Map<String, Object>) statistics.get("sql");
+      Map<String, Object> insert = (Map<String, Object>) sqls.get(insertSql);
+      Assert.assertEquals("insert executions", 4L, insert.get("executions"));
+      Assert.assertEquals("insert errors", 1L, insert.get("errors"));
+      Assert.assertEquals("inserted rows", 3L, insert.get("rows"));
+
+      String abbreviated = DataSourceMetrics.abbreviate(longSql);
+      Assert.assertFalse("literal in the statistics", abbreviated.contains("secret"));
+      Assert.assertNotEquals("abbreviated SQL", longSql, abbreviated);
+      Map<String, Object> query = (Map<String, Object>) sqls.get(abbreviated);
+      Assert.assertEquals("query executions", 1L, query.get("executions"));
+      Assert.assertEquals("queried rows", 3L, query.get("rows"));
+    } finally {
+      datasource.close();
+    }
+  } // method testSqlMetrics
+
+  private static void insert(DataSourceWrapper datasource, String sql, int id)
+      throws SQLException, DataAccessException {
+    PreparedStatement ps = datasource.prepareStatement(sql);
+    try {
+      ps.setInt(1, id);
+      ps.setString(2, "name" + id);
+      ps.executeUpdate();
+    } finally {
+      datasource.releaseResources(ps, null);
+    }
+  } // method insert
+
+}
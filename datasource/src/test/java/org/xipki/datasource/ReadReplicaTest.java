@@ -0,0 +1,165 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the routing of the read-only connections to the read replicas.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class ReadReplicaTest {
+
+  private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+
+  private static final String LAG_QUERY = "SELECT LAG FROM T";
+
+  private DataSourceWrapper datasource;
+
+  @Before
+  public void createPrimary()
+      throws Exception {
+    datasource = H2DataSources.create("CREATE TABLE T (NAME VARCHAR(20), LAG INT)",
+        "INSERT INTO T (NAME,LAG) VALUES ('primary',0)");
+  }
+
+  @After
+  public void closePrimary() {
+    datasource.close();
+  }
+
+  @Test
+  public void testRoundRobin()
+      throws Exception {
+    addReplica("replica1", null);
+    addReplica("replica2", null);
+
+    String first = readName(datasource.getReadOnlyConnection());
+    String second = readName(datasource.getReadOnlyConnection());
+    Assert.assertTrue("read replica " + first, first.startsWith("replica"));
+    Assert.assertTrue("read replica " + second, second.startsWith("replica"));
+    Assert.assertNotEquals("round robin", first, second);
+    Assert.assertEquals("round robin", first, readName(datasource.getReadOnlyConnection()));
+
+    Assert.assertEquals("write connection", "primary", readName(datasource.getConnection()));
+  } // method testRoundRobin
+
+  @Test
+  public void testLaggingReplica()
+      throws Exception {
+    String url1 = addReplica("replica1", LAG_QUERY);
+    String url2 = addReplica("replica2", LAG_QUERY);
+
+    setLag(url1, 100);
+    datasource.checkReadReplicas();
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("replica without lag", "replica2",
+          readName(datasource.getReadOnlyConnection()));
+    }
+
+    setLag(url2, 100);
+    datasource.checkReadReplicas();
+    Assert.assertEquals("all replicas lag", "primary",
+        readName(datasource.getReadOnlyConnection()));
+
+    setLag(url1, 0);
+    datasource.checkReadReplicas();
+    Assert.assertEquals("replica available again", "replica1",
+        readName(datasource.getReadOnlyConnection()));
+  } // method testLaggingReplica
+
+  @Test
+  public void testReplicaOfOtherType()
+      throws Exception {
+    Properties props = new Properties();
+    props.setProperty("dataSourceClassName", "org.postgresql.ds.PGSimpleDataSource");
+    props.setProperty("dataSource.serverName", "localhost");
+
+    try {
+      new DataSourceFactory().addReadReplica(datasource, props, null);
+      Assert.fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+
+    Assert.assertFalse("read replicas", datasource.hasReadReplicas());
+  } // method testReplicaOfOtherType
+
+  /**
+   * Creates a new database containing the given name, and adds it as read replica.
+   * @return the JDBC URL of the replica.
+   */
+  private String addReplica(String name, String lagQuery)
+      throws Exception {
+    String url = "jdbc:h2:mem:replica" + DB_COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    try (Connection conn = DriverManager.getConnection(url, "sa", "");
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE T (NAME VARCHAR(20), LAG INT)");
+      stmt.execute("INSERT INTO T (NAME,LAG) VALUES ('" + name + "',0)");
+    }
+
+    Properties props = new Properties();
+    props.setProperty("dataSourceClassName", "org.h2.jdbcx.JdbcDataSource");
+    props.setProperty("dataSource.url", url);
+    props.setProperty("dataSource.user", "sa");
+    props.setProperty("dataSource.password", "");
+    props.setProperty("maximumPoolSize", "2");
+    props.setProperty("minimumIdle", "1");
+    if (lagQuery != null) {
+      props.setProperty("replica.lagQuery", lagQuery);
+      props.setProperty("replica.maxLag", "10");
+    }
+
+    new DataSourceFactory().addReadReplica(datasource, props, null);
+    return url;
+  } // method addReplica
+
+  private static void setLag(String url, int lag)
+      throws SQLException {
+    try (Connection conn = DriverManager.getConnection(url, "sa", "");
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("UPDATE T SET LAG=" + lag);
+    }
+  }
+
+  private String readName(Connection conn)
+      throws SQLException {
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT NAME FROM T")) {
+      rs.next();
+      return rs.getString(1);
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method readName
+
+}
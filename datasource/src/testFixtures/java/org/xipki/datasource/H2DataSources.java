@@ -0,0 +1,78 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 databases for the tests of the modules using the datasource. The modules
+ * add the directory src/testFixtures/java of this module to their test sources, and need
+ * H2 as test dependency.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class H2DataSources {
+
+  private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+
+  private H2DataSources() {
+  }
+
+  /**
+   * Creates a new empty in-memory database, and executes the given SQL statements.
+   * @param sqls
+   *          SQL statements to create and fill the tables.
+   * @return the datasource of the new database.
+   * @throws Exception
+   *           if error occurs.
+   */
+  public static DataSourceWrapper create(String... sqls)
+      throws Exception {
+    String name = "test" + DB_COUNTER.incrementAndGet();
+    Properties props = new Properties();
+    props.setProperty("dataSourceClassName", "org.h2.jdbcx.JdbcDataSource");
+    props.setProperty("dataSource.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    props.setProperty("dataSource.user", "sa");
+    props.setProperty("dataSource.password", "");
+    props.setProperty("maximumPoolSize", "5");
+    props.setProperty("minimumIdle", "1");
+
+    DataSourceWrapper datasource = new DataSourceFactory().createDataSource(name, props, null);
+    execute(datasource, sqls);
+    return datasource;
+  } // method create
+
+  public static void execute(DataSourceWrapper datasource, String... sqls)
+      throws DataAccessException, SQLException {
+    Connection conn = datasource.getConnection();
+    try (Statement stmt = conn.createStatement()) {
+      for (String sql : sqls) {
+        stmt.execute(sql);
+      }
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  } // method execute
+
+}
@@ -21,6 +21,7 @@ import static org.xipki.util.Args.notBlank;
 
 import java.io.Closeable;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
 
@@ -171,6 +172,14 @@ public abstract class OcspStore implements Closeable {
 
   public abstract boolean isHealthy();
 
+  /**
+   * Returns the statistics of this store, e.g. the metrics of the datasource.
+   * @return the statistics, never {@code null}.
+   */
+  public Map<String, Object> getStatistics() {
+    return Collections.emptyMap();
+  }
+
   public void setName(String name) {
     this.name = notBlank(name, "name");
   }
@@ -99,6 +99,7 @@ import org.xipki.security.SecurityFactory;
 import org.xipki.security.X509Cert;
 import org.xipki.security.XiSecurityException;
 import org.xipki.util.CollectionUtil;
+import org.xipki.util.FileOrValue;
 import org.xipki.util.HealthCheckResult;
 import org.xipki.util.Hex;
 import org.xipki.util.InvalidConfException;
@@ -491,16 +492,34 @@ public class OcspServerImpl implements OcspServer {
     if (conf.getDatasources() != null) {
       for (DataSourceConf m : conf.getDatasources()) {
         String name = m.getName();
-        DataSourceWrapper datasource;
+        DataSourceWrapper datasource = null;
         InputStream dsStream = null;
+        boolean successful = false;
         try {
           dsStream = getInputStream(m.getConf());
           datasource = datasourceFactory.createDataSource(name,
                   dsStream, securityFactory.getPasswordResolver());
-        } catch (IOException ex) {
-          throw new InvalidConfException(ex.getMessage(), ex);
+          if (m.getReadReplicas() != null) {
+            for (FileOrValue replica : m.getReadReplicas()) {
+              InputStream replicaStream = getInputStream(replica);
+              try {
+                datasourceFactory.addReadReplica(datasource, replicaStream,
+                    securityFactory.getPasswordResolver());
+              } finally {
+                closeStream(replicaStream);
+              }
+            }
+          }
+          successful = true;
+        } catch (IOException | IllegalArgumentException ex) {
+          throw new InvalidConfException("invalid datasource " + name + ": " + ex.getMessage(),
+              ex);
         } finally {
           closeStream(dsStream);
+          if (!successful && datasource != null) {
+            // also closes the read replicas added so far
+            datasource.close();
+          }
         }
         datasources.put(name, datasource);
       } // end for
@@ -1079,6 +1098,7 @@ public class OcspServerImpl implements OcspServer {
       HealthCheckResult storeHealth = new HealthCheckResult();
       storeHealth.setName("CertStatusStore." + store.getName());
       storeHealth.setHealthy(storeHealthy);
+      storeHealth.getStatuses().putAll(store.getStatistics());
       result.addChildCheck(storeHealth);
     }
 
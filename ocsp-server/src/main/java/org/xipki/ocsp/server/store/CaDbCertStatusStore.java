@@ -263,7 +263,7 @@ public class CaDbCertStatusStore extends OcspStore {
       long revTime = 0;
       long invalTime = 0;
 
-      PreparedStatement ps = datasource.prepareStatement(sql);
+      PreparedStatement ps = datasource.prepareReadOnlyStatement(sql);
 
       try {
         ps.setInt(1, issuer.getId());
@@ -394,7 +394,7 @@ public class CaDbCertStatusStore extends OcspStore {
    */
   private PreparedStatement preparedStatement(String sqlQuery)
       throws DataAccessException {
-    return datasource.prepareStatement(sqlQuery);
+    return datasource.prepareReadOnlyStatement(sqlQuery);
   }
 
   @Override
@@ -420,6 +420,12 @@ public class CaDbCertStatusStore extends OcspStore {
     }
   } // method isHealthy
 
+  @Override
+  public Map<String, Object> getStatistics() {
+    return datasource == null ? Collections.<String, Object>emptyMap()
+        : datasource.getStatistics();
+  }
+
   private void releaseDbResources(Statement ps, ResultSet rs) {
     datasource.releaseResources(ps, rs);
   }
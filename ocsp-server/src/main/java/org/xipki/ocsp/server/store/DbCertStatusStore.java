@@ -334,7 +334,7 @@ public class DbCertStatusStore extends OcspStore {
       long invalTime = 0;
       int crlId = 0;
 
-      PreparedStatement ps = datasource.prepareStatement(sql);
+      PreparedStatement ps = datasource.prepareReadOnlyStatement(sql);
 
       try {
         ps.setInt(1, issuer.getId());
@@ -493,7 +493,7 @@ public class DbCertStatusStore extends OcspStore {
    */
   private PreparedStatement preparedStatement(String sqlQuery)
       throws DataAccessException {
-    return datasource.prepareStatement(sqlQuery);
+    return datasource.prepareReadOnlyStatement(sqlQuery);
   }
 
   @Override
@@ -519,6 +519,12 @@ public class DbCertStatusStore extends OcspStore {
     }
   } // method isHealthy
 
+  @Override
+  public Map<String, Object> getStatistics() {
+    return datasource == null ? Collections.<String, Object>emptyMap()
+        : datasource.getStatistics();
+  }
+
   private void releaseDbResources(Statement ps, ResultSet rs) {
     datasource.releaseResources(ps, rs);
   }
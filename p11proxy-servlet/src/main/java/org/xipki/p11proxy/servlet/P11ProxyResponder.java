@@ -66,6 +66,7 @@ import org.xipki.security.pkcs11.proxy.asn1.ObjectIdentifier;
 import org.xipki.security.pkcs11.proxy.asn1.RSAPkcsPssParams;
 import org.xipki.security.pkcs11.proxy.asn1.RemoveObjectsParams;
 import org.xipki.security.pkcs11.proxy.asn1.ServerCaps;
+import org.xipki.security.pkcs11.proxy.asn1.SignBatchTemplate;
 import org.xipki.security.pkcs11.proxy.asn1.SignTemplate;
 import org.xipki.security.pkcs11.proxy.asn1.SlotIdAndObjectId;
 import org.xipki.security.pkcs11.proxy.asn1.SlotIdentifier;
@@ -118,6 +119,7 @@ public class P11ProxyResponder {
     actions.add(P11ProxyConstants.ACTION_REMOVE_IDENTITY);
     actions.add(P11ProxyConstants.ACTION_REMOVE_OBJECTS);
     actions.add(P11ProxyConstants.ACTION_SIGN);
+    actions.add(P11ProxyConstants.ACTION_SIGN_BATCH);
     actions.add(P11ProxyConstants.ACTION_UPDATE_CERT);
     actions.add(P11ProxyConstants.ACTION_DIGEST_SECRETKEY);
     actions.add(P11ProxyConstants.ACTION_IMPORT_SECRET_KEY);
@@ -137,6 +139,7 @@ public class P11ProxyResponder {
     LOG.info("XiPKI PKCS#11 Proxy Responder version {}", version);
     Set<Short> tmpVersions = new HashSet<>();
     tmpVersions.add(P11ProxyConstants.VERSION_V1_0);
+    tmpVersions.add(P11ProxyConstants.VERSION_V1_1);
     this.versions = Collections.unmodifiableSet(tmpVersions);
   }
 
@@ -422,28 +425,7 @@ public class P11ProxyResponder {
         case P11ProxyConstants.ACTION_SIGN: {
           SignTemplate signTemplate = SignTemplate.getInstance(content);
           long mechanism = signTemplate.getMechanism().getMechanism();
-          org.xipki.security.pkcs11.proxy.asn1.P11Params asn1Params =
-              signTemplate.getMechanism().getParams();
-
-          P11Params params = null;
-
-          if (asn1Params != null) {
-            switch (asn1Params.getTagNo()) {
-              case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_RSA_PKCS_PSS:
-                params = RSAPkcsPssParams.getInstance(asn1Params).getPkcsPssParams();
-                break;
-              case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_OPAQUE:
-                params = new P11ByteArrayParams(
-                    ASN1OctetString.getInstance(asn1Params).getOctets());
-                break;
-              case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_IV:
-                params = new P11IVParams(ASN1OctetString.getInstance(asn1Params).getOctets());
-                break;
-              default:
-                throw new BadAsn1ObjectException(
-                    "unknown SignTemplate.params: unknown tag " + asn1Params.getTagNo());
-            }
-          }
+          P11Params params = toP11Params(signTemplate.getMechanism().getParams());
 
           byte[] message = signTemplate.getMessage();
           P11Identity identity = p11CryptService.getIdentity(signTemplate.getSlotId().getValue(),
@@ -456,6 +438,25 @@ public class P11ProxyResponder {
           ASN1Object obj = new DEROctetString(signature);
           return getSuccessResp(version, transactionId, action, obj);
         }
+        case P11ProxyConstants.ACTION_SIGN_BATCH: {
+          SignBatchTemplate signTemplate = SignBatchTemplate.getInstance(content);
+          long mechanism = signTemplate.getMechanism().getMechanism();
+          P11Params params = toP11Params(signTemplate.getMechanism().getParams());
+
+          P11Identity identity = p11CryptService.getIdentity(signTemplate.getSlotId().getValue(),
+              signTemplate.getObjectId().getValue());
+          if (identity == null) {
+            return getResp(version, transactionId, P11ProxyConstants.RC_UNKNOWN_ENTITY, action);
+          }
+
+          byte[][] signatures = identity.sign(mechanism, params, signTemplate.getMessages());
+          ASN1EncodableVector vec = new ASN1EncodableVector();
+          for (byte[] signature : signatures) {
+            vec.add(new DEROctetString(signature));
+          }
+          ASN1Object obj = new DERSequence(vec);
+          return getSuccessResp(version, transactionId, action, obj);
+        }
         case P11ProxyConstants.ACTION_UPDATE_CERT: {
           ObjectIdAndCert asn1 = ObjectIdAndCert.getInstance(content);
           P11Slot slot = getSlot(p11CryptService, asn1.getSlotId().getValue());
@@ -495,6 +496,26 @@ public class P11ProxyResponder {
     }
   } // method processRequest
 
+  private static P11Params toP11Params(
+      org.xipki.security.pkcs11.proxy.asn1.P11Params asn1Params)
+      throws BadAsn1ObjectException {
+    if (asn1Params == null) {
+      return null;
+    }
+
+    switch (asn1Params.getTagNo()) {
+      case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_RSA_PKCS_PSS:
+        return RSAPkcsPssParams.getInstance(asn1Params).getPkcsPssParams();
+      case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_OPAQUE:
+        return new P11ByteArrayParams(ASN1OctetString.getInstance(asn1Params).getOctets());
+      case org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_IV:
+        return new P11IVParams(ASN1OctetString.getInstance(asn1Params).getOctets());
+      default:
+        throw new BadAsn1ObjectException(
+            "unknown SignTemplate.params: unknown tag " + asn1Params.getTagNo());
+    }
+  } // method toP11Params
+
   private static String buildErrorMsg(short action, byte[] transactionId) {
     return "could not process action " + P11ProxyConstants.getActionName(action)
         + " (tid=" + Hex.encode(transactionId) + ")";
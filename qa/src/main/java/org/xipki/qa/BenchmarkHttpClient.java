@@ -30,6 +30,7 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
 import java.util.Enumeration;
 import java.util.concurrent.TimeUnit;
 
@@ -214,9 +215,24 @@ public class BenchmarkHttpClient {
 
   public static interface ResponseHandler {
 
-    void onComplete(FullHttpResponse response);
-
-    void onError();
+    /**
+     * Called if a response is received.
+     *
+     * @param response
+     *          the response.
+     * @param startNanos
+     *          start time of the request in {@link System#nanoTime()}, as passed to
+     *          {@link BenchmarkHttpClient#send(FullHttpRequest, long)}.
+     */
+    void onComplete(FullHttpResponse response, long startNanos);
+
+    /**
+     * Called if an error occurred.
+     *
+     * @param startNanos
+     *          start time of the request in {@link System#nanoTime()}.
+     */
+    void onError(long startNanos);
 
   } // class ResponseHandler
 
@@ -263,8 +279,8 @@ public class BenchmarkHttpClient {
     @Override
     public void channelRead0(ChannelHandlerContext ctx, FullHttpResponse resp) {
       try {
-        decrementPendingRequests();
-        responseHandler.onComplete(resp);
+        long startNanos = decrementPendingRequests();
+        responseHandler.onComplete(resp, startNanos);
       } catch (Throwable th) {
         LOG.error("unexpected error", th);
       }
@@ -272,10 +288,10 @@ public class BenchmarkHttpClient {
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-      decrementPendingRequests();
+      long startNanos = decrementPendingRequests();
       ctx.close();
       LOG.warn("error", cause);
-      responseHandler.onError();
+      responseHandler.onError(startNanos);
     }
   } // method HttpClientHandler
 
@@ -297,6 +313,9 @@ public class BenchmarkHttpClient {
 
   private int pendingRequests = 0;
 
+  // the responses are received in the order of the requests (HTTP/1.1 pipelining)
+  private final ArrayDeque<Long> pendingStartTimes = new ArrayDeque<>();
+
   private String host;
 
   private int port;
@@ -409,6 +428,22 @@ public class BenchmarkHttpClient {
 
   public void send(FullHttpRequest request)
       throws HttpClientException {
+    send(request, System.nanoTime());
+  }
+
+  /**
+   * Sends the request.
+   *
+   * @param request
+   *          the request.
+   * @param startNanos
+   *          start time of the request in {@link System#nanoTime()}, used to measure the
+   *          latency.
+   * @throws HttpClientException
+   *          if the request could not be sent.
+   */
+  public void send(FullHttpRequest request, long startNanos)
+      throws HttpClientException {
     request.headers().add(HttpHeaderNames.HOST, hostHeader);
     if (!channel.isActive()) {
       throw new HttpClientException("channel is not active");
@@ -419,7 +454,7 @@ public class BenchmarkHttpClient {
     } catch (InterruptedException ex) {
       throw new HttpClientException("sending poll is full");
     }
-    incrementPendingRequests();
+    incrementPendingRequests(startNanos);
     ChannelFuture future = this.channel.writeAndFlush(request);
     future.awaitUninterruptibly();
   }
@@ -431,8 +466,9 @@ public class BenchmarkHttpClient {
     this.workerGroup.shutdownGracefully();
   }
 
-  private void incrementPendingRequests() {
+  private void incrementPendingRequests(long startNanos) {
     synchronized (latch) {
+      pendingStartTimes.addLast(startNanos);
       if (++pendingRequests >= queueSize) {
         if (latch.getCount() == 0) {
           latch.countUp();
@@ -441,8 +477,9 @@ public class BenchmarkHttpClient {
     }
   }
 
-  private void decrementPendingRequests() {
+  private long decrementPendingRequests() {
     synchronized (latch) {
+      Long startNanos = pendingStartTimes.pollFirst();
       if (--pendingRequests < queueSize) {
         final int count = (int) latch.getCount();
         if (count > 0) {
@@ -455,6 +492,8 @@ public class BenchmarkHttpClient {
           }
         }
       }
+
+      return (startNanos == null) ? System.nanoTime() : startNanos;
     }
   } // method decrementPendingRequests
 
@@ -182,19 +182,21 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
     @Override
     public void run() {
       while (!stop() && getErrorAccout() < 1) {
+        long startNanos = System.nanoTime();
         try {
           PKIMessage certReq = nextCertRequest();
           if (certReq == null) {
             break;
           }
 
-          testNext(certReq);
+          startNanos = nextOperation();
+          testNext(certReq, startNanos);
         } catch (HttpClientException | CertificateException | IOException ex) {
           LOG.warn("exception", ex);
-          account(1, 1);
+          account(1, 1, startNanos);
         } catch (RuntimeException | Error ex) {
           LOG.warn("unexpected exception", ex);
-          account(1, 1);
+          account(1, 1, startNanos);
         }
       }
 
@@ -205,7 +207,7 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
       }
     }
 
-    private void testNext(PKIMessage certReq)
+    private void testNext(PKIMessage certReq, long startNanos)
         throws HttpClientException, IOException {
       byte[] encoded = certReq.getEncoded();
       ByteBuf content = Unpooled.wrappedBuffer(encoded);
@@ -213,7 +215,7 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
           HttpMethod.POST, conf.caUrl, content);
       httpReq.headers().addInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes())
         .add(HttpHeaderNames.CONTENT_TYPE, REQUEST_MIMETYPE);
-      httpClient.send(httpReq);
+      httpClient.send(httpReq, startNanos);
     } // method testNext
 
   } // class Testor
@@ -344,7 +346,7 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
   } // method nextCertRequest
 
   @Override
-  public void onComplete(FullHttpResponse response) {
+  public void onComplete(FullHttpResponse response, long startNanos) {
     boolean success;
     try {
       success = onComplete0(response);
@@ -353,7 +355,7 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
       success = false;
     }
 
-    account(1, success ? 0 : 1);
+    account(1, success ? 0 : 1, startNanos);
   } // method onComplete
 
   private boolean onComplete0(FullHttpResponse response) {
@@ -434,8 +436,8 @@ public class CaEnrollBenchmark extends BenchmarkExecutor implements ResponseHand
   } // method parseEnrollCertResult
 
   @Override
-  public void onError() {
-    account(1, 1);
+  public void onError(long startNanos) {
+    account(1, 1, startNanos);
   }
 
   private byte[] randomBytes(int size) {
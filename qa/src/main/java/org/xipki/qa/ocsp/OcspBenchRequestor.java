@@ -165,7 +165,7 @@ class OcspBenchRequestor {
     httpClient.shutdown();
   }
 
-  public void ask(BigInteger[] serialNumbers)
+  public void ask(BigInteger[] serialNumbers, long startNanos)
       throws OcspRequestorException, HttpClientException {
     byte[] ocspReq = buildRequest(serialNumbers);
     int size = ocspReq.length;
@@ -191,7 +191,7 @@ class OcspBenchRequestor {
     }
     request.headers().add("Content-Type", "application/ocsp-request");
 
-    httpClient.send(request);
+    httpClient.send(request, startNanos);
   } // method ask
 
   private byte[] buildRequest(BigInteger[] serialNumbers)
@@ -66,11 +66,12 @@ public class OcspBenchmark extends BenchmarkExecutor implements ResponseHandler
           break;
         }
 
+        long startNanos = nextOperation();
         try {
-          requestor.ask(new BigInteger[]{sn});
+          requestor.ask(new BigInteger[]{sn}, startNanos);
         } catch (Throwable th) {
           LOG.warn("{}: {}", th.getClass().getName(), th.getMessage());
-          account(1, 1);
+          account(1, 1, startNanos);
         }
       }
 
@@ -133,7 +134,7 @@ public class OcspBenchmark extends BenchmarkExecutor implements ResponseHandler
   }
 
   @Override
-  public void onComplete(FullHttpResponse response) {
+  public void onComplete(FullHttpResponse response, long startNanos) {
     boolean success;
     try {
       success = onComplete0(response);
@@ -142,12 +143,12 @@ public class OcspBenchmark extends BenchmarkExecutor implements ResponseHandler
       success = false;
     }
 
-    account(1, success ? 0 : 1);
+    account(1, success ? 0 : 1, startNanos);
   }
 
   @Override
-  public synchronized void onError() {
-    account(1, 1);
+  public synchronized void onError(long startNanos) {
+    account(1, 1, startNanos);
   }
 
   private boolean onComplete0(FullHttpResponse response) {
@@ -19,6 +19,7 @@ package org.xipki.qa.security;
 
 import static org.xipki.util.Args.notBlank;
 import static org.xipki.util.Args.notNull;
+import static org.xipki.util.Args.positive;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
@@ -237,9 +238,13 @@ public abstract class P11SignSpeed extends BenchmarkExecutor {
 
     private static final int batch = 10;
 
-    private final byte[][] data = new byte[batch][16];
+    private final ConcurrentContentSigner signer;
 
-    public Testor() {
+    private final byte[][] data;
+
+    public Testor(ConcurrentContentSigner signer) {
+      this.signer = signer;
+      this.data = new byte[batch][dataSize];
       for (int i = 0; i < data.length; i++) {
         new SecureRandom().nextBytes(data[i]);
       }
@@ -248,12 +253,13 @@ public abstract class P11SignSpeed extends BenchmarkExecutor {
     @Override
     public void run() {
       while (!stop() && getErrorAccout() < 1) {
+        long startNanos = nextOperation();
         try {
           signer.sign(data);
-          account(batch, 0);
+          account(batch, 0, startNanos);
         } catch (Exception ex) {
           LOG.error("P11SignSpeed.Testor.run()", ex);
-          account(batch, batch);
+          account(batch, batch, startNanos);
         }
       }
     }
@@ -262,40 +268,82 @@ public abstract class P11SignSpeed extends BenchmarkExecutor {
 
   private static final Logger LOG = LoggerFactory.getLogger(P11SignSpeed.class);
 
+  private final SecurityFactory securityFactory;
+
   private final P11Slot slot;
 
-  private final ConcurrentContentSigner signer;
+  private final String signatureAlgorithm;
+
+  private final int parallelism;
 
   private final P11ObjectIdentifier objectId;
 
   private final boolean deleteKeyAfterTest;
 
+  private ConcurrentContentSigner signer;
+
+  private String digestMode;
+
+  private int dataSize = 16;
+
   public P11SignSpeed(SecurityFactory securityFactory, P11Slot slot, String signatureAlgorithm,
       boolean deleteKeyAfterTest, P11ObjectIdentifier objectId, String description, int threads)
           throws ObjectCreationException {
     super(description + "\nsignature algorithm: " + signatureAlgorithm);
 
-    notNull(securityFactory, "securityFactory");
+    this.securityFactory = notNull(securityFactory, "securityFactory");
     this.slot = notNull(slot, "slot");
-    notBlank(signatureAlgorithm, "signatureAlgorithm");
+    this.signatureAlgorithm = notBlank(signatureAlgorithm, "signatureAlgorithm");
     this.objectId = notNull(objectId, "objectId");
+    this.parallelism = threads + Math.max(2, threads * 5 / 4);
 
     this.deleteKeyAfterTest = deleteKeyAfterTest;
+  } // constructor
+
+  /**
+   * Sets the digest mode of the signer, see the conf key digest-mode of the PKCS#11 signer.
+   * @param digestMode
+   *          One of token, host and auto. {@code null} for the default mode.
+   */
+  public void setDigestMode(String digestMode) {
+    this.digestMode = digestMode;
+  }
+
+  /**
+   * Sets the size of the data to be signed.
+   * @param dataSize
+   *          Size of the data in bytes. Large values simulate the signing of CRLs.
+   */
+  public void setDataSize(int dataSize) {
+    this.dataSize = positive(dataSize, "dataSize");
+  }
 
-    P11SlotIdentifier slotId = slot.getSlotId();
-    SignerConf signerConf = getPkcs11SignerConf(slot.getModuleName(),
-        slotId.getId(), objectId.getId(), signatureAlgorithm,
-        threads + Math.max(2, threads * 5 / 4));
-    try {
-      this.signer = securityFactory.createSigner("PKCS11", signerConf, (X509Cert) null);
-    } catch (ObjectCreationException ex) {
-      close();
-      throw ex;
+  private synchronized ConcurrentContentSigner getSigner()
+      throws ObjectCreationException {
+    if (signer == null) {
+      P11SlotIdentifier slotId = slot.getSlotId();
+      SignerConf signerConf = getPkcs11SignerConf(slot.getModuleName(),
+          slotId.getId(), objectId.getId(), signatureAlgorithm, parallelism, digestMode);
+      try {
+        signer = securityFactory.createSigner("PKCS11", signerConf, (X509Cert) null);
+      } catch (ObjectCreationException ex) {
+        close();
+        throw ex;
+      }
     }
-  } // constructor
+    return signer;
+  } // method getSigner
 
   @Override
   public final void close() {
+    if (signer != null) {
+      try {
+        signer.close();
+      } catch (Exception ex) {
+        LogUtil.warn(LOG, ex, "could not close signer");
+      }
+    }
+
     if (deleteKeyAfterTest) {
       try {
         LOG.info("delete key {}", objectId);
@@ -325,14 +373,18 @@ public abstract class P11SignSpeed extends BenchmarkExecutor {
   @Override
   protected Runnable getTestor()
       throws Exception {
-    return new Testor();
+    return new Testor(getSigner());
   }
 
   private static SignerConf getPkcs11SignerConf(String pkcs11ModuleName, Long slotId, byte[] keyId,
-      String signatureAlgorithm, int parallelism) {
+      String signatureAlgorithm, int parallelism, String digestMode) {
     ConfPairs conf = new ConfPairs("algo", signatureAlgorithm);
     conf.putPair("parallelism", Integer.toString(parallelism));
 
+    if (digestMode != null) {
+      conf.putPair("digest-mode", digestMode);
+    }
+
     if (pkcs11ModuleName != null && pkcs11ModuleName.length() > 0) {
       conf.putPair("module", pkcs11ModuleName);
     }
@@ -112,12 +112,13 @@ public abstract class P12KeyGenSpeed extends BenchmarkExecutor {
     @Override
     public void run() {
       while (!stop() && getErrorAccout() < 1) {
+        long startNanos = nextOperation();
         try {
           generateKeypair(securityFactory.getRandom4Key());
-          account(1, 0);
+          account(1, 0, startNanos);
         } catch (Exception ex) {
           LOG.error("P12KeyGenSpeed.Testor.run()", ex);
-          account(1, 1);
+          account(1, 1, startNanos);
         }
       }
     }
@@ -42,6 +42,7 @@ import org.xipki.util.Base64;
 import org.xipki.util.BenchmarkExecutor;
 import org.xipki.util.ConfPairs;
 import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
 
 /**
  * Speed test of PKCS#12 signature creation.
@@ -238,9 +239,12 @@ public abstract class P12SignSpeed extends BenchmarkExecutor {
 
     private static final int batch = 16;
 
+    private final ConcurrentContentSigner signer;
+
     private final byte[][] data = new byte[batch][16];
 
-    public Testor() {
+    public Testor(ConcurrentContentSigner signer) {
+      this.signer = signer;
       for (int i = 0; i < data.length; i++) {
         new SecureRandom().nextBytes(data[i]);
       }
@@ -249,12 +253,13 @@ public abstract class P12SignSpeed extends BenchmarkExecutor {
     @Override
     public void run() {
       while (!stop() && getErrorAccout() < 1) {
+        long startNanos = nextOperation();
         try {
           signer.sign(data);
-          account(batch, 0);
+          account(batch, 0, startNanos);
         } catch (Exception ex) {
           LOG.error("P12SignSpeed.Testor.run()", ex);
-          account(batch, batch);
+          account(batch, batch, startNanos);
         }
       }
     }
@@ -265,7 +270,19 @@ public abstract class P12SignSpeed extends BenchmarkExecutor {
 
   private static Logger LOG = LoggerFactory.getLogger(P12SignSpeed.class);
 
-  private final ConcurrentContentSigner signer;
+  private final String tokenType;
+
+  private final SecurityFactory securityFactory;
+
+  private final String signatureAlgorithm;
+
+  private final byte[] keystore;
+
+  private final int parallelism;
+
+  private ConcurrentContentSigner signer;
+
+  private String provider;
 
   public P12SignSpeed(SecurityFactory securityFactory, String signatureAlgorithm,
       byte[] keystore, String description, int threads)
@@ -278,19 +295,48 @@ public abstract class P12SignSpeed extends BenchmarkExecutor {
           throws Exception {
     super(description);
 
-    notNull(securityFactory, "securityFactory");
-    notBlank(signatureAlgorithm, "signatureAlgorithm");
-    notNull(keystore, "keystore");
-
-    SignerConf signerConf = getKeystoreSignerConf(new ByteArrayInputStream(keystore), PASSWORD,
-        signatureAlgorithm, threads + Math.max(2, threads * 5 / 4));
-    this.signer = securityFactory.createSigner(tokenType, signerConf, (X509Cert) null);
+    this.tokenType = tokenType;
+    this.securityFactory = notNull(securityFactory, "securityFactory");
+    this.signatureAlgorithm = notBlank(signatureAlgorithm, "signatureAlgorithm");
+    this.keystore = notNull(keystore, "keystore");
+    this.parallelism = threads + Math.max(2, threads * 5 / 4);
+  } // constructor
+
+  /**
+   * Sets the provider of the signer, see the conf key provider of the PKCS#12 signer.
+   * @param provider
+   *          Name of the JCA provider, bc-lightweight or auto. {@code null} for auto.
+   */
+  public void setProvider(String provider) {
+    this.provider = provider;
   }
 
+  private synchronized ConcurrentContentSigner getSigner()
+      throws Exception {
+    if (signer == null) {
+      SignerConf signerConf = getKeystoreSignerConf(new ByteArrayInputStream(keystore), PASSWORD,
+          signatureAlgorithm, parallelism, provider);
+      signer = securityFactory.createSigner(tokenType, signerConf, (X509Cert) null);
+    }
+    return signer;
+  } // method getSigner
+
+  @Override
+  public final void close() {
+    if (signer != null) {
+      try {
+        signer.close();
+      } catch (Exception ex) {
+        LogUtil.warn(LOG, ex, "could not close signer");
+      }
+      signer = null;
+    }
+  } // method close
+
   @Override
   protected Runnable getTestor()
       throws Exception {
-    return new Testor();
+    return new Testor(getSigner());
   }
 
   // CHECKSTYLE:SKIP
@@ -319,11 +365,14 @@ public abstract class P12SignSpeed extends BenchmarkExecutor {
   }
 
   private static SignerConf getKeystoreSignerConf(InputStream keystoreStream,
-      String password, String signatureAlgorithm, int parallelism)
+      String password, String signatureAlgorithm, int parallelism, String provider)
           throws IOException {
     ConfPairs conf = new ConfPairs("password", password);
     conf.putPair("algo", signatureAlgorithm);
     conf.putPair("parallelism", Integer.toString(parallelism));
+    if (provider != null) {
+      conf.putPair("provider", provider);
+    }
     conf.putPair("keystore", "base64:" + Base64.encodeToString(IoUtil.read(keystoreStream)));
     return new SignerConf(conf.getEncoded());
   }
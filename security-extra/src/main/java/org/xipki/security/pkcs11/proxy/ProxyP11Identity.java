@@ -20,6 +20,7 @@ package org.xipki.security.pkcs11.proxy;
 import java.security.PublicKey;
 
 import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.DEROctetString;
 import org.xipki.security.X509Cert;
 import org.xipki.security.pkcs11.P11Identity;
@@ -31,6 +32,7 @@ import org.xipki.security.pkcs11.P11Params.P11RSAPkcsPssParams;
 import org.xipki.security.pkcs11.proxy.asn1.DigestSecretKeyTemplate;
 import org.xipki.security.pkcs11.proxy.asn1.ObjectIdentifier;
 import org.xipki.security.pkcs11.proxy.asn1.RSAPkcsPssParams;
+import org.xipki.security.pkcs11.proxy.asn1.SignBatchTemplate;
 import org.xipki.security.pkcs11.proxy.asn1.SignTemplate;
 import org.xipki.security.pkcs11.P11TokenException;
 
@@ -59,28 +61,8 @@ class ProxyP11Identity extends P11Identity {
   @Override
   protected byte[] sign0(long mechanism, P11Params parameters, byte[] content)
       throws P11TokenException {
-    org.xipki.security.pkcs11.proxy.asn1.P11Params p11Param = null;
-    if (parameters != null) {
-      if (parameters instanceof P11RSAPkcsPssParams) {
-        p11Param = new org.xipki.security.pkcs11.proxy.asn1.P11Params(
-            org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_RSA_PKCS_PSS,
-            new RSAPkcsPssParams((P11RSAPkcsPssParams) parameters));
-      } else if (parameters instanceof P11ByteArrayParams) {
-        byte[] bytes = ((P11ByteArrayParams) parameters).getBytes();
-        p11Param = new org.xipki.security.pkcs11.proxy.asn1.P11Params(
-            org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_OPAQUE,
-            new DEROctetString(bytes));
-      } else if (parameters instanceof P11IVParams) {
-        p11Param = new org.xipki.security.pkcs11.proxy.asn1.P11Params(
-            org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_IV,
-            new DEROctetString(((P11IVParams) parameters).getIV()));
-      } else {
-        throw new IllegalArgumentException("unkown parameter 'parameters'");
-      }
-    }
-
-    SignTemplate signTemplate = new SignTemplate(
-        ((ProxyP11Slot) slot).getAsn1SlotId(), asn1KeyId, mechanism, p11Param, content);
+    SignTemplate signTemplate = new SignTemplate(((ProxyP11Slot) slot).getAsn1SlotId(),
+        asn1KeyId, mechanism, toAsn1Params(parameters), content);
     byte[] result = ((ProxyP11Slot) slot).getModule().send(P11ProxyConstants.ACTION_SIGN,
         signTemplate);
 
@@ -94,6 +76,64 @@ class ProxyP11Identity extends P11Identity {
     return (octetString == null) ? null : octetString.getOctets();
   } // method sign0
 
+  @Override
+  protected byte[][] sign0(long mechanism, P11Params parameters, byte[][] contents)
+      throws P11TokenException {
+    ProxyP11Module module = ((ProxyP11Slot) slot).getModule();
+    if (contents.length < 2 || !module.isBatchSignSupported()) {
+      return super.sign0(mechanism, parameters, contents);
+    }
+
+    SignBatchTemplate template = new SignBatchTemplate(((ProxyP11Slot) slot).getAsn1SlotId(),
+        asn1KeyId, mechanism, toAsn1Params(parameters), contents);
+    byte[] result = module.send(P11ProxyConstants.VERSION_V1_1,
+        P11ProxyConstants.ACTION_SIGN_BATCH, template);
+
+    ASN1Sequence seq;
+    try {
+      seq = ASN1Sequence.getInstance(result);
+    } catch (IllegalArgumentException ex) {
+      throw new P11TokenException("the returned result is not SEQUENCE");
+    }
+
+    if (seq == null || seq.size() != contents.length) {
+      throw new P11TokenException("the number of returned signatures is not "
+          + contents.length);
+    }
+
+    byte[][] signatures = new byte[contents.length][];
+    for (int i = 0; i < contents.length; i++) {
+      try {
+        signatures[i] = ASN1OctetString.getInstance(seq.getObjectAt(i)).getOctets();
+      } catch (IllegalArgumentException ex) {
+        throw new P11TokenException("the returned signature is not OCTET STRING");
+      }
+    }
+    return signatures;
+  } // method sign0
+
+  private static org.xipki.security.pkcs11.proxy.asn1.P11Params toAsn1Params(
+      P11Params parameters) {
+    if (parameters == null) {
+      return null;
+    } else if (parameters instanceof P11RSAPkcsPssParams) {
+      return new org.xipki.security.pkcs11.proxy.asn1.P11Params(
+          org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_RSA_PKCS_PSS,
+          new RSAPkcsPssParams((P11RSAPkcsPssParams) parameters));
+    } else if (parameters instanceof P11ByteArrayParams) {
+      byte[] bytes = ((P11ByteArrayParams) parameters).getBytes();
+      return new org.xipki.security.pkcs11.proxy.asn1.P11Params(
+          org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_OPAQUE,
+          new DEROctetString(bytes));
+    } else if (parameters instanceof P11IVParams) {
+      return new org.xipki.security.pkcs11.proxy.asn1.P11Params(
+          org.xipki.security.pkcs11.proxy.asn1.P11Params.TAG_IV,
+          new DEROctetString(((P11IVParams) parameters).getIV()));
+    } else {
+      throw new IllegalArgumentException("unkown parameter 'parameters'");
+    }
+  } // method toAsn1Params
+
   @Override
   protected byte[] digestSecretKey0(long mechanism)
       throws P11TokenException {
@@ -105,6 +105,8 @@ public class ProxyP11Module extends P11Module {
 
   private boolean readOnly;
 
+  private boolean batchSignSupported;
+
   private SSLSocketFactory sslSocketFactory;
 
   private HostnameVerifier hostnameVerifier;
@@ -217,6 +219,7 @@ public class ProxyP11Module extends P11Module {
       throw new P11TokenException("Server does not support any version supported by the client");
     }
     this.readOnly = caps.isReadOnly();
+    this.batchSignSupported = caps.getVersions().contains(P11ProxyConstants.VERSION_V1_1);
 
     resp = send(P11ProxyConstants.ACTION_GET_SLOT_IDS, null);
 
@@ -256,6 +259,15 @@ public class ProxyP11Module extends P11Module {
     setSlots(slots);
   } // method refresh
 
+  /**
+   * Returns whether the server supports the action
+   * {@link P11ProxyConstants#ACTION_SIGN_BATCH}.
+   * @return whether batch sign is supported.
+   */
+  public boolean isBatchSignSupported() {
+    return batchSignSupported;
+  }
+
   @Override
   public String getDescription() {
     return description;
@@ -290,11 +302,12 @@ public class ProxyP11Module extends P11Module {
     httpUrlConnection.setDoOutput(true);
     httpUrlConnection.setUseCaches(false);
 
-    int size = request.length;
-
+    // The connection is not disconnected, and the response is always read to the end, so that
+    // the JDK keeps the connection alive and reuses it for the next request. The number of
+    // idle connections kept per server is controlled by the system property http.maxConnections.
     httpUrlConnection.setRequestMethod("POST");
     httpUrlConnection.setRequestProperty("Content-Type", REQUEST_MIMETYPE);
-    httpUrlConnection.setRequestProperty("Content-Length", Integer.toString(size));
+    httpUrlConnection.setFixedLengthStreamingMode(request.length);
     OutputStream outputstream = httpUrlConnection.getOutputStream();
     outputstream.write(request);
     outputstream.flush();
@@ -302,15 +315,9 @@ public class ProxyP11Module extends P11Module {
     if (httpUrlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
       try {
         try {
-          InputStream is = httpUrlConnection.getInputStream();
-          if (is != null) {
-            is.close();
-          }
+          consume(httpUrlConnection.getInputStream());
         } catch (IOException ex) {
-          InputStream errStream = httpUrlConnection.getErrorStream();
-          if (errStream != null) {
-            errStream.close();
-          }
+          consume(httpUrlConnection.getErrorStream());
         }
       } catch (Throwable th) {
         // ignore it
@@ -324,10 +331,7 @@ public class ProxyP11Module extends P11Module {
     try {
       inputstream = httpUrlConnection.getInputStream();
     } catch (IOException ex) {
-      InputStream errStream = httpUrlConnection.getErrorStream();
-      if (errStream != null) {
-        errStream.close();
-      }
+      consume(httpUrlConnection.getErrorStream());
       throw ex;
     }
 
@@ -339,13 +343,10 @@ public class ProxyP11Module extends P11Module {
           isValidContentType = true;
         }
       }
-      if (!isValidContentType) {
-        throw new IOException("bad response: mime type " + responseContentType
-            + " is not supported!");
-      }
-
       byte[] buf = new byte[4096];
-      ByteArrayOutputStream bytearrayoutputstream = new ByteArrayOutputStream();
+      int contentLength = httpUrlConnection.getContentLength();
+      ByteArrayOutputStream bytearrayoutputstream =
+          new ByteArrayOutputStream(contentLength > 0 ? contentLength : buf.length);
       do {
         int readedByte = inputstream.read(buf);
         if (readedByte == -1) {
@@ -354,12 +355,33 @@ public class ProxyP11Module extends P11Module {
         bytearrayoutputstream.write(buf, 0, readedByte);
       } while (true);
 
+      if (!isValidContentType) {
+        throw new IOException("bad response: mime type " + responseContentType
+            + " is not supported!");
+      }
+
       return bytearrayoutputstream.toByteArray();
     } finally {
       inputstream.close();
     }
   } // method send
 
+  private static void consume(InputStream is)
+      throws IOException {
+    if (is == null) {
+      return;
+    }
+
+    try {
+      byte[] buf = new byte[4096];
+      while (is.read(buf) != -1) {
+        // discard it
+      }
+    } finally {
+      is.close();
+    }
+  } // method consume
+
   /**
    * The request is constructed as follows.
    * <pre>
@@ -376,6 +398,19 @@ public class ProxyP11Module extends P11Module {
    */
   public byte[] send(short action, ASN1Object content)
       throws P11TokenException {
+    return send(version, action, content);
+  }
+
+  /**
+   * Sends the request with given version, see {@link #send(short, ASN1Object)}.
+   * @param reqVersion version of the request
+   * @param action action
+   * @param content content
+   * @return result.
+   * @throws P11TokenException If error occurred.
+   */
+  public byte[] send(short reqVersion, short action, ASN1Object content)
+      throws P11TokenException {
     byte[] encodedContent;
     if (content == null) {
       encodedContent = null;
@@ -395,7 +430,7 @@ public class ProxyP11Module extends P11Module {
     byte[] request = new byte[10 + bodyLen];
 
     // version
-    IoUtil.writeShort(version, request, 0);
+    IoUtil.writeShort(reqVersion, request, 0);
 
     // transaction id
     byte[] transactionId = randomTransactionId();
@@ -443,7 +478,7 @@ public class ProxyP11Module extends P11Module {
 
     // Version
     short respVersion = IoUtil.parseShort(response, 0);
-    if (version != respVersion) {
+    if (reqVersion != respVersion) {
       throw new P11TokenException("version of response and request unmatch");
     }
 
@@ -0,0 +1,145 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.pkcs11.proxy.asn1;
+
+import java.io.IOException;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.xipki.security.BadAsn1ObjectException;
+import org.xipki.util.Args;
+
+/**
+ * Definition of SignBatchTemplate.
+ *
+ * <pre>
+ * SignBatchTemplate ::= SEQUENCE {
+ *     slotId         SlotIdentifier,
+ *     objectId       ObjectIdentifier,
+ *     mechanism      Mechanism,
+ *     messages       SEQUENCE OF OCTET STRING }
+ * </pre>
+ *
+ * <p>The response is SEQUENCE OF OCTET STRING, containing the signatures in the order of
+ * the messages.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+public class SignBatchTemplate extends ProxyMessage {
+
+  private final SlotIdentifier slotId;
+
+  private final ObjectIdentifier objectId;
+
+  private final Mechanism mechanism;
+
+  private final byte[][] messages;
+
+  private SignBatchTemplate(ASN1Sequence seq)
+      throws BadAsn1ObjectException {
+    requireRange(seq, 4, 4);
+    int idx = 0;
+    this.slotId = SlotIdentifier.getInstance(seq.getObjectAt(idx++));
+    this.objectId = ObjectIdentifier.getInstance(seq.getObjectAt(idx++));
+    this.mechanism = Mechanism.getInstance(seq.getObjectAt(idx++));
+
+    ASN1Sequence messagesSeq;
+    try {
+      messagesSeq = ASN1Sequence.getInstance(seq.getObjectAt(idx++));
+    } catch (IllegalArgumentException ex) {
+      throw new BadAsn1ObjectException("invalid messages: " + ex.getMessage(), ex);
+    }
+
+    final int n = messagesSeq.size();
+    if (n == 0) {
+      throw new BadAsn1ObjectException("messages must not be empty");
+    }
+
+    this.messages = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      this.messages[i] = getOctetStringBytes(messagesSeq.getObjectAt(i));
+    }
+  }
+
+  public SignBatchTemplate(SlotIdentifier slotId, ObjectIdentifier objectId,
+      long mechanism, P11Params parameter, byte[][] messages) {
+    this.slotId = Args.notNull(slotId, "slotId");
+    this.objectId = Args.notNull(objectId, "objectId");
+    this.messages = Args.notNull(messages, "messages");
+    if (messages.length == 0) {
+      throw new IllegalArgumentException("messages must not be empty");
+    }
+    this.mechanism = new Mechanism(mechanism, parameter);
+  }
+
+  public static SignBatchTemplate getInstance(Object obj)
+      throws BadAsn1ObjectException {
+    if (obj == null || obj instanceof SignBatchTemplate) {
+      return (SignBatchTemplate) obj;
+    }
+
+    try {
+      if (obj instanceof ASN1Sequence) {
+        return new SignBatchTemplate((ASN1Sequence) obj);
+      } else if (obj instanceof byte[]) {
+        return getInstance(ASN1Primitive.fromByteArray((byte[]) obj));
+      } else {
+        throw new BadAsn1ObjectException("unknown object: " + obj.getClass().getName());
+      }
+    } catch (IOException | IllegalArgumentException ex) {
+      throw new BadAsn1ObjectException("unable to parse encoded object: " + ex.getMessage(),
+          ex);
+    }
+  }
+
+  @Override
+  public ASN1Primitive toASN1Primitive() {
+    ASN1EncodableVector messagesVec = new ASN1EncodableVector();
+    for (byte[] message : messages) {
+      messagesVec.add(new DEROctetString(message));
+    }
+
+    ASN1EncodableVector vector = new ASN1EncodableVector();
+    vector.add(slotId);
+    vector.add(objectId);
+    vector.add(mechanism);
+    vector.add(new DERSequence(messagesVec));
+    return new DERSequence(vector);
+  }
+
+  public byte[][] getMessages() {
+    return messages;
+  }
+
+  public SlotIdentifier getSlotId() {
+    return slotId;
+  }
+
+  public ObjectIdentifier getObjectId() {
+    return objectId;
+  }
+
+  public Mechanism getMechanism() {
+    return mechanism;
+  }
+
+} // class SignBatchTemplate
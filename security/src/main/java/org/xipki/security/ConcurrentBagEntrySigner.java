@@ -28,8 +28,18 @@ import org.xipki.util.concurrent.ConcurrentBagEntry;
 
 public class ConcurrentBagEntrySigner extends ConcurrentBagEntry<XiContentSigner> {
 
+  private long borrowTime;
+
   public ConcurrentBagEntrySigner(XiContentSigner value) {
     super(value);
   }
 
+  long getBorrowTime() {
+    return borrowTime;
+  }
+
+  void setBorrowTime(long borrowTime) {
+    this.borrowTime = borrowTime;
+  }
+
 }
@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.security.Key;
 import java.security.PublicKey;
 import java.security.SignatureException;
+import java.util.Map;
 
 import org.bouncycastle.operator.ContentSigner;
 import org.xipki.password.PasswordResolver;
@@ -136,4 +137,10 @@ public interface ConcurrentContentSigner extends Closeable {
 
   boolean isHealthy();
 
+  /**
+   * Returns the statistics of the signer pool, e.g. size, borrow wait and hold time.
+   * @return the statistics, never {@code null}.
+   */
+  Map<String, Object> getStatistics();
+
 }
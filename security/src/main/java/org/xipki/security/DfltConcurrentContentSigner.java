@@ -18,6 +18,7 @@
 package org.xipki.security;
 
 import static org.xipki.util.Args.notEmpty;
+import static org.xipki.util.concurrent.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -26,9 +27,16 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.slf4j.Logger;
@@ -38,10 +46,15 @@ import org.xipki.security.util.AlgorithmUtil;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.concurrent.ConcurrentBag;
+import org.xipki.util.concurrent.ConcurrentBag.IBagStateListener;
 
 /**
  * An implementation of {@link ConcurrentContentSigner}.
  *
+ * <p>If a {@link SignerSupplier} is specified, the pool grows up to the maximal number of signers
+ * while threads are waiting for an idle signer, and shrinks back to the initial number of
+ * signers if the signers are not used.
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
@@ -54,7 +67,55 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
 
   private static int defaultSignServiceTimeout = 10000; // 10 seconds
 
-  private final ConcurrentBag<ConcurrentBagEntrySigner> signers = new ConcurrentBag<>();
+  /**
+   * Interval in seconds to check whether idle signers can be removed.
+   */
+  private static final long SHRINK_INTERVAL_S = 60;
+
+  private static ScheduledThreadPoolExecutor poolExecutor;
+
+  /**
+   * Supplier of new signers for the pool.
+   */
+  public interface SignerSupplier {
+
+    XiContentSigner newSigner()
+        throws XiSecurityException;
+
+  } // interface SignerSupplier
+
+  private final ConcurrentBag<ConcurrentBagEntrySigner> signers;
+
+  private final SignerSupplier signerSupplier;
+
+  private final int minSigners;
+
+  private final int maxSigners;
+
+  private final AtomicBoolean addingSigner = new AtomicBoolean(false);
+
+  private ScheduledFuture<?> shrinkTask;
+
+  private volatile boolean closed;
+
+  // statistics
+  private final AtomicInteger inUse = new AtomicInteger(0);
+
+  private final AtomicInteger peakInUse = new AtomicInteger(0);
+
+  private final AtomicLong borrows = new AtomicLong(0);
+
+  private final AtomicLong timeouts = new AtomicLong(0);
+
+  private final AtomicLong borrowWaitNanos = new AtomicLong(0);
+
+  private final AtomicLong maxBorrowWaitNanos = new AtomicLong(0);
+
+  private final AtomicLong holdNanos = new AtomicLong(0);
+
+  private final AtomicLong addedSigners = new AtomicLong(0);
+
+  private final AtomicLong removedSigners = new AtomicLong(0);
 
   private final String name;
 
@@ -95,6 +156,28 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
 
   public DfltConcurrentContentSigner(boolean mac, List<XiContentSigner> signers, Key signingKey)
       throws NoSuchAlgorithmException {
+    this(mac, signers, signingKey, 0, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param mac
+   *          Whether the signers are MAC signers.
+   * @param signers
+   *          The initial signers, also the minimal number of signers. Must not be empty.
+   * @param signingKey
+   *          The signing key. Could be {@code null}.
+   * @param maxSigners
+   *          Maximal number of signers. Ignored if {@code signerSupplier} is {@code null}.
+   * @param signerSupplier
+   *          Supplier of the new signers. {@code null} if the pool shall not grow.
+   * @throws NoSuchAlgorithmException
+   *          If the algorithm of the signers is not supported.
+   */
+  public DfltConcurrentContentSigner(boolean mac, List<XiContentSigner> signers, Key signingKey,
+      int maxSigners, SignerSupplier signerSupplier)
+          throws NoSuchAlgorithmException {
     notEmpty(signers, "signers");
 
     this.mac = mac;
@@ -102,13 +185,120 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
     this.algorithmName = AlgorithmUtil.getSigOrMacAlgoName(algorithmIdentifier);
     this.algorithmCode = AlgorithmUtil.getSigOrMacAlgoCode(algorithmIdentifier);
 
+    this.minSigners = signers.size();
+    if (signerSupplier == null || maxSigners <= minSigners) {
+      this.signerSupplier = null;
+      this.maxSigners = minSigners;
+      this.signers = new ConcurrentBag<>();
+    } else {
+      this.signerSupplier = signerSupplier;
+      this.maxSigners = maxSigners;
+      this.signers = new ConcurrentBag<>(new IBagStateListener() {
+        @Override
+        public void addBagItem(int waiting) {
+          addSignerIfRequired();
+        }
+      });
+    }
+
     for (XiContentSigner signer : signers) {
       this.signers.add(new ConcurrentBagEntrySigner(signer));
     }
 
     this.signingKey = signingKey;
     this.name = "defaultSigner-" + NAME_INDEX.getAndIncrement();
-  }
+
+    if (this.signerSupplier != null) {
+      this.shrinkTask = getPoolExecutor().scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          removeIdleSigners();
+        }
+      }, SHRINK_INTERVAL_S, SHRINK_INTERVAL_S, TimeUnit.SECONDS);
+    }
+  } // constructor
+
+  private static synchronized ScheduledThreadPoolExecutor getPoolExecutor() {
+    if (poolExecutor == null) {
+      final AtomicInteger threadNumber = new AtomicInteger(1);
+      ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "signer-pool-" + threadNumber.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+
+      poolExecutor = new ScheduledThreadPoolExecutor(1, threadFactory);
+      poolExecutor.setRemoveOnCancelPolicy(true);
+    }
+    return poolExecutor;
+  } // method getPoolExecutor
+
+  /**
+   * Called by the bag if a thread has to wait for an idle signer. At most one signer is
+   * added at the same time, further signers are added if threads are still waiting.
+   */
+  private void addSignerIfRequired() {
+    if (closed || signers.size() >= maxSigners || !addingSigner.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      getPoolExecutor().execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (closed || signers.size() >= maxSigners) {
+              return;
+            }
+
+            XiContentSigner signer = signerSupplier.newSigner();
+            signers.add(new ConcurrentBagEntrySigner(signer));
+            addedSigners.incrementAndGet();
+            LOG.info("{}: added signer, pool size {}", name, signers.size());
+          } catch (Exception ex) {
+            LogUtil.warn(LOG, ex, name + ": could not add signer");
+          } finally {
+            addingSigner.set(false);
+          }
+        }
+      });
+    } catch (RuntimeException ex) {
+      addingSigner.set(false);
+      LogUtil.warn(LOG, ex, name + ": could not schedule the adding of signer");
+    }
+  } // method addSignerIfRequired
+
+  /**
+   * Removes the idle signers which were not required since the last check, but keeps at least
+   * the initial number of signers.
+   */
+  private void removeIdleSigners() {
+    int peak = peakInUse.getAndSet(inUse.get());
+    int size = signers.size();
+    int target = Math.max(minSigners, Math.min(size, peak + 1));
+    int removed = 0;
+    for (ConcurrentBagEntrySigner signer : signers.values(STATE_NOT_IN_USE)) {
+      if (size - removed <= target) {
+        break;
+      }
+
+      if (signers.reserve(signer)) {
+        if (signers.remove(signer)) {
+          removed++;
+        } else {
+          signers.unreserve(signer);
+        }
+      }
+    }
+
+    if (removed > 0) {
+      removedSigners.addAndGet(removed);
+      LOG.info("{}: removed {} idle signers, pool size {}", name, removed, signers.size());
+    }
+  } // method removeIdleSigners
 
   @Override
   public String getName() {
@@ -154,6 +344,7 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
   @Override
   public ConcurrentBagEntrySigner borrowSigner(int soTimeout)
       throws NoIdleSignerException {
+    long start = System.nanoTime();
     ConcurrentBagEntrySigner signer = null;
     try {
       signer = signers.borrow(soTimeout, TimeUnit.MILLISECONDS);
@@ -161,17 +352,60 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
     }
 
     if (signer == null) {
+      timeouts.incrementAndGet();
       throw new NoIdleSignerException("no idle signer available");
     }
 
+    long now = System.nanoTime();
+    long wait = now - start;
+    borrows.incrementAndGet();
+    borrowWaitNanos.addAndGet(wait);
+    while (true) {
+      long prevMax = maxBorrowWaitNanos.get();
+      if (wait <= prevMax || maxBorrowWaitNanos.compareAndSet(prevMax, wait)) {
+        break;
+      }
+    }
+
+    int used = inUse.incrementAndGet();
+    while (true) {
+      int prevPeak = peakInUse.get();
+      if (used <= prevPeak || peakInUse.compareAndSet(prevPeak, used)) {
+        break;
+      }
+    }
+
+    signer.setBorrowTime(now);
     return signer;
-  }
+  } // method borrowSigner
 
   @Override
   public void requiteSigner(ConcurrentBagEntrySigner signer) {
+    holdNanos.addAndGet(System.nanoTime() - signer.getBorrowTime());
+    inUse.decrementAndGet();
     signers.requite(signer);
   }
 
+  @Override
+  public Map<String, Object> getStatistics() {
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    long borrowCount = borrows.get();
+    statistics.put("size", signers.size());
+    statistics.put("minSize", minSigners);
+    statistics.put("maxSize", maxSigners);
+    statistics.put("inUse", inUse.get());
+    statistics.put("waiting", signers.getWaitingThreadCount());
+    statistics.put("borrows", borrowCount);
+    statistics.put("timeouts", timeouts.get());
+    statistics.put("avgBorrowWaitUs",
+        borrowCount == 0 ? 0 : borrowWaitNanos.get() / borrowCount / 1000);
+    statistics.put("maxBorrowWaitUs", maxBorrowWaitNanos.get() / 1000);
+    statistics.put("avgHoldUs", borrowCount == 0 ? 0 : holdNanos.get() / borrowCount / 1000);
+    statistics.put("addedSigners", addedSigners.get());
+    statistics.put("removedSigners", removedSigners.get());
+    return statistics;
+  } // method getStatistics
+
   @Override
   public void initialize(String conf, PasswordResolver passwordResolver)
       throws XiSecurityException {
@@ -239,6 +473,15 @@ public class DfltConcurrentContentSigner implements ConcurrentContentSigner {
 
   @Override
   public void close() {
+    closed = true;
+    if (shrinkTask != null) {
+      shrinkTask.cancel(false);
+      shrinkTask = null;
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("{}: statistics {}", name, getStatistics());
+    }
   }
 
   @Override
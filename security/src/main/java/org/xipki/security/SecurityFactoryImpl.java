@@ -23,6 +23,7 @@ import static org.xipki.util.Args.positive;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -37,6 +38,7 @@ import java.security.spec.InvalidKeySpecException;
 import java.util.Enumeration;
 import java.util.Set;
 
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.RuntimeCryptoException;
@@ -49,7 +51,9 @@ import org.xipki.password.PasswordResolver;
 import org.xipki.security.util.AlgorithmUtil;
 import org.xipki.security.util.KeyUtil;
 import org.xipki.security.util.SignerUtil;
+import org.xipki.util.Base64;
 import org.xipki.util.LogUtil;
+import org.xipki.util.LruCache;
 import org.xipki.util.ObjectCreationException;
 
 /**
@@ -73,6 +77,14 @@ public class SecurityFactoryImpl extends AbstractSecurityFactory {
 
   private boolean strongRandom4SignEnabled;
 
+  /*
+   * ContentVerifierProviders for the recently used public keys, keyed by the SHA-256 digest of
+   * the SubjectPublicKeyInfo. The cached providers are thread-safe, each call of get() creates
+   * a new ContentVerifier.
+   */
+  private final LruCache<String, ContentVerifierProvider> verifierProviderCache =
+      new LruCache<>(1000);
+
   public SecurityFactoryImpl() {
   }
 
@@ -114,7 +126,47 @@ public class SecurityFactoryImpl extends AbstractSecurityFactory {
   public ContentVerifierProvider getContentVerifierProvider(PublicKey publicKey,
       DHSigStaticKeyCertPair ownerKeyAndCert)
           throws InvalidKeyException {
-    return SignerUtil.getContentVerifierProvider(publicKey, ownerKeyAndCert);
+    notNull(publicKey, "publicKey");
+    byte[] encodedKey = publicKey.getEncoded();
+    if (ownerKeyAndCert != null || encodedKey == null) {
+      // the verifier depends also on the owner's key, do not cache it
+      return SignerUtil.getContentVerifierProvider(publicKey, ownerKeyAndCert);
+    }
+
+    String cacheKey = verifierProviderCacheKey(encodedKey);
+    ContentVerifierProvider cvp = verifierProviderCache.get(cacheKey);
+    if (cvp == null) {
+      cvp = SignerUtil.getContentVerifierProvider(publicKey, null);
+      verifierProviderCache.put(cacheKey, cvp);
+    }
+    return cvp;
+  } // method getContentVerifierProvider
+
+  @Override
+  public ContentVerifierProvider getContentVerifierProvider(X509Cert cert)
+      throws InvalidKeyException {
+    notNull(cert, "cert");
+    // use the encoded SubjectPublicKeyInfo to look up the cache, so that the public key
+    // needs to be parsed only for the first time.
+    byte[] encodedKey;
+    try {
+      encodedKey = cert.getSubjectPublicKeyInfo().getEncoded(ASN1Encoding.DER);
+    } catch (IOException ex) {
+      throw new InvalidKeyException("could not encode SubjectPublicKeyInfo", ex);
+    }
+
+    String cacheKey = verifierProviderCacheKey(encodedKey);
+    ContentVerifierProvider cvp = verifierProviderCache.get(cacheKey);
+    if (cvp == null) {
+      cvp = SignerUtil.getContentVerifierProvider(cert.getPublicKey(), null);
+      verifierProviderCache.put(cacheKey, cvp);
+    }
+    return cvp;
+  } // method getContentVerifierProvider
+
+  private static String verifierProviderCacheKey(byte[] encodedSpki) {
+    // the SubjectPublicKeyInfo contains both the key algorithm and the key
+    return Base64.encodeToString(HashAlgo.SHA256.hash(encodedSpki));
   }
 
   @Override
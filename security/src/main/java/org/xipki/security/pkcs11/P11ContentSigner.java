@@ -41,6 +41,7 @@ import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
 import org.bouncycastle.crypto.AsymmetricBlockCipher;
 import org.bouncycastle.crypto.CryptoException;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.RuntimeCryptoException;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.crypto.signers.PSSSigner;
@@ -87,6 +88,115 @@ abstract class P11ContentSigner implements XiContentSigner {
     }
   }
 
+  /**
+   * {@link OutputStream} which buffers the message for the token-side hashing, hashes it on
+   * the host, or buffers it until the threshold is reached and hashes it on the host afterwards.
+   */
+  static class SignerOutputStream extends OutputStream {
+
+    /**
+     * Messages longer than this are hashed on the host in the mode {@link P11DigestMode#AUTO}.
+     */
+    static final int AUTO_HOST_DIGEST_THRESHOLD = 64 * 1024;
+
+    private final ByteArrayOutputStream buffer;
+
+    private final Digest digest;
+
+    private final int threshold;
+
+    private boolean hashing;
+
+    private SignerOutputStream(ByteArrayOutputStream buffer, Digest digest, int threshold) {
+      this.buffer = buffer;
+      this.digest = digest;
+      this.threshold = threshold;
+      this.hashing = buffer == null;
+    }
+
+    static SignerOutputStream getInstance(P11DigestMode digestMode, HashAlgo hashAlgo,
+        boolean tokenDigestSupported, boolean hostDigestSupported) {
+      if (!tokenDigestSupported) {
+        return new SignerOutputStream(null, hashAlgo.createDigest(), 0);
+      } else if (!hostDigestSupported || digestMode == null || digestMode == P11DigestMode.TOKEN) {
+        return new SignerOutputStream(new ByteArrayOutputStream(), null, 0);
+      } else if (digestMode == P11DigestMode.HOST) {
+        return new SignerOutputStream(null, hashAlgo.createDigest(), 0);
+      } else {
+        return new SignerOutputStream(new ByteArrayOutputStream(), hashAlgo.createDigest(),
+            AUTO_HOST_DIGEST_THRESHOLD);
+      }
+    } // method getInstance
+
+    @Override
+    public void write(int oneByte) {
+      if (hashing) {
+        digest.update((byte) oneByte);
+      } else {
+        buffer.write(oneByte);
+        switchToHashingIfRequired();
+      }
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+      write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) {
+      if (hashing) {
+        digest.update(bytes, off, len);
+      } else {
+        buffer.write(bytes, off, len);
+        switchToHashingIfRequired();
+      }
+    }
+
+    private void switchToHashingIfRequired() {
+      if (digest != null && buffer.size() > threshold) {
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        digest.update(bytes, 0, bytes.length);
+        hashing = true;
+      }
+    }
+
+    void reset() {
+      if (buffer != null) {
+        buffer.reset();
+        hashing = false;
+      }
+
+      if (digest != null) {
+        digest.reset();
+      }
+    }
+
+    /**
+     * Returns whether the message is hashed on the host.
+     * @return {@code true} if {@link #digest()}, {@code false} if {@link #toByteArray()} is
+     *         to be called.
+     */
+    boolean isHashedOnHost() {
+      return hashing;
+    }
+
+    byte[] toByteArray() {
+      byte[] bytes = buffer.toByteArray();
+      reset();
+      return bytes;
+    }
+
+    byte[] digest() {
+      byte[] result = new byte[digest.getDigestSize()];
+      digest.doFinal(result, 0);
+      reset();
+      return result;
+    }
+
+  } // class SignerOutputStream
+
   @Override
   public final AlgorithmIdentifier getAlgorithmIdentifier() {
     return algorithmIdentifier;
@@ -104,9 +214,11 @@ abstract class P11ContentSigner implements XiContentSigner {
 
     private static final Map<HashAlgo, Long> hashMechMap = new HashMap<>();
 
-    private final OutputStream outputStream;
+    private final SignerOutputStream outputStream;
 
-    private final long mechanism;
+    private final long tokenDigestMechanism;
+
+    private final long hostDigestMechanism;
 
     private final boolean plain;
 
@@ -135,6 +247,12 @@ abstract class P11ContentSigner implements XiContentSigner {
     DSA(P11CryptService cryptService, P11IdentityId identityId,
         AlgorithmIdentifier signatureAlgId, boolean plain)
         throws XiSecurityException, P11TokenException {
+      this(cryptService, identityId, signatureAlgId, plain, null);
+    }
+
+    DSA(P11CryptService cryptService, P11IdentityId identityId,
+        AlgorithmIdentifier signatureAlgId, boolean plain, P11DigestMode digestMode)
+        throws XiSecurityException, P11TokenException {
       super(cryptService, identityId, signatureAlgId);
 
       this.plain = plain;
@@ -148,25 +266,21 @@ abstract class P11ContentSigner implements XiContentSigner {
       P11SlotIdentifier slotId = identityId.getSlotId();
       P11Slot slot = cryptService.getSlot(slotId);
 
-      long mech = hashMechMap.get(hashAlgo).longValue();
-      if (slot.supportsMechanism(mech)) {
-        mechanism = mech;
-        this.outputStream = new ByteArrayOutputStream();
-      } else if (slot.supportsMechanism(PKCS11Constants.CKM_DSA)) {
-        mechanism = PKCS11Constants.CKM_DSA;
-        this.outputStream = new DigestOutputStream(hashAlgo.createDigest());
-      } else {
+      this.tokenDigestMechanism = hashMechMap.get(hashAlgo).longValue();
+      this.hostDigestMechanism = PKCS11Constants.CKM_DSA;
+      boolean tokenDigestSupported = slot.supportsMechanism(tokenDigestMechanism);
+      boolean hostDigestSupported = slot.supportsMechanism(hostDigestMechanism);
+      if (!(tokenDigestSupported || hostDigestSupported)) {
         throw new XiSecurityException("unsupported signature algorithm " + algOid);
       }
+
+      this.outputStream = SignerOutputStream.getInstance(digestMode, hashAlgo,
+          tokenDigestSupported, hostDigestSupported);
     } // constructor
 
     @Override
     public OutputStream getOutputStream() {
-      if (outputStream instanceof ByteArrayOutputStream) {
-        ((ByteArrayOutputStream) outputStream).reset();
-      } else {
-        ((DigestOutputStream) outputStream).reset();
-      }
+      outputStream.reset();
       return outputStream;
     }
 
@@ -186,13 +300,14 @@ abstract class P11ContentSigner implements XiContentSigner {
 
     private byte[] getPlainSignature()
         throws XiSecurityException, P11TokenException {
+      long mechanism;
       byte[] dataToSign;
-      if (outputStream instanceof ByteArrayOutputStream) {
-        dataToSign = ((ByteArrayOutputStream) outputStream).toByteArray();
-        ((ByteArrayOutputStream) outputStream).reset();
+      if (outputStream.isHashedOnHost()) {
+        mechanism = hostDigestMechanism;
+        dataToSign = outputStream.digest();
       } else {
-        dataToSign = ((DigestOutputStream) outputStream).digest();
-        ((DigestOutputStream) outputStream).reset();
+        mechanism = tokenDigestMechanism;
+        dataToSign = outputStream.toByteArray();
       }
 
       return cryptService.getIdentity(identityId).sign(mechanism, null, dataToSign);
@@ -207,9 +322,11 @@ abstract class P11ContentSigner implements XiContentSigner {
 
     private static final Map<HashAlgo, Long> hashMechMap = new HashMap<>();
 
-    private final OutputStream outputStream;
+    private final SignerOutputStream outputStream;
 
-    private final long mechanism;
+    private final long tokenDigestMechanism;
+
+    private final long hostDigestMechanism;
 
     private final boolean plain;
 
@@ -244,6 +361,12 @@ abstract class P11ContentSigner implements XiContentSigner {
     ECDSA(P11CryptService cryptService, P11IdentityId identityId,
         AlgorithmIdentifier signatureAlgId, boolean plain)
         throws XiSecurityException, P11TokenException {
+      this(cryptService, identityId, signatureAlgId, plain, null);
+    }
+
+    ECDSA(P11CryptService cryptService, P11IdentityId identityId,
+        AlgorithmIdentifier signatureAlgId, boolean plain, P11DigestMode digestMode)
+        throws XiSecurityException, P11TokenException {
       super(cryptService, identityId, signatureAlgId);
 
       this.plain = plain;
@@ -256,25 +379,21 @@ abstract class P11ContentSigner implements XiContentSigner {
 
       P11Slot slot = cryptService.getSlot(identityId.getSlotId());
 
-      long mech = hashMechMap.get(hashAlgo).longValue();
-      if (slot.supportsMechanism(mech)) {
-        mechanism = mech;
-        this.outputStream = new ByteArrayOutputStream();
-      } else if (slot.supportsMechanism(PKCS11Constants.CKM_ECDSA)) {
-        mechanism = PKCS11Constants.CKM_ECDSA;
-        this.outputStream = new DigestOutputStream(hashAlgo.createDigest());
-      } else {
+      this.tokenDigestMechanism = hashMechMap.get(hashAlgo).longValue();
+      this.hostDigestMechanism = PKCS11Constants.CKM_ECDSA;
+      boolean tokenDigestSupported = slot.supportsMechanism(tokenDigestMechanism);
+      boolean hostDigestSupported = slot.supportsMechanism(hostDigestMechanism);
+      if (!(tokenDigestSupported || hostDigestSupported)) {
         throw new XiSecurityException("unsupported signature algorithm " + algOid);
       }
+
+      this.outputStream = SignerOutputStream.getInstance(digestMode, hashAlgo,
+          tokenDigestSupported, hostDigestSupported);
     } // method constructor
 
     @Override
     public OutputStream getOutputStream() {
-      if (outputStream instanceof ByteArrayOutputStream) {
-        ((ByteArrayOutputStream) outputStream).reset();
-      } else {
-        ((DigestOutputStream) outputStream).reset();
-      }
+      outputStream.reset();
       return outputStream;
     }
 
@@ -294,13 +413,14 @@ abstract class P11ContentSigner implements XiContentSigner {
 
     private byte[] getPlainSignature()
         throws XiSecurityException, P11TokenException {
+      long mechanism;
       byte[] dataToSign;
-      if (outputStream instanceof ByteArrayOutputStream) {
-        dataToSign = ((ByteArrayOutputStream) outputStream).toByteArray();
-        ((ByteArrayOutputStream) outputStream).reset();
+      if (outputStream.isHashedOnHost()) {
+        mechanism = hostDigestMechanism;
+        dataToSign = outputStream.digest();
       } else {
-        dataToSign = ((DigestOutputStream) outputStream).digest();
-        ((DigestOutputStream) outputStream).reset();
+        mechanism = tokenDigestMechanism;
+        dataToSign = outputStream.toByteArray();
       }
 
       return cryptService.getIdentity(identityId).sign(mechanism, null, dataToSign);
@@ -426,9 +546,11 @@ abstract class P11ContentSigner implements XiContentSigner {
 
     private static final Map<HashAlgo, Long> hashAlgMechMap = new HashMap<>();
 
-    private final long mechanism;
+    private final long tokenDigestMechanism;
 
-    private final OutputStream outputStream;
+    private final long hostDigestMechanism;
+
+    private final SignerOutputStream outputStream;
 
     private final byte[] digestPkcsPrefix;
 
@@ -463,6 +585,12 @@ abstract class P11ContentSigner implements XiContentSigner {
     RSA(P11CryptService cryptService, P11IdentityId identityId,
         AlgorithmIdentifier signatureAlgId)
             throws XiSecurityException, P11TokenException {
+      this(cryptService, identityId, signatureAlgId, null);
+    }
+
+    RSA(P11CryptService cryptService, P11IdentityId identityId,
+        AlgorithmIdentifier signatureAlgId, P11DigestMode digestMode)
+            throws XiSecurityException, P11TokenException {
       super(cryptService, identityId, signatureAlgId);
 
       ASN1ObjectIdentifier algOid = signatureAlgId.getAlgorithm();
@@ -474,48 +602,46 @@ abstract class P11ContentSigner implements XiContentSigner {
       P11SlotIdentifier slotId = identityId.getSlotId();
       P11Slot slot = cryptService.getSlot(slotId);
 
-      long mech = hashAlgMechMap.get(hashAlgo).longValue();
-      if (slot.supportsMechanism(mech)) {
-        mechanism = mech;
-      } else if (slot.supportsMechanism(PKCS11Constants.CKM_RSA_PKCS)) {
-        mechanism = PKCS11Constants.CKM_RSA_PKCS;
+      this.tokenDigestMechanism = hashAlgMechMap.get(hashAlgo).longValue();
+      boolean tokenDigestSupported = slot.supportsMechanism(tokenDigestMechanism);
+      boolean hostDigestSupported = true;
+      if (slot.supportsMechanism(PKCS11Constants.CKM_RSA_PKCS)) {
+        this.hostDigestMechanism = PKCS11Constants.CKM_RSA_PKCS;
       } else if (slot.supportsMechanism(PKCS11Constants.CKM_RSA_X_509)) {
-        mechanism = PKCS11Constants.CKM_RSA_X_509;
+        this.hostDigestMechanism = PKCS11Constants.CKM_RSA_X_509;
       } else {
-        throw new XiSecurityException("unsupported signature algorithm " + algOid.getId());
+        this.hostDigestMechanism = 0;
+        hostDigestSupported = false;
       }
 
-      if (mechanism == PKCS11Constants.CKM_RSA_PKCS || mechanism == PKCS11Constants.CKM_RSA_X_509) {
-        this.digestPkcsPrefix = SignerUtil.getDigestPkcsPrefix(hashAlgo);
-        this.outputStream = new DigestOutputStream(hashAlgo.createDigest());
-      } else {
-        this.digestPkcsPrefix = null;
-        this.outputStream = new ByteArrayOutputStream();
+      if (!(tokenDigestSupported || hostDigestSupported)) {
+        throw new XiSecurityException("unsupported signature algorithm " + algOid.getId());
       }
 
+      this.digestPkcsPrefix = hostDigestSupported ? SignerUtil.getDigestPkcsPrefix(hashAlgo) : null;
+      this.outputStream = SignerOutputStream.getInstance(digestMode, hashAlgo,
+          tokenDigestSupported, hostDigestSupported);
+
       RSAPublicKey rsaPubKey = (RSAPublicKey) cryptService.getIdentity(identityId).getPublicKey();
       this.modulusBitLen = rsaPubKey.getModulus().bitLength();
     } // constructor
 
     @Override
     public OutputStream getOutputStream() {
-      if (outputStream instanceof ByteArrayOutputStream) {
-        ((ByteArrayOutputStream) outputStream).reset();
-      } else {
-        ((DigestOutputStream) outputStream).reset();
-      }
+      outputStream.reset();
       return outputStream;
     }
 
     @Override
     public byte[] getSignature() {
+      long mechanism;
       byte[] dataToSign;
-      if (outputStream instanceof ByteArrayOutputStream) {
-        dataToSign = ((ByteArrayOutputStream) outputStream).toByteArray();
-        ((ByteArrayOutputStream) outputStream).reset();
+      if (!outputStream.isHashedOnHost()) {
+        mechanism = tokenDigestMechanism;
+        dataToSign = outputStream.toByteArray();
       } else {
-        byte[] hashValue = ((DigestOutputStream) outputStream).digest();
-        ((DigestOutputStream) outputStream).reset();
+        mechanism = hostDigestMechanism;
+        byte[] hashValue = outputStream.digest();
         dataToSign = new byte[digestPkcsPrefix.length + hashValue.length];
         System.arraycopy(digestPkcsPrefix, 0, dataToSign, 0, digestPkcsPrefix.length);
         System.arraycopy(hashValue, 0, dataToSign, digestPkcsPrefix.length, hashValue.length);
@@ -121,67 +121,64 @@ public class P11ContentSignerBuilder {
   public ConcurrentContentSigner createSigner(AlgorithmIdentifier signatureAlgId,
       int parallelism)
           throws XiSecurityException, P11TokenException {
+    return createSigner(signatureAlgId, parallelism, null);
+  }
+
+  public ConcurrentContentSigner createSigner(AlgorithmIdentifier signatureAlgId,
+      int parallelism, P11DigestMode digestMode)
+          throws XiSecurityException, P11TokenException {
+    return createSigner(signatureAlgId, parallelism, parallelism, digestMode);
+  }
+
+  /**
+   * Creates a new signer.
+   * @param signatureAlgId
+   *          Signature algorithm. Must not be {@code null}.
+   * @param parallelism
+   *          Initial and minimal number of underlying signers. Must be positive.
+   * @param maxParallelism
+   *          Maximal number of underlying signers. If greater than {@code parallelism}, the
+   *          number of signers grows with the load and shrinks while idle.
+   * @param digestMode
+   *          Where the message is hashed, only applied to the DSA, ECDSA and RSA (PKCS#1 v1.5)
+   *          signatures. {@code null} for {@link P11DigestMode#TOKEN}.
+   * @return the signer
+   * @throws XiSecurityException
+   *           if error occurs
+   * @throws P11TokenException
+   *           if error occurs
+   */
+  public ConcurrentContentSigner createSigner(final AlgorithmIdentifier signatureAlgId,
+      int parallelism, int maxParallelism, final P11DigestMode digestMode)
+          throws XiSecurityException, P11TokenException {
     positive(parallelism, "parallelism");
 
     List<XiContentSigner> signers = new ArrayList<>(parallelism);
-
-    Boolean isSm2p256v1 = null;
     for (int i = 0; i < parallelism; i++) {
-      XiContentSigner signer;
-      if (publicKey instanceof RSAPublicKey) {
-        if (i == 0 && !AlgorithmUtil.isRSASigAlgId(signatureAlgId)) {
-          throw new XiSecurityException(
-              "the given algorithm is not a valid RSA signature algorithm '"
-              + signatureAlgId.getAlgorithm().getId() + "'");
-        }
-        signer = createRSAContentSigner(signatureAlgId);
-      } else if (publicKey instanceof ECPublicKey) {
-        ECPublicKey ecKey = (ECPublicKey) publicKey;
-
-        if (i == 0) {
-          isSm2p256v1 = GMUtil.isSm2primev2Curve(ecKey.getParams().getCurve());
-          if (isSm2p256v1) {
-            if (!AlgorithmUtil.isSM2SigAlg(signatureAlgId)) {
-              throw new XiSecurityException(
-                "the given algorithm is not a valid SM2 signature algorithm '"
-                + signatureAlgId.getAlgorithm().getId() + "'");
-            }
-          } else {
-            if (!AlgorithmUtil.isECSigAlg(signatureAlgId)) {
-              throw new XiSecurityException(
-                "the given algorithm is not a valid EC signature algorithm '"
-                + signatureAlgId.getAlgorithm().getId() + "'");
-            }
-          }
-        }
+      signers.add(createContentSigner(signatureAlgId, digestMode, i == 0));
+    }
 
-        if (isSm2p256v1) {
-          java.security.spec.ECPoint w = ecKey.getW();
-          signer = createSM2ContentSigner(signatureAlgId, GMObjectIdentifiers.sm2p256v1,
-              w.getAffineX(), w.getAffineY());
-        } else {
-          signer = createECContentSigner(signatureAlgId);
-        }
-      } else if (publicKey instanceof DSAPublicKey) {
-        if (i == 0 && !AlgorithmUtil.isDSASigAlg(signatureAlgId)) {
-          throw new XiSecurityException(
-              "the given algorithm is not a valid DSA signature algorithm '"
-              + signatureAlgId.getAlgorithm().getId() + "'");
+    DfltConcurrentContentSigner.SignerSupplier signerSupplier = null;
+    if (maxParallelism > parallelism) {
+      signerSupplier = new DfltConcurrentContentSigner.SignerSupplier() {
+        @Override
+        public XiContentSigner newSigner()
+            throws XiSecurityException {
+          try {
+            return createContentSigner(signatureAlgId, digestMode, false);
+          } catch (P11TokenException ex) {
+            throw new XiSecurityException(ex.getMessage(), ex);
+          }
         }
-        signer = createDSAContentSigner(signatureAlgId);
-      } else if (publicKey instanceof EdDSAKey) {
-        signer = createEdDSAContentSigner(signatureAlgId);
-      } else {
-        throw new XiSecurityException("unsupported key " + publicKey.getClass().getName());
-      }
-      signers.add(signer);
-    } // end for
+      };
+    }
 
     final boolean mac = false;
     PrivateKey privateKey = new P11PrivateKey(cryptService, identityId);
     DfltConcurrentContentSigner concurrentSigner;
     try {
-      concurrentSigner = new DfltConcurrentContentSigner(mac, signers, privateKey);
+      concurrentSigner = new DfltConcurrentContentSigner(mac, signers, privateKey,
+          maxParallelism, signerSupplier);
     } catch (NoSuchAlgorithmException ex) {
       throw new XiSecurityException(ex.getMessage(), ex);
     }
@@ -195,22 +192,75 @@ public class P11ContentSignerBuilder {
     return concurrentSigner;
   } // method createSigner
 
+  private XiContentSigner createContentSigner(AlgorithmIdentifier signatureAlgId,
+      P11DigestMode digestMode, boolean checkAlgorithm)
+          throws XiSecurityException, P11TokenException {
+    if (publicKey instanceof RSAPublicKey) {
+      if (checkAlgorithm && !AlgorithmUtil.isRSASigAlgId(signatureAlgId)) {
+        throw new XiSecurityException(
+            "the given algorithm is not a valid RSA signature algorithm '"
+            + signatureAlgId.getAlgorithm().getId() + "'");
+      }
+      return createRSAContentSigner(signatureAlgId, digestMode);
+    } else if (publicKey instanceof ECPublicKey) {
+      ECPublicKey ecKey = (ECPublicKey) publicKey;
+      boolean isSm2p256v1 = GMUtil.isSm2primev2Curve(ecKey.getParams().getCurve());
+
+      if (checkAlgorithm) {
+        if (isSm2p256v1) {
+          if (!AlgorithmUtil.isSM2SigAlg(signatureAlgId)) {
+            throw new XiSecurityException(
+              "the given algorithm is not a valid SM2 signature algorithm '"
+              + signatureAlgId.getAlgorithm().getId() + "'");
+          }
+        } else {
+          if (!AlgorithmUtil.isECSigAlg(signatureAlgId)) {
+            throw new XiSecurityException(
+              "the given algorithm is not a valid EC signature algorithm '"
+              + signatureAlgId.getAlgorithm().getId() + "'");
+          }
+        }
+      }
+
+      if (isSm2p256v1) {
+        java.security.spec.ECPoint w = ecKey.getW();
+        return createSM2ContentSigner(signatureAlgId, GMObjectIdentifiers.sm2p256v1,
+            w.getAffineX(), w.getAffineY());
+      } else {
+        return createECContentSigner(signatureAlgId, digestMode);
+      }
+    } else if (publicKey instanceof DSAPublicKey) {
+      if (checkAlgorithm && !AlgorithmUtil.isDSASigAlg(signatureAlgId)) {
+        throw new XiSecurityException(
+            "the given algorithm is not a valid DSA signature algorithm '"
+            + signatureAlgId.getAlgorithm().getId() + "'");
+      }
+      return createDSAContentSigner(signatureAlgId, digestMode);
+    } else if (publicKey instanceof EdDSAKey) {
+      return createEdDSAContentSigner(signatureAlgId);
+    } else {
+      throw new XiSecurityException("unsupported key " + publicKey.getClass().getName());
+    }
+  } // method createContentSigner
+
   // CHECKSTYLE:SKIP
-  private XiContentSigner createRSAContentSigner(AlgorithmIdentifier signatureAlgId)
+  private XiContentSigner createRSAContentSigner(AlgorithmIdentifier signatureAlgId,
+      P11DigestMode digestMode)
       throws XiSecurityException, P11TokenException {
     if (PKCSObjectIdentifiers.id_RSASSA_PSS.equals(signatureAlgId.getAlgorithm())) {
       return new P11ContentSigner.RSAPSS(cryptService, identityId, signatureAlgId,
           securityFactory.getRandom4Sign());
     } else {
-      return new P11ContentSigner.RSA(cryptService, identityId, signatureAlgId);
+      return new P11ContentSigner.RSA(cryptService, identityId, signatureAlgId, digestMode);
     }
   }
 
   // CHECKSTYLE:SKIP
-  private XiContentSigner createECContentSigner(AlgorithmIdentifier signatureAlgId)
+  private XiContentSigner createECContentSigner(AlgorithmIdentifier signatureAlgId,
+      P11DigestMode digestMode)
       throws XiSecurityException, P11TokenException {
     return new P11ContentSigner.ECDSA(cryptService, identityId, signatureAlgId,
-        AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
+        AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId), digestMode);
   }
 
   // CHECKSTYLE:SKIP
@@ -222,10 +272,11 @@ public class P11ContentSignerBuilder {
   }
 
   // CHECKSTYLE:SKIP
-  private XiContentSigner createDSAContentSigner(AlgorithmIdentifier signatureAlgId)
+  private XiContentSigner createDSAContentSigner(AlgorithmIdentifier signatureAlgId,
+      P11DigestMode digestMode)
       throws XiSecurityException, P11TokenException {
     return new P11ContentSigner.DSA(cryptService, identityId, signatureAlgId,
-        AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
+        AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId), digestMode);
   }
 
   // CHECKSTYLE:SKIP
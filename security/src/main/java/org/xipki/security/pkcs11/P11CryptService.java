@@ -44,7 +44,20 @@ public class P11CryptService {
     this.module = notNull(module, "module");
   }
 
-  public synchronized void refresh()
+  public void refresh()
+      throws P11TokenException {
+    refresh(false);
+  }
+
+  /**
+   * Refreshes all slots of the module.
+   * @param full
+   *          Whether to enumerate all objects in the token, even if the identities are loaded
+   *          on demand.
+   * @throws P11TokenException
+   *         if PKCS#11 token exception occurs.
+   */
+  public synchronized void refresh(boolean full)
       throws P11TokenException {
     LOG.info("refreshing PKCS#11 module {}", module.getName());
 
@@ -61,7 +74,7 @@ public class P11CryptService {
         continue;
       }
 
-      slot.refresh();
+      slot.refresh(full);
     }
 
     LOG.info("refreshed PKCS#11 module {}", module.getName());
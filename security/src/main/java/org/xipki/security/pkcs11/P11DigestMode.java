@@ -0,0 +1,56 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.pkcs11;
+
+/**
+ * Specifies where the message to be signed is hashed.
+ *
+ * <ul>
+ *   <li>TOKEN: the message is hashed in the token (e.g. CKM_SHA256_RSA_PKCS) if the token supports
+ *     the combined mechanism, otherwise on the host.</li>
+ *   <li>HOST: the message is hashed on the host and only the hash value is sent to the token
+ *     (e.g. CKM_RSA_PKCS) if the token supports the raw mechanism, otherwise in the token.</li>
+ *   <li>AUTO: small messages are hashed in the token, large messages (e.g. CRLs) are hashed on
+ *     the host, so that they are not buffered and not sent to the token.</li>
+ * </ul>
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public enum P11DigestMode {
+
+  TOKEN,
+  HOST,
+  AUTO;
+
+  public static P11DigestMode forName(String name) {
+    if (name == null) {
+      return null;
+    }
+
+    for (P11DigestMode mode : values()) {
+      if (mode.name().equalsIgnoreCase(name)) {
+        return mode;
+      }
+    }
+
+    throw new IllegalArgumentException("unknown P11DigestMode " + name);
+  }
+
+}
@@ -101,11 +101,40 @@ public abstract class P11Identity implements Comparable<P11Identity> {
 
   public byte[] sign(long mechanism, P11Params parameters, byte[] content)
       throws P11TokenException {
+    notNull(content, "content");
+    assertSignSupported(mechanism, parameters);
+    return sign0(mechanism, parameters, content);
+  }
+
+  /**
+   * Signs the contents with the same mechanism and parameters.
+   *
+   * @param mechanism
+   *          mechanism to sign the contents.
+   * @param parameters
+   *          Parameters. Could be {@code null}.
+   * @param contents
+   *          Contents to be signed. Must not be {@code null}.
+   * @return signatures, in the order of the contents.
+   * @throws P11TokenException
+   *         if PKCS#11 token error occurs.
+   */
+  public byte[][] sign(long mechanism, P11Params parameters, byte[][] contents)
+      throws P11TokenException {
+    notNull(contents, "contents");
+    for (byte[] content : contents) {
+      notNull(content, "content");
+    }
+    assertSignSupported(mechanism, parameters);
+    return sign0(mechanism, parameters, contents);
+  }
+
+  private void assertSignSupported(long mechanism, P11Params parameters)
+      throws P11TokenException {
     if (publicKey instanceof XDHKey) {
       throw new P11TokenException("this identity is not suitable for sign");
     }
 
-    notNull(content, "content");
     slot.assertMechanismSupported(mechanism);
     if (!supportsMechanism(mechanism, parameters)) {
       throw new P11UnsupportedMechanismException(mechanism, id);
@@ -113,7 +142,6 @@ public abstract class P11Identity implements Comparable<P11Identity> {
     if (LOG.isDebugEnabled()) {
       LOG.debug("sign with mechanism {}", Functions.getMechanismDescription(mechanism));
     }
-    return sign0(mechanism, parameters, content);
   }
 
   /**
@@ -132,6 +160,29 @@ public abstract class P11Identity implements Comparable<P11Identity> {
   protected abstract byte[] sign0(long mechanism, P11Params parameters, byte[] content)
       throws P11TokenException;
 
+  /**
+   * Signs the contents. This implementation signs the contents one by one, subclasses
+   * may overwrite it to sign all contents in one round trip.
+   *
+   * @param mechanism
+   *          mechanism to sign the contents.
+   * @param parameters
+   *          Parameters. Could be {@code null}.
+   * @param contents
+   *          Contents to be signed. Must not be {@code null}.
+   * @return signatures, in the order of the contents.
+   * @throws P11TokenException
+   *         if PKCS#11 token error occurs.
+   */
+  protected byte[][] sign0(long mechanism, P11Params parameters, byte[][] contents)
+      throws P11TokenException {
+    byte[][] signatures = new byte[contents.length][];
+    for (int i = 0; i < contents.length; i++) {
+      signatures[i] = sign0(mechanism, parameters, contents[i]);
+    }
+    return signatures;
+  }
+
   public byte[] digestSecretKey(long mechanism)
       throws P11TokenException, XiSecurityException {
     slot.assertMechanismSupported(mechanism);
@@ -308,6 +308,8 @@ public class P11ModuleConf {
 
   private final int maxMessageSize;
 
+  private final boolean loadIdentitiesOnDemand;
+
   private final long userType;
 
   private final P11NewObjectConf newObjectConf;
@@ -340,6 +342,7 @@ public class P11ModuleConf {
     }
 
     this.maxMessageSize = moduleType.getMaxMessageSize();
+    this.loadIdentitiesOnDemand = moduleType.isLoadIdentitiesOnDemand();
     this.type = moduleType.getType();
     if (maxMessageSize < 128) {
       throw new InvalidConfException("invalid maxMessageSize (< 128): " + maxMessageSize);
@@ -475,6 +478,10 @@ public class P11ModuleConf {
     return maxMessageSize;
   }
 
+  public boolean isLoadIdentitiesOnDemand() {
+    return loadIdentitiesOnDemand;
+  }
+
   public boolean isReadOnly() {
     return readOnly;
   }
@@ -107,6 +107,27 @@ public class P11SignerFactory implements SignerFactory {
       }
     }
 
+    str = conf.getConfValue("max-parallelism");
+    int maxParallelism = parallelism;
+    if (str != null) {
+      try {
+        maxParallelism = Integer.parseInt(str);
+      } catch (NumberFormatException ex) {
+        throw new ObjectCreationException("invalid max-parallelism " + str);
+      }
+
+      if (maxParallelism < parallelism) {
+        throw new ObjectCreationException("invalid max-parallelism " + str + " (< parallelism)");
+      }
+    }
+
+    P11DigestMode digestMode;
+    try {
+      digestMode = P11DigestMode.forName(conf.getConfValue("digest-mode"));
+    } catch (IllegalArgumentException ex) {
+      throw new ObjectCreationException("invalid digest-mode " + conf.getConfValue("digest-mode"));
+    }
+
     String moduleName = conf.getConfValue("module");
     str = conf.getConfValue("slot");
     Integer slotIndex = (str == null) ? null : Integer.parseInt(str);
@@ -181,7 +202,8 @@ public class P11SignerFactory implements SignerFactory {
 
         P11ContentSignerBuilder signerBuilder = new P11ContentSignerBuilder(p11Service,
             securityFactory, identityId, certificateChain);
-        return signerBuilder.createSigner(signatureAlgId, parallelism);
+        return signerBuilder.createSigner(signatureAlgId, parallelism, maxParallelism,
+            digestMode);
       }
     } catch (P11TokenException | NoSuchAlgorithmException | XiSecurityException ex) {
       throw new ObjectCreationException(ex.getMessage(), ex);
@@ -59,6 +59,7 @@ import org.xipki.security.util.DSAParameterCache;
 import org.xipki.security.util.KeyUtil;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Hex;
+import org.xipki.util.LogUtil;
 
 import iaik.pkcs.pkcs11.wrapper.Functions;
 import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
@@ -78,6 +79,9 @@ public abstract class P11Slot implements Closeable {
 
     private final Map<P11ObjectIdentifier, X509Cert> certificates = new HashMap<>();
 
+    // hex(id) to the identifier of certificate
+    private final Map<String, P11ObjectIdentifier> certIdIndex = new HashMap<>();
+
     private final Set<Long> mechanisms = new HashSet<>();
 
     public P11SlotRefreshResult() {
@@ -108,6 +112,7 @@ public abstract class P11Slot implements Closeable {
       notNull(objectId, "objectId");
       notNull(certificate, "certificate");
       this.certificates.put(objectId, certificate);
+      this.certIdIndex.putIfAbsent(objectId.getIdHex(), objectId);
     }
 
     /**
@@ -117,12 +122,8 @@ public abstract class P11Slot implements Closeable {
      * @return the certificate of the given identifier.
      */
     public X509Cert getCertForId(byte[] id) {
-      for (P11ObjectIdentifier objId : certificates.keySet()) {
-        if (objId.matchesId(id)) {
-          return certificates.get(objId);
-        }
-      }
-      return null;
+      P11ObjectIdentifier objId = certIdIndex.get(hex(id));
+      return (objId == null) ? null : certificates.get(objId);
     }
 
     /**
@@ -132,12 +133,8 @@ public abstract class P11Slot implements Closeable {
      * @return the label.
      */
     public String getCertLabelForId(byte[] id) {
-      for (P11ObjectIdentifier objId : certificates.keySet()) {
-        if (objId.matchesId(id)) {
-          return objId.getLabel();
-        }
-      }
-      return null;
+      P11ObjectIdentifier objId = certIdIndex.get(hex(id));
+      return (objId == null) ? null : objId.getLabel();
     }
 
   } // class P11SlotRefreshResult
@@ -232,6 +229,12 @@ public abstract class P11Slot implements Closeable {
 
   private final P11MechanismFilter mechanismFilter;
 
+  /**
+   * Whether the identities are looked up in the token on first use instead of enumerating all
+   * objects by {@link #refresh()}.
+   */
+  private boolean identitiesOnDemand;
+
   protected P11Slot(String moduleName, P11SlotIdentifier slotId, boolean readOnly,
       P11MechanismFilter mechanismFilter)
           throws P11TokenException {
@@ -453,6 +456,36 @@ public abstract class P11Slot implements Closeable {
   protected abstract P11SlotRefreshResult refresh0()
       throws P11TokenException;
 
+  /**
+   * Refreshes only the mechanisms. Used instead of {@link #refresh0()} if the identities are
+   * loaded on demand. This implementation calls {@link #refresh0()}.
+   *
+   * @return the refresh result, only the mechanisms are considered.
+   * @throws P11TokenException
+   *         if PKCS#11 token exception occurs.
+   */
+  protected P11SlotRefreshResult refreshMechanisms0()
+      throws P11TokenException {
+    return refresh0();
+  }
+
+  /**
+   * Finds the identity with given id and label in the token. Only called if the identities are
+   * loaded on demand. This implementation returns {@code null}.
+   *
+   * @param keyId
+   *          Key identifier. Could be {@code null}.
+   * @param keyLabel
+   *          Key label. Could be {@code null}.
+   * @return the identity, or {@code null} if not found.
+   * @throws P11TokenException
+   *         if PKCS#11 token exception occurs.
+   */
+  protected P11Identity findIdentity0(byte[] keyId, String keyLabel)
+      throws P11TokenException {
+    return null;
+  }
+
   protected abstract void removeCerts0(P11ObjectIdentifier objectId)
       throws P11TokenException;
 
@@ -551,9 +584,40 @@ public abstract class P11Slot implements Closeable {
     return null;
   } // method getIssuerForCert
 
+  public boolean isIdentitiesOnDemand() {
+    return identitiesOnDemand;
+  }
+
+  protected void setIdentitiesOnDemand(boolean identitiesOnDemand) {
+    this.identitiesOnDemand = identitiesOnDemand;
+  }
+
+  /**
+   * Refreshes the slot. If the identities are loaded on demand, only the mechanisms are
+   * refreshed and the loaded identities are dropped, otherwise all objects are enumerated.
+   *
+   * @throws P11TokenException
+   *         if PKCS#11 token exception occurs.
+   */
   public void refresh()
       throws P11TokenException {
-    P11SlotRefreshResult res = refresh0(); // CHECKSTYLE:SKIP
+    refresh(!identitiesOnDemand);
+  }
+
+  /**
+   * Refreshes the slot.
+   *
+   * @param full
+   *          Whether to enumerate all objects in the token. Ignored, namely always {@code true},
+   *          if the identities are not loaded on demand.
+   * @throws P11TokenException
+   *         if PKCS#11 token exception occurs.
+   */
+  public void refresh(boolean full)
+      throws P11TokenException {
+    full = full || !identitiesOnDemand;
+    // CHECKSTYLE:SKIP
+    P11SlotRefreshResult res = full ? refresh0() : refreshMechanisms0();
 
     mechanisms.clear();
     certificates.clear();
@@ -568,14 +632,19 @@ public abstract class P11Slot implements Closeable {
         ignoreMechs.add(mech);
       }
     }
-    certificates.putAll(res.getCertificates());
-    identities.putAll(res.getIdentities());
+    if (full) {
+      certificates.putAll(res.getCertificates());
+      identities.putAll(res.getIdentities());
+    }
 
     updateCaCertsOfIdentities();
 
     if (LOG.isInfoEnabled()) {
       StringBuilder sb = new StringBuilder();
       sb.append("initialized module ").append(moduleName).append(", slot ").append(slotId);
+      if (!full) {
+        sb.append("\nidentities will be loaded on demand");
+      }
 
       sb.append("\nsupported mechanisms:\n");
       List<Long> sortedMechs = new ArrayList<>(mechanisms);
@@ -660,6 +729,11 @@ public abstract class P11Slot implements Closeable {
     }
   }
 
+  /**
+   * Returns the identifiers of the loaded identities. If the identities are loaded on demand,
+   * only the identities used so far are contained, see {@link #refresh(boolean)}.
+   * @return the identifiers of the loaded identities.
+   */
   public Set<P11ObjectIdentifier> getIdentityKeyIds() {
     return Collections.unmodifiableSet(identities.keySet());
   }
@@ -683,18 +757,75 @@ public abstract class P11Slot implements Closeable {
   public P11Identity getIdentity(P11ObjectIdentifier keyId)
       throws P11UnknownEntityException {
     P11Identity ident = identities.get(keyId);
+    if (ident == null && identitiesOnDemand) {
+      ident = loadIdentity(keyId.getId(), keyId.getLabel());
+      if (ident != null && !keyId.equals(ident.getId().getKeyId())) {
+        ident = null;
+      }
+    }
+
     if (ident == null) {
       throw new P11UnknownEntityException(slotId, keyId);
     }
     return ident;
   }
 
+  /**
+   * Looks up the identity in the token and adds it to the loaded identities.
+   * @param keyId
+   *          Key identifier. Could be {@code null}.
+   * @param keyLabel
+   *          Key label. Could be {@code null}.
+   * @return the identity, or {@code null} if not found.
+   */
+  private P11Identity loadIdentity(byte[] keyId, String keyLabel) {
+    if (!identitiesOnDemand || (keyId == null && keyLabel == null)) {
+      return null;
+    }
+
+    P11Identity identity;
+    try {
+      identity = findIdentity0(keyId, keyLabel);
+    } catch (P11TokenException ex) {
+      LogUtil.warn(LOG, ex, "could not find identity with " + getDescription(keyId, keyLabel));
+      return null;
+    }
+
+    if (identity == null) {
+      return null;
+    }
+
+    P11IdentityId id = identity.getId();
+    P11Identity prev = identities.putIfAbsent(id.getKeyId(), identity);
+    if (prev != null) {
+      return prev;
+    }
+
+    X509Cert cert = identity.getCertificate();
+    if (cert != null && id.getCertId() != null) {
+      certificates.putIfAbsent(id.getCertId(), cert);
+    }
+    updateCaCertsOfIdentity(identity);
+    LOG.info("loaded identity {} of module {}, slot {}", id.getKeyId(), moduleName, slotId);
+    return identity;
+  } // method loadIdentity
+
   protected void assertNoIdentityAndCert(byte[] id, String label)
       throws P11DuplicateEntityException {
     if (id == null && label == null) {
       return;
     }
 
+    if (identitiesOnDemand) {
+      if (id != null) {
+        loadIdentity(id, null);
+      }
+
+      if (label != null) {
+        loadIdentity(null, label);
+      }
+    }
+
     Set<P11ObjectIdentifier> objectIds = new HashSet<>(identities.keySet());
     objectIds.addAll(certificates.keySet());
 
@@ -756,7 +887,8 @@ public abstract class P11Slot implements Closeable {
       }
     }
 
-    return null;
+    P11Identity identity = loadIdentity(id, label);
+    return (identity == null) ? null : identity.getId().getKeyId();
   } // method getObjectId
 
   public P11IdentityId getIdentityId(byte[] keyId, String keyLabel) {
@@ -779,7 +911,8 @@ public abstract class P11Slot implements Closeable {
       }
     }
 
-    return null;
+    P11Identity identity = loadIdentity(keyId, keyLabel);
+    return (identity == null) ? null : identity.getId();
   } // method getIdentityId
 
   /**
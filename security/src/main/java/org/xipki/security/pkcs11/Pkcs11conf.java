@@ -149,6 +149,12 @@ public class Pkcs11conf extends ValidatableConf {
      */
     private Integer maxMessageSize;
 
+    /**
+     * Whether the identities are looked up in the token on first use, instead of enumerating
+     * all objects while initializing the slot. Useful for tokens with many objects.
+     */
+    private boolean loadIdentitiesOnDemand;
+
     private List<PasswordSet> passwordSets;
 
     private List<MechanimFilter> mechanismFilters;
@@ -256,6 +262,14 @@ public class Pkcs11conf extends ValidatableConf {
       return maxMessageSize == null ? 16384 : maxMessageSize.intValue();
     }
 
+    public boolean isLoadIdentitiesOnDemand() {
+      return loadIdentitiesOnDemand;
+    }
+
+    public void setLoadIdentitiesOnDemand(boolean loadIdentitiesOnDemand) {
+      this.loadIdentitiesOnDemand = loadIdentitiesOnDemand;
+    }
+
     @Override
     public void validate()
         throws InvalidConfException {
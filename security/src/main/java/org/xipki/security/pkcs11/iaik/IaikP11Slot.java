@@ -39,6 +39,7 @@ import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -103,6 +104,9 @@ class IaikP11Slot extends P11Slot {
 
   private static final long DEFAULT_MAX_COUNT_SESSION = 32;
 
+  // interval to verify the login state of the sessions: 1 minute
+  private static final long LOGIN_CHECK_INTERVAL_MS = 60000;
+
   private final int maxMessageSize;
 
   private Slot slot;
@@ -123,11 +127,17 @@ class IaikP11Slot extends P11Slot {
 
   private final ConcurrentBag<ConcurrentBagEntry<Session>> sessions = new ConcurrentBag<>();
 
+  // whether the user is logged in, shared by all sessions.
+  private volatile boolean loggedIn;
+
+  private volatile long lastLoginCheck;
+
   IaikP11Slot(String moduleName, P11SlotIdentifier slotId, Slot slot, boolean readOnly,
       long userType, List<char[]> password, int maxMessageSize, P11MechanismFilter mechanismFilter,
-      P11NewObjectConf newObjectConf)
+      P11NewObjectConf newObjectConf, boolean identitiesOnDemand)
           throws P11TokenException {
     super(moduleName, slotId, readOnly, mechanismFilter);
+    setIdentitiesOnDemand(identitiesOnDemand);
 
     this.newObjectConf = notNull(newObjectConf, "newObjectConf");
     this.slot = notNull(slot, "slot");
@@ -148,12 +158,16 @@ class IaikP11Slot extends P11Slot {
         throw ex;
       }
 
+      countSessions.incrementAndGet();
+
       try {
         firstLogin(session, password);
       } catch (P11TokenException ex) {
         LogUtil.error(LOG, ex, "firstLogin");
         throw ex;
       }
+      lastLoginCheck = System.currentTimeMillis();
+      loggedIn = true;
 
       Token token;
       try {
@@ -193,7 +207,7 @@ class IaikP11Slot extends P11Slot {
   }
 
   @Override
-  protected P11SlotRefreshResult refresh0()
+  protected P11SlotRefreshResult refreshMechanisms0()
       throws P11TokenException {
     Mechanism[] mechanisms;
     try {
@@ -208,6 +222,13 @@ class IaikP11Slot extends P11Slot {
         ret.addMechanism(mech.getMechanismCode());
       }
     }
+    return ret;
+  } // method refreshMechanisms0
+
+  @Override
+  protected P11SlotRefreshResult refresh0()
+      throws P11TokenException {
+    P11SlotRefreshResult ret = refreshMechanisms0();
 
     ConcurrentBagEntry<Session> bagEntry = borrowSession();
 
@@ -264,11 +285,66 @@ class IaikP11Slot extends P11Slot {
       }
 
       return ret;
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
   } // method refresh0
 
+  @Override
+  protected P11Identity findIdentity0(byte[] keyId, String keyLabel)
+      throws P11TokenException {
+    char[] labelChars = (keyLabel == null) ? null : keyLabel.toCharArray();
+    ConcurrentBagEntry<Session> bagEntry = borrowSession();
+
+    try {
+      Session session = bagEntry.value();
+      P11SlotRefreshResult ret = new P11SlotRefreshResult();
+
+      PrivateKey privKey = (PrivateKey) getKeyObject(session, new PrivateKey(), keyId, labelChars);
+      if (privKey != null) {
+        byte[] id = value(privKey.getId());
+        if (id == null || id.length == 0) {
+          return null;
+        }
+
+        X509PublicKeyCertificate p11Cert = getCertificateObject(session, id, null);
+        if (p11Cert != null) {
+          String certLabel = valueStr(p11Cert.getLabel());
+          if (certLabel != null) {
+            ret.addCertificate(new P11ObjectIdentifier(id, certLabel), parseCert(p11Cert));
+          }
+        }
+
+        try {
+          analyseSingleKey(session, privKey, ret);
+        } catch (XiSecurityException ex) {
+          throw new P11TokenException("could not initialize private key with "
+              + getDescription(keyId, keyLabel) + ": " + ex.getMessage(), ex);
+        }
+      } else {
+        SecretKey secKey = (SecretKey) getKeyObject(session, new SecretKey(), keyId, labelChars);
+        if (secKey == null) {
+          return null;
+        }
+
+        byte[] id = value(secKey.getId());
+        if (id == null || id.length == 0) {
+          return null;
+        }
+        analyseSingleKey(secKey, ret);
+      }
+
+      Map<P11ObjectIdentifier, P11Identity> identities = ret.getIdentities();
+      return identities.isEmpty() ? null : identities.values().iterator().next();
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
+    } finally {
+      sessions.requite(bagEntry);
+    }
+  } // method findIdentity0
+
   @Override
   public final void close() {
     if (slot != null) {
@@ -483,24 +559,38 @@ class IaikP11Slot extends P11Slot {
     } catch (TokenException ex) {
       throw new P11TokenException(ex.getMessage(), ex);
     }
-    countSessions.incrementAndGet();
     return session;
   } // method openSession
 
   private ConcurrentBagEntry<Session> borrowSession()
       throws P11TokenException {
     ConcurrentBagEntry<Session> session = null;
-    synchronized (sessions) {
-      if (countSessions.get() < maxSessionCount) {
-        try {
-          session = sessions.borrow(1, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException ex) { // CHECKSTYLE:SKIP
+    try {
+      session = sessions.borrow(1, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) { // CHECKSTYLE:SKIP
+    }
+
+    if (session == null) {
+      // reserve the slot for a new session, no global lock is required.
+      long count;
+      while ((count = countSessions.get()) < maxSessionCount) {
+        if (!countSessions.compareAndSet(count, count + 1)) {
+          continue;
         }
 
-        if (session == null) {
-          // create new session
-          sessions.add(new ConcurrentBagEntry<>(openSession()));
+        Session newSession;
+        try {
+          newSession = openSession();
+        } catch (P11TokenException ex) {
+          countSessions.decrementAndGet();
+          throw ex;
         }
+
+        // the new session is borrowed by the current thread directly
+        session = new ConcurrentBagEntry<>(newSession);
+        session.setState(ConcurrentBagEntry.STATE_IN_USE);
+        sessions.add(session);
+        break;
       }
     }
 
@@ -515,7 +605,15 @@ class IaikP11Slot extends P11Slot {
       throw new P11TokenException("no idle session");
     }
 
-    login(session.value());
+    boolean succ = false;
+    try {
+      ensureLoggedIn(session.value());
+      succ = true;
+    } finally {
+      if (!succ) {
+        sessions.requite(session);
+      }
+    }
     return session;
   } // method borrowSession
 
@@ -545,6 +643,26 @@ class IaikP11Slot extends P11Slot {
     }
   } // method firstLogin
 
+  /**
+   * Makes sure that the user is logged in. The login state is shared by all sessions of
+   * the application, hence it is tracked for the token and not per session. The state of
+   * the session is only queried from the device if it has not been verified in the last
+   * {@link #LOGIN_CHECK_INTERVAL_MS} milliseconds. A CKR_USER_NOT_LOGGED_IN error will
+   * trigger a new login via {@link #forceLogin(Session)} while signing, and with the next
+   * borrowed session for the other operations (see {@link #checkNotLoggedIn(Exception)}).
+   */
+  private void ensureLoggedIn(Session session)
+      throws P11TokenException {
+    long now = System.currentTimeMillis();
+    if (loggedIn && now - lastLoginCheck < LOGIN_CHECK_INTERVAL_MS) {
+      return;
+    }
+
+    login(session);
+    lastLoginCheck = now;
+    loggedIn = true;
+  } // method ensureLoggedIn
+
   private void login(Session session)
       throws P11TokenException {
     boolean isSessionLoggedIn = checkSessionLoggedIn(session, userType);
@@ -576,6 +694,7 @@ class IaikP11Slot extends P11Slot {
 
   private void forceLogin(Session session)
       throws P11TokenException {
+    loggedIn = false;
     if (isEmpty(password)) {
       LOG.info("verify on PKCS11Module with NULL PIN");
       singleLogin(session, userType, null);
@@ -585,8 +704,26 @@ class IaikP11Slot extends P11Slot {
         singleLogin(session, userType, singlePwd);
       }
     }
+    lastLoginCheck = System.currentTimeMillis();
+    loggedIn = true;
   } // method forceLogin
 
+  /**
+   * Verifies the login state with the next borrowed session, if the exception has been
+   * caused by CKR_USER_NOT_LOGGED_IN, e.g. after the restart of the device.
+   */
+  private <T extends Exception> T checkNotLoggedIn(T ex) {
+    for (Throwable th = ex; th != null; th = th.getCause()) {
+      if (th instanceof PKCS11Exception
+          && ((PKCS11Exception) th).getErrorCode() == PKCS11Constants.CKR_USER_NOT_LOGGED_IN) {
+        LOG.info("operation ended with ERROR CKR_USER_NOT_LOGGED_IN, login with next session");
+        loggedIn = false;
+        break;
+      }
+    }
+    return ex;
+  } // method checkNotLoggedIn
+
   private Key getKeyObject(Session session, Key template, byte[] keyId, char[] keyLabel)
       throws P11TokenException {
     if (keyId != null) {
@@ -646,6 +783,8 @@ class IaikP11Slot extends P11Slot {
 
       num += removeObjects0(session, certTemplate, "certificates" + objIdDesc);
       return num;
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -668,7 +807,9 @@ class IaikP11Slot extends P11Slot {
         session.destroyObject(cert);
       }
     } catch (TokenException ex) {
-      throw new P11TokenException(ex.getMessage(), ex);
+      throw checkNotLoggedIn(new P11TokenException(ex.getMessage(), ex));
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -686,7 +827,9 @@ class IaikP11Slot extends P11Slot {
 
       return new P11ObjectIdentifier(value(newCert.getId()), valueStr(newCert.getLabel()));
     } catch (TokenException ex) {
-      throw new P11TokenException(ex.getMessage(), ex);
+      throw checkNotLoggedIn(new P11TokenException(ex.getMessage(), ex));
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -757,6 +900,8 @@ class IaikP11Slot extends P11Slot {
       P11IdentityId entityId = new P11IdentityId(slotId, objId, null, null);
 
       return new IaikP11Identity(this, entityId, key);
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -798,6 +943,8 @@ class IaikP11Slot extends P11Slot {
       P11IdentityId entityId = new P11IdentityId(slotId, objId, null, null);
 
       return new IaikP11Identity(this, entityId, key);
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -983,6 +1130,8 @@ class IaikP11Slot extends P11Slot {
         IaikP11Identity ret = new IaikP11Identity(this, entityId, privKey2, jcePublicKey, certs);
         succ = true;
         return ret;
+      } catch (P11TokenException ex) {
+        throw checkNotLoggedIn(ex);
       } finally {
         sessions.requite(bagEntry);
       }
@@ -1067,7 +1216,10 @@ class IaikP11Slot extends P11Slot {
       X509PublicKeyCertificate newCertTemp = createPkcs11Template(session, newCert, control);
       session.createObject(newCertTemp);
     } catch (TokenException ex) {
-      throw new P11TokenException("could not createObject: " + ex.getMessage(), ex);
+      throw checkNotLoggedIn(
+          new P11TokenException("could not createObject: " + ex.getMessage(), ex));
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -1090,7 +1242,7 @@ class IaikP11Slot extends P11Slot {
         } catch (TokenException ex) {
           String msg = "could not delete secret key " + keyId;
           LogUtil.error(LOG, ex, msg);
-          throw new P11TokenException(msg);
+          throw new P11TokenException(msg, ex);
         }
       }
 
@@ -1103,7 +1255,7 @@ class IaikP11Slot extends P11Slot {
         } catch (TokenException ex) {
           String msg = "could not delete private key " + keyId;
           LogUtil.error(LOG, ex, msg);
-          throw new P11TokenException(msg);
+          throw new P11TokenException(msg, ex);
         }
       }
 
@@ -1118,7 +1270,7 @@ class IaikP11Slot extends P11Slot {
           } catch (TokenException ex) {
             String msg = "could not delete public key " + pubKeyId;
             LogUtil.error(LOG, ex, msg);
-            throw new P11TokenException(msg);
+            throw new P11TokenException(msg, ex);
           }
         }
       }
@@ -1134,11 +1286,13 @@ class IaikP11Slot extends P11Slot {
             } catch (TokenException ex) {
               String msg = "could not delete certificate " + certId;
               LogUtil.error(LOG, ex, msg);
-              throw new P11TokenException(msg);
+              throw new P11TokenException(msg, ex);
             }
           }
         }
       }
+    } catch (P11TokenException ex) {
+      throw checkNotLoggedIn(ex);
     } finally {
       sessions.requite(bagEntry);
     }
@@ -86,6 +86,11 @@ class IaikP11SlotUtil {
 
   private static final Logger LOG = LoggerFactory.getLogger(IaikP11SlotUtil.class);
 
+  /**
+   * Maximal number of object handles fetched by one C_FindObjects call.
+   */
+  private static final int FIND_OBJECTS_BATCH_SIZE = 100;
+
   static void singleLogin(Session session, long userType, char[] pin)
       throws P11TokenException {
     char[] tmpPin = pin;
@@ -225,7 +230,7 @@ class IaikP11SlotUtil {
 
   static List<Storage> getObjects(Session session, Storage template)
       throws P11TokenException {
-    return getObjects(session, template, 9999);
+    return getObjects(session, template, Integer.MAX_VALUE);
   }
 
   static List<Storage> getObjects(Session session, Storage template, int maxNo)
@@ -236,7 +241,8 @@ class IaikP11SlotUtil {
       session.findObjectsInit(template);
 
       while (objList.size() < maxNo) {
-        PKCS11Object[] foundObjects = session.findObjects(1);
+        PKCS11Object[] foundObjects =
+            session.findObjects(Math.min(FIND_OBJECTS_BATCH_SIZE, maxNo - objList.size()));
         if (foundObjects == null || foundObjects.length == 0) {
           break;
         }
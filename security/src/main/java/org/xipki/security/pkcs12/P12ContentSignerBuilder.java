@@ -20,9 +20,11 @@ package org.xipki.security.pkcs12;
 import static org.xipki.util.Args.notNull;
 import static org.xipki.util.Args.positive;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Security;
@@ -32,11 +34,12 @@ import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.EllipticCurve;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.crypto.NoSuchPaddingException;
 
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.gm.GMObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
@@ -53,10 +56,12 @@ import org.bouncycastle.jcajce.provider.asymmetric.util.ECUtil;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.bc.BcContentSignerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xipki.security.ConcurrentContentSigner;
 import org.xipki.security.DSAPlainDigestSigner;
 import org.xipki.security.DfltConcurrentContentSigner;
-import org.xipki.security.EdECConstants;
+import org.xipki.security.DfltConcurrentContentSigner.SignerSupplier;
 import org.xipki.security.SignatureSigner;
 import org.xipki.security.X509Cert;
 import org.xipki.security.XiContentSigner;
@@ -65,7 +70,6 @@ import org.xipki.security.XiWrappedContentSigner;
 import org.xipki.security.util.AlgorithmUtil;
 import org.xipki.security.util.GMUtil;
 import org.xipki.security.util.SignerUtil;
-import org.xipki.util.CollectionUtil;
 
 /**
  * Builder of signer based PKCS#12 keystore.
@@ -76,6 +80,18 @@ import org.xipki.util.CollectionUtil;
 
 public class P12ContentSignerBuilder {
 
+  /**
+   * Select the fastest provider which creates valid signatures.
+   */
+  public static final String PROVIDER_AUTO = "auto";
+
+  /**
+   * Use the lightweight API of BouncyCastle instead of a JCA provider.
+   */
+  public static final String PROVIDER_BC_LIGHTWEIGHT = "bc-lightweight";
+
+  private static final Logger LOG = LoggerFactory.getLogger(P12ContentSignerBuilder.class);
+
   private static final AlgorithmIdentifier ALGID_SM2_SM3 =
       new AlgorithmIdentifier(GMObjectIdentifiers.sm2sign_with_sm3);
 
@@ -206,99 +222,94 @@ public class P12ContentSignerBuilder {
   public ConcurrentContentSigner createSigner(AlgorithmIdentifier signatureAlgId, int parallelism,
       SecureRandom random)
           throws XiSecurityException, NoSuchPaddingException {
+    return createSigner(signatureAlgId, parallelism, parallelism, random);
+  }
+
+  public ConcurrentContentSigner createSigner(AlgorithmIdentifier signatureAlgId, int parallelism,
+      int maxParallelism, SecureRandom random)
+          throws XiSecurityException, NoSuchPaddingException {
+    return createSigner(signatureAlgId, parallelism, maxParallelism, null, random);
+  }
+
+  /**
+   * Creates a new signer.
+   * @param signatureAlgId
+   *          Signature algorithm. Must not be {@code null}.
+   * @param parallelism
+   *          Initial and minimal number of underlying signers. Must be positive.
+   * @param maxParallelism
+   *          Maximal number of underlying signers. If greater than {@code parallelism}, the
+   *          number of signers grows with the load and shrinks while idle.
+   * @param provider
+   *          Name of the JCA provider, {@link #PROVIDER_BC_LIGHTWEIGHT}, or
+   *          {@link #PROVIDER_AUTO}. {@code null} for {@link #PROVIDER_AUTO}.
+   * @param random
+   *          Random for the signature generation. Could be {@code null}.
+   * @return the signer
+   * @throws XiSecurityException
+   *           if error occurs
+   * @throws NoSuchPaddingException
+   *           if error occurs
+   */
+  public ConcurrentContentSigner createSigner(AlgorithmIdentifier signatureAlgId,
+      int parallelism, int maxParallelism, String provider, SecureRandom random)
+          throws XiSecurityException, NoSuchPaddingException {
     notNull(signatureAlgId, "signatureAlgId");
     positive(parallelism, "parallelism");
 
-    List<XiContentSigner> signers = new ArrayList<>(parallelism);
+    String algoName;
+    try {
+      algoName = AlgorithmUtil.getSignatureAlgoName(signatureAlgId);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new XiSecurityException(ex.getMessage());
+    }
 
-    String provName = null;
-    if (AlgorithmUtil.isRSASigAlgId(signatureAlgId)) {
-      provName = "SunRsaSign";
-    } else if (AlgorithmUtil.isECSigAlg(signatureAlgId)) {
-      // Currently, the provider SunEC is much slower (5x) than BC
-      provName = null;
-    } else if (AlgorithmUtil.isDSASigAlg(signatureAlgId)) {
-      provName = "SUN";
-    } else {
-      ASN1ObjectIdentifier oid = signatureAlgId.getAlgorithm();
-      if (EdECConstants.id_ED25519.equals(oid)
-          || EdECConstants.id_ED448.equals(oid)) {
-        provName = "BC";
+    // provider name to signer supplier
+    Map<String, SignerSupplier> candidates = new LinkedHashMap<>();
+    for (Provider prov : Security.getProviders()) {
+      if (prov.getService("Signature", algoName) != null) {
+        candidates.put(prov.getName(), newJcaSignerSupplier(signatureAlgId, algoName,
+            prov.getName()));
       }
     }
 
-    if (provName != null && Security.getProvider(provName) != null) {
-      String algoName;
-      try {
-        algoName = AlgorithmUtil.getSignatureAlgoName(signatureAlgId);
-      } catch (NoSuchAlgorithmException ex) {
-        throw new XiSecurityException(ex.getMessage());
-      }
+    SignerSupplier lightweightSupplier = newLightweightSignerSupplier(signatureAlgId, random);
+    if (lightweightSupplier != null) {
+      candidates.put(PROVIDER_BC_LIGHTWEIGHT, lightweightSupplier);
+    }
 
-      try {
-        for (int i = 0; i < parallelism; i++) {
-          Signature signature = Signature.getInstance(algoName, provName);
-          signature.initSign(key);
-          if (i == 0) {
-            signature.update(new byte[]{1, 2, 3, 4});
-            signature.sign();
-          }
-          XiContentSigner signer = new SignatureSigner(signatureAlgId, signature, key);
-          signers.add(signer);
-        }
-      } catch (Exception ex) {
-        signers.clear();
-      }
+    if (candidates.isEmpty()) {
+      throw new XiSecurityException("no provider supports the signature algorithm " + algoName);
     }
 
-    if (CollectionUtil.isEmpty(signers)) {
-      BcContentSignerBuilder signerBuilder;
-      AsymmetricKeyParameter keyparam;
-      try {
-        if (key instanceof RSAPrivateKey) {
-          keyparam = SignerUtil.generateRSAPrivateKeyParameter((RSAPrivateKey) key);
-          signerBuilder = new RSAContentSignerBuilder(signatureAlgId);
-        } else if (key instanceof DSAPrivateKey) {
-          keyparam = DSAUtil.generatePrivateKeyParameter(key);
-          signerBuilder = new DSAContentSignerBuilder(signatureAlgId,
-              AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
-        } else if (key instanceof ECPrivateKey) {
-          keyparam = ECUtil.generatePrivateKeyParameter(key);
-          EllipticCurve curve = ((ECPrivateKey) key).getParams().getCurve();
-          if (GMUtil.isSm2primev2Curve(curve)) {
-            signerBuilder = new SM2ContentSignerBuilder();
-          } else {
-            signerBuilder = new ECDSAContentSignerBuilder(signatureAlgId,
-                AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
-          }
-        } else {
-          throw new XiSecurityException("unsupported key " + key.getClass().getName());
+    String provName = null;
+    if (provider == null || PROVIDER_AUTO.equalsIgnoreCase(provider)) {
+      provName = SignerProviderSelector.select(algoName, publicKey, candidates);
+    } else {
+      for (String name : candidates.keySet()) {
+        if (name.equalsIgnoreCase(provider)) {
+          provName = name;
+          break;
         }
-      } catch (InvalidKeyException ex) {
-        throw new XiSecurityException("invalid key", ex);
-      } catch (NoSuchAlgorithmException ex) {
-        throw new XiSecurityException("no such algorithm", ex);
       }
 
-      for (int i = 0; i < parallelism; i++) {
-        if (random != null) {
-          signerBuilder.setSecureRandom(random);
-        }
-
-        ContentSigner signer;
-        try {
-          signer = signerBuilder.build(keyparam);
-        } catch (OperatorCreationException ex) {
-          throw new XiSecurityException("operator creation error", ex);
-        }
-        signers.add(new XiWrappedContentSigner(signer, true));
+      if (provName == null) {
+        throw new XiSecurityException("provider " + provider
+            + " does not support the signature algorithm " + algoName);
       }
     }
 
+    SignerSupplier signerSupplier = candidates.get(provName);
+    List<XiContentSigner> signers = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      signers.add(signerSupplier.newSigner());
+    }
+
     final boolean mac = false;
     ConcurrentContentSigner concurrentSigner;
     try {
-      concurrentSigner = new DfltConcurrentContentSigner(mac, signers, key);
+      concurrentSigner = new DfltConcurrentContentSigner(mac, signers, key,
+          maxParallelism, (maxParallelism > parallelism) ? signerSupplier : null);
     } catch (NoSuchAlgorithmException ex) {
       throw new XiSecurityException(ex.getMessage(), ex);
     }
@@ -311,6 +322,88 @@ public class P12ContentSignerBuilder {
     return concurrentSigner;
   } // method createSigner
 
+  private SignerSupplier newJcaSignerSupplier(final AlgorithmIdentifier signatureAlgId,
+      final String algoName, final String provName) {
+    return new SignerSupplier() {
+      @Override
+      public XiContentSigner newSigner()
+          throws XiSecurityException {
+        try {
+          Signature signature = Signature.getInstance(algoName, provName);
+          signature.initSign(key);
+          return new SignatureSigner(signatureAlgId, signature, key);
+        } catch (GeneralSecurityException ex) {
+          throw new XiSecurityException(ex.getMessage(), ex);
+        }
+      }
+    };
+  } // method newJcaSignerSupplier
+
+  /**
+   * Returns the supplier of signers based on the BouncyCastle lightweight API.
+   * @return the signer supplier, or {@code null} if the key is not supported.
+   */
+  private SignerSupplier newLightweightSignerSupplier(AlgorithmIdentifier signatureAlgId,
+      SecureRandom random)
+          throws XiSecurityException, NoSuchPaddingException {
+    final BcContentSignerBuilder signerBuilder;
+    final AsymmetricKeyParameter keyparam;
+    try {
+      if (key instanceof RSAPrivateKey) {
+        keyparam = SignerUtil.generateRSAPrivateKeyParameter((RSAPrivateKey) key);
+        signerBuilder = new RSAContentSignerBuilder(signatureAlgId);
+      } else if (key instanceof DSAPrivateKey) {
+        keyparam = DSAUtil.generatePrivateKeyParameter(key);
+        signerBuilder = new DSAContentSignerBuilder(signatureAlgId,
+            AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
+      } else if (key instanceof ECPrivateKey) {
+        keyparam = ECUtil.generatePrivateKeyParameter(key);
+        EllipticCurve curve = ((ECPrivateKey) key).getParams().getCurve();
+        if (GMUtil.isSm2primev2Curve(curve)) {
+          signerBuilder = new SM2ContentSignerBuilder();
+        } else {
+          signerBuilder = new ECDSAContentSignerBuilder(signatureAlgId,
+              AlgorithmUtil.isDSAPlainSigAlg(signatureAlgId));
+        }
+      } else {
+        return null;
+      }
+    } catch (InvalidKeyException ex) {
+      throw new XiSecurityException("invalid key", ex);
+    } catch (NoSuchAlgorithmException ex) {
+      LOG.debug("{} is not supported by the BouncyCastle lightweight API: {}",
+          signatureAlgId.getAlgorithm().getId(), ex.getMessage());
+      return null;
+    }
+
+    if (random != null) {
+      signerBuilder.setSecureRandom(random);
+    }
+
+    return new SignerSupplier() {
+      @Override
+      public XiContentSigner newSigner()
+          throws XiSecurityException {
+        return buildSigner(signerBuilder, keyparam);
+      }
+    };
+  } // method newLightweightSignerSupplier
+
+  private static XiContentSigner buildSigner(BcContentSignerBuilder signerBuilder,
+      AsymmetricKeyParameter keyparam)
+          throws XiSecurityException {
+    ContentSigner signer;
+    try {
+      // BcContentSignerBuilder.build() is not thread-safe
+      synchronized (signerBuilder) {
+        signer = signerBuilder.build(keyparam);
+      }
+    } catch (OperatorCreationException ex) {
+      throw new XiSecurityException("operator creation error", ex);
+    }
+    return new XiWrappedContentSigner(signer, true);
+  }
+
   public X509Cert getCertificate() {
     return (certificateChain != null && certificateChain.length > 0) ? certificateChain[0] : null;
   }
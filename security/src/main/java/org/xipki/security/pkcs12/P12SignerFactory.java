@@ -103,6 +103,20 @@ public class P12SignerFactory implements SignerFactory {
       }
     }
 
+    str = conf.getConfValue("max-parallelism");
+    int maxParallelism = parallelism;
+    if (str != null) {
+      try {
+        maxParallelism = Integer.parseInt(str);
+      } catch (NumberFormatException ex) {
+        throw new ObjectCreationException("invalid max-parallelism " + str);
+      }
+
+      if (maxParallelism < parallelism) {
+        throw new ObjectCreationException("invalid max-parallelism " + str + " (< parallelism)");
+      }
+    }
+
     String passwordHint = conf.getConfValue("password");
     char[] password;
     if (passwordHint == null) {
@@ -180,8 +194,8 @@ public class P12SignerFactory implements SignerFactory {
             signatureAlgId = AlgorithmUtil.getSigAlgId(pubKey, conf);
           }
 
-          return signerBuilder.createSigner(signatureAlgId, parallelism,
-              securityFactory.getRandom4Sign());
+          return signerBuilder.createSigner(signatureAlgId, parallelism, maxParallelism,
+              conf.getConfValue("provider"), securityFactory.getRandom4Sign());
         }
       }
     } catch (NoSuchAlgorithmException | NoSuchPaddingException | XiSecurityException ex) {
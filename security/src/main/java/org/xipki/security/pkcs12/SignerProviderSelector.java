@@ -0,0 +1,230 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.pkcs12;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECParameterSpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.security.DfltConcurrentContentSigner.SignerSupplier;
+import org.xipki.security.XiContentSigner;
+import org.xipki.security.XiSecurityException;
+import org.xipki.security.util.KeyUtil;
+import org.xipki.util.LogUtil;
+
+/**
+ * Selects the fastest provider, which creates valid signatures, for the given signature
+ * algorithm and key. The providers are benchmarked only once per algorithm and key size.
+ * If no provider can verify the signatures, the provider preferred by the JCA is kept.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+final class SignerProviderSelector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SignerProviderSelector.class);
+
+  private static final int WARMUP_COUNT = 10;
+
+  private static final int MAX_COUNT = 500;
+
+  private static final long MAX_DURATION_NS = 50L * 1000 * 1000; // 50 ms
+
+  private static final int ROUNDS = 3;
+
+  private static final Map<String, String> SELECTED_PROVIDERS = new ConcurrentHashMap<>();
+
+  private SignerProviderSelector() {
+  }
+
+  /**
+   * Returns the name of the fastest provider.
+   * @param algoName
+   *          Name of the signature algorithm. Must not be {@code null}.
+   * @param publicKey
+   *          Public key to verify the signatures. Must not be {@code null}.
+   * @param candidates
+   *          Map of provider name to the supplier of signers. Must not be empty.
+   * @return the name of the selected provider.
+   * @throws XiSecurityException
+   *          If none of the providers creates valid signatures.
+   */
+  static String select(String algoName, PublicKey publicKey,
+      Map<String, SignerSupplier> candidates)
+          throws XiSecurityException {
+    if (candidates.size() == 1) {
+      return candidates.keySet().iterator().next();
+    }
+
+    String cacheKey = algoName + "/" + getKeySpec(publicKey);
+    String selected = SELECTED_PROVIDERS.get(cacheKey);
+    if (selected != null && candidates.containsKey(selected)) {
+      return selected;
+    }
+
+    try {
+      Signature.getInstance(algoName);
+    } catch (NoSuchAlgorithmException ex) {
+      // the signatures cannot be checked, keep the provider preferred by the JCA
+      selected = candidates.keySet().iterator().next();
+      LOG.info("could not verify {} signatures, use the default provider {}",
+          algoName, selected);
+      return selected;
+    }
+
+    byte[] data = new byte[32];
+    new SecureRandom().nextBytes(data);
+
+    // provider name to signer creating valid signatures
+    Map<String, XiContentSigner> signers = new LinkedHashMap<>();
+    for (Entry<String, SignerSupplier> entry : candidates.entrySet()) {
+      String provName = entry.getKey();
+      try {
+        XiContentSigner signer = entry.getValue().newSigner();
+        if (verify(algoName, publicKey, data, sign(signer, data))) {
+          signers.put(provName, signer);
+        } else {
+          LOG.warn("provider {} created invalid {} signature", provName, algoName);
+        }
+      } catch (Exception ex) {
+        LogUtil.warn(LOG, ex, "could not sign with " + algoName + " of provider " + provName);
+      }
+    }
+
+    if (signers.isEmpty()) {
+      throw new XiSecurityException("no provider creates valid " + algoName + " signature");
+    }
+
+    // The providers are measured alternately in several rounds, so that all of them
+    // profit from the warmed up JIT compiler.
+    Map<String, Long> durations = new LinkedHashMap<>();
+    for (int round = 0; round < ROUNDS; round++) {
+      for (Entry<String, XiContentSigner> entry : signers.entrySet()) {
+        String provName = entry.getKey();
+        long nanos;
+        try {
+          nanos = benchmark(entry.getValue(), data);
+        } catch (Exception ex) {
+          LogUtil.warn(LOG, ex, "could not sign with " + algoName + " of provider " + provName);
+          nanos = Long.MAX_VALUE;
+        }
+
+        Long prev = durations.get(provName);
+        durations.put(provName, (prev == null) ? nanos : Math.min(prev, nanos));
+      }
+    }
+
+    selected = null;
+    long minNanos = Long.MAX_VALUE;
+    StringBuilder sb = new StringBuilder();
+    for (Entry<String, Long> entry : durations.entrySet()) {
+      long nanos = entry.getValue();
+      if (nanos == Long.MAX_VALUE) {
+        continue;
+      }
+
+      sb.append(", ").append(entry.getKey()).append(": ").append(nanos / 1000).append(" us");
+      if (nanos < minNanos) {
+        minNanos = nanos;
+        selected = entry.getKey();
+      }
+    }
+
+    if (selected == null) {
+      throw new XiSecurityException("no provider creates valid " + algoName + " signature");
+    }
+
+    SELECTED_PROVIDERS.put(cacheKey, selected);
+    LOG.info("selected provider {} for {}{}", selected, cacheKey, sb);
+    return selected;
+  } // method select
+
+  /**
+   * Measures the duration of a signature creation.
+   * @return nanoseconds per signature.
+   */
+  private static long benchmark(XiContentSigner signer, byte[] data)
+      throws IOException {
+    for (int i = 0; i < WARMUP_COUNT; i++) {
+      sign(signer, data);
+    }
+
+    long start = System.nanoTime();
+    long duration;
+    int count = 0;
+    do {
+      sign(signer, data);
+      count++;
+      duration = System.nanoTime() - start;
+    } while (count < MAX_COUNT && duration < MAX_DURATION_NS);
+
+    return duration / count;
+  } // method benchmark
+
+  private static byte[] sign(XiContentSigner signer, byte[] data)
+      throws IOException {
+    signer.getOutputStream().write(data);
+    return signer.getSignature();
+  }
+
+  private static boolean verify(String algoName, PublicKey publicKey, byte[] data,
+      byte[] signatureValue)
+          throws Exception {
+    Signature verifier;
+    try {
+      verifier = Signature.getInstance(algoName);
+    } catch (NoSuchAlgorithmException ex) {
+      LOG.warn("could not verify {} signature, no provider available", algoName);
+      return false;
+    }
+
+    verifier.initVerify(publicKey);
+    verifier.update(data);
+    return verifier.verify(signatureValue);
+  }
+
+  private static String getKeySpec(PublicKey publicKey) {
+    if (publicKey instanceof RSAPublicKey) {
+      return "RSA-" + ((RSAPublicKey) publicKey).getModulus().bitLength();
+    } else if (publicKey instanceof ECPublicKey) {
+      ECParameterSpec params = ((ECPublicKey) publicKey).getParams();
+      ASN1ObjectIdentifier curveOid = KeyUtil.detectCurveOid(params);
+      return "EC-" + ((curveOid == null)
+          ? Integer.toString(params.getCurve().getField().getFieldSize()) : curveOid.getId());
+    } else if (publicKey instanceof DSAPublicKey) {
+      return "DSA-" + ((DSAPublicKey) publicKey).getParams().getP().bitLength();
+    } else {
+      return publicKey.getAlgorithm();
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.pkcs12;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.DfltConcurrentContentSigner.SignerSupplier;
+import org.xipki.security.SignatureSigner;
+import org.xipki.security.XiContentSigner;
+import org.xipki.security.XiSecurityException;
+
+/**
+ * Tests the selection of the signature provider by {@link SignerProviderSelector}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class SignerProviderSelectorTest {
+
+  private static final AlgorithmIdentifier ALGID =
+      new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256);
+
+  @Test
+  public void testSkipInvalidSignatures()
+      throws Exception {
+    // the selection is cached per key size, the key sizes differ from those of other tests
+    KeyPair keypair = generateKeyPair(384);
+    Map<String, SignerSupplier> candidates = new LinkedHashMap<>();
+    // creates invalid signatures much faster than the valid provider
+    candidates.put("invalid1", newInvalidSupplier());
+    candidates.put("valid1", newSupplier(keypair.getPrivate()));
+    // signs with another key
+    candidates.put("wrongkey1", newSupplier(generateKeyPair(384).getPrivate()));
+
+    Assert.assertEquals("selected provider", "valid1",
+        SignerProviderSelector.select("SHA256withECDSA", keypair.getPublic(), candidates));
+  } // method testSkipInvalidSignatures
+
+  @Test
+  public void testNoValidSignatures()
+      throws Exception {
+    KeyPair keypair = generateKeyPair(521);
+    Map<String, SignerSupplier> candidates = new LinkedHashMap<>();
+    candidates.put("invalid2", newInvalidSupplier());
+    candidates.put("wrongkey2", newSupplier(generateKeyPair(521).getPrivate()));
+
+    try {
+      SignerProviderSelector.select("SHA256withECDSA", keypair.getPublic(), candidates);
+      Assert.fail("XiSecurityException expected");
+    } catch (XiSecurityException ex) {
+      // expected
+    }
+  } // method testNoValidSignatures
+
+  @Test
+  public void testNoVerifier()
+      throws Exception {
+    KeyPair keypair = generateKeyPair(256);
+    Map<String, SignerSupplier> candidates = new LinkedHashMap<>();
+    candidates.put("default3", newInvalidSupplier());
+    candidates.put("other3", newSupplier(keypair.getPrivate()));
+
+    // no provider verifies the signatures, the untested default provider is kept
+    Assert.assertEquals("selected provider", "default3",
+        SignerProviderSelector.select("UNKNOWNwithECDSA", keypair.getPublic(), candidates));
+  } // method testNoVerifier
+
+  private static KeyPair generateKeyPair(int keysize)
+      throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(keysize);
+    return kpGen.generateKeyPair();
+  }
+
+  private static SignerSupplier newSupplier(final PrivateKey key) {
+    return new SignerSupplier() {
+      @Override
+      public XiContentSigner newSigner()
+          throws XiSecurityException {
+        try {
+          return new SignatureSigner(ALGID, Signature.getInstance("SHA256withECDSA"), key);
+        } catch (Exception ex) {
+          throw new XiSecurityException(ex.getMessage(), ex);
+        }
+      }
+    };
+  } // method newSupplier
+
+  private static SignerSupplier newInvalidSupplier() {
+    return new SignerSupplier() {
+      @Override
+      public XiContentSigner newSigner() {
+        return new XiContentSigner() {
+
+          private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+          @Override
+          public AlgorithmIdentifier getAlgorithmIdentifier() {
+            return ALGID;
+          }
+
+          @Override
+          public byte[] getEncodedAlgorithmIdentifier() {
+            return null;
+          }
+
+          @Override
+          public OutputStream getOutputStream() {
+            out.reset();
+            return out;
+          }
+
+          @Override
+          public byte[] getSignature() {
+            return new byte[64];
+          }
+        };
+      }
+    };
+  } // method newInvalidSupplier
+
+}
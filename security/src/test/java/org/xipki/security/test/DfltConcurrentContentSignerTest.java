@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.security.test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Map;
+
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.ConcurrentBagEntrySigner;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.security.pkcs12.KeypairWithCert;
+import org.xipki.security.pkcs12.P12ContentSignerBuilder;
+import org.xipki.security.util.X509Util;
+
+/**
+ * Tests the growing signer pool of {@link org.xipki.security.DfltConcurrentContentSigner}.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class DfltConcurrentContentSignerTest {
+
+  public DfltConcurrentContentSignerTest() {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+  }
+
+  @Test
+  public void testGrowPool()
+      throws Exception {
+    X509Cert cert = X509Util.parseCert(new File("src/test/resources/test1.der"));
+    char[] password = "1234".toCharArray();
+    KeypairWithCert keypairWithCert;
+    try (InputStream ks = Files.newInputStream(Paths.get("src/test/resources/test1.p12"))) {
+      keypairWithCert = KeypairWithCert.fromKeystore("PKCS12", ks, password, null, password, cert);
+    }
+
+    AlgorithmIdentifier algId =
+        new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption);
+    ConcurrentContentSigner signer = new P12ContentSignerBuilder(keypairWithCert)
+        .createSigner(algId, 1, 2, new SecureRandom());
+
+    try {
+      ConcurrentBagEntrySigner signer1 = signer.borrowSigner();
+      // the only signer is in use, a second one will be added to the pool.
+      ConcurrentBagEntrySigner signer2 = signer.borrowSigner(5000);
+      Assert.assertNotSame(signer1, signer2);
+      signer.requiteSigner(signer1);
+      signer.requiteSigner(signer2);
+
+      Map<String, Object> statistics = signer.getStatistics();
+      Assert.assertEquals(2, statistics.get("size"));
+      Assert.assertEquals(1L, statistics.get("addedSigners"));
+      Assert.assertEquals(2L, statistics.get("borrows"));
+      Assert.assertEquals(0, statistics.get("inUse"));
+      Assert.assertNotNull(signer.sign(new byte[]{1, 2, 3}));
+    } finally {
+      signer.close();
+    }
+  }
+
+}
@@ -21,8 +21,10 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.StringTokenizer;
 
 import org.apache.karaf.shell.api.action.Command;
 import org.apache.karaf.shell.api.action.Completion;
@@ -59,6 +61,27 @@ import org.xipki.util.StringUtil;
  */
 public class CertActions {
 
+  private static Date getDate(String str)
+      throws IllegalCmdParamException {
+    if (str == null) {
+      return null;
+    }
+
+    final int len = str.length();
+    try {
+      if (len == 8) {
+        return DateUtil.parseUtcTimeyyyyMMdd(str);
+      } else if (len == 14) {
+        return DateUtil.parseUtcTimeyyyyMMddhhmmss(str);
+      } else {
+        throw new IllegalCmdParamException("invalid time " + str);
+      }
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalCmdParamException("invalid time " + str + ": " + ex.getMessage(), ex);
+    }
+  } // method getDate
+
+
   @Command(scope = "ca", name = "cert-status",
       description = "show certificate status and save the certificate")
   @Service
@@ -426,26 +449,6 @@ public class CertActions {
           DateUtil.toUtcTimeyyyyMMddhhmmss(info.getNotAfter()), " | ", info.getSubject());
     } // method format
 
-    private Date getDate(String str)
-        throws IllegalCmdParamException {
-      if (str == null) {
-        return null;
-      }
-
-      final int len = str.length();
-      try {
-        if (len == 8) {
-          return DateUtil.parseUtcTimeyyyyMMdd(str);
-        } else if (len == 14) {
-          return DateUtil.parseUtcTimeyyyyMMddhhmmss(str);
-        } else {
-          throw new IllegalCmdParamException("invalid time " + str);
-        }
-      } catch (IllegalArgumentException ex) {
-        throw new IllegalCmdParamException("invalid time " + str + ": " + ex.getMessage(), ex);
-      }
-    } // method getDate
-
   } // class ListCert
 
   @Command(scope = "ca", name = "rm-cert", description = "remove certificate")
@@ -511,6 +514,153 @@ public class CertActions {
 
   } // class RevokeCert
 
+  @Command(scope = "ca", name = "revoke-certs",
+      description = "revoke certificates matching the filter or listed in the file")
+  @Service
+  public static class RevokeCerts extends CaAction {
+
+    // limits the size of a single request to the CA server
+    private static final int SERIALS_PER_REQUEST = 10000;
+
+    @Option(name = "--ca", required = true, description = "CA name")
+    @Completion(CaCompleters.CaNameCompleter.class)
+    private String caName;
+
+    @Option(name = "--reason", aliases = "-r", required = true, description = "CRL reason")
+    @Completion(Completers.ClientCrlReasonCompleter.class)
+    private String reason;
+
+    @Option(name = "--inv-date", description = "invalidity date, UTC time of format yyyyMMddHHmmss")
+    private String invalidityDateS;
+
+    @Option(name = "--serial-file",
+        description = "file containing the serial numbers, one hex serial number per line\n"
+            + "(either serial-file or at least one filter option must be specified)")
+    @Completion(FileCompleter.class)
+    private String serialFile;
+
+    @Option(name = "--profile", description = "certificate profile name")
+    @Completion(CaCompleters.ProfileNameCompleter.class)
+    private String profile;
+
+    @Option(name = "--subject", description = "the subject pattern, * is allowed.")
+    private String subjectPatternS;
+
+    @Option(name = "--not-before-from",
+        description = "earliest notBefore of the certificates, UTC time in form of"
+            + " yyyyMMdd or yyyyMMddHHmmss")
+    private String notBeforeFromS;
+
+    @Option(name = "--not-before-to",
+        description = "latest notBefore of the certificates, UTC time in form of"
+            + " yyyyMMdd or yyyyMMddHHmmss")
+    private String notBeforeToS;
+
+    @Option(name = "--force", aliases = "-f", description = "without prompt")
+    private Boolean force = Boolean.FALSE;
+
+    @Override
+    protected Object execute0()
+        throws Exception {
+      CrlReason crlReason = CrlReason.forNameOrText(reason);
+
+      if (!CrlReason.PERMITTED_CLIENT_CRLREASONS.contains(crlReason)) {
+        throw new InvalidConfException("reason " + reason + " is not permitted");
+      }
+
+      Date invalidityDate = null;
+      if (isNotBlank(invalidityDateS)) {
+        invalidityDate = DateUtil.parseUtcTimeyyyyMMddhhmmss(invalidityDateS);
+      }
+
+      boolean withFilter = profile != null || isNotBlank(subjectPatternS)
+          || notBeforeFromS != null || notBeforeToS != null;
+
+      List<BigInteger> serialNumbers = null;
+      String msg;
+      if (serialFile != null) {
+        if (withFilter) {
+          throw new IllegalCmdParamException(
+              "serial-file and the filter options could not be specified together");
+        }
+
+        serialNumbers = new ArrayList<>();
+        String content = StringUtil.toUtf8String(IoUtil.read(serialFile));
+        StringTokenizer st = new StringTokenizer(content, "\r\n");
+        while (st.hasMoreTokens()) {
+          String line = st.nextToken().trim();
+          if (!line.isEmpty() && !line.startsWith("#")) {
+            serialNumbers.add(toBigInt(line, true));
+          }
+        }
+        msg = serialNumbers.size() + " certificates listed in the file " + serialFile;
+      } else if (withFilter) {
+        msg = "all certificates matching the filter";
+      } else {
+        throw new IllegalCmdParamException(
+            "neither serial-file nor any filter option is specified");
+      }
+
+      if (!(force || confirm("Do you want to revoke " + msg, 3))) {
+        return null;
+      }
+
+      // one CRL after the last of several requests, instead of one CRL per request
+      final boolean chunked = serialNumbers != null && serialNumbers.size() > SERIALS_PER_REQUEST;
+      int num = 0;
+      try {
+        if (serialNumbers != null) {
+          final int size = serialNumbers.size();
+          for (int from = 0; from < size; from += SERIALS_PER_REQUEST) {
+            int to = Math.min(size, from + SERIALS_PER_REQUEST);
+            num += caManager.revokeCertificates(caName,
+                new ArrayList<>(serialNumbers.subList(from, to)), crlReason, invalidityDate,
+                chunked);
+            if (size > SERIALS_PER_REQUEST) {
+              println("processed " + to + " of " + size + " serial numbers");
+            }
+          }
+        } else {
+          X500Name subjectPattern = isNotBlank(subjectPatternS)
+              ? new X500Name(subjectPatternS) : null;
+          num = caManager.revokeCertificates(caName, profile, subjectPattern,
+              getDate(notBeforeFromS), getDate(notBeforeToS), crlReason, invalidityDate);
+        }
+      } catch (CaMgmtException ex) {
+        if (chunked) {
+          generateCrl(num);
+        }
+        String revokedMsg = (num == 0) ? "" : " (revoked " + num + " certificates before)";
+        throw new CmdFailure("could not revoke " + msg + revokedMsg + ", error: "
+            + ex.getMessage(), ex);
+      }
+
+      println("revoked " + num + " certificates");
+      if (chunked) {
+        generateCrl(num);
+      }
+      return null;
+    } // method execute0
+
+    private void generateCrl(int numRevokedCerts) {
+      if (numRevokedCerts == 0) {
+        return;
+      }
+
+      try {
+        CaEntry ca = caManager.getCa(caName);
+        if (ca != null && ca.getCrlControl() != null) {
+          caManager.generateCrlOnDemand(caName);
+          println("generated CRL");
+        }
+      } catch (CaMgmtException ex) {
+        // the certificates are revoked, the CRL will be generated by the next scheduled run
+        println("could not generate CRL: " + ex.getMessage());
+      }
+    } // method generateCrl
+
+  } // class RevokeCerts
+
   @Command(scope = "ca", name = "unrevoke-cert", description = "unrevoke certificate")
   @Service
   public static class UnrevokeCert extends UnRevRmCertAction {
@@ -37,6 +37,7 @@ import org.xipki.datasource.DataSourceFactory;
 import org.xipki.password.PasswordResolver;
 import org.xipki.security.util.X509Util;
 import org.xipki.shell.Completers;
+import org.xipki.shell.IllegalCmdParamException;
 import org.xipki.shell.XiAction;
 
 /**
@@ -117,6 +118,16 @@ public class DbActions {
         description = "number of threads to query the target database")
     private Integer numTargetThreads = 40;
 
+    @Option(name = "--merge",
+        description = "read both databases ordered by serial number and merge them, "
+            + "the serial number ranges are compared by --target-threads threads")
+    private Boolean mergeJoin = Boolean.FALSE;
+
+    @Option(name = "--range-hash",
+        description = "compare hashes of serial number ranges first and only the ranges with "
+            + "different hashes row by row, requires --merge")
+    private Boolean rangeHash = Boolean.FALSE;
+
     @Option(name = "--ca-cert", multiValued = true,
         description = "Certificate of CAs to be considered")
     @Completion(FileCompleter.class)
@@ -133,8 +144,13 @@ public class DbActions {
         }
       }
 
+      if (rangeHash && !mergeJoin) {
+        throw new IllegalCmdParamException("--range-hash requires --merge");
+      }
+
       return new DigestDiffWorker(datasourceFactory, passwordResolver, revokedOnly,
-          refDbConf, dbconfFile, reportDir, numCertsPerSelect, numTargetThreads, caCerts);
+          refDbConf, dbconfFile, reportDir, numCertsPerSelect, numTargetThreads, caCerts,
+          mergeJoin, rangeHash);
     } // method getDbPortWorker
 
   } // class DiffDigest
@@ -160,11 +176,16 @@ public class DbActions {
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
+    @Option(name = "--workers",
+        description = "number of workers exporting the certificates in parallel, each with its "
+            + "own ID range and database connection")
+    private Integer numWorkers = 1;
+
     @Override
     protected DbPortWorker getDbPortWorker()
         throws Exception {
       return new DbPortWorker.ExportCaDb(datasourceFactory, passwordResolver, dbconfFile, outdir,
-          resume, numCertsInBundle, numCertsPerCommit);
+          resume, numCertsInBundle, numCertsPerCommit, numWorkers);
     }
 
   } // class ExportCa
@@ -217,11 +238,15 @@ public class DbActions {
     @Option(name = "--resume", description = "resume from the last successful point")
     private Boolean resume = Boolean.FALSE;
 
+    @Option(name = "--workers",
+        description = "number of workers importing the certificates exported in parallel")
+    private Integer numWorkers = 1;
+
     @Override
     protected DbPortWorker getDbPortWorker()
         throws Exception {
       return new DbPortWorker.ImportCaDb(datasourceFactory, passwordResolver, dbconfFile, resume,
-          indir, numCertsPerCommit.intValue());
+          indir, numCertsPerCommit.intValue(), numWorkers.intValue());
     }
 
   } // class ImportCa
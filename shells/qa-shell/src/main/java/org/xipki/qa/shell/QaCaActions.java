@@ -292,6 +292,18 @@ public class QaCaActions {
             + "0 for implemention default")
     private Integer queueSize = 0;
 
+    @Option(name = "--warmup", description = "warm-up duration, excluded from the result")
+    private String warmup = "0s";
+
+    @Option(name = "--rate",
+        description = "operations per second (open-loop)\n0 for closed-loop")
+    private Integer rate = 0;
+
+    @Option(name = "--result-file",
+        description = "file to save the result (CSV if ends with .csv, JSON otherwise)")
+    @Completion(FileCompleter.class)
+    private String resultFile;
+
     @Override
     protected Object execute0()
         throws Exception {
@@ -336,6 +348,9 @@ public class QaCaActions {
 
       benchmark.setDuration(duration);
       benchmark.setThreads(numThreads);
+      benchmark.setWarmup(warmup);
+      benchmark.setRate(rate);
+      benchmark.setResultFile(resultFile);
       benchmark.execute();
 
       return null;
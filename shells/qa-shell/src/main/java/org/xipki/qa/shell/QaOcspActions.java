@@ -512,6 +512,18 @@ public class QaOcspActions {
             + "0 for implemention default")
     private Integer queueSize = 0;
 
+    @Option(name = "--warmup", description = "warm-up duration, excluded from the result")
+    private String warmup = "0s";
+
+    @Option(name = "--rate",
+        description = "operations per second (open-loop)\n0 for closed-loop")
+    private Integer rate = 0;
+
+    @Option(name = "--result-file",
+        description = "file to save the result (CSV if ends with .csv, JSON otherwise)")
+    @Completion(FileCompleter.class)
+    private String resultFile;
+
     @Override
     protected Object execute0()
         throws Exception {
@@ -581,6 +593,9 @@ public class QaOcspActions {
             serialNumberIterator, maxRequests, queueSize, description.toString());
         loadTest.setDuration(duration);
         loadTest.setThreads(numThreads);
+        loadTest.setWarmup(warmup);
+        loadTest.setRate(rate);
+        loadTest.setResultFile(resultFile);
         loadTest.execute();
       } finally {
         if (serialNumberIterator instanceof FileBigIntegerIterator) {
@@ -26,6 +26,8 @@ import org.apache.karaf.shell.api.action.Completion;
 import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.apache.karaf.shell.support.completers.FileCompleter;
+import org.apache.karaf.shell.support.completers.StringsCompleter;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.gm.GMObjectIdentifiers;
 import org.slf4j.Logger;
@@ -128,6 +130,18 @@ public class QaSecurityActions {
     @Option(name = "--thread", description = "number of threads")
     private Integer numThreads = 5;
 
+    @Option(name = "--warmup", description = "warm-up duration, excluded from the result")
+    private String warmup = "0s";
+
+    @Option(name = "--rate",
+        description = "operations per second (open-loop)\n0 for closed-loop")
+    private Integer rate = 0;
+
+    @Option(name = "--result-file",
+        description = "file to save the result (CSV if ends with .csv, JSON otherwise)")
+    @Completion(FileCompleter.class)
+    private String resultFile;
+
     protected abstract BenchmarkExecutor getTester()
         throws Exception;
 
@@ -137,6 +151,9 @@ public class QaSecurityActions {
       BenchmarkExecutor tester = getTester();
       tester.setDuration(duration);
       tester.setThreads(getNumThreads());
+      tester.setWarmup(warmup);
+      tester.setRate(rate);
+      tester.setResultFile(resultFile);
 
       tester.execute();
       return null;
@@ -158,6 +175,15 @@ public class QaSecurityActions {
     @Option(name = "--thread", description = "number of threads")
     private Integer numThreads = 5;
 
+    @Option(name = "--warmup",
+        description = "warm-up duration for each test case, excluded from the result")
+    private String warmup = "0s";
+
+    @Option(name = "--result-file",
+        description = "CSV file to which the result of each test case is appended")
+    @Completion(FileCompleter.class)
+    private String resultFile;
+
     protected abstract BenchmarkExecutor nextTester()
         throws Exception;
 
@@ -182,6 +208,8 @@ public class QaSecurityActions {
 
         tester.setDuration(duration);
         tester.setThreads(numThreads);
+        tester.setWarmup(warmup);
+        tester.setResultFile(resultFile);
         tester.execute();
         if (tester.isInterrupted()) {
           throw new InterruptedException("cancelled by the user");
@@ -511,8 +539,8 @@ public class QaSecurityActions {
         }
       }
 
-      return new P11SignSpeed.DSA(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          sigAlgo, getNumThreads(), plen, qlen);
+      return configure(new P11SignSpeed.DSA(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, sigAlgo, getNumThreads(), plen, qlen));
     }
 
   } // class SpeedDsaSignP11
@@ -556,8 +584,9 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P11SignSpeed.EC(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          sigAlgo, getNumThreads(), AlgorithmUtil.getCurveOidForCurveNameOrOid(curveName));
+      return configure(new P11SignSpeed.EC(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, sigAlgo, getNumThreads(),
+          AlgorithmUtil.getCurveOidForCurveNameOrOid(curveName)));
     }
 
   } // class SpeedEcSignP11
@@ -602,8 +631,8 @@ public class QaSecurityActions {
         throw new IllegalCmdParamException("invalid sigAlgo " + sigAlgo);
       }
 
-      return new P11SignSpeed.EC(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          sigAlgo, getNumThreads(), curveOid);
+      return configure(new P11SignSpeed.EC(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, sigAlgo, getNumThreads(), curveOid));
     }
 
   } // class SpeedEdSignP11
@@ -620,8 +649,8 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P11SignSpeed.HMAC(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          sigAlgo, getNumThreads());
+      return configure(new P11SignSpeed.HMAC(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, sigAlgo, getNumThreads()));
     }
 
   } // class SpeedHmacSignP11
@@ -668,8 +697,8 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P11SignSpeed.RSA(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          sigAlgo, getNumThreads(), keysize, toBigInt(publicExponent));
+      return configure(new P11SignSpeed.RSA(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, sigAlgo, getNumThreads(), keysize, toBigInt(publicExponent)));
     }
 
   } // class SpeedRsaSignP11
@@ -682,6 +711,20 @@ public class QaSecurityActions {
     @Option(name = "--key-label", description = "label of the PKCS#11 key")
     protected String keyLabel;
 
+    @Option(name = "--digest-mode",
+        description = "where the message is hashed (token, host or auto)")
+    @Completion(value = StringsCompleter.class, values = {"token", "host", "auto"})
+    protected String digestMode;
+
+    @Option(name = "--data-size", description = "size of the data to be signed in bytes")
+    protected Integer dataSize = 16;
+
+    protected BenchmarkExecutor configure(P11SignSpeed tester) {
+      tester.setDigestMode(digestMode);
+      tester.setDataSize(dataSize);
+      return tester;
+    }
+
   } // class SpeedP11SignAction
 
   @Command(scope = "xi", name = "speed-sm2-gen-p11",
@@ -710,8 +753,8 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P11SignSpeed.SM2(keyPresent, securityFactory, getSlot(), getKeyId(), keyLabel,
-          getNumThreads());
+      return configure(new P11SignSpeed.SM2(keyPresent, securityFactory, getSlot(), getKeyId(),
+          keyLabel, getNumThreads()));
     }
 
   } // class SpeedSm2SignP11
@@ -937,7 +980,8 @@ public class QaSecurityActions {
       if (qlen == null) {
         qlen = (plen >= 2048) ? 256 : 160;
       }
-      return new P12SignSpeed.DSA(securityFactory, sigAlgo, getNumThreads(), plen, qlen);
+      return configure(
+          new P12SignSpeed.DSA(securityFactory, sigAlgo, getNumThreads(), plen, qlen));
     }
 
   } // class SpeedDsaSignP12
@@ -975,8 +1019,8 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P12SignSpeed.EC(securityFactory, sigAlgo, getNumThreads(),
-          getCurveOid(curveName));
+      return configure(new P12SignSpeed.EC(securityFactory, sigAlgo, getNumThreads(),
+          getCurveOid(curveName)));
     }
 
   } // class SpeedEcSignP12
@@ -1011,7 +1055,7 @@ public class QaSecurityActions {
     protected BenchmarkExecutor getTester()
         throws Exception {
       ASN1ObjectIdentifier curveOid = EdECConstants.getCurveOid(sigAlgo);
-      return new P12SignSpeed.EC(securityFactory, sigAlgo, getNumThreads(), curveOid);
+      return configure(new P12SignSpeed.EC(securityFactory, sigAlgo, getNumThreads(), curveOid));
     }
 
   } // class SpeedEdSignP12
@@ -1070,14 +1114,23 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P12SignSpeed.RSA(securityFactory, sigAlgo, getNumThreads(), keysize,
-          toBigInt(publicExponent));
+      return configure(new P12SignSpeed.RSA(securityFactory, sigAlgo, getNumThreads(), keysize,
+          toBigInt(publicExponent)));
     }
 
   } // class SpeedRsaSignP12
 
   public abstract static class SpeedP12SignAction extends SingleSpeedAction {
 
+    @Option(name = "--provider",
+        description = "JCA provider, bc-lightweight or auto, ignored by HMAC and GMAC")
+    protected String provider;
+
+    protected BenchmarkExecutor configure(P12SignSpeed tester) {
+      tester.setProvider(provider);
+      return tester;
+    }
+
   } // class SpeedP12SignAction
 
   @Command(scope = "xi", name = "speed-sm2-gen-p12",
@@ -1101,7 +1154,7 @@ public class QaSecurityActions {
     @Override
     protected BenchmarkExecutor getTester()
         throws Exception {
-      return new P12SignSpeed.SM2(securityFactory, getNumThreads());
+      return configure(new P12SignSpeed.SM2(securityFactory, getNumThreads()));
     }
 
   } // class SpeedSm2SignP12
@@ -480,6 +480,10 @@ public class P11Actions {
     @Completion(SecurityCompleters.P11ModuleNameCompleter.class)
     private String moduleName = P11SecurityAction.DEFAULT_P11MODULE_NAME;
 
+    @Option(name = "--full",
+        description = "load all objects, even if the identities are loaded on demand")
+    private Boolean full = Boolean.FALSE;
+
     @Reference
     P11CryptServiceFactory p11CryptServiceFactory;
 
@@ -490,7 +494,7 @@ public class P11Actions {
       if (p11Service == null) {
         throw new IllegalCmdParamException("undefined module " + moduleName);
       }
-      p11Service.refresh();
+      p11Service.refresh(full);
       println("refreshed module " + moduleName);
       return null;
     }
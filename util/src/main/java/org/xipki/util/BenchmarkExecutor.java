@@ -17,18 +17,30 @@
 
 package org.xipki.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Benchmark executor.
  *
+ * <p>In the default closed-loop mode, each thread starts the next operation once the previous
+ * one is finished. If a rate is specified, the operations are started at a constant rate
+ * (open-loop) and the latency of an operation is measured from its scheduled start time, so
+ * that a stalled server is not hidden by fewer operations being sent (coordinated omission).
+ *
  * @author Lijun Liao
  * @since 2.0.0
  */
@@ -41,6 +53,8 @@ public abstract class BenchmarkExecutor {
 
   private static final int DEFAULT_THREADS = 25;
 
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
   private boolean interrupted;
 
   private String description;
@@ -55,6 +69,20 @@ public abstract class BenchmarkExecutor {
 
   private String unit = "";
 
+  private int warmup; // in seconds
+
+  private volatile boolean warmingUp;
+
+  private int rate; // operations per second, 0 for closed-loop
+
+  private long scheduleStartNanos;
+
+  private final AtomicLong scheduledOperations = new AtomicLong(0);
+
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  private String resultFile;
+
   public BenchmarkExecutor(String description) {
     this(description, 0);
   }
@@ -98,12 +126,23 @@ public abstract class BenchmarkExecutor {
       }
     }
     sb.append("threads: ").append(threads).append("\n");
+    if (warmup > 0) {
+      sb.append("warm-up: ").append(StringUtil.formatTime(warmup, false)).append("\n");
+    }
     sb.append("duration: ").append(StringUtil.formatTime(duration, false)).append("\n");
+    sb.append("rate: ").append(rate > 0 ? rate + "/s (open-loop)" : "- (closed-loop)")
+      .append("\n");
     sb.append("unit: ").append(unit);
 
     System.out.println(sb.toString());
 
+    warmingUp = warmup > 0;
+    if (warmingUp) {
+      System.out.println("warming up...");
+    }
     resetStartTime();
+    scheduledOperations.set(0);
+    scheduleStartNanos = System.nanoTime();
 
     ExecutorService executor = Executors.newFixedThreadPool(threads);
     for (Runnable runnable : runnables) {
@@ -113,6 +152,15 @@ public abstract class BenchmarkExecutor {
     executor.shutdown();
     printHeader();
     while (true) {
+      if (warmingUp
+          && System.currentTimeMillis() - processLog.startTimeMs() >= warmup * 1000L) {
+        // exclude the warm-up phase from the statistics
+        resetStartTime();
+        warmingUp = false;
+        System.out.println("\nwarm-up finished");
+        printHeader();
+      }
+
       printStatus();
       try {
         boolean terminated = executor.awaitTermination(1, TimeUnit.SECONDS);
@@ -126,6 +174,13 @@ public abstract class BenchmarkExecutor {
 
     printStatus();
     printSummary();
+    if (resultFile != null) {
+      try {
+        writeResult(new File(IoUtil.expandFilepath(resultFile)));
+      } catch (IOException ex) {
+        System.err.println("could not write result to " + resultFile + ": " + ex.getMessage());
+      }
+    }
 
     close();
     System.getProperties().remove(PROPKEY_BENCHMARK);
@@ -136,6 +191,45 @@ public abstract class BenchmarkExecutor {
   }
 
   public void setDuration(String duration) {
+    int num = parseDuration(duration);
+    if (num < 1) {
+      throw new IllegalArgumentException("invalid duration " + duration);
+    }
+    this.duration = num;
+  }
+
+  /**
+   * Sets the warm-up duration. Operations finished during the warm-up are not counted.
+   *
+   * @param warmup
+   *          warm-up duration, e.g. 10s, 1m. 0 for no warm-up.
+   */
+  public void setWarmup(String warmup) {
+    this.warmup = parseDuration(warmup);
+  }
+
+  /**
+   * Sets the rate of the open-loop mode.
+   *
+   * @param rate
+   *          operations per second over all threads. 0 for the closed-loop mode.
+   */
+  public void setRate(int rate) {
+    this.rate = Args.notNegative(rate, "rate");
+  }
+
+  /**
+   * Sets the file to which the result is written. The result is written in CSV format if the
+   * file name ends with .csv (one line per execution is appended), otherwise in JSON format.
+   *
+   * @param resultFile
+   *          the result file. {@code null} if the result shall not be written to file.
+   */
+  public void setResultFile(String resultFile) {
+    this.resultFile = resultFile;
+  }
+
+  private static int parseDuration(String duration) {
     Args.notBlank(duration, "duration");
     char unit = duration.charAt(duration.length() - 1);
 
@@ -154,24 +248,21 @@ public abstract class BenchmarkExecutor {
       throw new IllegalArgumentException("invalid duration " + duration);
     }
 
-    if (num < 1) {
+    if (num < 0) {
       throw new IllegalArgumentException("invalid duration " + duration);
     }
 
     switch (unit) {
       case 's':
-        this.duration = num;
-        break;
+        return num;
       case 'm':
-        this.duration = num * 60;
-        break;
+        return num * 60;
       case 'h':
-        this.duration = num * 3600; // 3600 = 60 * 60
-        break;
+        return num * 3600; // 3600 = 60 * 60
       default:
         throw new IllegalStateException("invalid duration unit " + unit);
     }
-  }
+  } // method parseDuration
 
   public void setThreads(int threads) {
     if (threads > 0) {
@@ -190,17 +281,58 @@ public abstract class BenchmarkExecutor {
     }
   }
 
+  /**
+   * Accounts the operations and records the latency of one operation.
+   *
+   * @param all
+   *          number of all operations.
+   * @param failed
+   *          number of failed operations.
+   * @param startNanos
+   *          start time of the operation (in {@link System#nanoTime()}), as returned by
+   *          {@link #nextOperation()}.
+   */
+  public void account(long all, long failed, long startNanos) {
+    account(all, failed);
+    if (!warmingUp) {
+      latencies.record(System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Waits until the next operation is due. In the closed-loop mode, this method returns
+   * immediately.
+   *
+   * @return the (scheduled) start time of the next operation in {@link System#nanoTime()},
+   *         to be passed to {@link #account(long, long, long)}.
+   */
+  protected long nextOperation() {
+    if (rate < 1) {
+      return System.nanoTime();
+    }
+
+    long startNanos = scheduleStartNanos
+        + scheduledOperations.getAndIncrement() * 1000_000_000L / rate;
+    long waitNanos;
+    while ((waitNanos = startNanos - System.nanoTime()) > 0 && !stop()) {
+      LockSupport.parkNanos(waitNanos);
+    }
+    return startNanos;
+  } // method nextOperation
+
   public int getThreads() {
     return threads;
   }
 
   protected void resetStartTime() {
     processLog.reset();
+    latencies.reset();
   }
 
   protected boolean stop() {
+    long maxDuration = (warmingUp ? warmup + duration : duration) * 1000L;
     return interrupted || errorAccount.get() > 0
-        || System.currentTimeMillis() - processLog.startTimeMs() >= duration * 1000L;
+        || System.currentTimeMillis() - processLog.startTimeMs() >= maxDuration;
   }
 
   protected void printHeader() {
@@ -229,8 +361,112 @@ public abstract class BenchmarkExecutor {
         "\n    average: ", averageText, " ", unit, "/s\n");
 
     System.out.println(msg);
+
+    if (latencies.getCount() > 0) {
+      StringBuilder sb = new StringBuilder(200);
+      sb.append("    latency (ms)\n       mean: ").append(formatMs(latencies.getMean()));
+      for (double p : PERCENTILES) {
+        String name = "p" + formatPercentile(p);
+        sb.append("\n").append(StringUtil.formatText(name, 11)).append(": ")
+          .append(formatMs(latencies.getPercentile(p)));
+      }
+      sb.append("\n        max: ").append(formatMs(latencies.getMax())).append("\n");
+      System.out.println(sb.toString());
+    }
+  } // method printSummary
+
+  /**
+   * Returns the histogram of the latencies recorded after the warm-up.
+   * @return the latency histogram.
+   */
+  public LatencyHistogram getLatencies() {
+    return latencies;
   }
 
+  private void writeResult(File file)
+      throws IOException {
+    IoUtil.mkdirsParent(file.toPath());
+
+    String[] names = {"startedAt", "threads", "rate", "warmup", "duration", "unit",
+        "account", "failed", "average", "latencyMeanMs", "latencyP50Ms", "latencyP90Ms",
+        "latencyP99Ms", "latencyP99.9Ms", "latencyMaxMs"};
+    String[] values = {
+        DateUtil.toUtcTimeyyyyMMddhhmmss(new Date(processLog.startTimeMs())),
+        Integer.toString(threads), Integer.toString(rate), Integer.toString(warmup),
+        Long.toString(processLog.totalElapsedTime() / 1000), unit,
+        Long.toString(processLog.numProcessed()), Long.toString(errorAccount.get()),
+        Integer.toString(processLog.totalAverageSpeed()),
+        formatMs(latencies.getMean()), formatMs(latencies.getPercentile(50)),
+        formatMs(latencies.getPercentile(90)), formatMs(latencies.getPercentile(99)),
+        formatMs(latencies.getPercentile(99.9)), formatMs(latencies.getMax())};
+
+    StringBuilder sb = new StringBuilder(500);
+    if (file.getName().toLowerCase().endsWith(".csv")) {
+      boolean newFile = !file.exists() || file.length() == 0;
+      if (newFile) {
+        sb.append("description");
+        for (String name : names) {
+          sb.append(",").append(name);
+        }
+        sb.append("\n");
+      }
+
+      sb.append(csvValue(description));
+      for (String value : values) {
+        sb.append(",").append(csvValue(value));
+      }
+      sb.append("\n");
+
+      Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } else {
+      // only the description and unit are strings
+      sb.append("{\n  \"description\": ").append(jsonString(description));
+      for (int i = 0; i < names.length; i++) {
+        boolean str = i == 0 || "unit".equals(names[i]);
+        sb.append(",\n  \"").append(names[i]).append("\": ")
+          .append(str ? jsonString(values[i]) : values[i]);
+      }
+      sb.append("\n}\n");
+      Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    System.out.println("result written to " + file.getPath());
+  } // method writeResult
+
+  private static String formatMs(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+  }
+
+  private static String formatPercentile(double percentile) {
+    return percentile == (long) percentile ? Long.toString((long) percentile)
+        : Double.toString(percentile);
+  }
+
+  private static String csvValue(String value) {
+    if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private static String jsonString(String value) {
+    StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      if (ch == '"' || ch == '\\') {
+        sb.append('\\').append(ch);
+      } else if (ch == '\n') {
+        sb.append("\\n");
+      } else if (ch < 0x20) {
+        sb.append(String.format("\\u%04x", (int) ch));
+      } else {
+        sb.append(ch);
+      }
+    }
+    return sb.append('"').toString();
+  } // method jsonString
+
   protected static long getSecureIndex() {
     SecureRandom random = new SecureRandom();
     while (true) {
@@ -0,0 +1,193 @@
+/*
+ *
+ * Copyright (c) 2013 - 2020 Lijun Liao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.xipki.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds with logarithmic buckets. Each power of
+ * two is divided into {@value #SUB_BUCKETS} linear sub-buckets, so that the relative error of
+ * the percentiles is at most 1/{@value #SUB_BUCKETS}. Recording a value does not allocate.
+ *
+ * @author Lijun Liao
+ * @since 5.3.11
+ */
+
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKETS = 8;
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private final AtomicLong total = new AtomicLong();
+
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos
+   *          latency in nanoseconds. Negative values are treated as 0.
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+
+    buckets.incrementAndGet(bucketIndex(nanos));
+    count.incrementAndGet();
+    total.addAndGet(nanos);
+
+    long currentMax;
+    while (nanos > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, nanos)) {
+        break;
+      }
+    }
+  } // method record
+
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Returns the sum of all recorded latencies.
+   * @return the sum of all recorded latencies in nanoseconds.
+   */
+  public long getTotal() {
+    return total.get();
+  }
+
+  /**
+   * Returns the maximal recorded latency.
+   * @return the maximal recorded latency in nanoseconds.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of the recorded latencies.
+   * @return the mean latency in nanoseconds, 0 if nothing has been recorded.
+   */
+  public long getMean() {
+    long cnt = count.get();
+    return cnt == 0 ? 0 : total.get() / cnt;
+  }
+
+  /**
+   * Returns the estimated percentile.
+   *
+   * @param percentile
+   *          percentile between 0 (exclusive) and 100 (inclusive), e.g. 99.9.
+   * @return the upper bound of the bucket containing the percentile, in nanoseconds.
+   *         0 if nothing has been recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile is not in (0, 100]: " + percentile);
+    }
+
+    long[] snapshot = new long[NUM_BUCKETS];
+    long cnt = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      cnt += snapshot[i];
+    }
+
+    if (cnt == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(cnt * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), max.get());
+      }
+    }
+
+    return max.get();
+  } // method getPercentile
+
+  /**
+   * Adds all values recorded in the other histogram to this histogram.
+   *
+   * @param other
+   *          the other histogram. Must not be {@code null}.
+   */
+  public void add(LatencyHistogram other) {
+    Args.notNull(other, "other");
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      long value = other.buckets.get(i);
+      if (value != 0) {
+        buckets.addAndGet(i, value);
+      }
+    }
+
+    count.addAndGet(other.count.get());
+    total.addAndGet(other.total.get());
+
+    long otherMax = other.max.get();
+    long currentMax;
+    while (otherMax > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, otherMax)) {
+        break;
+      }
+    }
+  } // method add
+
+  public void reset() {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  } // method reset
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  } // method bucketIndex
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + (subBucket + 1) * width - 1;
+  } // method bucketUpperBound
+
+}
@@ -194,17 +194,25 @@ public class ProcessLog {
     final long nowMs = System.currentTimeMillis();
     final long tmpNumProcessed = numProcessed.get();
 
-    if (!forcePrint && nowMs - lastPrintTimeMs.get() < MS_900) {
-      return;
+    // may be called by several threads sharing this ProcessLog, only one of them prints.
+    long lastPrintMs = lastPrintTimeMs.get();
+    if (!forcePrint) {
+      if (nowMs - lastPrintMs < MS_900 || !lastPrintTimeMs.compareAndSet(lastPrintMs, nowMs)) {
+        return;
+      }
+    } else {
+      lastPrintTimeMs.set(nowMs);
     }
 
-    measureDeque.addLast(new MeasurePoint(nowMs, numProcessed.get()));
-    lastPrintTimeMs.set(nowMs);
+    measureDeque.addLast(new MeasurePoint(nowMs, tmpNumProcessed));
 
     int numMeasurePoints = measureDeque.size();
     // CHECKSTYLE:SKIP
-    MeasurePoint referenceMeasurePoint = (numMeasurePoints > 10) ? measureDeque.removeFirst()
-        : measureDeque.getFirst();
+    MeasurePoint referenceMeasurePoint = (numMeasurePoints > 10) ? measureDeque.pollFirst()
+        : measureDeque.peekFirst();
+    if (referenceMeasurePoint == null) {
+      referenceMeasurePoint = new MeasurePoint(startTimeMs, 0);
+    }
 
     StringBuilder sb = new StringBuilder("\r");
 